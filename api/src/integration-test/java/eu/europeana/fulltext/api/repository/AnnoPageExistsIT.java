@@ -0,0 +1,139 @@
+package eu.europeana.fulltext.api.repository;
+
+import static dev.morphia.query.experimental.filters.Filters.eq;
+import static eu.europeana.fulltext.util.MorphiaUtils.Fields.ANNOTATIONS;
+import static eu.europeana.fulltext.util.MorphiaUtils.Fields.DATASET_ID;
+import static eu.europeana.fulltext.util.MorphiaUtils.Fields.DELETED;
+import static eu.europeana.fulltext.util.MorphiaUtils.Fields.DOC_ID;
+import static eu.europeana.fulltext.util.MorphiaUtils.Fields.LANGUAGE;
+import static eu.europeana.fulltext.util.MorphiaUtils.Fields.LOCAL_ID;
+import static eu.europeana.fulltext.util.MorphiaUtils.Fields.MODIFIED;
+import static eu.europeana.fulltext.util.MorphiaUtils.Fields.PAGE_ID;
+import static eu.europeana.fulltext.util.MorphiaUtils.Fields.TRANSLATION;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.mongodb.ExplainVerbosity;
+import com.mongodb.client.MongoCollection;
+import dev.morphia.Datastore;
+import eu.europeana.fulltext.api.BaseIntegrationTest;
+import eu.europeana.fulltext.entity.AnnoPage;
+import eu.europeana.fulltext.entity.FulltextPackageMapper;
+import eu.europeana.fulltext.repository.AnnoPageRepository;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Checks that AnnoPage existence checks are answered from the metadata index, and compares their latency with
+ * count() queries that filter on deleted and translation.
+ */
+class AnnoPageExistsIT extends BaseIntegrationTest {
+
+  private static final Logger LOG = LogManager.getLogger(AnnoPageExistsIT.class);
+
+  private static final String DATASET = "9200396";
+  private static final int RECORDS = 100;
+  private static final int PAGES_PER_RECORD = 20;
+  private static final int ANNOTATIONS_PER_PAGE = 200;
+  private static final int CHECKS = 1000;
+
+  @Autowired private AnnoPageRepository repository;
+  @Autowired private Datastore datastore;
+
+  private MongoCollection<Document> collection;
+
+  @BeforeEach
+  void createAnnoPages() {
+    datastore.getMapper().mapPackage(FulltextPackageMapper.class.getPackageName());
+    datastore.ensureIndexes();
+    collection = datastore.getMapper().getCollection(AnnoPage.class).withDocumentClass(Document.class);
+
+    List<Document> annotations = new ArrayList<>();
+    for (int i = 0; i < ANNOTATIONS_PER_PAGE; i++) {
+      annotations.add(new Document("anId", String.format("%032d", i)).append("dcType", "W")
+          .append("from", i * 10).append("to", i * 10 + 8));
+    }
+    for (int record = 0; record < RECORDS; record++) {
+      List<Document> annoPages = new ArrayList<>();
+      for (int page = 1; page <= PAGES_PER_RECORD; page++) {
+        Document original = annoPage(record, page, "nl", annotations);
+        // every 5th page is deprecated
+        if (page % 5 == 0) {
+          original.append(DELETED, new Date()).remove(ANNOTATIONS);
+        }
+        annoPages.add(original);
+        // every 10th page has a translation
+        if (page % 10 == 1) {
+          annoPages.add(annoPage(record, page, "en", annotations).append(TRANSLATION, true));
+        }
+      }
+      collection.insertMany(annoPages);
+    }
+  }
+
+  private static Document annoPage(int record, int page, String lang, List<Document> annotations) {
+    return new Document(DATASET_ID, DATASET)
+        .append(LOCAL_ID, "record_" + record)
+        .append(PAGE_ID, String.valueOf(page))
+        .append(LANGUAGE, lang)
+        .append(MODIFIED, new Date())
+        .append(ANNOTATIONS, annotations);
+  }
+
+  @Test
+  void existenceChecksShouldHonourDeprecationAndTranslation() {
+    assertTrue(repository.existsByPageId(DATASET, "record_1", "1", false));
+    assertTrue(repository.existsOriginalByPageId(DATASET, "record_1", "1", false));
+    assertTrue(repository.existsByPageIdLang(DATASET, "record_1", "1", "en", false));
+    assertFalse(repository.existsByPageIdLang(DATASET, "record_1", "1", "de", true));
+
+    assertFalse(repository.existsByPageId(DATASET, "record_1", "5", false));
+    assertTrue(repository.existsByPageId(DATASET, "record_1", "5", true));
+    assertFalse(repository.existsOriginalByPageId(DATASET, "record_1", "5", false));
+    assertTrue(repository.existsOriginalByPageId(DATASET, "record_1", "5", true));
+
+    assertFalse(repository.existsByPageId(DATASET, "record_1", "100", true));
+  }
+
+  @Test
+  void existenceCheckShouldNotReadDocuments() {
+    Document filter = new Document(DATASET_ID, DATASET).append(LOCAL_ID, "record_1").append(PAGE_ID, "1");
+    Document projection = new Document(TRANSLATION, 1).append(DELETED, 1).append(DOC_ID, 0);
+    Document explain = collection.find(filter).projection(projection).explain(ExplainVerbosity.EXECUTION_STATS);
+
+    Document executionStats = explain.get("executionStats", Document.class);
+    assertEquals(2, executionStats.getInteger("nReturned"));
+    assertEquals(0, executionStats.getInteger("totalDocsExamined"));
+  }
+
+  @Test
+  void compareLatency() {
+    long start = System.nanoTime();
+    for (int i = 0; i < CHECKS; i++) {
+      datastore.find(AnnoPage.class)
+          .filter(eq(DATASET_ID, DATASET), eq(LOCAL_ID, "record_" + (i % RECORDS)),
+              eq(PAGE_ID, String.valueOf(i % PAGES_PER_RECORD + 1)), eq(TRANSLATION, null), eq(DELETED, null))
+          .count();
+    }
+    long countNanos = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    for (int i = 0; i < CHECKS; i++) {
+      repository.existsOriginalByPageId(DATASET, "record_" + (i % RECORDS),
+          String.valueOf(i % PAGES_PER_RECORD + 1), false);
+    }
+    long indexNanos = System.nanoTime() - start;
+
+    LOG.info("{} existence checks on {} AnnoPages: count() with deleted/translation filters {} µs/check, "
+            + "covered index query {} µs/check", CHECKS, collection.countDocuments(),
+        countNanos / 1000 / CHECKS, indexNanos / 1000 / CHECKS);
+  }
+}
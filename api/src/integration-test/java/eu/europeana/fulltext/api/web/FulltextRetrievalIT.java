@@ -11,6 +11,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.result.MockMvcResultHandlers;
@@ -555,6 +556,45 @@ class FulltextRetrievalIT extends BaseIntegrationTest {
     }
 
 
+    // ANNOPAGES TESTS
+
+    @Test
+    void annoPagesJson_NotModified_Test() throws Exception {
+        String eTag = mockMvc.perform(
+                        get(
+                                "/presentation/{datasetId}/{localId}/annopages",
+                                transcriptionAnnoPage.getDsId(),
+                                transcriptionAnnoPage.getLcId()
+                        ).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(
+                        get(
+                                "/presentation/{datasetId}/{localId}/annopages",
+                                transcriptionAnnoPage.getDsId(),
+                                transcriptionAnnoPage.getLcId()
+                        )
+                                .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                                .accept(MediaType.APPLICATION_JSON))
+                .andDo(MockMvcResultHandlers.print())
+                .andExpect(status().isNotModified());
+
+        // a different output version has a different ETag
+        mockMvc.perform(
+                        get(
+                                "/presentation/{datasetId}/{localId}/annopages",
+                                transcriptionAnnoPage.getDsId(),
+                                transcriptionAnnoPage.getLcId()
+                        )
+                                .param("format", "3")
+                                .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                                .accept(MediaType.APPLICATION_JSON))
+                .andDo(MockMvcResultHandlers.print())
+                .andExpect(status().isOk());
+    }
+
+
     // RESOURCE JSON + JSONLD TESTS
 
     @Test
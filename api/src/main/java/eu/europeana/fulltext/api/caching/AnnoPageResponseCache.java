@@ -0,0 +1,204 @@
+package eu.europeana.fulltext.api.caching;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import eu.europeana.fulltext.AnnotationType;
+import eu.europeana.fulltext.api.config.FTSettings;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory cache of serialized IIIF annotation page responses. Next to the serialized response we can also store a
+ * gzip compressed version, so compression only needs to be done once per AnnoPage version.
+ * <p>
+ * The cache is bounded by the total number of bytes of the cached responses (not the number of entries). Each entry
+ * stores the modified date of the AnnoPage it was generated from, so a cached response is only used when it's still
+ * up-to-date. Hit, miss and eviction statistics are available as actuator metrics under the name
+ * {@value #CACHE_NAME}.
+ */
+@Component
+public class AnnoPageResponseCache {
+
+    public static final String CACHE_NAME = "annopage.responses";
+
+    private static final Logger LOG = LogManager.getLogger(AnnoPageResponseCache.class);
+    private static final long BYTES_PER_MB = 1024L * 1024L;
+    // rough estimate of the memory used by an entry apart from the response body itself
+    private static final int ENTRY_OVERHEAD_BYTES = 256;
+
+    private final Cache<Key, CachedResponse> cache;
+
+    public AnnoPageResponseCache(FTSettings settings, MeterRegistry meterRegistry) {
+        long maxBytes = settings.getAnnoPageCacheMaxSizeMb() * BYTES_PER_MB;
+        if (maxBytes <= 0) {
+            LOG.info("Annotation page response cache is disabled");
+            this.cache = null;
+            return;
+        }
+        LOG.info("Annotation page response cache maximum size = {} MB", settings.getAnnoPageCacheMaxSizeMb());
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Key key, CachedResponse value) -> value.getWeight())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        Gauge.builder(CACHE_NAME + ".weight", cache, AnnoPageResponseCache::getWeightedSize)
+                .description("Approximate number of bytes used by the cached responses")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    private static long getWeightedSize(Cache<Key, CachedResponse> cache) {
+        return cache.policy().eviction().flatMap(e -> e.weightedSize()).orElse(0L);
+    }
+
+    /**
+     * @return true if responses are cached, false if the cache was disabled in the configuration
+     */
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * Returns the cached response for the provided key, but only if it was generated from an AnnoPage with the
+     * provided modified date
+     *
+     * @param key      key of the requested response
+     * @param modified current modified date of the AnnoPage
+     * @return cached response, or null if there's no (up-to-date) cached response
+     */
+    public CachedResponse get(Key key, Date modified) {
+        if (cache == null) {
+            return null;
+        }
+        CachedResponse cached = cache.getIfPresent(key);
+        if (cached == null) {
+            return null;
+        }
+        if (cached.modified != modified.getTime()) {
+            // outdated, will be replaced after the new response is generated
+            cache.invalidate(key);
+            return null;
+        }
+        return cached;
+    }
+
+    /**
+     * Stores a serialized response
+     *
+     * @param key      key of the response
+     * @param modified modified date of the AnnoPage the response was generated from
+     * @param body     serialized response
+     * @param gzipBody gzip compressed serialized response, can be null
+     */
+    public void put(Key key, Date modified, byte[] body, byte[] gzipBody) {
+        if (cache != null) {
+            cache.put(key, new CachedResponse(modified.getTime(), body, gzipBody));
+        }
+    }
+
+    /**
+     * Serialized response, plus optionally the compressed version of it
+     */
+    public static final class CachedResponse {
+        private final long   modified;
+        private final byte[] body;
+        private final byte[] gzipBody;
+
+        private CachedResponse(long modified, byte[] body, byte[] gzipBody) {
+            this.modified = modified;
+            this.body = body;
+            this.gzipBody = gzipBody;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        /**
+         * @return gzip compressed body, or null if the response wasn't compressed
+         */
+        public byte[] getGzipBody() {
+            return gzipBody;
+        }
+
+        private int getWeight() {
+            return body.length + (gzipBody == null ? 0 : gzipBody.length) + ENTRY_OVERHEAD_BYTES;
+        }
+    }
+
+    /**
+     * Identifies a serialized annotation page response, ie. all request parameters that influence the output
+     */
+    public static final class Key {
+        private final String              datasetId;
+        private final String              localId;
+        private final String              pageId;
+        private final String              lang;
+        private final String              iiifVersion;
+        private final Set<AnnotationType> textGranularity;
+        private final boolean             profileText;
+        private final boolean             isJson;
+        private final boolean             pretty;
+
+        /**
+         * @param datasetId       identifier of the AnnoPage's dataset
+         * @param localId         identifier of the AnnoPage's record
+         * @param pageId          identifier of the AnnoPage
+         * @param lang            requested language, null or empty for the original AnnoPage
+         * @param iiifVersion     requested IIIF version (2 or 3)
+         * @param textGranularity requested annotation types, empty for all types
+         * @param profileText     true if the resource is dereferenced (profile=text)
+         * @param isJson          true for JSON responses, false for JSON-LD
+         * @param pretty          true if the response is pretty printed
+         */
+        public Key(String datasetId, String localId, String pageId, String lang, String iiifVersion,
+                   List<AnnotationType> textGranularity, boolean profileText, boolean isJson, boolean pretty) {
+            this.datasetId = datasetId;
+            this.localId = localId;
+            this.pageId = pageId;
+            this.lang = (lang == null || lang.isEmpty()) ? null : lang;
+            this.iiifVersion = iiifVersion;
+            // order of the requested types doesn't influence the output
+            this.textGranularity = textGranularity.isEmpty() ? Set.of() : EnumSet.copyOf(textGranularity);
+            this.profileText = profileText;
+            this.isJson = isJson;
+            this.pretty = pretty;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return profileText == key.profileText &&
+                    isJson == key.isJson &&
+                    pretty == key.pretty &&
+                    datasetId.equals(key.datasetId) &&
+                    localId.equals(key.localId) &&
+                    pageId.equals(key.pageId) &&
+                    Objects.equals(lang, key.lang) &&
+                    iiifVersion.equals(key.iiifVersion) &&
+                    textGranularity.equals(key.textGranularity);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(datasetId, localId, pageId, lang, iiifVersion, textGranularity, profileText, isJson,
+                pretty);
+        }
+    }
+}
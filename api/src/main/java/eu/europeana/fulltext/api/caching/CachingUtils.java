@@ -111,7 +111,7 @@ public class CachingUtils implements CachingHeaders {
      * @param eTag     String with the calculated eTag of the requested data
      * @return ResponseEntity with 304 or 312 status if requested object has not changed, otherwise null
      */
-    public static ResponseEntity<String> checkCached(HttpServletRequest request, ZonedDateTime modified, String eTag) {
+    public static <T> ResponseEntity<T> checkCached(HttpServletRequest request, ZonedDateTime modified, String eTag) {
         HttpHeaders headers;
         // If “If-None-Match” is supplied (as defined in RFC7232), check if at least one of the “ETag”
         // values within the header is the same as the current “ETag” of the resource OR if it is “*”
@@ -0,0 +1,167 @@
+package eu.europeana.fulltext.api.caching;
+
+import eu.europeana.fulltext.api.config.FTSettings;
+import eu.europeana.fulltext.exception.SerializationException;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Enumeration;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Utility methods for compressing responses in the application itself (instead of leaving that to the servlet
+ * container or ingress), so a compressed response can be cached and compression only has to be done once.
+ * Note that only gzip is supported, as there is no Brotli encoder available in the JDK.
+ */
+public final class CompressionUtils {
+
+    public static final String GZIP = "gzip";
+
+    private static final String X_GZIP = "x-gzip";
+    private static final String ANY = "*";
+    private static final String QUALITY_PARAM = "q=";
+
+    private CompressionUtils() {
+        // empty constructor to prevent initialization
+    }
+
+    /**
+     * Checks the Accept-Encoding header(s) of the request to see if the client accepts a gzip compressed response
+     *
+     * @param request incoming HttpServletRequest
+     * @return true if gzip (or any encoding) is accepted with a quality value larger than 0
+     */
+    public static boolean acceptsGzip(HttpServletRequest request) {
+        Enumeration<String> headerValues = request.getHeaders(HttpHeaders.ACCEPT_ENCODING);
+        if (headerValues == null) {
+            return false;
+        }
+        float anyQuality = 0;
+        while (headerValues.hasMoreElements()) {
+            for (String encoding : StringUtils.split(headerValues.nextElement(), ',')) {
+                String[] parts = StringUtils.split(encoding, ';');
+                if (parts.length == 0) {
+                    continue;
+                }
+                String name = parts[0].trim();
+                if (GZIP.equalsIgnoreCase(name) || X_GZIP.equalsIgnoreCase(name)) {
+                    return getQuality(parts) > 0;
+                }
+                if (ANY.equals(name)) {
+                    anyQuality = getQuality(parts);
+                }
+            }
+        }
+        return anyQuality > 0;
+    }
+
+    private static float getQuality(String[] encodingParts) {
+        for (int i = 1; i < encodingParts.length; i++) {
+            String param = encodingParts[i].trim();
+            if (param.startsWith(QUALITY_PARAM)) {
+                try {
+                    return Float.parseFloat(param.substring(QUALITY_PARAM.length()));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Compresses the provided data using gzip
+     *
+     * @param data data to compress
+     * @return compressed data
+     * @throws SerializationException when compression fails
+     */
+    public static byte[] gzip(byte[] data) throws SerializationException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new SerializationException("Error compressing response: " + e.getMessage(), e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Compresses a response body, but only if compression is enabled and the body is large enough for compression to
+     * be worthwhile
+     *
+     * @param settings application settings
+     * @param body     serialized response
+     * @return gzip compressed body, or null if the body shouldn't be compressed
+     * @throws SerializationException when compression fails
+     */
+    public static byte[] gzipIfUseful(FTSettings settings, byte[] body) throws SerializationException {
+        if (!settings.isResponseCompressionEnabled() || body.length < settings.getResponseCompressionMinSize()) {
+            return null;
+        }
+        return gzip(body);
+    }
+
+    /**
+     * Adds a Vary header for the Accept-Encoding request header, if response compression is enabled
+     *
+     * @param settings application settings
+     * @param headers  response headers to update
+     */
+    public static void addVaryHeader(FTSettings settings, HttpHeaders headers) {
+        if (settings.isResponseCompressionEnabled()) {
+            headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+    }
+
+    /**
+     * @param settings application settings
+     * @param request  incoming HttpServletRequest
+     * @return true if the response to this request should be gzip compressed
+     */
+    public static boolean shouldGzip(FTSettings settings, HttpServletRequest request) {
+        return settings.isResponseCompressionEnabled() && acceptsGzip(request);
+    }
+
+    /**
+     * Creates a response with the compressed body if that's available and accepted by the client, otherwise with the
+     * uncompressed body
+     *
+     * @param settings application settings
+     * @param request  incoming HttpServletRequest
+     * @param headers  response headers
+     * @param body     serialized response
+     * @param gzipBody gzip compressed response, can be null
+     * @return ResponseEntity with status 200
+     */
+    public static ResponseEntity<byte[]> createResponse(FTSettings settings, HttpServletRequest request,
+                                                        HttpHeaders headers, byte[] body, byte[] gzipBody) {
+        addVaryHeader(settings, headers);
+        if (gzipBody != null && acceptsGzip(request)) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, GZIP);
+            return new ResponseEntity<>(gzipBody, headers, HttpStatus.OK);
+        }
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
+
+    /**
+     * Creates a response, compressing the body if that is accepted by the client
+     *
+     * @param settings application settings
+     * @param request  incoming HttpServletRequest
+     * @param headers  response headers
+     * @param body     serialized response
+     * @return ResponseEntity with status 200
+     * @throws SerializationException when compression fails
+     */
+    public static ResponseEntity<byte[]> createResponse(FTSettings settings, HttpServletRequest request,
+                                                        HttpHeaders headers, byte[] body) throws SerializationException {
+        byte[] gzipBody = shouldGzip(settings, request) ? gzipIfUseful(settings, body) : null;
+        return createResponse(settings, request, headers, body, gzipBody);
+    }
+}
@@ -0,0 +1,186 @@
+package eu.europeana.fulltext.api.caching;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import eu.europeana.fulltext.AnnotationType;
+import eu.europeana.fulltext.api.config.FTSettings;
+import eu.europeana.fulltext.search.model.query.EuropeanaId;
+import eu.europeana.fulltext.search.model.response.SearchResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.text.Normalizer;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Pattern;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.stereotype.Component;
+
+import static eu.europeana.iiif.AcceptUtils.REQUEST_VERSION_2;
+import static eu.europeana.iiif.AcceptUtils.REQUEST_VERSION_3;
+
+/**
+ * In-memory cache of search-inside results, so repeated searches don't need to query Solr and Mongo again.
+ * <p>
+ * Entries are keyed by the record and a normalized form of the query (see {@link Key}), and store the
+ * timestamp_update_fulltext value of the record in Solr at the time the result was generated. A cached result is only
+ * used when the record wasn't re-indexed since. Hit, miss and eviction statistics are available as actuator metrics
+ * under the name {@value #CACHE_NAME}, the time saved by cache hits under {@value #SAVED_TIME_METRIC}.
+ */
+@Component
+public class SearchResultCache {
+
+    public static final String CACHE_NAME = "search.results";
+    public static final String SAVED_TIME_METRIC = CACHE_NAME + ".saved.time";
+
+    private static final Logger LOG = LogManager.getLogger(SearchResultCache.class);
+
+    private final Cache<Key, CachedResult> cache;
+    private final Counter savedTime;
+
+    public SearchResultCache(FTSettings settings, MeterRegistry meterRegistry) {
+        int maxEntries = settings.getSearchCacheMaxEntries();
+        if (maxEntries <= 0) {
+            LOG.info("Search result cache is disabled");
+            this.cache = null;
+            this.savedTime = null;
+            return;
+        }
+        LOG.info("Search result cache maximum size = {} results", maxEntries);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        this.savedTime = Counter.builder(SAVED_TIME_METRIC)
+                .description("Time spent on querying Solr and Mongo that was saved by returning cached results")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return true if search results are cached, false if the cache was disabled in the configuration
+     */
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * Returns the cached result for the provided key, but only if it was generated when the record had the provided
+     * fulltext timestamp
+     *
+     * @param key      key of the requested search
+     * @param modified current timestamp_update_fulltext of the record
+     * @return cached result, or null if there's no (up-to-date) cached result
+     */
+    public SearchResult get(Key key, Date modified) {
+        if (cache == null) {
+            return null;
+        }
+        CachedResult cached = cache.getIfPresent(key);
+        if (cached == null) {
+            return null;
+        }
+        if (cached.modified != modified.getTime()) {
+            // record was re-indexed, will be replaced after the new result is generated
+            cache.invalidate(key);
+            return null;
+        }
+        savedTime.increment(cached.durationMs);
+        return cached.result;
+    }
+
+    /**
+     * Stores a search result. The result should not be modified afterwards.
+     *
+     * @param key        key of the search
+     * @param modified   timestamp_update_fulltext of the record when the search was done
+     * @param result     search result
+     * @param durationMs time it took to generate the result
+     */
+    public void put(Key key, Date modified, SearchResult result, long durationMs) {
+        if (cache != null) {
+            cache.put(key, new CachedResult(modified.getTime(), result, durationMs));
+        }
+    }
+
+    private static final class CachedResult {
+        private final long         modified;
+        private final SearchResult result;
+        private final long         durationMs;
+
+        private CachedResult(long modified, SearchResult result, long durationMs) {
+            this.modified = modified;
+            this.result = result;
+            this.durationMs = durationMs;
+        }
+    }
+
+    /**
+     * Identifies a search result, ie. all request parameters that influence the hits and annotations that are found.
+     * The query is normalized so searches that only differ in case, surrounding or repeated whitespace, or in characters
+     * that are removed before querying Solr anyway share the same result.
+     */
+    public static final class Key {
+        // same characters that are removed from the query by SolrHighlightQueryImpl
+        private static final Pattern IGNORED_CHARS = Pattern.compile("[{}<>]");
+        private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+        private final String              europeanaId;
+        private final String              query;
+        private final int                 pageSize;
+        private final Set<AnnotationType> textGranularity;
+        private final String              version;
+
+        /**
+         * @param europeanaId     id of the searched record
+         * @param query           search query
+         * @param pageSize        maximum number of hits
+         * @param textGranularity requested annotation types
+         * @param version         requested IIIF version, version 2 if empty
+         */
+        public Key(EuropeanaId europeanaId, String query, int pageSize, List<AnnotationType> textGranularity,
+                   String version) {
+            this.europeanaId = europeanaId.toString();
+            this.query = normalizeQuery(query);
+            this.pageSize = pageSize;
+            // order of the requested types doesn't influence the output
+            this.textGranularity = textGranularity.isEmpty() ? Set.of() : EnumSet.copyOf(textGranularity);
+            this.version = REQUEST_VERSION_3.equals(version) ? REQUEST_VERSION_3 : REQUEST_VERSION_2;
+        }
+
+        static String normalizeQuery(String query) {
+            String result = Normalizer.normalize(query, Normalizer.Form.NFC);
+            result = IGNORED_CHARS.matcher(result).replaceAll("");
+            result = WHITESPACE.matcher(result.trim()).replaceAll(" ");
+            // full-text fields are analyzed case-insensitive
+            return result.toLowerCase(Locale.ROOT);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return pageSize == key.pageSize &&
+                    europeanaId.equals(key.europeanaId) &&
+                    query.equals(key.query) &&
+                    textGranularity.equals(key.textGranularity) &&
+                    version.equals(key.version);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(europeanaId, query, pageSize, textGranularity, version);
+        }
+    }
+}
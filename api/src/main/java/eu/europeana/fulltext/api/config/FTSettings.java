@@ -87,6 +87,36 @@ public class FTSettings implements InitializingBean {
     @Value("${spring.data.solr.repositories.enabled}")
     private boolean solrEnabled;
 
+    @Value("${annopage.cache.maxSizeMb:256}")
+    private int annoPageCacheMaxSizeMb;
+
+    @Value("${annopage.streaming.enabled:false}")
+    private boolean annoPageStreamingEnabled;
+
+    @Value("${response.compression.enabled:true}")
+    private boolean responseCompressionEnabled;
+
+    @Value("${response.compression.minSizeBytes:2048}")
+    private int responseCompressionMinSize;
+
+    @Value("${annopage.batch.maxPages:500}")
+    private int annoPageBatchMaxPages;
+
+    @Value("${search.annotationsFromSolr.enabled:false}")
+    private boolean searchAnnotationsFromSolr;
+
+    @Value("${search.hitResolution.threads:4}")
+    private int searchHitResolutionThreads;
+
+    @Value("${search.requestThreads:16}")
+    private int searchRequestThreads;
+
+    @Value("${search.cache.maxEntries:1000}")
+    private int searchCacheMaxEntries;
+
+    @Value("${search.collection.facets:TYPE,LANGUAGE,COUNTRY,YEAR,RIGHTS,PROVIDER,DATA_PROVIDER}")
+    private List<String> searchCollectionFacets;
+
 
     @Autowired
     private Environment environment;
@@ -228,4 +258,77 @@ public class FTSettings implements InitializingBean {
     public int getMaxBufferMb() {
         return maxBufferMb;
     }
+
+    /**
+     * @return maximum size in MB of the in-memory cache for serialized annotation pages, 0 if caching is disabled
+     */
+    public int getAnnoPageCacheMaxSizeMb() {
+        return annoPageCacheMaxSizeMb;
+    }
+
+    /**
+     * @return true if annotation pages are written directly to the output instead of generating (and serialising)
+     * AnnotationPageV2/V3 objects first
+     */
+    public boolean isAnnoPageStreamingEnabled() {
+        return annoPageStreamingEnabled;
+    }
+
+    /**
+     * @return true if responses are gzip compressed by the application (when accepted by the client)
+     */
+    public boolean isResponseCompressionEnabled() {
+        return responseCompressionEnabled;
+    }
+
+    /**
+     * @return minimum size in bytes of a response before it's compressed
+     */
+    public int getResponseCompressionMinSize() {
+        return responseCompressionMinSize;
+    }
+
+    /**
+     * @return maximum number of annotation pages that can be retrieved in one batch request
+     */
+    public int getAnnoPageBatchMaxPages() {
+        return annoPageBatchMaxPages;
+    }
+
+    /**
+     * @return true if search-inside maps hits to annotations using the annotation tables stored in Solr, instead of
+     * reading the AnnoPages from Mongo
+     */
+    public boolean isSearchAnnotationsFromSolrEnabled() {
+        return searchAnnotationsFromSolr;
+    }
+
+    /**
+     * @return number of threads used to match search hits with the annotations of multiple AnnoPages concurrently,
+     * 0 if AnnoPages are processed sequentially by the request thread
+     */
+    public int getSearchHitResolutionThreads() {
+        return searchHitResolutionThreads;
+    }
+
+    /**
+     * @return number of threads used to process Solr responses when searching inside a record
+     */
+    public int getSearchRequestThreads() {
+        return searchRequestThreads;
+    }
+
+    /**
+     * @return names of the metadata fields that can be used as facets in a collection search
+     */
+    public List<String> getSearchCollectionFacets() {
+        return Collections.unmodifiableList(searchCollectionFacets);
+    }
+
+    /**
+     * @return maximum number of search results kept in the in-memory cache, 0 if caching is disabled
+     */
+    public int getSearchCacheMaxEntries() {
+        return searchCacheMaxEntries;
+    }
 }
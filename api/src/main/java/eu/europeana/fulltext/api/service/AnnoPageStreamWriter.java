@@ -0,0 +1,294 @@
+package eu.europeana.fulltext.api.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import eu.europeana.fulltext.AnnotationType;
+import eu.europeana.fulltext.api.model.FTResource;
+import eu.europeana.fulltext.entity.AnnoPage;
+import eu.europeana.fulltext.entity.Annotation;
+import eu.europeana.fulltext.entity.Target;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static eu.europeana.fulltext.api.config.FTDefinitions.*;
+import static eu.europeana.fulltext.api.service.EDM2IIIFMapping.*;
+import static eu.europeana.iiif.IIIFDefinitions.*;
+
+/**
+ * Writes IIIF v2 and v3 annotation pages for an AnnoPage directly to a JsonGenerator, so no AnnotationPageV2/V3,
+ * AnnotationV2/V3 and annotation body objects have to be created first. The generated JSON is the same as serialising
+ * the objects created by {@link EDM2IIIFMapping} with the application's ObjectMapper (compact or pretty printed), so
+ * property order and the omission of null values follow the @JsonPropertyOrder annotations of those model classes.
+ * Any change in the model classes or mapping should be made here as well.
+ */
+final class AnnoPageStreamWriter {
+
+    private static final String V2_ANNO_PAGE_TYPE    = "sc:AnnotationList";
+    private static final String V2_ANNOTATION_TYPE   = "oa:Annotation";
+    private static final String V2_FULL_BODY_TYPE    = "oa:SpecificResource";
+
+    private static final String[] V2_CONTEXT = {MEDIA_TYPE_IIIF_V2, TEXT_GRANULARITY_CONTEXT, MEDIA_TYPE_EDM_JSONLD};
+    private static final String[] V3_CONTEXT = {MEDIA_TYPE_IIIF_V3, TEXT_GRANULARITY_CONTEXT, MEDIA_TYPE_EDM_JSONLD};
+
+    private AnnoPageStreamWriter() {
+        // empty constructor to prevent initialization
+    }
+
+    /**
+     * Values that are the same for all annotations of a page, so they are only generated once
+     */
+    private static final class PageContext {
+        private final AnnoPage annoPage;
+        private final String   annotationIdBaseUrl;
+        private final String   resourceIdBaseUrl;
+        private final boolean  derefResource;
+        private FTResource     ftResource;
+        private boolean        ftResourceFetched;
+
+        private PageContext(AnnoPage annoPage, boolean derefResource) {
+            this.annoPage = annoPage;
+            this.annotationIdBaseUrl = getAnnotationIdBaseUrl(annoPage);
+            this.resourceIdBaseUrl = getResourceIdBaseUrl(annoPage);
+            this.derefResource = derefResource;
+        }
+
+        /**
+         * @return the dereferenced resource if the annotation is a top-level annotation and profile=text was requested,
+         * otherwise null
+         */
+        private FTResource getDerefResource(Annotation annotation) {
+            if (!derefResource || !annotation.isTopLevel()) {
+                return null;
+            }
+            // all top-level annotations refer to the same resource, so we retrieve it only once
+            if (!ftResourceFetched) {
+                ftResource = fetchFTResource(annoPage);
+                ftResourceFetched = true;
+            }
+            return ftResource;
+        }
+    }
+
+    static void writeAnnotationPageV2(JsonGenerator gen, AnnoPage annoPage, List<AnnotationType> textGranValues,
+                                      boolean derefResource, boolean includeContext) throws IOException {
+        PageContext ctx = new PageContext(annoPage, derefResource);
+        gen.writeStartObject();
+        if (includeContext) {
+            writeStringArray(gen, "@context", V2_CONTEXT);
+        }
+        gen.writeStringField("@id", getAnnoPageIdUrl(annoPage));
+        gen.writeStringField("@type", V2_ANNO_PAGE_TYPE);
+        writeOptionalString(gen, "language", annoPage.getLang());
+        writeStringArray(gen, "textGranularity", findTextGranularities(textGranValues, annoPage.getAns()));
+        writeOptionalString(gen, "source", annoPage.getSource());
+        gen.writeArrayFieldStart("resources");
+        List<Annotation> ans = annoPage.getAns();
+        // make sure page annotations are listed first (in reverse order, same as EDM2IIIFMapping)
+        for (int i = ans.size() - 1; i >= 0; i--) {
+            if (ans.get(i).isTopLevel()) {
+                writeAnnotationV2(gen, ctx, ans.get(i));
+            }
+        }
+        for (Annotation annotation : ans) {
+            if (!annotation.isTopLevel()) {
+                writeAnnotationV2(gen, ctx, annotation);
+            }
+        }
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+
+    private static void writeAnnotationV2(JsonGenerator gen, PageContext ctx, Annotation annotation) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("@id", ctx.annotationIdBaseUrl + annotation.getAnId());
+        gen.writeStringField("@type", V2_ANNOTATION_TYPE);
+        gen.writeStringField("motivation",
+                StringUtils.isNotBlank(annotation.getMotiv()) ? annotation.getMotiv() : V2_MOTIVATION);
+        gen.writeStringField("textGranularity", dcTypeToTextGranularity(annotation.getDcType()));
+
+        gen.writeObjectFieldStart("resource");
+        gen.writeStringField("@id", getResourceIdUrl(ctx, annotation));
+        if (StringUtils.isNotBlank(annotation.getLang())) {
+            // AnnotationFullBodyV2
+            gen.writeStringField("@type", V2_FULL_BODY_TYPE);
+            gen.writeStringField("full", ctx.resourceIdBaseUrl);
+            gen.writeStringField("language", annotation.getLang());
+        } else {
+            FTResource ftResource = ctx.getDerefResource(annotation);
+            if (ftResource != null) {
+                writeOptionalString(gen, "@type", ftResource.getType());
+                writeOptionalString(gen, "edmRights", ftResource.getRights());
+                writeOptionalString(gen, "source", ftResource.getSource());
+                writeOptionalString(gen, "language", ftResource.getLanguage());
+                writeOptionalString(gen, "value", ftResource.getValue());
+            }
+        }
+        gen.writeEndObject();
+
+        gen.writeArrayFieldStart("on");
+        writeTargets(gen, ctx, annotation);
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+
+    static void writeAnnotationPageV3(JsonGenerator gen, AnnoPage annoPage, List<AnnotationType> textGranValues,
+                                      boolean derefResource, boolean includeContext) throws IOException {
+        PageContext ctx = new PageContext(annoPage, derefResource);
+        gen.writeStartObject();
+        if (includeContext) {
+            writeStringArray(gen, "@context", V3_CONTEXT);
+        }
+        gen.writeStringField("id", getAnnoPageIdUrl(annoPage));
+        gen.writeStringField("type", V3_ANNO_PAGE_TYPE);
+        writeOptionalString(gen, "language", annoPage.getLang());
+        writeStringArray(gen, "textGranularity", findTextGranularities(textGranValues, annoPage.getAns()));
+        writeOptionalString(gen, "source", annoPage.getSource());
+        gen.writeArrayFieldStart("items");
+        List<Annotation> ans = annoPage.getAns();
+        // make sure page annotations are listed first (in reverse order, same as EDM2IIIFMapping)
+        for (int i = ans.size() - 1; i >= 0; i--) {
+            if (ans.get(i).isTopLevel()) {
+                writeAnnotationV3(gen, ctx, ans.get(i));
+            }
+        }
+        for (Annotation annotation : ans) {
+            if (!annotation.isTopLevel()) {
+                writeAnnotationV3(gen, ctx, annotation);
+            }
+        }
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+
+    private static void writeAnnotationV3(JsonGenerator gen, PageContext ctx, Annotation annotation) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("id", ctx.annotationIdBaseUrl + annotation.getAnId());
+        gen.writeStringField("type", V3_ANNOTATION_TYPE);
+        gen.writeStringField("motivation",
+                StringUtils.isNotBlank(annotation.getMotiv()) ? annotation.getMotiv() : V3_MOTIVATION);
+        gen.writeStringField("textGranularity", dcTypeToTextGranularity(annotation.getDcType()));
+
+        gen.writeObjectFieldStart("body");
+        gen.writeStringField("id", getResourceIdUrl(ctx, annotation));
+        if (StringUtils.isNotBlank(annotation.getLang())) {
+            // note that AnnotationBodyV3 doesn't output the type set in its constructor, so we don't either
+            gen.writeStringField("source", ctx.resourceIdBaseUrl);
+            gen.writeStringField("language", annotation.getLang());
+        } else {
+            FTResource ftResource = ctx.getDerefResource(annotation);
+            if (ftResource != null) {
+                writeOptionalString(gen, "type", ftResource.getType());
+                writeOptionalString(gen, "edmRights", ftResource.getRights());
+                writeOptionalString(gen, "source", ftResource.getSource());
+                writeOptionalString(gen, "language", ftResource.getLanguage());
+                writeOptionalString(gen, "value", ftResource.getValue());
+            }
+        }
+        gen.writeEndObject();
+
+        gen.writeArrayFieldStart("target");
+        writeTargets(gen, ctx, annotation);
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+
+    private static String getResourceIdUrl(PageContext ctx, Annotation annotation) {
+        if (annotation.getFrom() == null && annotation.getTo() == null) {
+            return ctx.resourceIdBaseUrl;
+        }
+        return ctx.resourceIdBaseUrl + "#char=" + annotation.getFrom() + "," + annotation.getTo();
+    }
+
+    private static void writeTargets(JsonGenerator gen, PageContext ctx, Annotation annotation) throws IOException {
+        if (annotation.getTgs() != null) {
+            for (Target target : annotation.getTgs()) {
+                gen.writeString(ctx.annoPage.getTgtId() + generateTargetCoordinates(target, annotation.isMedia()));
+            }
+        } else if (annotation.isTopLevel()) {
+            gen.writeString(ctx.annoPage.getTgtId());
+        }
+    }
+
+    /**
+     * Same as EDM2IIIFMapping.findTextGranularitiesV2/V3, but working on the AnnoPage's annotations (in output order)
+     * instead of on the generated annotation objects. Note that the found textGranularities are returned in HashMap
+     * order, so the map has to be filled in exactly the same way to get the same output.
+     */
+    private static List<String> findTextGranularities(List<AnnotationType> granularities, List<Annotation> ans) {
+        if (null == granularities || granularities.isEmpty()) {
+            Annotation first = getFirstInOutputOrder(ans);
+            if (first != null && first.isMedia()) {
+                granularities = List.copyOf(MEDIA_ANNOTATION_TYPES);
+            } else {
+                granularities = List.copyOf(TEXT_ANNOTATION_TYPES);
+            }
+        }
+        Map<AnnotationType, Boolean> granularityMap = new HashMap<>();
+        for (AnnotationType annotationType : granularities) {
+            granularityMap.put(annotationType, Boolean.FALSE);
+        }
+
+        boolean allFound = false;
+        for (int i = ans.size() - 1; i >= 0 && !allFound; i--) {
+            if (ans.get(i).isTopLevel()) {
+                allFound = markFound(granularityMap, ans.get(i));
+            }
+        }
+        for (int i = 0; i < ans.size() && !allFound; i++) {
+            if (!ans.get(i).isTopLevel()) {
+                allFound = markFound(granularityMap, ans.get(i));
+            }
+        }
+
+        List<String> foundGranularities = new ArrayList<>();
+        for (Map.Entry<AnnotationType, Boolean> entry : granularityMap.entrySet()) {
+            if (entry.getValue().equals(Boolean.TRUE) && entry.getKey() != null) {
+                foundGranularities.add(entry.getKey().getLowerCaseName());
+            }
+        }
+        return foundGranularities;
+    }
+
+    /**
+     * @return true if all expected textGranularities are found
+     */
+    private static boolean markFound(Map<AnnotationType, Boolean> granularityMap, Annotation annotation) {
+        granularityMap.put(AnnotationType.fromAbbreviation(annotation.getDcType()), Boolean.TRUE);
+        return !granularityMap.containsValue(Boolean.FALSE);
+    }
+
+    private static Annotation getFirstInOutputOrder(List<Annotation> ans) {
+        for (int i = ans.size() - 1; i >= 0; i--) {
+            if (ans.get(i).isTopLevel()) {
+                return ans.get(i);
+            }
+        }
+        return ans.isEmpty() ? null : ans.get(0);
+    }
+
+    private static void writeOptionalString(JsonGenerator gen, String fieldName, String value) throws IOException {
+        if (value != null) {
+            gen.writeStringField(fieldName, value);
+        }
+    }
+
+    private static void writeStringArray(JsonGenerator gen, String fieldName, String[] values) throws IOException {
+        gen.writeArrayFieldStart(fieldName);
+        for (String value : values) {
+            gen.writeString(value);
+        }
+        gen.writeEndArray();
+    }
+
+    private static void writeStringArray(JsonGenerator gen, String fieldName, List<String> values) throws IOException {
+        gen.writeArrayFieldStart(fieldName);
+        for (String value : values) {
+            gen.writeString(value);
+        }
+        gen.writeEndArray();
+    }
+}
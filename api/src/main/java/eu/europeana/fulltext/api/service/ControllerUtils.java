@@ -9,6 +9,7 @@ import io.micrometer.core.instrument.util.StringUtils;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -17,6 +18,8 @@ import java.util.Set;
  */
 public final class ControllerUtils {
 
+    private static final char PAGE_RANGE_SEPARATOR = '-';
+
     private ControllerUtils() {
         //empty constructor to prevent initalization
     }
@@ -46,4 +49,55 @@ public final class ControllerUtils {
         }
         return result;
     }
+
+    /**
+     * Parses a list of page ids, separated by commas or spaces. Numeric page ids can also be specified as an
+     * (inclusive) range, for example "1,3,5-10".
+     * @param pageIdParams received page id parameter value
+     * @param maxPages maximum number of page ids that are allowed
+     * @return list of unique page ids in the order they were specified, empty list if no value was provided
+     * @throws InvalidParameterException thrown when a range is invalid or when there are too many page ids
+     */
+    public static List<String> parsePageIds(String pageIdParams, int maxPages) throws InvalidParameterException {
+        if (StringUtils.isBlank(pageIdParams)) {
+            return Collections.emptyList();
+        }
+        Set<String> result = new LinkedHashSet<>();
+        for (String value : pageIdParams.split("\\s|,")) {
+            if (StringUtils.isBlank(value)) {
+                continue;
+            }
+            int separator = value.indexOf(PAGE_RANGE_SEPARATOR, 1);
+            if (separator < 0) {
+                result.add(value);
+            } else {
+                addPageRange(result, value, separator, maxPages);
+            }
+            if (result.size() > maxPages) {
+                throw new InvalidParameterException("too many page ids. Maximum number of pages is " + maxPages);
+            }
+        }
+        return new ArrayList<>(result);
+    }
+
+    private static void addPageRange(Set<String> pageIds, String range, int separator, int maxPages)
+            throws InvalidParameterException {
+        int start;
+        int end;
+        try {
+            start = Integer.parseInt(range.substring(0, separator));
+            end = Integer.parseInt(range.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            throw new InvalidParameterException("invalid page range '" + range + "'. Ranges should be numeric");
+        }
+        if (start > end) {
+            throw new InvalidParameterException("invalid page range '" + range + "'. Start is larger than end");
+        }
+        if ((long) end - start >= maxPages) {
+            throw new InvalidParameterException("too many page ids. Maximum number of pages is " + maxPages);
+        }
+        for (int i = start; i <= end; i++) {
+            pageIds.add(String.valueOf(i));
+        }
+    }
 }
@@ -42,8 +42,8 @@ public final class EDM2IIIFMapping {
     private static FTSettings fts;
     private static FTService  ftService;
 
-    private static final String V2_MOTIVATION = "sc:painting";
-    private static final String V3_MOTIVATION = "transcribing";
+    static final String V2_MOTIVATION = "sc:painting";
+    static final String V3_MOTIVATION = "transcribing";
 
     private static final Logger LOG           = LogManager.getLogger(EDM2IIIFMapping.class);
 
@@ -116,7 +116,7 @@ public final class EDM2IIIFMapping {
     }
 
     static AnnotationV2 getSingleAnnotationV2(AnnoPage annoPage, String annoId, boolean profileText){
-        Optional<Annotation> maybe = annoPage.getAns().stream().filter(o -> o.getAnId().equals(annoId)).findFirst();
+        Optional<Annotation> maybe = Optional.ofNullable(annoPage.getAnnotation(annoId));
         // NOTE this shouldn't fail because in that case the annoPage would not have been found in the first place
         // Dereference resource only if annotation is top Level and profile text is requested
         return maybe.map(annotation1 -> getAnnotationV2(annoPage, annotation1, true, (profileText && annotation1.isTopLevel()))).orElse(null);
@@ -295,7 +295,7 @@ public final class EDM2IIIFMapping {
     }
 
     static AnnotationV3 getSingleAnnotationV3(AnnoPage annoPage, String annoId, boolean profileText){
-        Optional<Annotation> maybe = annoPage.getAns().stream().filter(o -> o.getAnId().equals(annoId)).findFirst();
+        Optional<Annotation> maybe = Optional.ofNullable(annoPage.getAnnotation(annoId));
         // NOTE this shouldn't fail because in that case the annoPage would not have been found in the first place
         // Derefrence resource only if annotation is top Level and profile text is requested
         return maybe.map(annotation1 -> getAnnotationV3(annoPage, annotation1, true, (profileText && annotation1.isTopLevel()))).orElse(null);
@@ -317,7 +317,7 @@ public final class EDM2IIIFMapping {
         return new String[0];
     }
 
-    private static String generateTargetCoordinates(Target target, boolean isMedia){
+    static String generateTargetCoordinates(Target target, boolean isMedia){
         if (isMedia) {
             return "#t=" +
                    msToHHmmss(target.getStart().longValue()) + "," +
@@ -355,7 +355,11 @@ public final class EDM2IIIFMapping {
     return id;
   }
 
-    private static FTResource fetchFTResource(AnnoPage annoPage) {
+    static FTResource fetchFTResource(AnnoPage annoPage) {
+        // the Resource is normally retrieved together with the AnnoPage, so there's no need to query it again
+        if (annoPage.getRes() != null) {
+            return getFTResource(annoPage.getRes());
+        }
         FTResource resource;
         try {
             resource = ftService.fetchFTResource(annoPage.getDsId(), annoPage.getLcId(), annoPage.getPgId(),
@@ -384,7 +388,7 @@ public final class EDM2IIIFMapping {
      * @param annoPage -
      * @return url -
      */
-  private static String getResourceIdBaseUrl(AnnoPage annoPage) {
+  static String getResourceIdBaseUrl(AnnoPage annoPage) {
     String url =
         fts.getResourceBaseUrl()
             + annoPage.getDsId()
@@ -405,14 +409,17 @@ public final class EDM2IIIFMapping {
     return url;
   }
 
-    private static String getAnnoPageIdUrl(AnnoPage annoPage){
+    static String getAnnoPageIdUrl(AnnoPage annoPage){
         return fts.getAnnoPageBaseUrl() + annoPage.getDsId() + "/" +
                annoPage.getLcId() + IIIFDefinitions.FULLTEXT_ANNOPAGE_PATH + "/" + annoPage.getPgId() + "?" + LANGUAGE_PARAM + annoPage.getLang();
     }
 
     private static String getAnnotationIdUrl(AnnoPage annoPage, Annotation annotation) {
-        return fts.getAnnotationBaseUrl() + annoPage.getDsId() + "/" + annoPage.getLcId() +
-               ANNOTATION_PATH + annotation.getAnId();
+        return getAnnotationIdBaseUrl(annoPage) + annotation.getAnId();
+    }
+
+    static String getAnnotationIdBaseUrl(AnnoPage annoPage) {
+        return fts.getAnnotationBaseUrl() + annoPage.getDsId() + "/" + annoPage.getLcId() + ANNOTATION_PATH;
     }
 
     public static String getAnnotationIdUrl(String europeanaId, Annotation annotation) {
@@ -426,7 +433,7 @@ public final class EDM2IIIFMapping {
         return s.toString();
     }
 
-    private static String dcTypeToTextGranularity(char dcTypeCode){
+    static String dcTypeToTextGranularity(char dcTypeCode){
         AnnotationType dcType = AnnotationType.fromAbbreviation(dcTypeCode);
         if (dcType == null) {
             LOG.warn("Unknown dcType code '{}'", dcTypeCode);
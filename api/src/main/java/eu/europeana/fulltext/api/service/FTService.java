@@ -2,9 +2,11 @@ package eu.europeana.fulltext.api.service;
 
 import static eu.europeana.fulltext.api.service.EDM2IIIFMapping.getTextGranularitiesForSummary;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.mongodb.client.result.UpdateResult;
-import dev.morphia.query.internal.MorphiaCursor;
 import eu.europeana.api.commons.error.EuropeanaApiException;
 import eu.europeana.fulltext.AnnotationType;
 import eu.europeana.fulltext.api.config.FTDefinitions;
@@ -21,6 +23,7 @@ import eu.europeana.fulltext.entity.AnnoPage;
 import eu.europeana.fulltext.entity.Resource;
 import eu.europeana.fulltext.exception.AnnoPageDoesNotExistException;
 import eu.europeana.fulltext.exception.AnnoPageGoneException;
+import eu.europeana.fulltext.exception.InvalidRequestParamException;
 import eu.europeana.fulltext.exception.ResourceDoesNotExistException;
 import eu.europeana.fulltext.exception.SerializationException;
 import eu.europeana.fulltext.repository.AnnoPageRepository;
@@ -32,6 +35,7 @@ import eu.europeana.fulltext.util.GeneralUtils;
 import eu.europeana.iiif.IIIFDefinitions;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
@@ -51,6 +55,8 @@ public class FTService extends CommonFTService {
     private static final String GENERATED_IN = "Generated in {} ms ";
     private static final String ANNOPAGE_ID_FORMAT = "/%s/%s/annopage/%s";
     private static final String ANNOPAGE_ID_LANG_FORMAT = "/%s/%s/annopage/%s";
+    private static final String ANNOPAGES_ID_FORMAT = "/%s/%s/annopages";
+    private static final String NDJSON_SEPARATOR = "\n";
     private static final Logger LOG = LogManager.getLogger(FTService.class);
 
     private final FTSettings ftSettings;
@@ -117,18 +123,136 @@ public class FTService extends CommonFTService {
     }
 
     /**
-     * Retrieve a cursor to AnnoPages with the provided datasetId, localId and targetIds. If the annotationType is
+     * Fetches only the metadata (dsId, lcId, pgId, lang, modified and deleted) of an Annotation page, for generating
+     * an ETag and handling conditional requests. Annotations and Resource are not loaded.
+     *
+     * @param datasetId identifier of the AnnoPage's dataset
+     * @param localId   identifier of the AnnoPage's record
+     * @param pageId    identifier of the AnnoPage
+     * @param lang      optional, if provided we'll check if there's an annopage with this language
+     * @return AnnoPage containing only metadata
+     * @throws AnnoPageDoesNotExistException when the Annopage cannot be found
+     * @throws AnnoPageGoneException when the Annopage with the requested language is deprecated
+     */
+    public AnnoPage fetchAnnoPageMetadata(String datasetId, String localId, String pageId, String lang)
+            throws AnnoPageDoesNotExistException, AnnoPageGoneException {
+        // same as fetchAnnoPage(), deprecated AnnoPages are only taken into account when a language is provided
+        AnnoPage result = annoPageRepository.findMetadataByPageId(datasetId, localId, pageId, lang,
+                StringUtils.isNotEmpty(lang));
+        if (result == null) {
+            if (StringUtils.isEmpty(lang)) {
+                throw new AnnoPageDoesNotExistException(String.format(ANNOPAGE_ID_FORMAT, datasetId, localId, pageId));
+            }
+            throw new AnnoPageDoesNotExistException(String.format(ANNOPAGE_ID_LANG_FORMAT, datasetId, localId, pageId),
+                    lang);
+        }
+        if (result.isDeprecated()) {
+            throw new AnnoPageGoneException(String.format(ANNOPAGE_ID_LANG_FORMAT, datasetId, localId, pageId), lang);
+        }
+        return result;
+    }
+
+    /**
+     * Handles fetching only the metadata of multiple Annotation pages (aka AnnoPages) of a record, so the page ids and
+     * modified dates are known (e.g. for ETag generation) before the annotations themselves are retrieved.
+     *
+     * @param datasetId identifier of the AnnoPages' dataset
+     * @param localId   identifier of the AnnoPages' record
+     * @param pageIds   identifiers of the AnnoPages, if empty all AnnoPages of the record are retrieved
+     * @param lang      optional, if provided AnnoPages with this language are retrieved, otherwise the original
+     *                  AnnoPages
+     * @return list of AnnoPages with only metadata fields set, in the same order as
+     * {@link #fetchAnnoPages(String, String, List, List, String)}
+     * @throws AnnoPageDoesNotExistException when none of the Annopages can be found
+     * @throws InvalidRequestParamException when all pages of a record are requested, but the record has more pages
+     * than can be retrieved in one request
+     */
+    public List<AnnoPage> fetchAnnoPagesMetadata(String datasetId, String localId, List<String> pageIds, String lang)
+            throws AnnoPageDoesNotExistException, InvalidRequestParamException {
+        List<AnnoPage> result = annoPageRepository.findMetadataByPageIds(datasetId, localId, pageIds, lang);
+        validateAnnoPages(result, datasetId, localId, lang);
+        sortAnnoPages(result, pageIds);
+        return result;
+    }
+
+    /**
+     * Handles fetching multiple Annotation pages (aka AnnoPages) of a record with all their annotations. All
+     * AnnoPages and their Resources are retrieved with one query each.
+     *
+     * @param datasetId      identifier of the AnnoPages' dataset
+     * @param localId        identifier of the AnnoPages' record
+     * @param pageIds        identifiers of the AnnoPages, if empty all AnnoPages of the record are retrieved
+     * @param textGranValues dcType values to filter annotations with
+     * @param lang           optional, if provided AnnoPages with this language are retrieved, otherwise the original
+     *                       AnnoPages
+     * @return list of AnnoPages, in the order of the requested page ids (or ordered by page id if no page ids were
+     * requested). Pages that don't exist (or are deprecated) are left out.
+     * @throws AnnoPageDoesNotExistException when none of the Annopages can be found
+     * @throws InvalidRequestParamException when all pages of a record are requested, but the record has more pages
+     * than can be retrieved in one request
+     */
+    public List<AnnoPage> fetchAnnoPages(String datasetId, String localId, List<String> pageIds,
+                                         List<AnnotationType> textGranValues, String lang)
+            throws AnnoPageDoesNotExistException, InvalidRequestParamException {
+        int maxPages = ftSettings.getAnnoPageBatchMaxPages();
+        // for a whole record we retrieve one page extra, so we know if there are too many
+        List<AnnoPage> result = annoPageRepository.findByPageIds(datasetId, localId, pageIds, textGranValues, lang,
+                false, pageIds.isEmpty() ? maxPages + 1 : 0);
+        validateAnnoPages(result, datasetId, localId, lang);
+        sortAnnoPages(result, pageIds);
+        return result;
+    }
+
+    private void validateAnnoPages(List<AnnoPage> result, String datasetId, String localId, String lang)
+            throws AnnoPageDoesNotExistException, InvalidRequestParamException {
+        if (result.isEmpty()) {
+            if (StringUtils.isEmpty(lang)) {
+                throw new AnnoPageDoesNotExistException(String.format(ANNOPAGES_ID_FORMAT, datasetId, localId));
+            }
+            throw new AnnoPageDoesNotExistException(String.format(ANNOPAGES_ID_FORMAT, datasetId, localId), lang);
+        }
+        int maxPages = ftSettings.getAnnoPageBatchMaxPages();
+        if (result.size() > maxPages) {
+            throw new InvalidRequestParamException("pgId", "all (record has more than " + maxPages
+                    + " annotation pages, please request a range of pages)");
+        }
+    }
+
+    private static void sortAnnoPages(List<AnnoPage> result, List<String> pageIds) {
+        if (pageIds.isEmpty()) {
+            result.sort(Comparator.comparing(AnnoPage::getPgId, FTService::comparePageIds));
+        } else {
+            Map<String, Integer> requestedOrder = new HashMap<>();
+            for (int i = 0; i < pageIds.size(); i++) {
+                requestedOrder.put(pageIds.get(i), i);
+            }
+            result.sort(Comparator.comparing(ap -> requestedOrder.get(ap.getPgId())));
+        }
+    }
+
+    /**
+     * Compares page ids numerically if they are both numbers, otherwise alphabetically
+     */
+    private static int comparePageIds(String pageId1, String pageId2) {
+        if (StringUtils.isNumeric(pageId1) && StringUtils.isNumeric(pageId2) && pageId1.length() != pageId2.length()) {
+            return Integer.compare(pageId1.length(), pageId2.length());
+        }
+        return pageId1.compareTo(pageId2);
+    }
+
+    /**
+     * Retrieve AnnoPages with the provided datasetId, localId and targetIds. If the annotationType is
      * specified the returned AnnoPages will only contain annotations of that type. If annotationType is null or empty
-     * then all annotations of that type will be returned. The cursor must be closed when the caller is done!
+     * then all annotations of that type will be returned.
      *
      * @param datasetId ID of the dataset
      * @param localId   ID of the parent of the Annopage object
      * @param targetIds IDs of the targets (images)
      * @param annoTypes type of annotations that should be retrieved, if null or empty all annotations of that annopage
      *                  will be retrieved
-     * @return MorphiaCursor containing AnnoPage entries.
+     * @return List of AnnoPage objects
      */
-    public MorphiaCursor<AnnoPage> fetchAnnoPageFromTargetId(String datasetId, String localId, List<String> targetIds,
+    public List<AnnoPage> fetchAnnoPageFromTargetId(String datasetId, String localId, List<String> targetIds,
                                                              List<AnnotationType> annoTypes, boolean includeDeprecated) {
         return annoPageRepository.findByTargetId(datasetId, localId, targetIds, annoTypes, includeDeprecated);
     }
@@ -157,6 +281,48 @@ public class FTService extends CommonFTService {
         return result;
     }
 
+    /**
+     * Fetches only the metadata (dsId, lcId, pgId, lang, modified and deleted) of the Annotation page containing the
+     * Annotation with given annoId, for generating an ETag and handling conditional requests.
+     *
+     * @param datasetId identifier of the AnnoPage's dataset
+     * @param localId   identifier of the AnnoPage's record
+     * @param annoId    identifier of the Annotation to be found
+     * @return AnnoPage containing only metadata
+     * @throws AnnoPageDoesNotExistException when the Annopage containing the required Annotation can't be found
+     */
+    public AnnoPage fetchAPAnnotationMetadata(String datasetId, String localId, String annoId)
+            throws EuropeanaApiException {
+        AnnoPage result = annoPageRepository.findMetadataByAnnoId(datasetId, localId, annoId, true);
+
+        if (result == null) {
+            throw new AnnoPageDoesNotExistException(String.format("/%s/%s/anno/%s", datasetId, localId, annoId));
+        }
+
+        if (result.isDeprecated()) {
+            throw new AnnoPageGoneException(String.format("/%s/%s/anno/%s", datasetId, localId, annoId));
+        }
+        return result;
+    }
+
+    /**
+     * Checks if a Resource exists, without loading its text value
+     *
+     * @param datasetId identifier of the dataset that contains the Annopage that refers to Resource
+     * @param localId   identifier of the record that contains the Annopage that refers to Resource
+     * @param pageId    Identifier of the item's page
+     * @param lang      Language of the resource, if empty the original Resource is checked
+     * @throws ResourceDoesNotExistException when the Resource can't be found
+     */
+    public void checkFTResourceExists(String datasetId, String localId, String pageId, String lang)
+            throws ResourceDoesNotExistException {
+        if (!resourceRepository.existsByPageId(datasetId, localId, pageId, lang)) {
+            throw new ResourceDoesNotExistException(StringUtils.isEmpty(lang) ?
+                    String.format("/%s/%s/%s", datasetId, localId, pageId) :
+                    String.format("/%s/%s/%s?lang=%s", datasetId, localId, pageId, lang));
+        }
+    }
+
     /**
      * Handles fetching an Annotation page (aka AnnoPage) containing the Annotation with given annoId
      *
@@ -353,6 +519,88 @@ public class FTService extends CommonFTService {
         return result;
     }
 
+    /**
+     * Writes an AnnotationPage (IIIF v2 or v3) for the AnnoPage directly to the provided output stream. The output is
+     * the same as serialising the result of generateAnnoPageV2 or generateAnnoPageV3, but no intermediate objects are
+     * created. The output stream is flushed, but not closed.
+     *
+     * @param annoPage       AnnoPage input object
+     * @param iiifVersion    requested IIIF version (2 or 3)
+     * @param textGranValues user-supplied filter on textGranularities, used here to limit searching for actually
+     *                       present textGranularities
+     * @param derefResource  boolean indicating whether to dereference the Resource object on the top level Annotation
+     * @param includeContext boolean indicating whether to include the @context (only for JSON-LD)
+     * @param pretty         if true the output is pretty printed, otherwise it is compact
+     * @param out            stream to write to
+     * @throws SerializationException when writing to the stream fails
+     */
+    public void writeAnnoPage(AnnoPage annoPage, String iiifVersion, List<AnnotationType> textGranValues,
+                              boolean derefResource, boolean includeContext, boolean pretty, OutputStream out)
+            throws SerializationException {
+        long start = System.currentTimeMillis();
+        try (JsonGenerator gen = getWriter(pretty)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .createGenerator(out, JsonEncoding.UTF8)) {
+            writeAnnotationPage(gen, annoPage, iiifVersion, textGranValues, derefResource, includeContext);
+        } catch (IOException e) {
+            throw new SerializationException("Error writing annotation page: " + e.getMessage(), e);
+        }
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(GENERATED_IN, System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * Writes multiple annotation pages to the provided output stream, either as a JSON array or as newline delimited
+     * JSON (one compact annotation page per line).
+     *
+     * @param annoPages      AnnoPages to write
+     * @param iiifVersion    requested IIIF version (2 or 3)
+     * @param textGranValues text granularity values requested by the user
+     * @param derefResource  boolean indicating whether to dereference the Resource object on the top level Annotation
+     * @param includeContext boolean indicating whether to include the @context in every annotation page
+     * @param ndjson         if true newline delimited JSON is written, otherwise a JSON array
+     * @param pretty         if true the output is pretty printed (ignored for newline delimited JSON)
+     * @param out            stream to write to
+     * @throws SerializationException when writing to the stream fails
+     */
+    public void writeAnnoPages(List<AnnoPage> annoPages, String iiifVersion, List<AnnotationType> textGranValues,
+                               boolean derefResource, boolean includeContext, boolean ndjson, boolean pretty,
+                               OutputStream out) throws SerializationException {
+        long start = System.currentTimeMillis();
+        ObjectWriter writer = ndjson ? mapper.writer().withRootValueSeparator(NDJSON_SEPARATOR) : getWriter(pretty);
+        try (JsonGenerator gen = writer
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .createGenerator(out, JsonEncoding.UTF8)) {
+            if (!ndjson) {
+                gen.writeStartArray();
+            }
+            for (AnnoPage annoPage : annoPages) {
+                writeAnnotationPage(gen, annoPage, iiifVersion, textGranValues, derefResource, includeContext);
+            }
+            if (ndjson) {
+                gen.writeRaw(NDJSON_SEPARATOR);
+            } else {
+                gen.writeEndArray();
+            }
+        } catch (IOException e) {
+            throw new SerializationException("Error writing annotation pages: " + e.getMessage(), e);
+        }
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(GENERATED_IN, System.currentTimeMillis() - start);
+        }
+    }
+
+    private static void writeAnnotationPage(JsonGenerator gen, AnnoPage annoPage, String iiifVersion,
+                                            List<AnnotationType> textGranValues, boolean derefResource,
+                                            boolean includeContext) throws IOException {
+        if ("3".equalsIgnoreCase(iiifVersion)) {
+            AnnoPageStreamWriter.writeAnnotationPageV3(gen, annoPage, textGranValues, derefResource, includeContext);
+        } else {
+            AnnoPageStreamWriter.writeAnnotationPageV2(gen, annoPage, textGranValues, derefResource, includeContext);
+        }
+    }
+
     /**
      * Generates an AnnotationV3 (IIIF V3 response type) object of the Annotation with ID annoId, found within the the
      * AnnoPage input
@@ -513,20 +761,51 @@ public class FTService extends CommonFTService {
     // = = = = = = = = = = = = = = = = = = = = = = = = = = = = = = = = = = = = = = = = = = = =
 
     /**
-     * Serialize data from MongoDB to JSON-LD
+     * Serialize data from MongoDB to (compact) JSON-LD
      *
      * @param data input data
      * @return JSON-LD string
      * @throws SerializationException when serialisation seriously severely snaps somewhere
      */
     public String serialise(Object data) throws SerializationException {
+        return serialise(data, false);
+    }
+
+    /**
+     * Serialize data from MongoDB to JSON-LD
+     *
+     * @param data   input data
+     * @param pretty if true the output is pretty printed, otherwise it is compact
+     * @return JSON-LD string
+     * @throws SerializationException when serialisation seriously severely snaps somewhere
+     */
+    public String serialise(Object data, boolean pretty) throws SerializationException {
         try {
-            return mapper.writerWithDefaultPrettyPrinter().writeValueAsString(data);
+            return getWriter(pretty).writeValueAsString(data);
         } catch (IOException e) {
             throw new SerializationException("Error serialising data: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Serialize data from MongoDB to UTF-8 encoded JSON-LD
+     *
+     * @param data   input data
+     * @param pretty if true the output is pretty printed, otherwise it is compact
+     * @return JSON-LD as UTF-8 bytes
+     * @throws SerializationException when serialisation fails
+     */
+    public byte[] serialiseToBytes(Object data, boolean pretty) throws SerializationException {
+        try {
+            return getWriter(pretty).writeValueAsBytes(data);
+        } catch (IOException e) {
+            throw new SerializationException("Error serialising data: " + e.getMessage(), e);
+        }
+    }
+
+    private ObjectWriter getWriter(boolean pretty) {
+        return pretty ? mapper.writerWithDefaultPrettyPrinter() : mapper.writer();
+    }
 
     /**
      * Retrieves the AnnoPage with the specified dcId, lcId, pgId and lang
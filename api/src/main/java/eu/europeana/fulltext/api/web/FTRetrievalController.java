@@ -2,6 +2,7 @@ package eu.europeana.fulltext.api.web;
 
 import eu.europeana.api.commons.error.EuropeanaApiException;
 import eu.europeana.fulltext.AnnotationType;
+import eu.europeana.fulltext.api.caching.AnnoPageResponseCache;
 import eu.europeana.fulltext.api.model.AnnotationWrapper;
 import eu.europeana.fulltext.api.model.FTResource;
 import eu.europeana.fulltext.api.model.info.SummaryManifest;
@@ -21,12 +22,20 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.time.ZonedDateTime;
+import java.util.Date;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 import static eu.europeana.fulltext.api.caching.CachingUtils.*;
+import static eu.europeana.fulltext.api.caching.CompressionUtils.*;
 import static eu.europeana.fulltext.api.config.FTDefinitions.MEDIA_ANNOTATION_TYPES;
 import static eu.europeana.fulltext.api.config.FTDefinitions.TEXT_ANNOTATION_TYPES;
 import static eu.europeana.fulltext.util.RequestUtils.PROFILE_TEXT;
@@ -54,10 +63,18 @@ public class FTRetrievalController {
 
     private static final Logger LOG = LogManager.getLogger(FTRetrievalController.class);
 
+    // initial size of the buffer for annotation pages that are written for the response cache
+    private static final int STREAMING_BUFFER_SIZE = 64 * 1024;
+
+    private static final String MEDIA_TYPE_NDJSON = "application/x-ndjson";
+    private static final String ACCEPT_NDJSON     = "Accept=" + MEDIA_TYPE_NDJSON;
+
     private final FTService fts;
+    private final AnnoPageResponseCache responseCache;
 
-    public FTRetrievalController(FTService ftService) {
+    public FTRetrievalController(FTService ftService, AnnoPageResponseCache responseCache) {
         this.fts = ftService;
+        this.responseCache = responseCache;
     }
 
     /**
@@ -65,16 +82,18 @@ public class FTRetrievalController {
      *
      * @param datasetId identifier of the AnnoPage's dataset
      * @param localId   identifier of the AnnoPage's record
+     * @param pretty    optional, if true the response is pretty printed
      * @return result String containing requested info
      * @throws EuropeanaApiException when serialising to Json fails
      */
     @Tag(name="All Annopages (JSON)", description = "Lists available Annotation Pages for a given EuropeanaID (dataset + localID)")
     @GetMapping(value = "/presentation/{datasetId}/{localId}/annopage", headers = ACCEPT_JSON)
-    public ResponseEntity<String> annoPageInfoJson(
+    public ResponseEntity<byte[]> annoPageInfoJson(
         @PathVariable String datasetId,
         @PathVariable String localId,
+        @RequestParam(value = "pretty", required = false) boolean pretty,
         HttpServletRequest request) throws EuropeanaApiException {
-        return getAnnoPageInfo(datasetId, localId, request, true);
+        return getAnnoPageInfo(datasetId, localId, pretty, request, true);
     }
 
     /**
@@ -82,20 +101,23 @@ public class FTRetrievalController {
      *
      * @param dsId identifier of the AnnoPage's dataset
      * @param lcId identifier of the AnnoPage's record
+     * @param pretty optional, if true the response is pretty printed
      * @return result String containing requested info
      * @throws EuropeanaApiException when serialising to Json fails
      */
     @Tag(name = "All Annopages (JSON-LD)", description = "Lists available Annotation Pages for a given EuropeanaID (dataset + localID)")
     @GetMapping(value = "/presentation/{dsId}/{lcId}/annopage", headers = ACCEPT_JSONLD)
-    public ResponseEntity<String> annoPageInfoJsonLd(
+    public ResponseEntity<byte[]> annoPageInfoJsonLd(
             @PathVariable String dsId,
             @PathVariable String lcId,
+            @RequestParam(value = "pretty", required = false) boolean pretty,
             HttpServletRequest request) throws EuropeanaApiException {
-        return getAnnoPageInfo(dsId, lcId, request, false);
+        return getAnnoPageInfo(dsId, lcId, pretty, request, false);
     }
 
 
-    private ResponseEntity<String> getAnnoPageInfo(String datasetId, String localId, HttpServletRequest request, boolean isJson)
+    private ResponseEntity<byte[]> getAnnoPageInfo(String datasetId, String localId, boolean pretty,
+                                                   HttpServletRequest request, boolean isJson)
         throws EuropeanaApiException {
         AnnoPage annoPage = fts.getSingleAnnoPage(datasetId, localId, false);
         ZonedDateTime modified = dateToZonedUTC(annoPage.getModified());
@@ -103,7 +125,7 @@ public class FTRetrievalController {
         String eTag = generateETag(modified, REQUEST_VERSION_3 + fts.getSettings().getAppVersion(), true);
 
         if (cachingHeadersPresent(request)) {
-            ResponseEntity<String> cached = checkCached(request, modified, eTag);
+            ResponseEntity<byte[]> cached = checkCached(request, modified, eTag);
             if (cached != null) {
                 if (LOG.isDebugEnabled()) {
                     LOG.debug("Returning cached object for {}, {}", datasetId, localId);
@@ -116,7 +138,7 @@ public class FTRetrievalController {
         // response generated by annoPageInfo is for version 3
         AcceptUtils.addContentTypeToResponseHeader(headers, REQUEST_VERSION_3, isJson);
         SummaryManifest apInfo = fts.collectionAnnoPageInfo(datasetId, localId);
-        return new ResponseEntity<>(fts.serialise(apInfo), headers, HttpStatus.OK);
+        return createResponse(fts.getSettings(), request, headers, fts.serialiseToBytes(apInfo, pretty));
     }
 
     /**
@@ -129,12 +151,14 @@ public class FTRetrievalController {
      * @param versionParam    optional, requested IIIF output format (2|3)
      * @param profile         optional, when value = 'text', resources are dereferenced
      * @param textGranularity optional, types of annotations that should be included (e.g. Block, Line, Page)
-     * @return response in json format
+     * @param pretty          optional, if true the response is pretty printed
+     * @return response in json format, or null if the response was written directly to the output stream
      * @throws EuropeanaApiException when serialising to Json fails or an invalid parameter value is provided
+     * @throws IOException when writing the response directly to the output stream fails
      */
     @Tag(name = "Annopage (JSON)", description = "Retrieve a page with annotations")
     @GetMapping(value = "/presentation/{datasetId}/{localId}/annopage/{pageId}", headers = ACCEPT_JSON)
-    public ResponseEntity<String> annoPageJson(
+    public ResponseEntity<byte[]> annoPageJson(
         @PathVariable String datasetId,
         @PathVariable String localId,
         @PathVariable String pageId,
@@ -142,8 +166,11 @@ public class FTRetrievalController {
         @RequestParam(value = "format", required = false) String versionParam,
         @RequestParam(value = "profile", required = false) String profile,
         @RequestParam(value = "textGranularity", required = false) String textGranularity,
-        HttpServletRequest request) throws EuropeanaApiException {
-        return annoPage(datasetId, localId, pageId, lang, versionParam, profile, textGranularity, request, true);
+        @RequestParam(value = "pretty", required = false) boolean pretty,
+        HttpServletRequest request,
+        HttpServletResponse response) throws EuropeanaApiException, IOException {
+        return annoPage(datasetId, localId, pageId, lang, versionParam, profile, textGranularity, pretty, request,
+            response, true);
     }
 
     /**
@@ -156,13 +183,15 @@ public class FTRetrievalController {
      * @param versionParam    optional, requested IIIF output format (2|3)
      * @param profile         optional, when value = 'text', resources are dereferenced
      * @param textGranularity optional, specifies what annotations should be returned
-     * @return response in json-ld format
+     * @param pretty          optional, if true the response is pretty printed
+     * @return response in json-ld format, or null if the response was written directly to the output stream
      * @throws EuropeanaApiException when serialising to JsonLd fails or an invalid parameter value is provided
+     * @throws IOException when writing the response directly to the output stream fails
      */
     @Tag(name = "Annopage (JSON-LD)", description = "Retrieve a page with annotations")
     @GetMapping(value = "/presentation/{dsId}/{lcId}/annopage/{pgId}",
             headers = ACCEPT_JSONLD)
-    public ResponseEntity<String> annoPageJsonLd(
+    public ResponseEntity<byte[]> annoPageJsonLd(
         @PathVariable String dsId,
         @PathVariable String lcId,
         @PathVariable String pgId,
@@ -170,11 +199,14 @@ public class FTRetrievalController {
         @RequestParam(value = "format", required = false) String versionParam,
         @RequestParam(value = "profile", required = false) String profile,
         @RequestParam(value = "textGranularity", required = false) String textGranularity,
-        HttpServletRequest request) throws EuropeanaApiException {
-        return annoPage(dsId, lcId, pgId, lang, versionParam, profile, textGranularity, request, false);
+        @RequestParam(value = "pretty", required = false) boolean pretty,
+        HttpServletRequest request,
+        HttpServletResponse response) throws EuropeanaApiException, IOException {
+        return annoPage(dsId, lcId, pgId, lang, versionParam, profile, textGranularity, pretty, request, response,
+            false);
     }
 
-    private ResponseEntity<String> annoPage(
+    private ResponseEntity<byte[]> annoPage(
         String datasetId,
         String localId,
         String pageId,
@@ -182,43 +214,286 @@ public class FTRetrievalController {
         String versionParam,
         String profileParam,
         String textGranularity,
+        boolean pretty,
         HttpServletRequest request,
-        boolean isJson) throws EuropeanaApiException {
+        HttpServletResponse response,
+        boolean isJson) throws EuropeanaApiException, IOException {
         LOG.debug("Retrieve Annopage: {}/{}/{} with language {}", datasetId, localId, pageId, lang);
         // validate the format
         String requestVersion = AcceptUtils.getRequestVersion(request, versionParam);
         if (StringUtils.isEmpty(requestVersion)) {
             throw new InvalidVersionException(ACCEPT_VERSION_INVALID);
         }
-        AnnotationWrapper annotationPage;
 
         List<AnnotationType> textGranValues = ControllerUtils.validateTextGranularity(textGranularity,
             ALLOWED_ANNOTATION_TYPES);
-        AnnoPage annoPage = fts.fetchAnnoPage(datasetId, localId, pageId, textGranValues, lang);
-        ZonedDateTime modified = dateToZonedUTC(annoPage.getModified());
-        String eTag = generateETag(modified, requestVersion + fts.getSettings().getAppVersion(),
-            true);
+        boolean profileText = extractProfiles(profileParam).contains(PROFILE_TEXT);
+        AnnoPageResponseCache.Key cacheKey = new AnnoPageResponseCache.Key(datasetId, localId, pageId, lang,
+            requestVersion, textGranValues, profileText, isJson, pretty);
+
+        Date modifiedDate = null;
+        AnnoPageResponseCache.CachedResponse cachedResponse = null;
+        // conditional requests and cached responses are checked against the AnnoPage metadata first, so no
+        // annotations are read for those
+        if (cachingHeadersPresent(request) || responseCache.isEnabled()) {
+            AnnoPage metadata = fts.fetchAnnoPageMetadata(datasetId, localId, pageId, lang);
+            if (cachingHeadersPresent(request)) {
+                ResponseEntity<byte[]> cached = checkCachedAnnoPage(request, metadata, requestVersion);
+                if (null != cached) {
+                    return cached;
+                }
+            }
+            modifiedDate = metadata.getModified();
+            cachedResponse = responseCache.get(cacheKey, modifiedDate);
+        }
+
+        byte[] body;
+        byte[] gzipBody;
+        if (cachedResponse == null) {
+            AnnoPage annoPage = fts.fetchAnnoPage(datasetId, localId, pageId, textGranValues, lang);
+            modifiedDate = annoPage.getModified();
+            if (fts.getSettings().isAnnoPageStreamingEnabled()) {
+                if (!responseCache.isEnabled()) {
+                    // nothing to cache, so we write the annotation page straight to the client
+                    writeAnnoPage(request, response, annoPage, requestVersion, textGranValues, profileText, isJson,
+                        pretty);
+                    return null;
+                }
+                ByteArrayOutputStream out = new ByteArrayOutputStream(STREAMING_BUFFER_SIZE);
+                fts.writeAnnoPage(annoPage, requestVersion, textGranValues, profileText, !isJson, pretty, out);
+                body = out.toByteArray();
+            } else {
+                body = fts.serialiseToBytes(
+                    generateAnnoPage(annoPage, requestVersion, textGranValues, profileText, isJson), pretty);
+            }
+            // if the response is cached we always compress, so that's done only once for all clients
+            gzipBody = (responseCache.isEnabled() || shouldGzip(fts.getSettings(), request))
+                ? gzipIfUseful(fts.getSettings(), body)
+                : null;
+            responseCache.put(cacheKey, modifiedDate, body, gzipBody);
+        } else {
+            LOG.debug("Returning cached response for Annopage {}/{}/{}", datasetId, localId, pageId);
+            body = cachedResponse.getBody();
+            gzipBody = cachedResponse.getGzipBody();
+        }
+
+        return createResponse(fts.getSettings(), request,
+            generateAnnoPageHeaders(request, modifiedDate, requestVersion, isJson), body, gzipBody);
+    }
+
+    /**
+     * Handles fetching multiple Annotation pages of a record in one request. The annotation pages are returned as a
+     * JSON array
+     *
+     * @param datasetId       identifier of the AnnoPages' dataset
+     * @param localId         identifier of the AnnoPages' record
+     * @param pageIds         optional, identifiers of the AnnoPages separated by commas, numeric ranges (e.g. 5-10)
+     *                        are allowed. If empty all AnnoPages of the record are returned
+     * @param lang            optional, in which language should the AnnoPages be
+     * @param versionParam    optional, requested IIIF output format (2|3)
+     * @param profile         optional, when value = 'text', resources are dereferenced
+     * @param textGranularity optional, types of annotations that should be included (e.g. Block, Line, Page)
+     * @param pretty          optional, if true the response is pretty printed
+     * @throws EuropeanaApiException when serialising to Json fails or an invalid parameter value is provided
+     * @throws IOException when writing the response to the output stream fails
+     */
+    @Tag(name = "Multiple Annopages (JSON)", description = "Retrieve multiple pages with annotations")
+    @GetMapping(value = "/presentation/{datasetId}/{localId}/annopages", headers = ACCEPT_JSON)
+    public void annoPagesJson(
+        @PathVariable String datasetId,
+        @PathVariable String localId,
+        @RequestParam(value = "pgId", required = false) String pageIds,
+        @RequestParam(value = "lang", required = false) String lang,
+        @RequestParam(value = "format", required = false) String versionParam,
+        @RequestParam(value = "profile", required = false) String profile,
+        @RequestParam(value = "textGranularity", required = false) String textGranularity,
+        @RequestParam(value = "pretty", required = false) boolean pretty,
+        HttpServletRequest request,
+        HttpServletResponse response) throws EuropeanaApiException, IOException {
+        annoPages(datasetId, localId, pageIds, lang, versionParam, profile, textGranularity, pretty, request,
+            response, true, false);
+    }
+
+    /**
+     * Handles fetching multiple Annotation pages of a record in one request. The annotation pages are returned as a
+     * JSON array
+     *
+     * @param dsId            identifier of the AnnoPages' dataset
+     * @param lcId            identifier of the AnnoPages' record
+     * @param pgIds           optional, identifiers of the AnnoPages separated by commas, numeric ranges (e.g. 5-10)
+     *                        are allowed. If empty all AnnoPages of the record are returned
+     * @param lang            optional, in which language should the AnnoPages be
+     * @param versionParam    optional, requested IIIF output format (2|3)
+     * @param profile         optional, when value = 'text', resources are dereferenced
+     * @param textGranularity optional, types of annotations that should be included (e.g. Block, Line, Page)
+     * @param pretty          optional, if true the response is pretty printed
+     * @throws EuropeanaApiException when serialising to JsonLd fails or an invalid parameter value is provided
+     * @throws IOException when writing the response to the output stream fails
+     */
+    @Tag(name = "Multiple Annopages (JSON-LD)", description = "Retrieve multiple pages with annotations")
+    @GetMapping(value = "/presentation/{dsId}/{lcId}/annopages", headers = ACCEPT_JSONLD)
+    public void annoPagesJsonLd(
+        @PathVariable String dsId,
+        @PathVariable String lcId,
+        @RequestParam(value = "pgId", required = false) String pgIds,
+        @RequestParam(value = "lang", required = false) String lang,
+        @RequestParam(value = "format", required = false) String versionParam,
+        @RequestParam(value = "profile", required = false) String profile,
+        @RequestParam(value = "textGranularity", required = false) String textGranularity,
+        @RequestParam(value = "pretty", required = false) boolean pretty,
+        HttpServletRequest request,
+        HttpServletResponse response) throws EuropeanaApiException, IOException {
+        annoPages(dsId, lcId, pgIds, lang, versionParam, profile, textGranularity, pretty, request, response,
+            false, false);
+    }
+
+    /**
+     * Handles fetching multiple Annotation pages of a record in one request. The annotation pages are returned as
+     * newline delimited JSON, one annotation page per line
+     *
+     * @param dsId            identifier of the AnnoPages' dataset
+     * @param lcId            identifier of the AnnoPages' record
+     * @param pgIds           optional, identifiers of the AnnoPages separated by commas, numeric ranges (e.g. 5-10)
+     *                        are allowed. If empty all AnnoPages of the record are returned
+     * @param lang            optional, in which language should the AnnoPages be
+     * @param versionParam    optional, requested IIIF output format (2|3)
+     * @param profile         optional, when value = 'text', resources are dereferenced
+     * @param textGranularity optional, types of annotations that should be included (e.g. Block, Line, Page)
+     * @throws EuropeanaApiException when serialising to Json fails or an invalid parameter value is provided
+     * @throws IOException when writing the response to the output stream fails
+     */
+    @Tag(name = "Multiple Annopages (NDJSON)", description = "Retrieve multiple pages with annotations")
+    @GetMapping(value = "/presentation/{dsId}/{lcId}/annopages", headers = ACCEPT_NDJSON)
+    public void annoPagesNdJson(
+        @PathVariable String dsId,
+        @PathVariable String lcId,
+        @RequestParam(value = "pgId", required = false) String pgIds,
+        @RequestParam(value = "lang", required = false) String lang,
+        @RequestParam(value = "format", required = false) String versionParam,
+        @RequestParam(value = "profile", required = false) String profile,
+        @RequestParam(value = "textGranularity", required = false) String textGranularity,
+        HttpServletRequest request,
+        HttpServletResponse response) throws EuropeanaApiException, IOException {
+        annoPages(dsId, lcId, pgIds, lang, versionParam, profile, textGranularity, false, request, response,
+            true, true);
+    }
+
+    private void annoPages(
+        String datasetId,
+        String localId,
+        String pageIdParam,
+        String lang,
+        String versionParam,
+        String profileParam,
+        String textGranularity,
+        boolean pretty,
+        HttpServletRequest request,
+        HttpServletResponse response,
+        boolean isJson,
+        boolean ndjson) throws EuropeanaApiException, IOException {
+        LOG.debug("Retrieve Annopages: {}/{} pages {} with language {}", datasetId, localId, pageIdParam, lang);
+        String requestVersion = AcceptUtils.getRequestVersion(request, versionParam);
+        if (StringUtils.isEmpty(requestVersion)) {
+            throw new InvalidVersionException(ACCEPT_VERSION_INVALID);
+        }
+
+        List<String> pageIds = ControllerUtils.parsePageIds(pageIdParam, fts.getSettings().getAnnoPageBatchMaxPages());
+        List<AnnotationType> textGranValues = ControllerUtils.validateTextGranularity(textGranularity,
+            ALLOWED_ANNOTATION_TYPES);
+        boolean profileText = extractProfiles(profileParam).contains(PROFILE_TEXT);
+
+        // check conditional headers with only the (index covered) page metadata, before any annotations are read
+        List<AnnoPage> metadata = fts.fetchAnnoPagesMetadata(datasetId, localId, pageIds, lang);
+        List<String> resolvedPageIds = metadata.stream().map(AnnoPage::getPgId).collect(Collectors.toList());
+        ZonedDateTime modified = dateToZonedUTC(metadata.stream().map(AnnoPage::getModified).filter(Objects::nonNull)
+            .max(Date::compareTo).orElse(new Date(0)));
+        String eTag = generateETag(modified, requestVersion + fts.getSettings().getAppVersion()
+            + StringUtils.defaultString(lang) + String.join(",", resolvedPageIds), true);
+
         if (cachingHeadersPresent(request)) {
-            ResponseEntity<String> cached = checkCached(request, modified, eTag);
-            if (null != cached) {
-                return cached;
+            ResponseEntity<byte[]> cached = checkCached(request, modified, eTag);
+            if (cached != null) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Returning cached object for {}, {} pages {}", datasetId, localId, pageIdParam);
+                }
+                writeHeaders(response, cached.getStatusCode(), cached.getHeaders());
+                return;
             }
         }
+
+        // all pages are retrieved before anything is written, so errors can still be returned as a normal response
+        List<AnnoPage> annoPages = fts.fetchAnnoPages(datasetId, localId, resolvedPageIds, textGranValues, lang);
+
+        HttpHeaders headers = generateHeaders(request, eTag, zonedDateTimeToString(modified));
+        AcceptUtils.addContentTypeToResponseHeader(headers, requestVersion, isJson);
+        if (ndjson) {
+            headers.set(HttpHeaders.CONTENT_TYPE, MEDIA_TYPE_NDJSON + ';' + CHARSET_UTF_8);
+        }
+        addVaryHeader(fts.getSettings(), headers);
+        if (shouldGzip(fts.getSettings(), request)) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, GZIP);
+            writeHeaders(response, headers);
+            GZIPOutputStream out = new GZIPOutputStream(response.getOutputStream(), STREAMING_BUFFER_SIZE);
+            fts.writeAnnoPages(annoPages, requestVersion, textGranValues, profileText, !isJson, ndjson, pretty, out);
+            out.finish();
+        } else {
+            writeHeaders(response, headers);
+            fts.writeAnnoPages(annoPages, requestVersion, textGranValues, profileText, !isJson, ndjson, pretty,
+                response.getOutputStream());
+        }
+    }
+
+    private void writeAnnoPage(HttpServletRequest request, HttpServletResponse response, AnnoPage annoPage,
+                               String requestVersion, List<AnnotationType> textGranValues, boolean profileText,
+                               boolean isJson, boolean pretty) throws EuropeanaApiException, IOException {
+        HttpHeaders headers = generateAnnoPageHeaders(request, annoPage.getModified(), requestVersion, isJson);
+        addVaryHeader(fts.getSettings(), headers);
+        if (shouldGzip(fts.getSettings(), request)) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, GZIP);
+            writeHeaders(response, headers);
+            GZIPOutputStream out = new GZIPOutputStream(response.getOutputStream(), STREAMING_BUFFER_SIZE);
+            fts.writeAnnoPage(annoPage, requestVersion, textGranValues, profileText, !isJson, pretty, out);
+            out.finish();
+        } else {
+            writeHeaders(response, headers);
+            fts.writeAnnoPage(annoPage, requestVersion, textGranValues, profileText, !isJson, pretty,
+                response.getOutputStream());
+        }
+    }
+
+    private HttpHeaders generateAnnoPageHeaders(HttpServletRequest request, Date modifiedDate, String requestVersion,
+                                                boolean isJson) {
+        ZonedDateTime modified = dateToZonedUTC(modifiedDate);
+        String eTag = generateETag(modified, requestVersion + fts.getSettings().getAppVersion(),
+            true);
         HttpHeaders headers = generateHeaders(request, eTag, zonedDateTimeToString(modified));
         AcceptUtils.addContentTypeToResponseHeader(headers, requestVersion, isJson);
+        return headers;
+    }
 
-        List<String> profiles = extractProfiles(profileParam);
+    private static void writeHeaders(HttpServletResponse response, HttpHeaders headers) {
+        writeHeaders(response, HttpStatus.OK, headers);
+    }
+
+    private static void writeHeaders(HttpServletResponse response, HttpStatus status, HttpHeaders headers) {
+        response.setStatus(status.value());
+        headers.forEach((name, values) -> values.forEach(value -> response.addHeader(name, value)));
+    }
 
+    private AnnotationWrapper generateAnnoPage(AnnoPage annoPage, String requestVersion,
+                                               List<AnnotationType> textGranValues, boolean profileText,
+                                               boolean isJson) {
+        AnnotationWrapper annotationPage;
         if ("3".equalsIgnoreCase(requestVersion)) {
-            annotationPage = fts.generateAnnoPageV3(annoPage, textGranValues, profiles.contains(PROFILE_TEXT));
+            annotationPage = fts.generateAnnoPageV3(annoPage, textGranValues, profileText);
         } else {
-            annotationPage = fts.generateAnnoPageV2(annoPage, textGranValues, profiles.contains(PROFILE_TEXT));
+            annotationPage = fts.generateAnnoPageV2(annoPage, textGranValues, profileText);
         }
 
         if (isJson) {
             annotationPage.setContext(null);
         }
-        return new ResponseEntity<>(fts.serialise(annotationPage), headers, HttpStatus.OK);
+        return annotationPage;
     }
 
     /**
@@ -298,19 +573,21 @@ public class FTRetrievalController {
      * @param localId      identifier of the record that contains the AnnoPage with this Annotation
      * @param annoID       identifier of the Annotation
      * @param versionParam requested IIIF output format (2|3)
+     * @param pretty       optional, if true the response is pretty printed
      * @return response in json format
      * @throws EuropeanaApiException when serialising to Json fails
      */
     @Tag(name = "Annotation (JSON)", description = "Retrieve a single annotation")
     @GetMapping(value = "/presentation/{datasetId}/{localId}/anno/{annoID}", headers = ACCEPT_JSON)
-    public ResponseEntity<String> annotationJson(
+    public ResponseEntity<byte[]> annotationJson(
         @PathVariable String datasetId,
         @PathVariable String localId,
         @PathVariable String annoID,
         @RequestParam(value = "format", required = false) String versionParam,
         @RequestParam(value = "profile", required = false) String profileParam,
+        @RequestParam(value = "pretty", required = false) boolean pretty,
         HttpServletRequest request) throws EuropeanaApiException {
-        return annotation(datasetId, localId, annoID, versionParam, profileParam, request, true);
+        return annotation(datasetId, localId, annoID, versionParam, profileParam, pretty, request, true);
     }
 
     /**
@@ -320,27 +597,30 @@ public class FTRetrievalController {
      * @param lcId      identifier of the record that contains the AnnoPage with this Annotation
      * @param annoID       identifier of the Annotation
      * @param versionParam requested IIIF output format (2|3)
+     * @param pretty       optional, if true the response is pretty printed
      * @return response in json-ld format
      * @throws EuropeanaApiException when serialising to JsonLd fails
      */
     @Tag(name = "Annotation (JSON-LD)", description = "Retrieve a single annotation")
     @GetMapping(value = "/presentation/{dsId}/{lcId}/anno/{annoID}", headers = ACCEPT_JSONLD)
-    public ResponseEntity<String> annotationJsonLd(
+    public ResponseEntity<byte[]> annotationJsonLd(
         @PathVariable String dsId,
         @PathVariable String lcId,
         @PathVariable String annoID,
         @RequestParam(value = "format", required = false) String versionParam,
         @RequestParam(value = "profile", required = false) String profileParam,
+        @RequestParam(value = "pretty", required = false) boolean pretty,
         HttpServletRequest request) throws EuropeanaApiException {
-        return annotation(dsId, lcId, annoID, versionParam, profileParam, request, false);
+        return annotation(dsId, lcId, annoID, versionParam, profileParam, pretty, request, false);
     }
 
-    private ResponseEntity<String> annotation(
+    private ResponseEntity<byte[]> annotation(
         String datasetId,
         String localId,
         String annoID,
         String versionParam,
         String profileParam,
+        boolean pretty,
         HttpServletRequest request,
         boolean isJson) throws EuropeanaApiException {
         LOG.debug("Retrieve Annotation: {}/{}/{}", datasetId, localId, annoID);
@@ -354,16 +634,18 @@ public class FTRetrievalController {
 
         HttpHeaders headers;
         AnnotationWrapper annotation;
-        AnnoPage annoPage = fts.fetchAPAnnotation(datasetId, localId, annoID);
-        ZonedDateTime modified = dateToZonedUTC(annoPage.getModified());
-        String eTag = generateETag(modified, requestVersion + fts.getSettings().getAppVersion(),
-            true);
+        // conditional requests are checked against the AnnoPage metadata first, so no annotations are read for a 304
         if (cachingHeadersPresent(request)) {
-            ResponseEntity<String> cached = checkCached(request, modified, eTag);
+            ResponseEntity<byte[]> cached = checkCachedAnnoPage(request,
+                fts.fetchAPAnnotationMetadata(datasetId, localId, annoID), requestVersion);
             if (cached != null) {
                 return cached;
             }
         }
+        AnnoPage annoPage = fts.fetchAPAnnotation(datasetId, localId, annoID);
+        ZonedDateTime modified = dateToZonedUTC(annoPage.getModified());
+        String eTag = generateETag(modified, requestVersion + fts.getSettings().getAppVersion(),
+            true);
 
         headers = generateHeaders(request, eTag, zonedDateTimeToString(modified));
         AcceptUtils.addContentTypeToResponseHeader(headers, requestVersion, isJson);
@@ -377,7 +659,7 @@ public class FTRetrievalController {
         if (isJson) {
             annotation.setContext(null);
         }
-        return new ResponseEntity<>(fts.serialise(annotation), headers, HttpStatus.OK);
+        return createResponse(fts.getSettings(), request, headers, fts.serialiseToBytes(annotation, pretty));
     }
 
     /**
@@ -387,6 +669,7 @@ public class FTRetrievalController {
      * @param localId   identifier of the record that contains the Annopage that refers to the Resource
      * @param pageId     identifier of the Resource
      * @param lang       optional, in which language should the Resource be
+     * @param pretty     optional, if true the response is pretty printed
      * @return response in json-ld format
      * @throws EuropeanaApiException when serialising to JsonLd fails
      */
@@ -394,13 +677,14 @@ public class FTRetrievalController {
     @GetMapping(value = "/presentation/{datasetId}/{localId}/{pageId}",
         headers = ACCEPT_JSONLD,
         produces = MEDIA_TYPE_JSONLD + ';' + CHARSET_UTF_8)
-    public ResponseEntity<String> resourceJsonLd(
+    public ResponseEntity<byte[]> resourceJsonLd(
         @PathVariable String datasetId,
         @PathVariable String localId,
         @PathVariable String pageId,
         @RequestParam(value = "lang", required = false) String lang,
+        @RequestParam(value = "pretty", required = false) boolean pretty,
         HttpServletRequest request) throws EuropeanaApiException {
-        return resource(datasetId, localId, pageId, lang, request, false);
+        return resource(datasetId, localId, pageId, lang, pretty, request, false);
     }
 
     /**
@@ -409,6 +693,7 @@ public class FTRetrievalController {
      * @param dsId identifier of the dataset that contains the Annopage that refers to the Resource
      * @param lcId   identifier of the record that contains the Annopage that refers to the Resource
      * @param pgId     identifier of the Resource
+     * @param pretty optional, if true the response is pretty printed
      * @return response in json format
      * @throws EuropeanaApiException when serialising to Json fails
      */
@@ -416,43 +701,61 @@ public class FTRetrievalController {
     @GetMapping(value = "/presentation/{dsId}/{lcId}/{pgId}",
         headers = ACCEPT_JSON,
         produces = MEDIA_TYPE_JSON + ';' + CHARSET_UTF_8)
-    public ResponseEntity<String> resourceJson(
+    public ResponseEntity<byte[]> resourceJson(
         @PathVariable String dsId,
         @PathVariable String lcId,
         @PathVariable String pgId,
         @RequestParam(value = "lang", required = false) String lang,
+        @RequestParam(value = "pretty", required = false) boolean pretty,
         HttpServletRequest request) throws EuropeanaApiException {
-        return resource(dsId, lcId, pgId, lang, request, true);
+        return resource(dsId, lcId, pgId, lang, pretty, request, true);
     }
 
-    private ResponseEntity<String> resource(
-        String datasetId, String localId, String pageId, String lang,
+    private ResponseEntity<byte[]> resource(
+        String datasetId, String localId, String pageId, String lang, boolean pretty,
         HttpServletRequest request, boolean isJson) throws
         EuropeanaApiException {
         LOG.debug("Retrieve Resource: {}/{}/{}", datasetId, localId, pageId);
         HttpHeaders headers;
         FTResource resource;
 
-        resource = fts.fetchFTResource(datasetId, localId, pageId, lang);
         ZonedDateTime modified = januarificator();
         String eTag = generateETag(modified, fts.getSettings().getAppVersion(), true);
 
         if (cachingHeadersPresent(request)) {
-            ResponseEntity<String> cached = checkCached(request, modified, eTag);
+            // eTag doesn't depend on the Resource contents, so we only need to check if it exists
+            fts.checkFTResourceExists(datasetId, localId, pageId, lang);
+            ResponseEntity<byte[]> cached = checkCached(request, modified, eTag);
             if (cached != null) {
                 return cached;
             }
         }
 
+        resource = fts.fetchFTResource(datasetId, localId, pageId, lang);
+
         headers = generateHeaders(request, eTag, zonedDateTimeToString(modified));
         headers.add(CONTENT_TYPE, (isJson ? MEDIA_TYPE_JSON : MEDIA_TYPE_JSONLD) + ";" + CHARSET_UTF_8);
 
         if (isJson) {
             resource.setContext(null);
         }
-        return new ResponseEntity<>(fts.serialise(resource), headers, HttpStatus.OK);
+        return createResponse(fts.getSettings(), request, headers, fts.serialiseToBytes(resource, pretty));
     }
 
+    /**
+     * Checks if a conditional request can be answered based on the provided AnnoPage metadata
+     *
+     * @param request        incoming HttpServletRequest
+     * @param metadata       AnnoPage with at least the modified field set
+     * @param requestVersion requested IIIF version
+     * @return ResponseEntity with 304 or 412 status if requested object has not changed, otherwise null
+     */
+    private <T> ResponseEntity<T> checkCachedAnnoPage(HttpServletRequest request, AnnoPage metadata,
+                                                      String requestVersion) {
+        ZonedDateTime modified = dateToZonedUTC(metadata.getModified());
+        String eTag = generateETag(modified, requestVersion + fts.getSettings().getAppVersion(), true);
+        return checkCached(request, modified, eTag);
+    }
 
     private static String[] setSummaryTextGranularity(boolean isMedia){
         List<AnnotationType> granularities;
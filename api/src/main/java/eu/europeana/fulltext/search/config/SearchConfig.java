@@ -2,7 +2,9 @@ package eu.europeana.fulltext.search.config;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.solr.client.solrj.SolrClient;
+import eu.europeana.fulltext.search.repository.AsyncSolrClient;
 import org.apache.solr.client.solrj.impl.CloudSolrClient;
+import org.apache.solr.client.solrj.impl.Http2SolrClient;
 import org.apache.solr.client.solrj.impl.HttpSolrClient;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -33,6 +35,12 @@ public class SearchConfig {
     // try to merge two hits that are away a maximum of this much characters
     public static final int HIT_MERGE_MAX_DISTANCE = 3;
 
+    // snippets returned per record by a collection search, and their approximate length in characters
+    public static final int COLLECTION_SNIPPETS = 3;
+    public static final int COLLECTION_SNIPPET_SIZE = 200;
+    // maximum number of values returned per facet by a collection search
+    public static final int COLLECTION_FACET_LIMIT = 50;
+
     @Value("${spring.data.solr.zk-host:}")
     private String zookeeperHosts;
     @Value("${spring.data.solr.host:}")
@@ -41,6 +49,10 @@ public class SearchConfig {
     private String solrCore;
     @Value("${spring.data.solr.hl.maxAnalyzedChars:}")
     private Integer hlMaxAnalyzeChars;
+    @Value("${search.solr.maxInFlight:64}")
+    private int maxInFlight;
+    @Value("${search.solr.timeoutMs:30000}")
+    private int timeoutMs;
 
     // TODO set timeouts!?
 
@@ -50,7 +62,7 @@ public class SearchConfig {
      */
     @Bean
     public SolrClient solrClient() {
-        if (zookeeperHosts.isBlank() || zookeeperHosts.toUpperCase(Locale.GERMAN).contains("REMOVED")) {
+        if (isStandalone()) {
             LogManager.getLogger(SearchConfig.class).info("No zookeeper configured, trying to connect to standalone server");
             return new HttpSolrClient.Builder(solrHost).build();
         }
@@ -65,5 +77,28 @@ public class SearchConfig {
         return new SolrTemplate(solrClient);
     }
 
+    /**
+     * Create a new AsyncSolrClient for sending search queries without blocking request threads. A standalone server is
+     * queried via HTTP/2, for SolrCloud the provided (Zookeeper) client is used.
+     * @param solrClient client that is used when connecting via Zookeeper
+     * @return AsyncSolrClient
+     */
+    @Bean(destroyMethod = "close")
+    public AsyncSolrClient asyncSolrClient(SolrClient solrClient) {
+        if (isStandalone()) {
+            Http2SolrClient http2Client = new Http2SolrClient.Builder(solrHost)
+                    .connectionTimeout(timeoutMs)
+                    .idleTimeout(timeoutMs)
+                    .maxConnectionsPerHost(maxInFlight)
+                    .build();
+            return new AsyncSolrClient(http2Client, maxInFlight, timeoutMs);
+        }
+        return new AsyncSolrClient(solrClient, maxInFlight, timeoutMs);
+    }
+
+    private boolean isStandalone() {
+        return zookeeperHosts.isBlank() || zookeeperHosts.toUpperCase(Locale.GERMAN).contains("REMOVED");
+    }
+
 }
 
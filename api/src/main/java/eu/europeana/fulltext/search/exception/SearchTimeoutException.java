@@ -0,0 +1,19 @@
+package eu.europeana.fulltext.search.exception;
+
+import eu.europeana.api.commons.error.EuropeanaApiException;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Exception thrown when Solr doesn't respond to a search request in time
+ */
+public class SearchTimeoutException extends EuropeanaApiException {
+
+    public SearchTimeoutException(long timeoutMs) {
+        super("Search engine did not respond within " + timeoutMs + " ms");
+    }
+
+    @Override
+    public HttpStatus getResponseStatus() {
+        return HttpStatus.GATEWAY_TIMEOUT;
+    }
+}
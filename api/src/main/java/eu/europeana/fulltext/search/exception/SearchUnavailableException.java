@@ -0,0 +1,25 @@
+package eu.europeana.fulltext.search.exception;
+
+import eu.europeana.api.commons.error.EuropeanaApiException;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Exception thrown when a search request can't be sent to Solr because the maximum number of concurrent Solr requests
+ * is reached
+ */
+public class SearchUnavailableException extends EuropeanaApiException {
+
+    public SearchUnavailableException(int maxInFlight) {
+        super("Too many search requests in progress (maximum " + maxInFlight + "), please try again later");
+    }
+
+    @Override
+    public boolean doLog() {
+        return false;
+    }
+
+    @Override
+    public HttpStatus getResponseStatus() {
+        return HttpStatus.SERVICE_UNAVAILABLE;
+    }
+}
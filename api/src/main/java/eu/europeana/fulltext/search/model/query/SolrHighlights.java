@@ -0,0 +1,51 @@
+package eu.europeana.fulltext.search.model.query;
+
+import eu.europeana.fulltext.util.PageOffsetMap;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Highlight information of a record retrieved from Solr, together with the page offset maps that are needed to find
+ * the image of each hit
+ */
+public class SolrHighlights {
+
+    private final Map<String, List<String>> highlights;
+    private final Map<String, String> pageOffsetMaps;
+
+    /**
+     * Create a new object
+     * @param highlights     highlight information per fulltext field, empty if there are no hits
+     * @param pageOffsetMaps encoded page offset maps per page offset field (see {@link PageOffsetMap#getSolrField})
+     */
+    public SolrHighlights(Map<String, List<String>> highlights, Map<String, String> pageOffsetMaps) {
+        this.highlights = highlights == null ? Collections.emptyMap() : highlights;
+        this.pageOffsetMaps = pageOffsetMaps == null ? Collections.emptyMap() : pageOffsetMaps;
+    }
+
+    /**
+     * @return highlight information per fulltext field (snippets and passages), empty if there are no hits
+     */
+    public Map<String, List<String>> getHighlights() {
+        return highlights;
+    }
+
+    /**
+     * @param fulltextField name of a fulltext field, e.g. fulltext.en
+     * @return page offset map of the field, null if the record was indexed without page offset maps (or with page
+     * offset maps in an older format, in which case the entire pages need to be retrieved as well)
+     */
+    public PageOffsetMap getPageOffsetMap(String fulltextField) {
+        String encoded = pageOffsetMaps.get(PageOffsetMap.getSolrField(fulltextField));
+        if (encoded == null) {
+            return null;
+        }
+        try {
+            return PageOffsetMap.decode(encoded);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
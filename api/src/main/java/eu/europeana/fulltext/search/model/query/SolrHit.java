@@ -6,8 +6,8 @@ import javax.validation.constraints.NotNull;
 import java.io.Serializable;
 
 /**
- * Class used to temporarily store snippets and offsets retrieved from Solr
- * and for generating debug output
+ * Snippet and offsets of one hit retrieved from Solr, used for generating debug output. During a search hits are
+ * stored in {@link SolrHits}
  */
 public class SolrHit implements Serializable {
 
@@ -15,7 +15,10 @@ public class SolrHit implements Serializable {
 
     @NotNull
     private String imageId;
-    @NotNull
+    // the snippet as returned by Solr, either the entire page including the imageId prefix or a fragment
+    private String highlight;
+    // start of the page text in the highlight, negative if the highlight is a fragment that starts inside the page
+    private int textStart;
     private String snippet;
     private int start;
     private int end;
@@ -24,8 +27,23 @@ public class SolrHit implements Serializable {
      * Create a new object containing the snippet and offset data from Solr
      */
     public SolrHit(String imageId, String snippet, int start, int end) {
+        this(imageId, snippet, 0, start, end);
+    }
+
+    /**
+     * Create a new object containing the snippet and offset data from Solr. The snippet text is only extracted from the
+     * highlight when it's requested.
+     * @param imageId   the id of the image (AnnoPage target) that the snippet belongs to
+     * @param highlight highlight returned by Solr
+     * @param textStart start of the page text in the highlight (after the imageId prefix), negative if the highlight
+     *                  is a fragment that starts after the start of the page
+     * @param start     start offset of the hit in the page text
+     * @param end       end offset of the hit in the page text
+     */
+    public SolrHit(String imageId, String highlight, int textStart, int start, int end) {
         this.imageId = imageId;
-        this.snippet = snippet;
+        this.highlight = highlight;
+        this.textStart = textStart;
         this.start = start;
         this.end = end;
     }
@@ -35,6 +53,9 @@ public class SolrHit implements Serializable {
     }
 
     public String getSnippet() {
+        if (snippet == null) {
+            snippet = highlight.substring(Math.max(0, Math.min(textStart, highlight.length())));
+        }
         return snippet;
     }
 
@@ -46,16 +67,12 @@ public class SolrHit implements Serializable {
         return end;
     }
 
-    public void setEnd(int end) {
-        this.end = end;
-    }
-
     /**
      * Generate a textual description of this hit
      */
     @JsonIgnore
     public String getDebugInfo() {
-        return "hit " + start + "," + end + " with text '"+ snippet.substring(start, end) + "'";
+        return "hit " + start + "," + end + " with text '"+ highlight.substring(textStart + start, textStart + end) + "'";
     }
 
 }
@@ -0,0 +1,268 @@
+package eu.europeana.fulltext.search.model.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * All hits retrieved from Solr for one search, stored as parallel arrays instead of one object per hit. For each hit
+ * we store the page (image) it was found on, its start and end offset in the page text, and the highlight (Solr
+ * snippet) it was found in. Nearby hits on the same page in the same highlight are merged when they are added.
+ * <p>
+ * After all hits are added, {@link #groupByPage()} orders the hits by page (in the order the pages were first found)
+ * so the hits of one page can be processed as a range of hit indexes.
+ */
+public class SolrHits {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int mergeMaxDistance;
+
+    // per page
+    private final List<String> imageIds = new ArrayList<>();
+    private final Map<String, Integer> pageIndexes = new HashMap<>();
+    private int[] pageHitsStart;
+
+    // per highlight
+    private final List<String> highlights = new ArrayList<>();
+    private int highlightFirstHit;
+
+    // per hit
+    private int[] pages = new int[INITIAL_CAPACITY];
+    private int[] highlightIndexes = new int[INITIAL_CAPACITY];
+    private int[] textStarts = new int[INITIAL_CAPACITY];
+    private int[] starts = new int[INITIAL_CAPACITY];
+    private int[] ends = new int[INITIAL_CAPACITY];
+    private int size;
+    private int nrMerged;
+
+    /**
+     * Create a new empty object
+     * @param mergeMaxDistance hits that are this many characters (or less) apart are merged into one hit
+     */
+    public SolrHits(int mergeMaxDistance) {
+        this.mergeMaxDistance = mergeMaxDistance;
+    }
+
+    /**
+     * Start adding the hits of a new highlight. Hits of different highlights are never merged.
+     * @param highlight the snippet as returned by Solr, either the entire page including the imageId prefix or a
+     *                  fragment
+     */
+    public void addHighlight(String highlight) {
+        checkNotGrouped();
+        highlights.add(highlight);
+        highlightFirstHit = size;
+    }
+
+    /**
+     * Add a hit of the current highlight. If the hit is close to the previous hit of the highlight and on the same
+     * page, the previous hit is extended instead.
+     * @param imageId   the id of the image (AnnoPage target) of the page
+     * @param textStart start of the page text in the highlight (after the imageId prefix), negative if the highlight
+     *                  is a fragment that starts after the start of the page
+     * @param start     start offset of the hit in the page text
+     * @param end       end offset of the hit in the page text
+     * @return true if the hit was added, false if it was merged with the previous hit
+     */
+    public boolean addHit(String imageId, int textStart, int start, int end) {
+        checkNotGrouped();
+        Integer pageIndex = pageIndexes.get(imageId);
+        if (pageIndex == null) {
+            pageIndex = imageIds.size();
+            imageIds.add(imageId);
+            pageIndexes.put(imageId, pageIndex);
+        }
+        int page = pageIndex;
+        int previous = size - 1;
+        if (previous >= highlightFirstHit && pages[previous] == page
+                && start - ends[previous] <= mergeMaxDistance) {
+            ends[previous] = end;
+            nrMerged++;
+            return false;
+        }
+        if (size == starts.length) {
+            int capacity = size * 2;
+            pages = Arrays.copyOf(pages, capacity);
+            highlightIndexes = Arrays.copyOf(highlightIndexes, capacity);
+            textStarts = Arrays.copyOf(textStarts, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+        }
+        pages[size] = page;
+        highlightIndexes[size] = highlights.size() - 1;
+        textStarts[size] = textStart;
+        starts[size] = start;
+        ends[size] = end;
+        size++;
+        return true;
+    }
+
+    /**
+     * Order the hits by page, keeping the order of hits within a page. After this no more hits can be added.
+     */
+    public void groupByPage() {
+        checkNotGrouped();
+        // counting sort on page index, which is stable
+        int[] hitsStart = new int[imageIds.size() + 1];
+        for (int i = 0; i < size; i++) {
+            hitsStart[pages[i] + 1]++;
+        }
+        for (int page = 0; page < imageIds.size(); page++) {
+            hitsStart[page + 1] += hitsStart[page];
+        }
+        int[] next = Arrays.copyOf(hitsStart, imageIds.size());
+        int[] newPages = new int[size];
+        int[] newHighlightIndexes = new int[size];
+        int[] newTextStarts = new int[size];
+        int[] newStarts = new int[size];
+        int[] newEnds = new int[size];
+        for (int i = 0; i < size; i++) {
+            int target = next[pages[i]]++;
+            newPages[target] = pages[i];
+            newHighlightIndexes[target] = highlightIndexes[i];
+            newTextStarts[target] = textStarts[i];
+            newStarts[target] = starts[i];
+            newEnds[target] = ends[i];
+        }
+        pages = newPages;
+        highlightIndexes = newHighlightIndexes;
+        textStarts = newTextStarts;
+        starts = newStarts;
+        ends = newEnds;
+        pageHitsStart = hitsStart;
+    }
+
+    private void checkNotGrouped() {
+        if (pageHitsStart != null) {
+            throw new IllegalStateException("Hits are already grouped by page");
+        }
+    }
+
+    private void checkGrouped() {
+        if (pageHitsStart == null) {
+            throw new IllegalStateException("Hits are not grouped by page yet");
+        }
+    }
+
+    /**
+     * @return the number of hits (after merging)
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of hits that were merged with the previous hit
+     */
+    public int getNrMerged() {
+        return nrMerged;
+    }
+
+    /**
+     * @return the number of pages with hits
+     */
+    public int getPageCount() {
+        return imageIds.size();
+    }
+
+    /**
+     * @return the image ids of all pages with hits, in the order they were found
+     */
+    public List<String> getImageIds() {
+        return Collections.unmodifiableList(imageIds);
+    }
+
+    /**
+     * @param page page index
+     * @return image id of the page
+     */
+    public String getImageId(int page) {
+        return imageIds.get(page);
+    }
+
+    /**
+     * @param imageId image id of a page
+     * @return page index, -1 if there are no hits on the page
+     */
+    public int getPage(String imageId) {
+        Integer page = pageIndexes.get(imageId);
+        return page == null ? -1 : page;
+    }
+
+    /**
+     * @param page page index
+     * @return index of the first hit of the page (only available after grouping by page)
+     */
+    public int getFirstHit(int page) {
+        checkGrouped();
+        return pageHitsStart[page];
+    }
+
+    /**
+     * @param page page index
+     * @return index after the last hit of the page (only available after grouping by page)
+     */
+    public int getEndHit(int page) {
+        checkGrouped();
+        return pageHitsStart[page + 1];
+    }
+
+    /**
+     * @param hit hit index
+     * @return page index of the hit
+     */
+    public int getPageOfHit(int hit) {
+        return pages[hit];
+    }
+
+    /**
+     * @param hit hit index
+     * @return start offset of the hit in the page text
+     */
+    public int getStart(int hit) {
+        return starts[hit];
+    }
+
+    /**
+     * @param hit hit index
+     * @return end offset of the hit in the page text
+     */
+    public int getEnd(int hit) {
+        return ends[hit];
+    }
+
+    /**
+     * @param page page index
+     * @return the text of the page, taken from the highlight of the first hit of the page. This is only the entire
+     * page text when Solr returned entire pages as highlight (only available after grouping by page)
+     */
+    public String getPageText(int page) {
+        int hit = getFirstHit(page);
+        String highlight = highlights.get(highlightIndexes[hit]);
+        return highlight.substring(Math.max(0, Math.min(textStarts[hit], highlight.length())));
+    }
+
+    /**
+     * @param hit hit index
+     * @return object with the data of the hit, for debug output
+     */
+    public SolrHit toSolrHit(int hit) {
+        return new SolrHit(imageIds.get(pages[hit]), highlights.get(highlightIndexes[hit]), textStarts[hit],
+                starts[hit], ends[hit]);
+    }
+
+    /**
+     * Generate a textual description of a hit
+     * @param hit hit index
+     * @return description of the hit, including the hit text
+     */
+    public String getDebugInfo(int hit) {
+        return "hit " + starts[hit] + "," + ends[hit] + " with text '"
+                + highlights.get(highlightIndexes[hit]).substring(textStarts[hit] + starts[hit],
+                textStarts[hit] + ends[hit]) + "'";
+    }
+}
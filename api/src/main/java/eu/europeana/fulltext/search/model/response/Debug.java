@@ -5,7 +5,10 @@ import eu.europeana.fulltext.search.model.query.SolrHit;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * This class is used to include debugging information in the response (if this is requested, not included by default)
@@ -13,13 +16,15 @@ import java.util.List;
  * @author Patrick Ehlert
  * Created on 9 June 2020
  */
-@JsonPropertyOrder({"solrQuery", "solrHits"})
+@JsonPropertyOrder({"solrQuery", "timings", "solrHits"})
 public class Debug implements Serializable {
 
     private static final long serialVersionUID = 3800855960101156128L;
 
     private String solrQuery;
     private List<SolrHit> solrHits = new ArrayList<>();
+    // time spent per processing phase in nanoseconds, in the order the phases were first recorded
+    private final Map<String, Long> timings = new LinkedHashMap<>();
 
     public void setSolrQuery(String solrQuery) {
         this.solrQuery = solrQuery;
@@ -36,4 +41,23 @@ public class Debug implements Serializable {
     public List<SolrHit> getSolrHits() {
         return solrHits;
     }
+
+    /**
+     * Adds the time spent in a processing phase. Phases that are recorded multiple times (e.g. once per page) are
+     * summed. Can be called by multiple threads concurrently.
+     * @param phase name of the phase
+     * @param nanos duration in nanoseconds
+     */
+    public synchronized void addTiming(String phase, long nanos) {
+        timings.merge(phase, nanos, Long::sum);
+    }
+
+    /**
+     * @return time spent per processing phase in milliseconds
+     */
+    public synchronized Map<String, Double> getTimings() {
+        Map<String, Double> result = new LinkedHashMap<>();
+        timings.forEach((phase, nanos) -> result.put(phase, nanos / 1_000_000d));
+        return Collections.unmodifiableMap(result);
+    }
 }
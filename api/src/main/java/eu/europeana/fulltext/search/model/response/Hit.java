@@ -22,20 +22,20 @@ public abstract class Hit implements Serializable {
 
     private static final long serialVersionUID = -3280544584499568202L;
 
-    private Integer startIndex; // for processing purposes only
-    private Integer endIndex; // for processing purposes only
+    private int startIndex; // for processing purposes only
+    private int endIndex; // for processing purposes only
     private List<String> annotations = new ArrayList<>(); // even though this is a list, it will contain only 1 annotation id
     private List<HitSelector> selectors = new ArrayList<>(); // even though this is a list, it will contain only 1 hitselector
 
     public abstract String getType();
 
     @JsonIgnore
-    public Integer getStartIndex() {
+    public int getStartIndex() {
         return this.startIndex;
     }
 
     @JsonIgnore
-    public Integer getEndIndex() {
+    public int getEndIndex() {
         return this.endIndex;
     }
 
@@ -30,5 +30,13 @@ public interface SearchResult {
     List<Hit> getHits();
 
     void setContext(String[] context);
+
+    /**
+     * Create a copy of this search result with a different id, for returning a cached result. The annotations and hits
+     * are shared with this result. Debug information is not copied.
+     * @param searchId id of the copy
+     * @return new SearchResult object
+     */
+    SearchResult copyWithId(String searchId);
 }
 
@@ -0,0 +1,36 @@
+package eu.europeana.fulltext.search.model.response.collection;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * A record that matches a collection search, with the highlighted snippets of its full-text
+ */
+@JsonPropertyOrder({"id", "snippets"})
+public class CollectionSearchItem implements Serializable {
+
+    private static final long serialVersionUID = 8203394526104728436L;
+
+    private final String id;
+    private final List<String> snippets;
+
+    /**
+     * Create a new item
+     * @param id europeana id of the record (e.g. /9200396/BibliographicResource_3000118435063)
+     * @param snippets highlighted snippets of the full-text of the record
+     */
+    public CollectionSearchItem(String id, List<String> snippets) {
+        this.id = id;
+        this.snippets = snippets;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public List<String> getSnippets() {
+        return snippets;
+    }
+}
@@ -0,0 +1,92 @@
+package eu.europeana.fulltext.search.model.response.collection;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import eu.europeana.fulltext.search.model.response.Debug;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Root object for serializing a search over the full-texts of all records. Contains only the records that match and
+ * snippets of their full-text, no annotations.
+ */
+@JsonPropertyOrder({"id", "type", "debug", "total", "next", "items", "facets"})
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CollectionSearchResult implements Serializable {
+
+    private static final long serialVersionUID = -2375839405930294581L;
+
+    private static final String TYPE = "CollectionSearchResult";
+
+    private final String id;
+    private Debug debug;
+    private long total;
+    private String next;
+    private final List<CollectionSearchItem> items = new ArrayList<>();
+    private List<Facet> facets;
+
+    public CollectionSearchResult(String searchId, boolean debug) {
+        this.id = searchId;
+        if (debug) {
+            this.debug = new Debug();
+        }
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getType() {
+        return TYPE;
+    }
+
+    /**
+     * @return object containing information for debugging (only available if user requested debug parameter)
+     */
+    public Debug getDebug() {
+        return debug;
+    }
+
+    /**
+     * @return total number of records that match the query
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    /**
+     * @return cursor to use for retrieving the next page of results, null if there are no more results
+     */
+    public String getNext() {
+        return next;
+    }
+
+    public void setNext(String next) {
+        this.next = next;
+    }
+
+    public List<CollectionSearchItem> getItems() {
+        return items;
+    }
+
+    public void addItem(CollectionSearchItem item) {
+        this.items.add(item);
+    }
+
+    /**
+     * @return requested facets, null if no facets were requested
+     */
+    public List<Facet> getFacets() {
+        return facets;
+    }
+
+    public void setFacets(List<Facet> facets) {
+        this.facets = facets;
+    }
+}
@@ -0,0 +1,60 @@
+package eu.europeana.fulltext.search.model.response.collection;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Number of matching records per value of a metadata field
+ */
+@JsonPropertyOrder({"name", "fields"})
+public class Facet implements Serializable {
+
+    private static final long serialVersionUID = -1460247398532154063L;
+
+    private final String name;
+    private final List<FacetValue> fields = new ArrayList<>();
+
+    public Facet(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<FacetValue> getFields() {
+        return fields;
+    }
+
+    public void addValue(String label, long count) {
+        this.fields.add(new FacetValue(label, count));
+    }
+
+    /**
+     * A single facet value and the number of matching records that have this value
+     */
+    @JsonPropertyOrder({"label", "count"})
+    public static class FacetValue implements Serializable {
+
+        private static final long serialVersionUID = 5263918027738590734L;
+
+        private final String label;
+        private final long count;
+
+        public FacetValue(String label, long count) {
+            this.label = label;
+            this.count = count;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
+}
@@ -88,4 +88,13 @@ public class SearchResultV2 implements Serializable, SearchResult {
     public void setContext(String[] context) {
       this.context=context;
     }
+
+    @Override
+    public SearchResult copyWithId(String searchId) {
+        SearchResultV2 copy = new SearchResultV2(searchId, false);
+        copy.context = this.context;
+        copy.items.addAll(this.items);
+        copy.hits.addAll(this.hits);
+        return copy;
+    }
 }
@@ -91,4 +91,13 @@ public class SearchResultV3 implements Serializable, SearchResult {
             hits.add(hit);
         }
     }
+
+    @Override
+    public SearchResult copyWithId(String searchId) {
+        SearchResultV3 copy = new SearchResultV3(searchId, false);
+        copy.context = this.context;
+        copy.items.addAll(this.items);
+        copy.hits.addAll(this.hits);
+        return copy;
+    }
 }
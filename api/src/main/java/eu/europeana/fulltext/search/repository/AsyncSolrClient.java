@@ -0,0 +1,173 @@
+package eu.europeana.fulltext.search.repository;
+
+import eu.europeana.api.commons.error.EuropeanaApiException;
+import eu.europeana.fulltext.search.exception.SearchTimeoutException;
+import eu.europeana.fulltext.search.exception.SearchUnavailableException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.impl.Http2SolrClient;
+import org.apache.solr.client.solrj.request.QueryRequest;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.client.solrj.util.AsyncListener;
+import org.apache.solr.client.solrj.util.Cancellable;
+import org.apache.solr.common.util.NamedList;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Sends queries to Solr without blocking the calling thread, so slow Solr responses don't hold on to servlet threads.
+ * <p>
+ * When connecting to a standalone Solr server the asynchronous API of the HTTP/2 client is used. SolrJ has no
+ * asynchronous API for SolrCloud (ZooKeeper), so in that case the queries are sent by a pool of threads using the
+ * regular (blocking) client.
+ * <p>
+ * The number of queries that are in progress is limited; when the limit is reached, or when all threads are still
+ * busy with queries that timed out, new queries fail immediately with a {@link SearchUnavailableException}. Queries that take longer than the timeout are cancelled and fail with a
+ * {@link SearchTimeoutException}.
+ */
+public class AsyncSolrClient implements Closeable {
+
+    private static final Logger LOG = LogManager.getLogger(AsyncSolrClient.class);
+
+    private final Http2SolrClient http2Client;
+    private final SolrClient solrClient;
+    private final ThreadPoolTaskExecutor executor;
+    private final Semaphore inFlight;
+    private final int maxInFlight;
+    private final long timeoutMs;
+
+    /**
+     * Create a new client that uses the asynchronous API of the provided HTTP/2 client
+     * @param http2Client client connected to a standalone Solr server
+     * @param maxInFlight maximum number of queries in progress
+     * @param timeoutMs maximum time to wait for a response
+     */
+    public AsyncSolrClient(Http2SolrClient http2Client, int maxInFlight, long timeoutMs) {
+        this(http2Client, null, maxInFlight, timeoutMs);
+    }
+
+    /**
+     * Create a new client that sends queries with the provided (blocking) client using a pool of threads
+     * @param solrClient client, e.g. connected to SolrCloud
+     * @param maxInFlight maximum number of queries in progress, also the number of threads
+     * @param timeoutMs maximum time to wait for a response
+     */
+    public AsyncSolrClient(SolrClient solrClient, int maxInFlight, long timeoutMs) {
+        this(null, solrClient, maxInFlight, timeoutMs);
+    }
+
+    private AsyncSolrClient(Http2SolrClient http2Client, SolrClient solrClient, int maxInFlight, long timeoutMs) {
+        this.http2Client = http2Client;
+        this.solrClient = solrClient;
+        this.maxInFlight = maxInFlight;
+        this.timeoutMs = timeoutMs;
+        this.inFlight = new Semaphore(maxInFlight);
+        if (solrClient == null) {
+            this.executor = null;
+            LOG.info("Sending search queries asynchronously via HTTP/2, maximum {} in progress", maxInFlight);
+        } else {
+            this.executor = new ThreadPoolTaskExecutor();
+            executor.setCorePoolSize(maxInFlight);
+            executor.setMaxPoolSize(maxInFlight);
+            // a thread may not be available yet directly after a query completed
+            executor.setQueueCapacity(maxInFlight);
+            executor.setAllowCoreThreadTimeOut(true);
+            executor.setThreadNamePrefix("solr-query-");
+            executor.initialize();
+            LOG.info("Sending search queries using {} threads", maxInFlight);
+        }
+    }
+
+    /**
+     * Send a query to Solr
+     * @param collection name of the Solr core or collection
+     * @param query query to send
+     * @return future that completes with the Solr response, or exceptionally with an EuropeanaApiException
+     */
+    public CompletableFuture<QueryResponse> query(String collection, SolrQuery query) {
+        if (!inFlight.tryAcquire()) {
+            return CompletableFuture.failedFuture(new SearchUnavailableException(maxInFlight));
+        }
+        CompletableFuture<QueryResponse> response = new CompletableFuture<>();
+        Runnable cancel;
+        try {
+            cancel = http2Client == null ? sendBlocking(collection, query, response) : send(collection, query, response);
+        } catch (TaskRejectedException e) {
+            // threads of timed out queries may still be waiting for Solr, so the pool can be full
+            inFlight.release();
+            LOG.warn("No thread available to send query to Solr", e);
+            return CompletableFuture.failedFuture(new SearchUnavailableException(maxInFlight));
+        } catch (RuntimeException e) {
+            inFlight.release();
+            return CompletableFuture.failedFuture(new EuropeanaApiException("Error querying Solr", e));
+        }
+
+        CompletableFuture<QueryResponse> result = new CompletableFuture<>();
+        response.orTimeout(timeoutMs, TimeUnit.MILLISECONDS).whenComplete((rsp, e) -> {
+            inFlight.release();
+            if (e == null) {
+                result.complete(rsp);
+            } else if (e instanceof TimeoutException) {
+                cancel.run();
+                result.completeExceptionally(new SearchTimeoutException(timeoutMs));
+            } else {
+                result.completeExceptionally(new EuropeanaApiException("Error querying Solr", e));
+            }
+        });
+        return result;
+    }
+
+    private Runnable send(String collection, SolrQuery query, CompletableFuture<QueryResponse> response) {
+        Cancellable request = http2Client.asyncRequest(new QueryRequest(query), collection,
+                new AsyncListener<>() {
+                    @Override
+                    public void onSuccess(NamedList<Object> namedList) {
+                        response.complete(new QueryResponse(namedList, http2Client));
+                    }
+
+                    @Override
+                    public void onFailure(Throwable throwable) {
+                        response.completeExceptionally(throwable);
+                    }
+                });
+        return request::cancel;
+    }
+
+    private Runnable sendBlocking(String collection, SolrQuery query, CompletableFuture<QueryResponse> response) {
+        Future<?> request = executor.submit(() -> {
+            try {
+                response.complete(solrClient.query(collection, query));
+            } catch (Exception e) {
+                response.completeExceptionally(e);
+            }
+        });
+        return () -> request.cancel(true);
+    }
+
+    /**
+     * @return number of queries that can be sent before the maximum number of queries in progress is reached
+     */
+    public int getAvailable() {
+        return inFlight.availablePermits();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (executor != null) {
+            executor.shutdown();
+        }
+        if (http2Client != null) {
+            http2Client.close();
+        }
+    }
+}
@@ -2,13 +2,19 @@ package eu.europeana.fulltext.search.repository;
 
 import eu.europeana.api.commons.error.EuropeanaApiException;
 import eu.europeana.fulltext.search.model.query.EuropeanaId;
+import eu.europeana.fulltext.search.model.query.SolrHighlights;
 import eu.europeana.fulltext.search.model.response.Debug;
+import org.apache.solr.client.solrj.response.QueryResponse;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
- * Defines the query sent to solr to retrieve highlights in a particular newspaper issue (record)
+ * Defines the query sent to solr to retrieve highlights in a particular newspaper issue (record). Searching inside an
+ * issue is done asynchronously (see {@link AsyncSolrClient}), so request threads are not blocked while waiting for Solr.
  *
  * @author Patrick Ehlert
  * Created 29 May 2020
@@ -21,10 +27,63 @@ public interface SolrHighlightQuery {
      * @param query          the string to search
      * @param maxSnippets    maximum number of snippets we want from solr
      * @param debug          if not null we store debug information in the object
-     * @return Map containing snippets and passages (offsets)
+     * @return future with a Map containing snippets and passages (offsets), completes exceptionally with an
+     * EuropeanaApiException when there's an error sending/reading the request to/from Solr
+     */
+    CompletableFuture<Map<String, List<String>>> getHighlightsWithOffsets(EuropeanaId europeanaId, String query,
+                                                                          int maxSnippets, Debug debug);
+
+    /**
+     * Send a query to a Solr server/cluster that is modified to return highlight with offsets information. Unlike
+     * {@link #getHighlightsWithOffsets(EuropeanaId, String, int, Debug)} snippets are small fragments instead of the
+     * entire page text, so the page offset maps of the record are retrieved as well to find the image of each hit.
+     * @param europeanaId    europeana id of the issue to search
+     * @param query          the string to search
+     * @param maxSnippets    maximum number of snippets we want from solr
+     * @param debug          if not null we store debug information in the object
+     * @return future with SolrHighlights containing snippets and passages (offsets) and the page offset maps of the
+     * record, completes exceptionally with an EuropeanaApiException when there's an error sending/reading the request
+     * to/from Solr
+     */
+    CompletableFuture<SolrHighlights> getHighlightsWithPageOffsets(EuropeanaId europeanaId, String query,
+                                                                   int maxSnippets, Debug debug);
+
+    /**
+     * Retrieve the time the full-text of an issue was last indexed
+     * @param europeanaId    europeana id of the issue
+     * @return future with the value of the timestamp_update_fulltext field (null if the issue doesn't exist or has no
+     * timestamp), completes exceptionally with an EuropeanaApiException when there's an error sending/reading the
+     * request to/from Solr
+     */
+    CompletableFuture<Date> getFulltextTimestamp(EuropeanaId europeanaId);
+
+    /**
+     * Retrieve the annotation tables (see {@link eu.europeana.fulltext.util.AnnotationOffsetTable}) of the provided
+     * targets of an issue
+     * @param europeanaId    europeana id of the issue
+     * @param targetIds      target ids (image urls) for which to retrieve the annotation tables
+     * @return Map with target id as key and the encoded annotation tables of that target as value. Targets without
+     * annotation tables are not included
      * @throws EuropeanaApiException when there's an error sending/reading the request to/from Solr
      */
-    Map<String, List<String>> getHighlightsWithOffsets(EuropeanaId europeanaId, String query, int maxSnippets,
-                                                       Debug debug) throws EuropeanaApiException;
+    Map<String, List<String>> getAnnotationTables(EuropeanaId europeanaId, Collection<String> targetIds)
+            throws EuropeanaApiException;
+
+    /**
+     * Search the full-text of all records (in all languages, or only in the provided language). Results are sorted by
+     * relevance and retrieved using a cursor, so deep paging doesn't get slower.
+     * @param query          the string to search
+     * @param lang           optional, if not empty only the full-text in this language is searched
+     * @param rows           maximum number of records to return
+     * @param cursor         cursor returned by the previous search, or "*" for the first page
+     * @param facets         metadata fields for which to return facets, can be empty
+     * @param debug          if not null we store debug information in the object
+     * @return Solr response with the europeana ids of the found records, their highlighted snippets, the next cursor
+     * and the requested facets
+     * @throws EuropeanaApiException when the language is not supported, or when there's an error sending/reading the
+     * request to/from Solr
+     */
+    QueryResponse searchCollection(String query, String lang, int rows, String cursor, List<String> facets,
+                                   Debug debug) throws EuropeanaApiException;
 
 }
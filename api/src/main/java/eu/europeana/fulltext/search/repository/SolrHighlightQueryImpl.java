@@ -2,25 +2,42 @@ package eu.europeana.fulltext.search.repository;
 
 import eu.europeana.api.commons.error.EuropeanaApiException;
 import eu.europeana.fulltext.search.config.SearchConfig;
+import eu.europeana.fulltext.search.exception.InvalidParameterException;
 import eu.europeana.fulltext.search.model.query.EuropeanaId;
+import eu.europeana.fulltext.search.model.query.SolrHighlights;
 import eu.europeana.fulltext.search.model.response.Debug;
+import eu.europeana.fulltext.util.AnnotationOffsetTable;
+import eu.europeana.fulltext.util.PageOffsetMap;
 import eu.europeana.fulltext.util.RequestUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.request.schema.SchemaRequest;
 import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.client.solrj.util.ClientUtils;
+import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.CursorMarkParams;
+import org.apache.solr.common.params.DisMaxParams;
+import org.apache.solr.common.params.ModifiableSolrParams;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.solr.core.SolrTemplate;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 /**
  * Defines the query sent to solr to retrieve highlights in a particular newspaper issue (record)
@@ -38,44 +55,236 @@ public class SolrHighlightQueryImpl implements SolrHighlightQuery {
     private static final String HL_METHOD_PARAM = "hl.method";
     private static final String HL_MAXANALYZEDCHARS_PARAM = "hl.maxAnalyzedChars";
     private static final String EUROPEANA_ID_FIELD = "europeana_id";
+    private static final String FULLTEXT_FIELD_PREFIX = "fulltext.";
+    private static final String TIMESTAMP_UPDATE_FULLTEXT_FIELD = "timestamp_update_fulltext";
+    private static final String DEF_TYPE_PARAM = "defType";
+    private static final String EDISMAX = "edismax";
     public static final String REGEX_FOR_CHARS_TO_FILTER = "[{}<>]";
 
     @Autowired
     private SolrTemplate solrTemplate;
+    @Autowired
+    private AsyncSolrClient asyncSolrClient;
     @Value("${spring.data.solr.core:}")
     private String solrCore;
     @Value("${spring.data.solr.hl.maxAnalyzedChars:}")
     private Integer maxAnalyzedChars;
+    @Value("${search.highlight.fragsize:100}")
+    private int fragSize;
+    @Value("${search.fulltextFields.reloadMs:3600000}")
+    private long fulltextFieldsReloadMs;
+
+    // names of all full-text fields in the Solr schema (one per language), loaded when first needed and reloaded
+    // after fulltextFieldsReloadMs, so languages added to the schema are picked up
+    private volatile List<String> fulltextFields;
+    private volatile long fulltextFieldsLoaded;
 
     /**
      * @see SolrHighlightQuery#getHighlightsWithOffsets(EuropeanaId, String, int, Debug)
      */
-    public Map<String, List<String>> getHighlightsWithOffsets(EuropeanaId europeanaId, String query, int maxSnippets,
-                                                              Debug debug) throws EuropeanaApiException {
+    public CompletableFuture<Map<String, List<String>>> getHighlightsWithOffsets(EuropeanaId europeanaId, String query,
+                                                                                 int maxSnippets, Debug debug) {
         SolrQuery q = createQuery(europeanaId, query, maxSnippets);
         if (debug != null) {
             debug.setSolrQuery(q.toQueryString());
         }
-        // do query
-        QueryResponse response;
+        return query(q).thenApply(response -> {
+            SolrDocumentList list = response.getResults();
+            if (list.getNumFound() == 0) {
+                return null;
+            }
+            Map<String, Map<String, List<String>>> highlights = response.getHighlighting();
+            return highlights.get(europeanaId.toString()); // should only be 1 item
+        });
+    }
+
+    /**
+     * @see SolrHighlightQuery#getHighlightsWithPageOffsets(EuropeanaId, String, int, Debug)
+     */
+    public CompletableFuture<SolrHighlights> getHighlightsWithPageOffsets(EuropeanaId europeanaId, String query,
+                                                                          int maxSnippets, Debug debug) {
+        SolrQuery q = createQuery(europeanaId, query, maxSnippets, fragSize);
+        q.setFields(EUROPEANA_ID_FIELD, PageOffsetMap.SOLR_FIELD_PREFIX + "*");
+        if (debug != null) {
+            debug.setSolrQuery(q.toQueryString());
+        }
+        return query(q).thenApply(response -> {
+            SolrDocumentList list = response.getResults();
+            if (list.getNumFound() == 0) {
+                return new SolrHighlights(null, null);
+            }
+            Map<String, String> pageOffsetMaps = new HashMap<>();
+            for (Map.Entry<String, Object> field : list.get(0)) {
+                if (field.getKey().startsWith(PageOffsetMap.SOLR_FIELD_PREFIX)) {
+                    Object value = field.getValue();
+                    // stored in a multi-valued field, but there is only 1 value
+                    if (value instanceof Collection) {
+                        Collection<?> values = (Collection<?>) value;
+                        value = values.isEmpty() ? null : values.iterator().next();
+                    }
+                    if (value != null) {
+                        pageOffsetMaps.put(field.getKey(), value.toString());
+                    }
+                }
+            }
+            return new SolrHighlights(response.getHighlighting().get(europeanaId.toString()), pageOffsetMaps);
+        });
+    }
+
+    /**
+     * @see SolrHighlightQuery#getFulltextTimestamp(EuropeanaId)
+     */
+    public CompletableFuture<Date> getFulltextTimestamp(EuropeanaId europeanaId) {
+        // not a real-time get, the timestamp should match the (committed) documents that are searched
+        SolrQuery q = new SolrQuery(EUROPEANA_ID_FIELD + ":" + filterAndUpdateQueryChars(europeanaId.toString()));
+        q.setRows(1);
+        q.setFields(TIMESTAMP_UPDATE_FULLTEXT_FIELD);
+        return query(q).thenApply(response -> {
+            SolrDocumentList list = response.getResults();
+            return list.isEmpty() ? null : (Date) list.get(0).getFirstValue(TIMESTAMP_UPDATE_FULLTEXT_FIELD);
+        });
+    }
+
+    private CompletableFuture<QueryResponse> query(SolrQuery q) {
+        return asyncSolrClient.query(solrCore, q).thenApply(response -> {
+            if (LOG.isTraceEnabled()) {
+                LOG.trace("Solr response = {}", response.jsonStr());
+            }
+            return response;
+        });
+    }
+
+    /**
+     * @see SolrHighlightQuery#getAnnotationTables(EuropeanaId, Collection)
+     */
+    public Map<String, List<String>> getAnnotationTables(EuropeanaId europeanaId, Collection<String> targetIds)
+            throws EuropeanaApiException {
+        Map<String, String> targetIdsByField = new HashMap<>();
+        for (String targetId : targetIds) {
+            targetIdsByField.put(AnnotationOffsetTable.getSolrField(targetId), targetId);
+        }
+        // real-time get, so we only retrieve the tables of the targets with hits
+        ModifiableSolrParams params = new ModifiableSolrParams()
+                .set(CommonParams.FL, String.join(",", targetIdsByField.keySet()));
+        SolrDocument document;
+        try {
+            document = solrTemplate.getSolrClient().getById(solrCore, europeanaId.toString(), params);
+        } catch (SolrServerException | IOException e) {
+            throw new EuropeanaApiException("Error querying Solr", e);
+        }
+
+        Map<String, List<String>> result = new HashMap<>();
+        if (document != null) {
+            for (Map.Entry<String, String> entry : targetIdsByField.entrySet()) {
+                Collection<Object> tables = document.getFieldValues(entry.getKey());
+                if (tables != null && !tables.isEmpty()) {
+                    result.put(entry.getValue(), tables.stream().map(Object::toString).collect(Collectors.toList()));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @see SolrHighlightQuery#searchCollection(String, String, int, String, List, Debug)
+     */
+    public QueryResponse searchCollection(String query, String lang, int rows, String cursor, List<String> facets,
+                                          Debug debug) throws EuropeanaApiException {
+        List<String> fields = getFulltextFields();
+        if (StringUtils.isNotEmpty(lang)) {
+            String langField = FULLTEXT_FIELD_PREFIX + lang;
+            if (!fields.contains(langField)) {
+                throw new InvalidParameterException("Language " + lang + " is not supported");
+            }
+            fields = List.of(langField);
+        }
+        SolrQuery q = createCollectionQuery(query, fields, rows, cursor, facets);
+        if (debug != null) {
+            debug.setSolrQuery(q.toQueryString());
+        }
         try {
-            response = solrTemplate.getSolrClient().query(solrCore, createQuery(europeanaId, query, maxSnippets));
+            QueryResponse response = solrTemplate.getSolrClient().query(solrCore, q);
             if (LOG.isTraceEnabled()) {
                 LOG.trace("Solr response = {}", response.jsonStr());
             }
+            return response;
+        } catch (SolrException e) {
+            // most likely an invalid cursor
+            if (e.code() == SolrException.ErrorCode.BAD_REQUEST.code) {
+                throw new InvalidParameterException("Invalid search request: " + e.getMessage());
+            }
+            throw new EuropeanaApiException("Error querying Solr", e);
         } catch (SolrServerException | IOException e) {
             throw new EuropeanaApiException("Error querying Solr", e);
         }
-        // process results
-        SolrDocumentList list = response.getResults();
-        if (list.getNumFound() == 0) {
-            return null;
+    }
+
+    /**
+     * @return the names of all full-text fields (fulltext.*) defined in the Solr schema. If reloading the schema fails,
+     * the previously loaded fields are used
+     */
+    private List<String> getFulltextFields() throws EuropeanaApiException {
+        List<String> result = fulltextFields;
+        if (result != null && System.currentTimeMillis() - fulltextFieldsLoaded < fulltextFieldsReloadMs) {
+            return result;
+        }
+        try {
+            List<String> fields = new ArrayList<>();
+            for (Map<String, Object> field : new SchemaRequest.Fields()
+                    .process(solrTemplate.getSolrClient(), solrCore).getFields()) {
+                String name = String.valueOf(field.get("name"));
+                if (name.startsWith(FULLTEXT_FIELD_PREFIX)) {
+                    fields.add(name);
+                }
+            }
+            LOG.info("Found {} full-text fields in Solr schema", fields.size());
+            fulltextFields = fields;
+            fulltextFieldsLoaded = System.currentTimeMillis();
+            return fields;
+        } catch (SolrServerException | IOException | SolrException e) {
+            if (result == null) {
+                throw new EuropeanaApiException("Error retrieving Solr schema", e);
+            }
+            LOG.warn("Error reloading full-text fields from Solr schema; keeping previous fields", e);
+            // don't retry on every request
+            fulltextFieldsLoaded = System.currentTimeMillis();
+            return result;
+        }
+    }
+
+    SolrQuery createCollectionQuery(String query, List<String> fields, int rows, String cursor, List<String> facets) {
+        SolrQuery sq = new SolrQuery(filterAndUpdateQueryChars(query));
+        sq.set(DEF_TYPE_PARAM, EDISMAX);
+        sq.set(DisMaxParams.QF, String.join(" ", fields));
+        sq.setRows(rows);
+        sq.setTimeAllowed(SearchConfig.QUERY_TIME_ALLOWED);
+        sq.setFields(EUROPEANA_ID_FIELD);
+        // a cursor requires a sort on the unique key as tie-breaker
+        sq.setSort(SolrQuery.SortClause.desc("score"));
+        sq.addSort(SolrQuery.SortClause.asc(EUROPEANA_ID_FIELD));
+        sq.set(CursorMarkParams.CURSOR_MARK_PARAM, cursor);
+        sq.setHighlight(true)
+                .setHighlightSnippets(SearchConfig.COLLECTION_SNIPPETS)
+                .setHighlightFragsize(SearchConfig.COLLECTION_SNIPPET_SIZE)
+                .set(HL_METHOD_PARAM, "unified")
+                .set(HL_FIELDS, String.join(",", fields));
+        if (maxAnalyzedChars != null) {
+            sq.set(HL_MAXANALYZEDCHARS_PARAM, String.valueOf(maxAnalyzedChars));
+        }
+        if (!facets.isEmpty()) {
+            sq.addFacetField(facets.toArray(new String[0]));
+            sq.setFacetMinCount(1);
+            sq.setFacetLimit(SearchConfig.COLLECTION_FACET_LIMIT);
         }
-        Map<String, Map<String, List<String>>> highlights = response.getHighlighting();
-        return highlights.get(europeanaId.toString()); // should only be 1 item
+        return sq;
     }
 
     SolrQuery createQuery(EuropeanaId europeanaId, String query, int maxSnippets) {
+        // we need the entire page text as fragment because that includes the imageId
+        return createQuery(europeanaId, query, maxSnippets, 0);
+    }
+
+    SolrQuery createQuery(EuropeanaId europeanaId, String query, int maxSnippets, int fragmentSize) {
         SolrQuery sq = new SolrQuery();
         sq.setQuery(EUROPEANA_ID_FIELD + ":" + filterAndUpdateQueryChars(europeanaId.toString()));
         sq.setRows(1);  // we expect 1 issue to return anyway
@@ -83,7 +292,7 @@ public class SolrHighlightQueryImpl implements SolrHighlightQuery {
         sq.setFields(EUROPEANA_ID_FIELD); // just 1 field, so we limit the amount of data that is returned
         sq.setHighlight(true)
                 .setHighlightSnippets(maxSnippets)
-                .setHighlightFragsize(0) // we need to entire fragment because that includes the imageId
+                .setHighlightFragsize(fragmentSize)
                 .setHighlightSimplePre(SearchConfig.HIT_TAG_START)
                 .setHighlightSimplePost(SearchConfig.HIT_TAG_END)
                 .set(HL_EXTENDED_PARAM, "true")
@@ -0,0 +1,138 @@
+package eu.europeana.fulltext.search.service;
+
+import eu.europeana.fulltext.entity.Annotation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of the text offsets of the annotations of an AnnoPage, to find the annotations that overlap with a search hit
+ * without comparing the hit with every annotation on the page.
+ * <p>
+ * For each annotation type the annotations are sorted by their from offset. An annotation can only overlap with a hit
+ * if its from offset lies between (hit start - longest annotation of that type) and the hit end, so the candidates are
+ * found with two binary searches. Since annotations of one type hardly ever overlap each other (words, lines, blocks),
+ * almost all candidates are actual matches and a lookup takes O(log n) time.
+ * <p>
+ * Annotations without from or to offset (e.g. page annotations) or with a negative offset are not indexed.
+ */
+public class AnnotationIntervalIndex {
+
+    private final List<Annotation> annotations;
+    private final List<TypeIndex> typeIndexes = new ArrayList<>();
+
+    /**
+     * Sorted offsets of all annotations of one type
+     */
+    private static final class TypeIndex {
+        private final int[] from;
+        private final int[] to;
+        // position of the annotation in the AnnoPage annotation list
+        private final int[] position;
+        private final int maxLength;
+
+        private TypeIndex(int[] from, int[] to, int[] position, int maxLength) {
+            this.from = from;
+            this.to = to;
+            this.position = position;
+            this.maxLength = maxLength;
+        }
+    }
+
+    /**
+     * Create a new index
+     * @param annotations annotations of an AnnoPage
+     */
+    public AnnotationIntervalIndex(List<Annotation> annotations) {
+        this.annotations = annotations;
+
+        // group positions by type, sorted by from offset. The from offset and position are packed in one long so a
+        // primitive sort can be used
+        Map<Character, long[]> sortKeysByType = new HashMap<>();
+        Map<Character, Integer> countByType = new HashMap<>();
+        for (int i = 0; i < annotations.size(); i++) {
+            Annotation annotation = annotations.get(i);
+            if (annotation.getFrom() == null || annotation.getTo() == null || annotation.getFrom() < 0) {
+                continue;
+            }
+            int count = countByType.getOrDefault(annotation.getDcType(), 0);
+            long[] sortKeys = sortKeysByType.computeIfAbsent(annotation.getDcType(), k -> new long[16]);
+            if (count == sortKeys.length) {
+                sortKeys = Arrays.copyOf(sortKeys, count * 2);
+                sortKeysByType.put(annotation.getDcType(), sortKeys);
+            }
+            sortKeys[count] = ((long) annotation.getFrom() << 32) | i;
+            countByType.put(annotation.getDcType(), count + 1);
+        }
+
+        for (Map.Entry<Character, long[]> entry : sortKeysByType.entrySet()) {
+            int count = countByType.get(entry.getKey());
+            long[] sortKeys = entry.getValue();
+            Arrays.sort(sortKeys, 0, count);
+
+            int[] from = new int[count];
+            int[] to = new int[count];
+            int[] position = new int[count];
+            int maxLength = 0;
+            for (int j = 0; j < count; j++) {
+                position[j] = (int) sortKeys[j];
+                from[j] = (int) (sortKeys[j] >>> 32);
+                to[j] = annotations.get(position[j]).getTo();
+                maxLength = Math.max(maxLength, to[j] - from[j]);
+            }
+            typeIndexes.add(new TypeIndex(from, to, position, maxLength));
+        }
+    }
+
+    /**
+     * Finds all annotations that overlap with the provided text offsets (start and end inclusive)
+     * @param start start offset of the hit
+     * @param end end offset of the hit
+     * @return list of overlapping annotations, in the same order as in the AnnoPage
+     */
+    public List<Annotation> findOverlapping(int start, int end) {
+        int[] matches = new int[8];
+        int nrMatches = 0;
+        for (TypeIndex index : typeIndexes) {
+            int first = firstIndexAtLeast(index.from, (long) start - index.maxLength);
+            int last = firstIndexAtLeast(index.from, (long) end + 1);
+            for (int j = first; j < last; j++) {
+                if (index.to[j] >= start) {
+                    if (nrMatches == matches.length) {
+                        matches = Arrays.copyOf(matches, nrMatches * 2);
+                    }
+                    matches[nrMatches++] = index.position[j];
+                }
+            }
+        }
+
+        // return in AnnoPage order
+        Arrays.sort(matches, 0, nrMatches);
+        List<Annotation> result = new ArrayList<>(nrMatches);
+        for (int j = 0; j < nrMatches; j++) {
+            result.add(annotations.get(matches[j]));
+        }
+        return result;
+    }
+
+    /**
+     * @return the index of the first value that is equal to or larger than the provided value, or values.length if
+     * there is no such value
+     */
+    private static int firstIndexAtLeast(int[] values, long value) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -4,9 +4,10 @@ import static eu.europeana.iiif.IIIFDefinitions.MEDIA_TYPE_EDM_JSONLD;
 import static eu.europeana.iiif.IIIFDefinitions.MEDIA_TYPE_IIIF_V2;
 import static eu.europeana.iiif.IIIFDefinitions.TEXT_GRANULARITY_CONTEXT;
 
-import dev.morphia.query.internal.MorphiaCursor;
 import eu.europeana.api.commons.error.EuropeanaApiException;
 import eu.europeana.fulltext.AnnotationType;
+import eu.europeana.fulltext.api.caching.SearchResultCache;
+import eu.europeana.fulltext.api.config.FTSettings;
 import eu.europeana.fulltext.api.service.FTService;
 import eu.europeana.fulltext.entity.AnnoPage;
 import eu.europeana.fulltext.entity.Annotation;
@@ -14,24 +15,44 @@ import eu.europeana.fulltext.search.config.SearchConfig;
 import eu.europeana.fulltext.search.exception.RecordDoesNotExistException;
 import eu.europeana.fulltext.search.exception.SearchEngineDatabaseMismatch;
 import eu.europeana.fulltext.search.model.query.EuropeanaId;
-import eu.europeana.fulltext.search.model.query.SolrHit;
+import eu.europeana.fulltext.search.model.query.SolrHighlights;
+import eu.europeana.fulltext.search.model.query.SolrHits;
 import eu.europeana.fulltext.search.model.response.Debug;
 import eu.europeana.fulltext.search.model.response.Hit;
 import eu.europeana.fulltext.search.model.response.HitFactory;
 import eu.europeana.fulltext.search.model.response.SearchResult;
 import eu.europeana.fulltext.search.model.response.SearchResultFactory;
+import eu.europeana.fulltext.search.model.response.collection.CollectionSearchItem;
+import eu.europeana.fulltext.search.model.response.collection.CollectionSearchResult;
+import eu.europeana.fulltext.search.model.response.collection.Facet;
 import eu.europeana.fulltext.search.repository.SolrRepo;
-import org.apache.commons.lang3.StringUtils;
+import eu.europeana.fulltext.util.AnnotationOffsetTable;
+import eu.europeana.fulltext.util.PageOffsetMap;
 import org.apache.commons.text.StringEscapeUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.solr.client.solrj.response.FacetField;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.util.NamedList;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
@@ -52,16 +73,78 @@ public class FTSearchService {
     private static final String HIT_START_OFFSETS = "matchStartsUtf16";
     private static final String HIT_END_OFFSETS   = "matchEndsUtf16";
 
+    // maximum number of tasks (AnnoPages or Solr responses) waiting to be processed per thread
+    private static final int QUEUE_PER_THREAD = 16;
+
+    private static final String EUROPEANA_ID_FIELD = "europeana_id";
+    // every full-text value in Solr starts with "{imageId} "
+    private static final Pattern IMAGE_ID_PREFIX = Pattern.compile("^\\{[^}]*}\\s*");
+
     private SolrRepo solrRepo;
     private FTService fulltextRepo;
+    private SearchResultCache resultCache;
+    private SearchMetrics metrics;
+    private boolean annotationsFromSolr;
+    private ThreadPoolTaskExecutor hitResolutionExecutor;
+    private ThreadPoolTaskExecutor searchExecutor;
+
+    /**
+     * Annotation that matches with a Solr hit, and the hit data (null for word-level annotations)
+     */
+    private static final class AnnotationMatch {
+        private final Annotation annotation;
+        private final Hit hit;
 
-    FTSearchService(SolrRepo solrRepo, FTService fulltextService){
+        private AnnotationMatch(Annotation annotation, Hit hit) {
+            this.annotation = annotation;
+            this.hit = hit;
+        }
+    }
+
+    FTSearchService(SolrRepo solrRepo, FTService fulltextService, SearchResultCache resultCache, SearchMetrics metrics,
+                    FTSettings settings){
         this.solrRepo = solrRepo;
         this.fulltextRepo = fulltextService;
+        this.resultCache = resultCache;
+        this.metrics = metrics;
+        this.annotationsFromSolr = settings.isSearchAnnotationsFromSolrEnabled();
+
+        int threads = settings.getSearchHitResolutionThreads();
+        if (threads > 0) {
+            hitResolutionExecutor = new ThreadPoolTaskExecutor();
+            hitResolutionExecutor.setCorePoolSize(threads);
+            hitResolutionExecutor.setMaxPoolSize(threads);
+            hitResolutionExecutor.setQueueCapacity(threads * QUEUE_PER_THREAD);
+            hitResolutionExecutor.setAllowCoreThreadTimeOut(true);
+            hitResolutionExecutor.setThreadNamePrefix("search-hits-");
+            // when all threads are busy and the queue is full, the request thread processes the AnnoPage itself
+            hitResolutionExecutor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+            hitResolutionExecutor.initialize();
+        }
+
+        int requestThreads = settings.getSearchRequestThreads();
+        searchExecutor = new ThreadPoolTaskExecutor();
+        searchExecutor.setCorePoolSize(requestThreads);
+        searchExecutor.setMaxPoolSize(requestThreads);
+        searchExecutor.setQueueCapacity(requestThreads * QUEUE_PER_THREAD);
+        searchExecutor.setAllowCoreThreadTimeOut(true);
+        searchExecutor.setThreadNamePrefix("search-");
+        // when all threads are busy and the queue is full, the thread that received the Solr response processes it
+        searchExecutor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        searchExecutor.initialize();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (hitResolutionExecutor != null) {
+            hitResolutionExecutor.shutdown();
+        }
+        searchExecutor.shutdown();
     }
 
     /**
-     * Searches fulltext for one particular newspaper issue (CHO)
+     * Searches fulltext for one particular newspaper issue (CHO). Waits until the search is done, see
+     * {@link #searchIssueAsync(String, EuropeanaId, String, int, List, String, boolean)}
      *
      * @param searchId       string that is set as id of the search (endpoint, path and query parameters)
      * @param europeanaId    europeana id of the issue to search
@@ -76,10 +159,115 @@ public class FTSearchService {
     public SearchResult searchIssue(String searchId, EuropeanaId europeanaId, String query, int pageSize,
                                     List<AnnotationType> annoTypes, String requestVersion, boolean debug)
             throws EuropeanaApiException {
+        try {
+            return searchIssueAsync(searchId, europeanaId, query, pageSize, annoTypes, requestVersion, debug).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EuropeanaApiException("Interrupted while searching", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof EuropeanaApiException) {
+                throw (EuropeanaApiException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new EuropeanaApiException("Error searching issue", e.getCause());
+        }
+    }
+
+    /**
+     * Searches fulltext for one particular newspaper issue (CHO). Solr is queried without blocking the calling thread,
+     * the Solr response is processed (i.e. annotations are retrieved) by a separate thread pool.
+     *
+     * @param searchId       string that is set as id of the search (endpoint, path and query parameters)
+     * @param europeanaId    europeana id of the issue to search
+     * @param query          the string to search
+     * @param pageSize       maximum number of hits
+     * @param annoTypes      requested types of annotations
+     * @param debug          if true we include debug information
+     * @param requestVersion API version for request. If empty, version 2 is used by default
+     * @return future with the SearchResult object (can be empty if no hits were found), completes exceptionally with an
+     * EuropeanaApiException when there is a problem processing the request (e.g. issue doesn't exist)
+     */
+    public CompletableFuture<SearchResult> searchIssueAsync(String searchId, EuropeanaId europeanaId, String query,
+                                                            int pageSize, List<AnnotationType> annoTypes,
+                                                            String requestVersion, boolean debug) {
         long start = System.currentTimeMillis();
-        SearchResult result = SearchResultFactory.createSearchResult(searchId, debug, requestVersion);
+        long startNanos = System.nanoTime();
+        // results with debug information are never cached. If the timestamp can't be retrieved the cache is bypassed,
+        // so the cache doesn't make search less available
+        CompletableFuture<Date> timestamp = !debug && resultCache.isEnabled()
+                ? solrRepo.getFulltextTimestamp(europeanaId).exceptionally(e -> {
+                    LOG.warn("Error retrieving fulltext timestamp of {}, bypassing search result cache", europeanaId,
+                            e);
+                    return null;
+                })
+                : CompletableFuture.completedFuture(null);
+
+        CompletableFuture<SearchResult> search = timestamp.thenCompose(fulltextTimestamp -> {
+            SearchResultCache.Key cacheKey = null;
+            if (fulltextTimestamp != null) {
+                cacheKey = new SearchResultCache.Key(europeanaId, query, pageSize, annoTypes, requestVersion);
+                SearchResult cached = resultCache.get(cacheKey, fulltextTimestamp);
+                if (cached != null) {
+                    LOG.debug("Returning cached search result in {} ms", System.currentTimeMillis() - start);
+                    return CompletableFuture.completedFuture(cached.copyWithId(searchId));
+                }
+            }
+            // the highlight query is only sent on a cache miss, so cache hits don't use any Solr capacity
+            SearchResultCache.Key key = cacheKey;
+            long solrStart = System.currentTimeMillis();
+            SearchResult result = SearchResultFactory.createSearchResult(searchId, debug, requestVersion);
+            long solrStartNanos = System.nanoTime();
+            return getHighlights(europeanaId, query, pageSize, result.getDebug())
+                    .thenApply(highlights -> {
+                        metrics.record(SearchMetrics.SOLR, solrStartNanos, result.getDebug());
+                        return highlights;
+                    })
+                    .thenApplyAsync(highlights -> {
+                        try {
+                            processHighlights(result, highlights, europeanaId, pageSize, annoTypes, requestVersion,
+                                    solrStart);
+                        } catch (EuropeanaApiException e) {
+                            throw new CompletionException(e);
+                        }
+                        metrics.record(SearchMetrics.TOTAL, startNanos, result.getDebug());
+                        if (key != null) {
+                            // the time a cache hit saves: querying Solr and processing its response
+                            resultCache.put(key, fulltextTimestamp, result, System.currentTimeMillis() - solrStart);
+                        }
+                        return result;
+                    }, searchExecutor);
+        });
+        return unwrapCompletionException(search);
+    }
+
+    /**
+     * Retrieves the highlights of a record from Solr. Small fragments are requested unless the entire page text is
+     * needed, i.e. when annotations are read from Solr or when the record was indexed without page offset maps.
+     */
+    private CompletableFuture<SolrHighlights> getHighlights(EuropeanaId europeanaId, String query, int pageSize,
+                                                            Debug debug) {
+        if (annotationsFromSolr) {
+            // the annotation tables need the entire page text
+            return solrRepo.getHighlightsWithOffsets(europeanaId, query, pageSize, debug)
+                    .thenApply(highlights -> new SolrHighlights(highlights, null));
+        }
+        return solrRepo.getHighlightsWithPageOffsets(europeanaId, query, pageSize, debug).thenCompose(highlights -> {
+            Map<String, List<String>> solrResult = highlights.getHighlights();
+            if (solrResult.isEmpty() || highlights.getPageOffsetMap(solrResult.keySet().iterator().next()) != null) {
+                return CompletableFuture.completedFuture(highlights);
+            }
+            LOG.debug("No page offset map for {}, retrieving entire pages", europeanaId);
+            return solrRepo.getHighlightsWithOffsets(europeanaId, query, pageSize, debug)
+                    .thenApply(entirePages -> new SolrHighlights(entirePages, null));
+        });
+    }
 
-        Map<String, List<String>> solrResult = solrRepo.getHighlightsWithOffsets(europeanaId, query, pageSize, result.getDebug());
+    private void processHighlights(SearchResult result, SolrHighlights highlights, EuropeanaId europeanaId,
+                                   int pageSize, List<AnnotationType> annoTypes, String requestVersion, long start)
+            throws EuropeanaApiException {
+        Map<String, List<String>> solrResult = highlights.getHighlights();
         if (solrResult.isEmpty()) {
             LOG.debug("Solr returned empty result in {} ms", System.currentTimeMillis() - start);
             // check if there Annopage exists by dsId and lcId in Mongo
@@ -90,84 +278,279 @@ public class FTSearchService {
             }
         } else {
             LOG.debug("Solr returned {} document in {} ms", solrResult.size(), System.currentTimeMillis() - start);
-            findAnnopageAndAnnotations(result, solrResult, europeanaId, pageSize, annoTypes, requestVersion);
+            // null if entire pages were retrieved
+            PageOffsetMap pageOffsets = highlights.getPageOffsetMap(solrResult.keySet().iterator().next());
+            findAnnopageAndAnnotations(result, solrResult, pageOffsets, europeanaId, pageSize, annoTypes,
+                    requestVersion);
         }
         LOG.debug("Search done in {} ms. Found {} annotations", (System.currentTimeMillis() - start), result.itemSize());
         result.setContext(new String[]{MEDIA_TYPE_IIIF_V2, TEXT_GRANULARITY_CONTEXT,MEDIA_TYPE_EDM_JSONLD});
+    }
+
+    /**
+     * Dependent stages of a CompletableFuture wrap exceptions in a CompletionException. This returns a future that
+     * completes with the original exception instead, so it's handled by the exception handlers of the controller.
+     */
+    private static <T> CompletableFuture<T> unwrapCompletionException(CompletableFuture<T> future) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        future.whenComplete((value, e) -> {
+            if (e == null) {
+                result.complete(value);
+            } else {
+                result.completeExceptionally(e instanceof CompletionException && e.getCause() != null
+                        ? e.getCause() : e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Search the full-text of all records. Only Solr is queried, so the result contains the ids of the matching records
+     * and snippets of their text, but no annotations.
+     * @param searchId string that is used as id of the search result
+     * @param query the query to search for
+     * @param lang optional, if not empty only the full-text in this language is searched
+     * @param rows maximum number of records to return
+     * @param cursor cursor returned by a previous search, or "*" to retrieve the first page
+     * @param facets metadata fields for which to return facets, can be empty
+     * @param debug if true we include debug information in the result
+     * @return CollectionSearchResult object
+     * @throws EuropeanaApiException when there is an error processing the request
+     */
+    public CollectionSearchResult searchCollection(String searchId, String query, String lang, int rows, String cursor,
+                                                   List<String> facets, boolean debug) throws EuropeanaApiException {
+        long start = System.currentTimeMillis();
+        CollectionSearchResult result = new CollectionSearchResult(searchId, debug);
+
+        QueryResponse response = solrRepo.searchCollection(query, lang, rows, cursor, facets, result.getDebug());
+        result.setTotal(response.getResults().getNumFound());
+        // Solr returns the same cursor when there are no more results
+        if (response.getNextCursorMark() != null && !response.getNextCursorMark().equals(cursor)) {
+            result.setNext(response.getNextCursorMark());
+        }
+
+        Map<String, Map<String, List<String>>> highlighting = response.getHighlighting();
+        for (SolrDocument document : response.getResults()) {
+            String europeanaId = String.valueOf(document.getFieldValue(EUROPEANA_ID_FIELD));
+            result.addItem(new CollectionSearchItem(europeanaId,
+                    getSnippets(highlighting == null ? null : highlighting.get(europeanaId))));
+        }
+
+        if (!facets.isEmpty()) {
+            List<Facet> resultFacets = new ArrayList<>(facets.size());
+            for (FacetField facetField : response.getFacetFields()) {
+                Facet facet = new Facet(facetField.getName());
+                for (FacetField.Count count : facetField.getValues()) {
+                    facet.addValue(count.getName(), count.getCount());
+                }
+                resultFacets.add(facet);
+            }
+            result.setFacets(resultFacets);
+        }
+        LOG.debug("Collection search done in {} ms. Found {} records", (System.currentTimeMillis() - start),
+                result.getTotal());
+        return result;
+    }
+
+    /**
+     * @return the snippets of all full-text fields, without the image id prefix
+     */
+    private static List<String> getSnippets(Map<String, List<String>> snippetsPerField) {
+        List<String> result = new ArrayList<>();
+        if (snippetsPerField != null) {
+            for (List<String> snippets : snippetsPerField.values()) {
+                for (String snippet : snippets) {
+                    if (result.size() == SearchConfig.COLLECTION_SNIPPETS) {
+                        return result;
+                    }
+                    result.add(IMAGE_ID_PREFIX.matcher(snippet).replaceFirst(""));
+                }
+            }
+        }
         return result;
     }
 
     private void findAnnopageAndAnnotations(SearchResult result, Map<String, List<String>> highlightInfo,
-                                            EuropeanaId europeanaId, int pageSize, List<AnnotationType> annoTypes, String requestVersion)
+                                            PageOffsetMap pageOffsets, EuropeanaId europeanaId, int pageSize, List<AnnotationType> annoTypes, String requestVersion)
             throws EuropeanaApiException {
-        // Group Solr hits by imageId so we can link an AnnoPage to its corresponding hit(s)
-        Map<String, List<SolrHit>> solrHitsByImageId = parseHighlightData(highlightInfo, result.getDebug())
-                .stream()
-                .collect(Collectors.groupingBy(SolrHit::getImageId));
+        // Solr hits are grouped by imageId so we can link an AnnoPage to its corresponding hit(s)
+        long parseStart = System.nanoTime();
+        SolrHits solrHits = parseHighlightData(highlightInfo, pageOffsets, result.getDebug());
+        metrics.record(SearchMetrics.PARSE, parseStart, result.getDebug());
 
         // if solr results were parsed correctly, else do nothing
-        if (!solrHitsByImageId.isEmpty()) {
+        if (solrHits.getPageCount() > 0) {
             long start = System.currentTimeMillis();
-            List<String> targetIds = new ArrayList<>(solrHitsByImageId.keySet());
-            try (MorphiaCursor<AnnoPage> annoPageCursor = fulltextRepo.fetchAnnoPageFromTargetId(europeanaId.getDatasetId(),
-                    europeanaId.getLocalId(), targetIds, annoTypes, false)) {
-                if (annoPageCursor == null || !annoPageCursor.hasNext()) {
+            List<AnnoPage> annoPages = Collections.emptyList();
+            if (annotationsFromSolr) {
+                long tablesStart = System.nanoTime();
+                annoPages = fetchAnnoPagesFromSolr(europeanaId, solrHits, annoTypes);
+                metrics.record(SearchMetrics.ANNOTATION_TABLES, tablesStart, result.getDebug());
+                LOG.debug("Retrieved {} annotation tables for {} from Solr in {} ms", annoPages.size(), europeanaId,
+                        System.currentTimeMillis() - start);
+            }
+            // records that were indexed without annotation tables are read from Mongo
+            if (annoPages.isEmpty()) {
+                List<String> targetIds = new ArrayList<>(solrHits.getImageIds());
+                long mongoStart = System.nanoTime();
+                annoPages = fulltextRepo.fetchAnnoPageFromTargetId(europeanaId.getDatasetId(),
+                        europeanaId.getLocalId(), targetIds, annoTypes, false);
+                metrics.record(SearchMetrics.MONGO, mongoStart, result.getDebug());
+                if (annoPages == null || annoPages.isEmpty()) {
                     LOG.error("Solr record {} with targetIds {} not found in Mongo!", europeanaId, targetIds);
                     throw new SearchEngineDatabaseMismatch();
                 } else {
                     LOG.debug("Retrieved AnnoPages for {} in {} ms", europeanaId, System.currentTimeMillis() - start);
                 }
+            }
 
-                while (annoPageCursor.hasNext()) {
-                    AnnoPage annoPage = annoPageCursor.next();
-                    LOG.debug("Processing annoPage {}", annoPage);
-                    // get relevant SolrHits by imageId (which match annoPage.tgId)
-                    for (SolrHit solrHit : solrHitsByImageId.get(annoPage.getTgtId())) {
-                        // use the annopage to find the matching annotations
-                        findAnnotations(result, solrHit, annoPage, pageSize, annoTypes, requestVersion);
-                        if (result.itemSize() >= pageSize) {
-                            return;
-                        }
+            addAnnotationHits(result, annoPages, solrHits, pageSize, annoTypes, requestVersion);
+        }
+    }
+
+    /**
+     * Finds the annotations that match the Solr hits of each AnnoPage and adds them to the result, until pageSize
+     * annotations are found. When there are multiple AnnoPages they are processed concurrently, but results are always
+     * added in AnnoPage order. Processing of AnnoPages whose results are no longer needed is cancelled.
+     */
+    private void addAnnotationHits(SearchResult result, List<AnnoPage> annoPages, SolrHits solrHits, int pageSize,
+                                   List<AnnotationType> annoTypes, String requestVersion)
+            throws EuropeanaApiException {
+        List<Future<List<AnnotationMatch>>> pageMatches = new ArrayList<>(annoPages.size());
+        if (hitResolutionExecutor != null && annoPages.size() > 1) {
+            for (AnnoPage annoPage : annoPages) {
+                pageMatches.add(hitResolutionExecutor.submit(() -> findAnnotations(annoPage, solrHits, pageSize,
+                        annoTypes, requestVersion, result.getDebug())));
+            }
+        }
+
+        try {
+            for (int i = 0; i < annoPages.size(); i++) {
+                AnnoPage annoPage = annoPages.get(i);
+                List<AnnotationMatch> matches = pageMatches.isEmpty()
+                        ? findAnnotations(annoPage, solrHits, pageSize, annoTypes, requestVersion, result.getDebug())
+                        : getMatches(pageMatches.get(i));
+                for (AnnotationMatch match : matches) {
+                    result.addAnnotationHit(annoPage, match.annotation, match.hit);
+                    if (result.itemSize() >= pageSize) {
+                        return;
+                    }
+                }
+            }
+        } finally {
+            // we either have enough results or failed, so stop processing the remaining AnnoPages
+            pageMatches.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private static List<AnnotationMatch> getMatches(Future<List<AnnotationMatch>> pageMatches)
+            throws EuropeanaApiException {
+        try {
+            return pageMatches.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EuropeanaApiException("Interrupted while finding annotations", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new EuropeanaApiException("Error finding annotations", e.getCause());
+        }
+    }
+
+    /**
+     * Finds the annotations of one AnnoPage that match with the provided Solr hits (at most pageSize). Stops early
+     * when the thread is interrupted, because that means the results are no longer needed.
+     */
+    private List<AnnotationMatch> findAnnotations(AnnoPage annoPage, SolrHits solrHits, int pageSize,
+                                                  List<AnnotationType> annoTypes, String requestVersion,
+                                                  Debug debug) {
+        LOG.debug("Processing annoPage {}", annoPage);
+        int page = solrHits.getPage(annoPage.getTgtId());
+        if (page < 0) {
+            return Collections.emptyList();
+        }
+        // index the annotations once, so each hit can be looked up quickly (this decodes lazily read annotations)
+        long decodeStart = System.nanoTime();
+        AnnotationIntervalIndex annotationIndex = new AnnotationIntervalIndex(annoPage.getAns());
+        metrics.record(SearchMetrics.DECODE, decodeStart, debug);
+
+        long matchingStart = System.nanoTime();
+        List<AnnotationMatch> result = new ArrayList<>();
+        for (int hit = solrHits.getFirstHit(page); hit < solrHits.getEndHit(page); hit++) {
+            if (result.size() >= pageSize || Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            // use the annopage to find the matching annotations
+            findAnnotations(result, solrHits, hit, annoPage, annotationIndex, pageSize, annoTypes, requestVersion);
+        }
+        metrics.record(SearchMetrics.MATCHING, matchingStart, debug);
+        return result;
+    }
+
+    /**
+     * Creates AnnoPages from the annotation tables that are stored in Solr, so no AnnoPages need to be read from Mongo.
+     * The text of a page is taken from the Solr snippet (which contains the entire page). Only original AnnoPages are
+     * returned, because the hit offsets are relative to the text of the original.
+     */
+    private List<AnnoPage> fetchAnnoPagesFromSolr(EuropeanaId europeanaId, SolrHits solrHits,
+                                                  List<AnnotationType> annoTypes) throws EuropeanaApiException {
+        Set<Character> dcTypes = annoTypes.stream().map(AnnotationType::getAbbreviation).collect(Collectors.toSet());
+        Map<String, List<String>> tablesByImageId = solrRepo.getAnnotationTables(europeanaId, solrHits.getImageIds());
+        List<AnnoPage> result = new ArrayList<>();
+        // same order as the Solr snippets, which is the page order
+        for (int page = 0; page < solrHits.getPageCount(); page++) {
+            String text = solrHits.getPageText(page);
+            for (String table : tablesByImageId.getOrDefault(solrHits.getImageId(page), Collections.emptyList())) {
+                AnnoPage annoPage = AnnotationOffsetTable.decode(table, europeanaId.getDatasetId(),
+                        europeanaId.getLocalId(), text);
+                if (!annoPage.isTranslation()) {
+                    if (!dcTypes.isEmpty()) {
+                        annoPage.getAns().removeIf(anno -> !dcTypes.contains(anno.getDcType()));
                     }
+                    result.add(annoPage);
                 }
             }
         }
+        return result;
     }
 
-    private void findAnnotations(SearchResult result, SolrHit solrHit, AnnoPage annoPage, int pageSize,
+    private void findAnnotations(List<AnnotationMatch> result, SolrHits solrHits, int hit, AnnoPage annoPage,
+                                 AnnotationIntervalIndex annotationIndex, int pageSize,
                                  List<AnnotationType> annoTypes, String requestVersion) {
-        LOG.trace("  Searching for {} annotations that overlap with {}...", annoTypes, solrHit.getDebugInfo());
+        int start = solrHits.getStart(hit);
+        int end = solrHits.getEnd(hit);
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("  Searching for {} annotations that overlap with {}...", annoTypes, solrHits.getDebugInfo(hit));
+        }
         boolean annotationsFound = false;
-        for (Annotation anno : annoPage.getAns()) {
-            if (anno.getFrom() != null && anno.getTo() != null &&
-                    overlap(solrHit.getStart(), solrHit.getEnd(), anno.getFrom(), anno.getTo())) {
-                if (LOG.isDebugEnabled()) {
-                    LOG.debug("  Found overlap between {} and annotation {},{} with text '{}'", solrHit.getDebugInfo(),
-                            anno.getFrom(), anno.getTo(), annoPage.getRes().getValue().substring(anno.getFrom(), anno.getTo()));
-                }
+        for (Annotation anno : annotationIndex.findOverlapping(start, end)) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("  Found overlap between {} and annotation {},{} with text '{}'", solrHits.getDebugInfo(hit),
+                        anno.getFrom(), anno.getTo(), annoPage.getRes().getValue().substring(anno.getFrom(), anno.getTo()));
+            }
 
-                // Sometimes a trailing character like a dot or comma directly after the keyword is regarded as
-                // another annotation (word). So we filter those out.
-                if (anno.getTo() - anno.getFrom() > 1) {
-                    annotationsFound = true;
-                    if (anno.getDcType() == AnnotationType.WORD.getAbbreviation()) {
-                        // Don't output hit data for word level annotations
-                        result.addAnnotationHit(annoPage, anno, null);
-                    } else {
-                        Hit hit = HitFactory.createHit(solrHit.getStart(), solrHit.getEnd(), annoPage, anno, requestVersion);
-                        result.addAnnotationHit(annoPage, anno, hit);
-                    }
+            // Sometimes a trailing character like a dot or comma directly after the keyword is regarded as
+            // another annotation (word). So we filter those out.
+            if (anno.getTo() - anno.getFrom() > 1) {
+                annotationsFound = true;
+                if (anno.getDcType() == AnnotationType.WORD.getAbbreviation()) {
+                    // Don't output hit data for word level annotations
+                    result.add(new AnnotationMatch(anno, null));
                 } else {
-                    LOG.debug("Ignoring overlap with annotation {} because it's only 1 character long", anno.getAnId());
+                    result.add(new AnnotationMatch(anno, HitFactory.createHit(start, end, annoPage, anno,
+                            requestVersion)));
                 }
+            } else {
+                LOG.debug("Ignoring overlap with annotation {} because it's only 1 character long", anno.getAnId());
             }
-            if (result.itemSize() >= pageSize) {
+            if (result.size() >= pageSize) {
                 break;
             }
         }
 
         if (!annotationsFound) {
-            LOG.warn("No annotations found for {},{} on /{}/{}/annopage/{}", solrHit.getStart(), solrHit.getEnd(),
+            LOG.warn("No annotations found for {},{} on /{}/{}/annopage/{}", start, end,
                     annoPage.getDsId(), annoPage.getLcId(), annoPage.getPgId());
         }
     }
@@ -179,100 +562,169 @@ public class FTSearchService {
      * Expected data in passages:
      *  {"startOffsetUtf16=<number>,matchStartsUtf16=[<number1>,<number2>....],matchEndsUtf16=[<number1><number2>....]}
      */
-    private List<SolrHit> parseHighlightData(Map<String, List<String>> highlightInfo, Debug debug) throws EuropeanaApiException {
+    static SolrHits parseHighlightData(Map<String, List<String>> highlightInfo, Debug debug) throws EuropeanaApiException {
+        return parseHighlightData(highlightInfo, null, debug);
+    }
+
+    /**
+     * Parse the snippets and offsets returned by Solr into hits. If there is no page offset map, each snippet should be
+     * the entire text of a page including the "{imageId} " prefix. Otherwise snippets can be small fragments and the
+     * image of each hit is looked up in the map. The returned hits are grouped by page.
+     */
+    static SolrHits parseHighlightData(Map<String, List<String>> highlightInfo, PageOffsetMap pageOffsets,
+                                            Debug debug) throws EuropeanaApiException {
         // TODO for now we assume there will always be only 1 language, so 1 set of snippets and offsets
         Object highlightObj = highlightInfo.values().iterator().next();
         List<String> snippetsTxt;
-        ArrayList<NamedList> offsetsLists;
+        List<NamedList> offsetsLists;
         if (highlightObj instanceof NamedList) {
             NamedList namedList = (NamedList) highlightObj;
-            snippetsTxt = (ArrayList<String>) namedList.get(SNIPPETS);
-            offsetsLists = (ArrayList<NamedList>) namedList.get(OFFSETS);
+            snippetsTxt = (List<String>) namedList.get(SNIPPETS);
+            offsetsLists = (List<NamedList>) namedList.get(OFFSETS);
         } else {
             throw new EuropeanaApiException("Unexpected highlights object type: " +
                     (highlightObj == null ? null : highlightObj.getClass()));
         }
 
-        List<SolrHit> result = new ArrayList<>();
-        int nrMergedHits = 0;
+        SolrHits result = new SolrHits(SearchConfig.HIT_MERGE_MAX_DISTANCE);
         for (int i = 0; i < snippetsTxt.size(); i++) {
-            // parse snippets data
-            String snippetTxt = snippetsTxt.get(i);
-            // only if we get the imageId/url/webresource-url  back in the solr response
-            if (StringUtils.contains(snippetTxt, "}")) {
-                int imageIdEnd = snippetTxt.indexOf('}');
-                // the imageIds sent by Solr can contain encoded characters such as &amp; so we need to decode/unescape
-                String imageId = StringEscapeUtils.unescapeXml(snippetTxt.substring(1, imageIdEnd));
-                String snippet = snippetTxt.substring(imageIdEnd + 2);
-
-                // parse offsets data
-                NamedList offsetList = offsetsLists.get(i);
-                Long textStartOffset = Long.valueOf(offsetList.get(TEXT_START_OFFSET).toString());
-                // the imageId that is inserted into snippets should also be subtracted
-                textStartOffset = textStartOffset + imageIdEnd + 2; // + 2 because of bracket itself plus a space behind it
-                List<Integer> starts = getOffsets(offsetList.get(HIT_START_OFFSETS).toString(), textStartOffset);
-                List<Integer> ends = getOffsets(offsetList.get(HIT_END_OFFSETS).toString(), textStartOffset);
-
-                SolrHit previousHit = null;
-                for (int j = 0; j < starts.size(); j++) {
-                    SolrHit newHit = new SolrHit(imageId, snippet, starts.get(j), ends.get(j));
-                    // see if we there's a nearby hit we can merge with
-                    if (previousHit != null && (newHit.getStart() - previousHit.getEnd() <= SearchConfig.HIT_MERGE_MAX_DISTANCE)) {
-                        LOG.debug("Merging {} with {}...", previousHit.getDebugInfo(), newHit.getDebugInfo());
-                        previousHit.setEnd(newHit.getEnd());
-                        nrMergedHits++;
-                    } else {
-                        result.add(newHit);
-                        if (debug != null) {
-                            debug.addSolrSnippet(newHit);
-                        }
-                    }
-                    previousHit = newHit;
-                }
+            if (pageOffsets == null) {
+                addHitsFromPageSnippet(result, snippetsTxt.get(i), offsetsLists.get(i));
+            } else {
+                addHitsFromFragment(result, snippetsTxt.get(i), offsetsLists.get(i), pageOffsets);
             }
         }
-        if (result.isEmpty()) {
+        if (result.size() == 0) {
             LOG.error("Unexpected data in the snippets, Image id url data missing");
         } else {
-            LOG.debug("Parsed {} solr hits, {} merged", result.size() + nrMergedHits, nrMergedHits);
+            LOG.debug("Parsed {} solr hits, {} merged", result.size() + result.getNrMerged(), result.getNrMerged());
+        }
+        if (debug != null) {
+            for (int hit = 0; hit < result.size(); hit++) {
+                debug.addSolrSnippet(result.toSolrHit(hit));
+            }
         }
+        result.groupByPage();
         return result;
     }
 
     /**
-     * @param numberArrayTxt string with expected format: "[<number>,<number>....]"
-     * @param textStartOffset we need to subtract this from each number to get indexes within a text (instead of within
-     *                        entire issue)
+     * Parse the hits of a snippet that contains the entire text of a page, including the imageId prefix
      */
-    private List<Integer> getOffsets(String numberArrayTxt, long textStartOffset) {
-        // strip opening and closing brackets
-        String numbersTxt = numberArrayTxt.substring(1, numberArrayTxt.length() - 1);
-        // split numbers
-        String[] numbers = numbersTxt.split(", "); // the extra space is to prevent trimming later!
-
-        List<Integer> result = new ArrayList<>();
-        for (String number : numbers) {
-            Long value = Long.parseLong(number) - textStartOffset;
-            if (value >= 0) {
-                result.add(value.intValue());
+    private static void addHitsFromPageSnippet(SolrHits result, String snippetTxt, NamedList offsetList) {
+        int imageIdEnd = snippetTxt.indexOf('}');
+        // only if we get the imageId/url/webresource-url  back in the solr response
+        if (imageIdEnd < 0) {
+            return;
+        }
+        String imageId = snippetTxt.substring(1, imageIdEnd);
+        // the imageIds sent by Solr can contain encoded characters such as &amp; so we need to decode/unescape
+        if (imageId.indexOf('&') >= 0) {
+            imageId = StringEscapeUtils.unescapeXml(imageId);
+        }
+        int textStart = imageIdEnd + 2; // + 2 because of bracket itself plus a space behind it
+
+        // parse offsets data
+        // the imageId that is inserted into snippets should also be subtracted
+        long textStartOffset = toLong(offsetList.get(TEXT_START_OFFSET)) + textStart;
+        int[] starts = getOffsets(offsetList.get(HIT_START_OFFSETS), textStartOffset);
+        int[] ends = getOffsets(offsetList.get(HIT_END_OFFSETS), textStartOffset);
+
+        result.addHighlight(snippetTxt);
+        for (int j = 0; j < starts.length; j++) {
+            addHit(result, imageId, textStart, starts[j], ends[j]);
+        }
+    }
+
+    /**
+     * Parse the hits of a snippet that is a fragment of the text of one or more pages
+     */
+    private static void addHitsFromFragment(SolrHits result, String snippetTxt, NamedList offsetList,
+                                            PageOffsetMap pageOffsets) {
+        long fragmentStart = toLong(offsetList.get(TEXT_START_OFFSET));
+        // offsets relative to the fragment start, so the 0 values Solr pads the lists with are dropped
+        int[] starts = getOffsets(offsetList.get(HIT_START_OFFSETS), fragmentStart);
+        int[] ends = getOffsets(offsetList.get(HIT_END_OFFSETS), fragmentStart);
+
+        result.addHighlight(snippetTxt);
+        for (int j = 0; j < starts.length; j++) {
+            long hitStart = fragmentStart + starts[j];
+            int page = pageOffsets.findPage(hitStart);
+            if (page < 0) {
+                LOG.warn("Ignoring hit at offset {} that is not part of the text of any page", hitStart);
+                continue;
             }
+            int pageTextStart = pageOffsets.getTextStart(page);
+            addHit(result, pageOffsets.getImageId(page), (int) (pageTextStart - fragmentStart),
+                    (int) (hitStart - pageTextStart), (int) (fragmentStart + ends[j] - pageTextStart));
         }
-        return result;
+    }
+
+    private static void addHit(SolrHits result, String imageId, int textStart, int start, int end) {
+        // nearby hits are merged with the previous hit
+        if (!result.addHit(imageId, textStart, start, end) && LOG.isDebugEnabled()) {
+            LOG.debug("Merged hit {},{} with previous hit on {}", start, end, imageId);
+        }
+    }
+
+    private static long toLong(Object number) {
+        if (number instanceof Number) {
+            return ((Number) number).longValue();
+        }
+        return Long.parseLong(number.toString());
     }
 
     /**
-     * Checks if there is an overlap between 2 start and end indexes.
-     * Implementation based on https://stackoverflow.com/a/36035369
-     *
-     * Note that we can't use this for page-level annotations at the moment because those don't have a to and from
-     * coordinate
-     * @param s1 start index1
-     * @param e1 end index1
-     * @param s2 start index2
-     * @param e2 end index2
-     * @return true if there is overlap, otherwise false
+     * Solr (javabin) returns the offsets as a list of integers, which we read directly. For other response formats we
+     * fall back to parsing the textual representation.
+     * @param offsets list of numbers, int array, or string with expected format: "[<number>, <number>....]"
+     * @param textStartOffset we need to subtract this from each number to get indexes within a text (instead of within
+     *                        entire issue)
+     * @return offsets within the text, negative values are left out
      */
-    private boolean overlap(int s1, int e1, int s2, int e2) {
-        return (s1 <= e2 && e1 >= s2);
+    static int[] getOffsets(Object offsets, long textStartOffset) {
+        int[] result;
+        int count = 0;
+        if (offsets instanceof List) {
+            List<?> numbers = (List<?>) offsets;
+            result = new int[numbers.size()];
+            for (int i = 0; i < numbers.size(); i++) {
+                long value = ((Number) numbers.get(i)).longValue() - textStartOffset;
+                if (value >= 0) {
+                    result[count++] = (int) value;
+                }
+            }
+        } else if (offsets instanceof int[]) {
+            int[] numbers = (int[]) offsets;
+            result = new int[numbers.length];
+            for (int number : numbers) {
+                long value = number - textStartOffset;
+                if (value >= 0) {
+                    result[count++] = (int) value;
+                }
+            }
+        } else {
+            String numbersTxt = offsets.toString();
+            result = new int[numbersTxt.length() / 2];
+            long number = 0;
+            boolean inNumber = false;
+            for (int i = 0; i < numbersTxt.length(); i++) {
+                char c = numbersTxt.charAt(i);
+                if (c >= '0' && c <= '9') {
+                    number = number * 10 + (c - '0');
+                    inNumber = true;
+                } else if (inNumber) {
+                    if (number - textStartOffset >= 0) {
+                        result[count++] = (int) (number - textStartOffset);
+                    }
+                    number = 0;
+                    inNumber = false;
+                }
+            }
+            if (inNumber && number - textStartOffset >= 0) {
+                result[count++] = (int) (number - textStartOffset);
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
     }
 }
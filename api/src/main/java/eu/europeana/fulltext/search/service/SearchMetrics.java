@@ -0,0 +1,63 @@
+package eu.europeana.fulltext.search.service;
+
+import eu.europeana.fulltext.search.model.response.Debug;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the time spent in the different phases of searching inside a record. Durations are exported as Micrometer
+ * timer {@value #TIMER_NAME} with a phase tag (available via the actuator metrics endpoint), and are added to the debug
+ * section of the search result when debug information was requested.
+ */
+@Component
+public class SearchMetrics {
+
+    public static final String TIMER_NAME = "search.phase";
+
+    /** Waiting for the highlights query (including a retry for entire pages) */
+    public static final String SOLR = "solr";
+    /** Parsing the Solr highlights into hits */
+    public static final String PARSE = "parse";
+    /** Retrieving the AnnoPages with hits from Mongo */
+    public static final String MONGO = "mongo";
+    /** Retrieving and decoding the annotation tables of the pages with hits from Solr */
+    public static final String ANNOTATION_TABLES = "annotationTables";
+    /** Decoding the annotations of an AnnoPage, recorded per page */
+    public static final String DECODE = "decode";
+    /** Matching the hits of an AnnoPage with its annotations, recorded per page */
+    public static final String MATCHING = "matching";
+    /** Entire search, from receiving the request until the result is complete */
+    public static final String TOTAL = "total";
+    /** Serializing the search result (not part of the debug section, as that is serialized at the same time) */
+    public static final String SERIALIZATION = "serialization";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public SearchMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Record the time spent in a phase
+     * @param phase name of the phase, see the constants of this class
+     * @param startNanos value of System.nanoTime() when the phase started
+     * @param debug if not null, the duration is also added to the debug information
+     */
+    public void record(String phase, long startNanos, Debug debug) {
+        long nanos = System.nanoTime() - startNanos;
+        timers.computeIfAbsent(phase, p -> Timer.builder(TIMER_NAME)
+                        .description("Time spent in a phase of searching inside a record")
+                        .tag("phase", p)
+                        .register(meterRegistry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+        if (debug != null) {
+            debug.addTiming(phase, nanos);
+        }
+    }
+}
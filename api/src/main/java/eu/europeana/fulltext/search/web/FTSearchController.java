@@ -1,17 +1,21 @@
 package eu.europeana.fulltext.search.web;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import eu.europeana.api.commons.error.EuropeanaApiException;
 import eu.europeana.fulltext.AnnotationType;
 import eu.europeana.fulltext.api.config.FTSettings;
 import eu.europeana.fulltext.api.caching.CachingUtils;
+import eu.europeana.fulltext.api.caching.CompressionUtils;
 import eu.europeana.fulltext.api.service.ControllerUtils;
 import eu.europeana.fulltext.api.service.exception.InvalidVersionException;
+import eu.europeana.fulltext.exception.SerializationException;
 import eu.europeana.fulltext.search.config.SearchConfig;
 import eu.europeana.fulltext.search.exception.InvalidParameterException;
 import eu.europeana.fulltext.search.exception.SearchDisabledException;
 import eu.europeana.fulltext.search.model.query.EuropeanaId;
-import eu.europeana.fulltext.search.model.response.SearchResult;
+import eu.europeana.fulltext.search.model.response.collection.CollectionSearchResult;
 import eu.europeana.fulltext.search.service.FTSearchService;
+import eu.europeana.fulltext.search.service.SearchMetrics;
 import eu.europeana.iiif.AcceptUtils;
 import eu.europeana.iiif.IIIFDefinitions;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -19,14 +23,16 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import static eu.europeana.fulltext.util.RequestUtils.*;
 import static eu.europeana.iiif.AcceptUtils.*;
@@ -47,12 +53,19 @@ public class FTSearchController {
 
     private static final Logger LOG = LogManager.getLogger(FTSearchController.class);
 
+    private static final String FIRST_CURSOR = "*";
+
     private final FTSearchService searchService;
+    private final SearchMetrics metrics;
     private final FTSettings settings;
+    private final ObjectMapper mapper;
 
-    public FTSearchController(FTSearchService searchService, FTSettings settings) {
+    public FTSearchController(FTSearchService searchService, SearchMetrics metrics, FTSettings settings,
+                              ObjectMapper mapper) {
         this.searchService = searchService;
+        this.metrics = metrics;
         this.settings = settings;
+        this.mapper = mapper;
     }
 
     /**
@@ -65,18 +78,22 @@ public class FTSearchController {
      * @param pageSize        maximum number of hits
      * @param textGranularity one-letter abbreviation or name of an Annotation type
      * @param profile           if profile debug is requested then include debug information in the response
-     * @throws EuropeanaApiException when there is an error processing the request
+     * @param pretty          optional, if true the response is pretty printed
+     * @return future with the response, completes exceptionally when there is an error searching the issue
+     * @throws EuropeanaApiException when the request is invalid
      */
     @GetMapping(value = "/{datasetId}/{localId}/search", headers = ACCEPT_JSON)
-    public ResponseEntity searchIssueJson(@PathVariable String datasetId, @PathVariable String localId,
+    public CompletableFuture<ResponseEntity> searchIssueJson(@PathVariable String datasetId, @PathVariable String localId,
                                       @RequestParam(required = false) String query,
                                       @RequestParam(required = false) String q,
                                       @RequestParam(required = false, defaultValue = "12") int pageSize,
                                       @RequestParam(required = false) String textGranularity,
                                       @RequestParam(value = "format", required = false) String versionParam,
                                       @RequestParam(value = "profile", required = false) String profile,
+                                      @RequestParam(value = "pretty", required = false) boolean pretty,
                                       HttpServletRequest request) throws EuropeanaApiException {
-        return searchIssue(datasetId, localId, query, q, pageSize, textGranularity, versionParam, profile, request, true);
+        return searchIssue(datasetId, localId, query, q, pageSize, textGranularity, versionParam, profile, pretty,
+                request, true);
     }
 
     /**
@@ -89,22 +106,27 @@ public class FTSearchController {
      * @param pageSize        maximum number of hits
      * @param textGranularity one-letter abbreviation or name of an Annotation type
      * @param profile           if profile debug is requested then include debug information in the response
-     * @throws EuropeanaApiException when there is an error processing the request
+     * @param pretty          optional, if true the response is pretty printed
+     * @return future with the response, completes exceptionally when there is an error searching the issue
+     * @throws EuropeanaApiException when the request is invalid
      */
     @GetMapping(value = "/{dsId}/{lcId}/search", headers = ACCEPT_JSONLD)
-    public ResponseEntity searchIssueJsonLd(@PathVariable String dsId, @PathVariable String lcId,
+    public CompletableFuture<ResponseEntity> searchIssueJsonLd(@PathVariable String dsId, @PathVariable String lcId,
                                             @RequestParam(required = false) String query,
                                             @RequestParam(required = false) String q,
                                             @RequestParam(required = false, defaultValue = "12") int pageSize,
                                             @RequestParam(required = false) String textGranularity,
                                             @RequestParam(value = "format", required = false) String versionParam,
                                             @RequestParam(value = "profile", required = false) String profile,
+                                            @RequestParam(value = "pretty", required = false) boolean pretty,
                                             HttpServletRequest request) throws EuropeanaApiException {
-        return searchIssue(dsId, lcId, query, q, pageSize, textGranularity, versionParam, profile, request, false);
+        return searchIssue(dsId, lcId, query, q, pageSize, textGranularity, versionParam, profile, pretty, request,
+                false);
     }
 
-    private ResponseEntity searchIssue(String datasetId, String localId, String query, String q, int pageSize, String textGranularity,
-                                       String versionParam, String profile, HttpServletRequest request, boolean isJson) throws EuropeanaApiException {
+    private CompletableFuture<ResponseEntity> searchIssue(String datasetId, String localId, String query, String q, int pageSize, String textGranularity,
+                                       String versionParam, String profile, boolean pretty, HttpServletRequest request,
+                                       boolean isJson) throws EuropeanaApiException {
         // validate the format
         if (!settings.isSolrEnabled()){
             throw new SearchDisabledException();
@@ -124,15 +146,121 @@ public class FTSearchController {
 
         List<String> profiles = extractProfiles(profile);
 
-        // start processing
+        HttpHeaders headers = new HttpHeaders();
+        AcceptUtils.addContentTypeToResponseHeader(headers, requestVersion, isJson);
+        CachingUtils.updateCorsExposeHeader(request, headers);
+
+        // start processing, the request thread is released while waiting for the result
+        String searchId = settings.getSearchBaseUrl() + request.getRequestURI() + "?" + request.getQueryString();
+        CompletableFuture<ResponseEntity> response = new CompletableFuture<>();
+        searchService.searchIssueAsync(searchId, new EuropeanaId(datasetId, localId), qry, pageSize, annoTypes,
+                requestVersion, profiles.contains(PROFILE_DEBUG)).whenComplete((searchResult, e) -> {
+            if (e != null) {
+                response.completeExceptionally(e);
+                return;
+            }
+            try {
+                long serializationStart = System.nanoTime();
+                byte[] body = serialise(searchResult, pretty);
+                metrics.record(SearchMetrics.SERIALIZATION, serializationStart, null);
+                response.complete(CompressionUtils.createResponse(settings, request, headers, body));
+            } catch (EuropeanaApiException | RuntimeException ex) {
+                response.completeExceptionally(ex);
+            }
+        });
+        return response;
+    }
+
+    /**
+     * Search the full-text of all records (CHOs) for a particular string. Only the ids of matching records and snippets
+     * of their full-text are returned
+     *
+     * @param query           search query
+     * @param q               alternative search query (will override query if specified both
+     * @param lang            optional, only search full-text in this language
+     * @param rows            maximum number of records
+     * @param cursor          cursor returned in the previous response (next), to retrieve the next page of results
+     * @param facets          optional, metadata fields for which facets should be returned
+     * @param profile         if profile debug is requested then include debug information in the response
+     * @param pretty          optional, if true the response is pretty printed
+     * @throws EuropeanaApiException when there is an error processing the request
+     */
+    @GetMapping(value = IIIFDefinitions.FULLTEXT_SEARCH_PATH, headers = ACCEPT_JSON)
+    public ResponseEntity searchCollectionJson(@RequestParam(required = false) String query,
+                                               @RequestParam(required = false) String q,
+                                               @RequestParam(required = false) String lang,
+                                               @RequestParam(required = false, defaultValue = "12") int rows,
+                                               @RequestParam(required = false, defaultValue = FIRST_CURSOR) String cursor,
+                                               @RequestParam(value = "facet", required = false) List<String> facets,
+                                               @RequestParam(value = "profile", required = false) String profile,
+                                               @RequestParam(value = "pretty", required = false) boolean pretty,
+                                               HttpServletRequest request) throws EuropeanaApiException {
+        return searchCollection(query, q, lang, rows, cursor, facets, profile, pretty, request, true);
+    }
+
+    /**
+     * Search the full-text of all records (CHOs) for a particular string. Only the ids of matching records and snippets
+     * of their full-text are returned
+     *
+     * @param query           search query
+     * @param q               alternative search query (will override query if specified both
+     * @param lang            optional, only search full-text in this language
+     * @param rows            maximum number of records
+     * @param cursor          cursor returned in the previous response (next), to retrieve the next page of results
+     * @param facets          optional, metadata fields for which facets should be returned
+     * @param profile         if profile debug is requested then include debug information in the response
+     * @param pretty          optional, if true the response is pretty printed
+     * @throws EuropeanaApiException when there is an error processing the request
+     */
+    @GetMapping(value = IIIFDefinitions.FULLTEXT_SEARCH_PATH, headers = ACCEPT_JSONLD)
+    public ResponseEntity searchCollectionJsonLd(@RequestParam(required = false) String query,
+                                                 @RequestParam(required = false) String q,
+                                                 @RequestParam(required = false) String lang,
+                                                 @RequestParam(required = false, defaultValue = "12") int rows,
+                                                 @RequestParam(required = false, defaultValue = FIRST_CURSOR) String cursor,
+                                                 @RequestParam(value = "facet", required = false) List<String> facets,
+                                                 @RequestParam(value = "profile", required = false) String profile,
+                                                 @RequestParam(value = "pretty", required = false) boolean pretty,
+                                                 HttpServletRequest request) throws EuropeanaApiException {
+        return searchCollection(query, q, lang, rows, cursor, facets, profile, pretty, request, false);
+    }
+
+    private ResponseEntity searchCollection(String query, String q, String lang, int rows, String cursor,
+                                            List<String> facets, String profile, boolean pretty,
+                                            HttpServletRequest request, boolean isJson) throws EuropeanaApiException {
+        if (!settings.isSolrEnabled()){
+            throw new SearchDisabledException();
+        }
+
+        // validate input
+        String qry = validateQuery(query, q);
+        if (rows < 1 || rows > SearchConfig.MAXIMUM_HITS) {
+            throw new InvalidParameterException("Rows should be between 1 and " + SearchConfig.MAXIMUM_HITS);
+        }
+        if (StringUtils.isBlank(cursor)) {
+            throw new InvalidParameterException("Empty cursor parameter");
+        }
+        List<String> facetFields = validateFacets(facets);
+
+        List<String> profiles = extractProfiles(profile);
+
         String searchId = settings.getSearchBaseUrl() + request.getRequestURI() + "?" + request.getQueryString();
-        SearchResult searchResult = searchService.searchIssue(searchId, new EuropeanaId(datasetId, localId), qry,
-                pageSize, annoTypes, requestVersion, profiles.contains(PROFILE_DEBUG));
+        CollectionSearchResult searchResult = searchService.searchCollection(searchId, qry, lang, rows, cursor,
+                facetFields, profiles.contains(PROFILE_DEBUG));
 
         HttpHeaders headers = new HttpHeaders();
-        AcceptUtils.addContentTypeToResponseHeader(headers, requestVersion, isJson);
+        // not a IIIF response, so no IIIF profile in the content type
+        headers.add(HttpHeaders.CONTENT_TYPE, isJson ? MEDIA_TYPE_JSON : MEDIA_TYPE_JSONLD);
         CachingUtils.updateCorsExposeHeader(request, headers);
-        return new ResponseEntity(searchResult, headers, HttpStatus.OK);
+        return CompressionUtils.createResponse(settings, request, headers, serialise(searchResult, pretty));
+    }
+
+    private byte[] serialise(Object searchResult, boolean pretty) throws SerializationException {
+        try {
+            return (pretty ? mapper.writerWithDefaultPrettyPrinter() : mapper.writer()).writeValueAsBytes(searchResult);
+        } catch (IOException e) {
+            throw new SerializationException("Error serialising data: " + e.getMessage(), e);
+        }
     }
 
 
@@ -150,6 +278,23 @@ public class FTSearchController {
         return q;
     }
 
+    /**
+     * Check if the requested facets are metadata fields that are allowed to be used as facet
+     */
+    private List<String> validateFacets(List<String> facets) throws InvalidParameterException {
+        if (facets == null || facets.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> allowed = settings.getSearchCollectionFacets();
+        for (String facet : facets) {
+            if (!allowed.contains(facet)) {
+                throw new InvalidParameterException("Facet " + facet + " is not supported. Supported facets are "
+                        + allowed);
+            }
+        }
+        return facets;
+    }
+
     /**
      * Validate if there's a text granularity parameter value. If not we use the default settings, if so we
      * check if the values are valid.
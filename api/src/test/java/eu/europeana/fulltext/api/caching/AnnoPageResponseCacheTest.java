@@ -0,0 +1,86 @@
+package eu.europeana.fulltext.api.caching;
+
+import eu.europeana.fulltext.AnnotationType;
+import eu.europeana.fulltext.api.config.FTSettings;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AnnoPageResponseCacheTest {
+
+    private static final byte[] BODY = "{\"id\":\"test\"}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] GZIP_BODY = {31, -117, 8, 0};
+    private static final Date MODIFIED = new Date(1_600_000_000_000L);
+
+    private SimpleMeterRegistry meterRegistry;
+    private AnnoPageResponseCache cache;
+
+    @BeforeEach
+    public void setup() {
+        FTSettings settings = mock(FTSettings.class);
+        when(settings.getAnnoPageCacheMaxSizeMb()).thenReturn(1);
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new AnnoPageResponseCache(settings, meterRegistry);
+    }
+
+    private static AnnoPageResponseCache.Key key(String lang, List<AnnotationType> textGranularity) {
+        return new AnnoPageResponseCache.Key("ds1", "lc1", "pg1", lang, "3", textGranularity, false, false, false);
+    }
+
+    @Test
+    public void testGetCachedResponse() {
+        cache.put(key(null, Collections.emptyList()), MODIFIED, BODY, GZIP_BODY);
+        AnnoPageResponseCache.CachedResponse cached = cache.get(key("", Collections.emptyList()),
+                new Date(MODIFIED.getTime()));
+        assertArrayEquals(BODY, cached.getBody());
+        assertArrayEquals(GZIP_BODY, cached.getGzipBody());
+    }
+
+    @Test
+    public void testTextGranularityOrderIgnored() {
+        cache.put(key("en", List.of(AnnotationType.WORD, AnnotationType.LINE)), MODIFIED, BODY, null);
+        assertArrayEquals(BODY, cache.get(key("en", List.of(AnnotationType.LINE, AnnotationType.WORD)), MODIFIED)
+                .getBody());
+        assertNull(cache.get(key("en", List.of(AnnotationType.LINE)), MODIFIED));
+    }
+
+    @Test
+    public void testOutdatedResponseNotReturned() {
+        cache.put(key("en", Collections.emptyList()), MODIFIED, BODY, null);
+        assertNull(cache.get(key("en", Collections.emptyList()), new Date(MODIFIED.getTime() + 1000)));
+        // outdated entry is removed
+        assertNull(cache.get(key("en", Collections.emptyList()), MODIFIED));
+    }
+
+    @Test
+    public void testMetricsRegistered() {
+        cache.put(key("en", Collections.emptyList()), MODIFIED, BODY, null);
+        cache.get(key("en", Collections.emptyList()), MODIFIED);
+        cache.get(key("de", Collections.emptyList()), MODIFIED);
+
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", AnnoPageResponseCache.CACHE_NAME)
+                .tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", AnnoPageResponseCache.CACHE_NAME)
+                .tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    public void testDisabledCache() {
+        FTSettings settings = mock(FTSettings.class);
+        when(settings.getAnnoPageCacheMaxSizeMb()).thenReturn(0);
+        AnnoPageResponseCache disabled = new AnnoPageResponseCache(settings, new SimpleMeterRegistry());
+
+        disabled.put(key(null, Collections.emptyList()), MODIFIED, BODY, null);
+        assertFalse(disabled.isEnabled());
+        assertNull(disabled.get(key(null, Collections.emptyList()), MODIFIED));
+    }
+}
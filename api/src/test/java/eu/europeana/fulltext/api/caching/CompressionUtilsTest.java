@@ -0,0 +1,80 @@
+package eu.europeana.fulltext.api.caching;
+
+import eu.europeana.fulltext.api.config.FTSettings;
+import eu.europeana.fulltext.exception.SerializationException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CompressionUtilsTest {
+
+    private static final byte[] BODY = "{\"id\":\"test\",\"value\":\"aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa\"}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private static MockHttpServletRequest requestWithEncoding(String... acceptEncoding) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        for (String value : acceptEncoding) {
+            request.addHeader(HttpHeaders.ACCEPT_ENCODING, value);
+        }
+        return request;
+    }
+
+    private static FTSettings settings(boolean enabled, int minSize) {
+        FTSettings settings = mock(FTSettings.class);
+        when(settings.isResponseCompressionEnabled()).thenReturn(enabled);
+        when(settings.getResponseCompressionMinSize()).thenReturn(minSize);
+        return settings;
+    }
+
+    @Test
+    public void testAcceptsGzip() {
+        assertTrue(CompressionUtils.acceptsGzip(requestWithEncoding("gzip, deflate, br")));
+        assertTrue(CompressionUtils.acceptsGzip(requestWithEncoding("br;q=1.0", "GZIP;q=0.5")));
+        assertTrue(CompressionUtils.acceptsGzip(requestWithEncoding("*")));
+        assertFalse(CompressionUtils.acceptsGzip(requestWithEncoding()));
+        assertFalse(CompressionUtils.acceptsGzip(requestWithEncoding("identity")));
+        assertFalse(CompressionUtils.acceptsGzip(requestWithEncoding("gzip;q=0")));
+        assertFalse(CompressionUtils.acceptsGzip(requestWithEncoding("gzip;q=0, *")));
+        assertFalse(CompressionUtils.acceptsGzip(requestWithEncoding("*;q=0")));
+    }
+
+    @Test
+    public void testGzip() throws SerializationException, IOException {
+        byte[] compressed = CompressionUtils.gzip(BODY);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            assertArrayEquals(BODY, in.readAllBytes());
+        }
+    }
+
+    @Test
+    public void testGzipIfUseful() throws SerializationException {
+        assertNotNull(CompressionUtils.gzipIfUseful(settings(true, 10), BODY));
+        assertNull(CompressionUtils.gzipIfUseful(settings(true, 1000), BODY));
+        assertNull(CompressionUtils.gzipIfUseful(settings(false, 10), BODY));
+    }
+
+    @Test
+    public void testCreateResponse() throws SerializationException {
+        FTSettings settings = settings(true, 10);
+        ResponseEntity<byte[]> compressed = CompressionUtils.createResponse(settings, requestWithEncoding("gzip"),
+                new HttpHeaders(), BODY);
+        assertEquals(CompressionUtils.GZIP, compressed.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertTrue(compressed.getHeaders().getVary().contains(HttpHeaders.ACCEPT_ENCODING));
+
+        ResponseEntity<byte[]> uncompressed = CompressionUtils.createResponse(settings, requestWithEncoding(),
+                new HttpHeaders(), BODY);
+        assertNull(uncompressed.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertTrue(uncompressed.getHeaders().getVary().contains(HttpHeaders.ACCEPT_ENCODING));
+        assertArrayEquals(BODY, uncompressed.getBody());
+    }
+}
@@ -0,0 +1,86 @@
+package eu.europeana.fulltext.api.caching;
+
+import eu.europeana.fulltext.AnnotationType;
+import eu.europeana.fulltext.api.config.FTSettings;
+import eu.europeana.fulltext.search.model.query.EuropeanaId;
+import eu.europeana.fulltext.search.model.response.SearchResult;
+import eu.europeana.fulltext.search.model.response.v3.SearchResultV3;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SearchResultCacheTest {
+
+    private static final EuropeanaId RECORD_ID = new EuropeanaId("9200396", "BibliographicResource_3000118435970");
+    private static final Date INDEXED = new Date(1_600_000_000_000L);
+
+    private SimpleMeterRegistry meterRegistry;
+    private SearchResultCache cache;
+
+    @BeforeEach
+    public void setup() {
+        FTSettings settings = mock(FTSettings.class);
+        when(settings.getSearchCacheMaxEntries()).thenReturn(10);
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new SearchResultCache(settings, meterRegistry);
+    }
+
+    private static SearchResultCache.Key key(String query, List<AnnotationType> textGranularity, String version) {
+        return new SearchResultCache.Key(new EuropeanaId(RECORD_ID.getDatasetId(), RECORD_ID.getLocalId()), query, 12,
+                textGranularity, version);
+    }
+
+    @Test
+    public void testNormalizedQueryReturnsCachedResult() {
+        SearchResult result = new SearchResultV3("search1", false);
+        cache.put(key("Flandre  autrichienne", List.of(AnnotationType.LINE, AnnotationType.WORD), "3"), INDEXED,
+                result, 250);
+
+        assertSame(result, cache.get(key(" flandre autrichienne<>", List.of(AnnotationType.WORD, AnnotationType.LINE),
+                "3"), new Date(INDEXED.getTime())));
+        assertEquals(250, meterRegistry.get(SearchResultCache.SAVED_TIME_METRIC).counter().count());
+
+        assertNull(cache.get(key("flandre", List.of(AnnotationType.LINE, AnnotationType.WORD), "3"), INDEXED));
+        assertNull(cache.get(key("flandre autrichienne", List.of(AnnotationType.LINE), "3"), INDEXED));
+    }
+
+    @Test
+    public void testDefaultVersionIs2() {
+        SearchResult result = new SearchResultV3("search1", false);
+        cache.put(key("flandre", List.of(AnnotationType.LINE), null), INDEXED, result, 10);
+        assertSame(result, cache.get(key("flandre", List.of(AnnotationType.LINE), "2"), INDEXED));
+        assertNull(cache.get(key("flandre", List.of(AnnotationType.LINE), "3"), INDEXED));
+    }
+
+    @Test
+    public void testReindexedRecordNotReturned() {
+        cache.put(key("flandre", List.of(AnnotationType.LINE), "3"), INDEXED, new SearchResultV3("search1", false), 10);
+        assertNull(cache.get(key("flandre", List.of(AnnotationType.LINE), "3"), new Date(INDEXED.getTime() + 1000)));
+        // outdated entry is removed
+        assertNull(cache.get(key("flandre", List.of(AnnotationType.LINE), "3"), INDEXED));
+    }
+
+    @Test
+    public void testDisabled() {
+        FTSettings settings = mock(FTSettings.class);
+        when(settings.getSearchCacheMaxEntries()).thenReturn(0);
+        SearchResultCache disabled = new SearchResultCache(settings, new SimpleMeterRegistry());
+        assertFalse(disabled.isEnabled());
+        disabled.put(key("flandre", List.of(AnnotationType.LINE), "3"), INDEXED, new SearchResultV3("search1", false), 10);
+        assertNull(disabled.get(key("flandre", List.of(AnnotationType.LINE), "3"), INDEXED));
+    }
+
+    @Test
+    public void testCopyWithId() {
+        SearchResult copy = new SearchResultV3("search1", true).copyWithId("search2");
+        assertEquals("search2", copy.getId());
+        assertNull(copy.getDebug());
+    }
+}
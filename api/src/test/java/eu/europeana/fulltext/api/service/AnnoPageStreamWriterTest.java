@@ -0,0 +1,148 @@
+package eu.europeana.fulltext.api.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.europeana.api.commons.error.EuropeanaApiException;
+import eu.europeana.fulltext.AnnotationType;
+import eu.europeana.fulltext.api.config.FTSettings;
+import eu.europeana.fulltext.api.config.SerializationConfig;
+import eu.europeana.fulltext.api.model.AnnotationWrapper;
+import eu.europeana.fulltext.entity.AnnoPage;
+import eu.europeana.fulltext.entity.Annotation;
+import eu.europeana.fulltext.entity.Target;
+import eu.europeana.fulltext.repository.AnnoPageRepository;
+import eu.europeana.fulltext.repository.ResourceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+import static eu.europeana.fulltext.TestUtils.anp_1;
+import static eu.europeana.fulltext.TestUtils.res_1;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+
+/**
+ * Checks that annotation pages written by the AnnoPageStreamWriter are exactly the same as the serialised
+ * AnnotationPageV2 and AnnotationPageV3 objects
+ */
+@TestPropertySource(locations = "classpath:fulltext-test.properties")
+@SpringBootTest(classes = {FTService.class, FTSettings.class, EDM2IIIFMapping.class, SerializationConfig.class})
+public class AnnoPageStreamWriterTest {
+
+    @Autowired
+    private FTService ftService;
+
+    @MockBean
+    private AnnoPageRepository apRepository;
+    @MockBean
+    private ResourceRepository resRepository;
+
+    @BeforeEach
+    public void setup() {
+        given(resRepository.findByPageIdLang(any(), any(), any(), any())).willReturn(res_1);
+        given(resRepository.findOriginalByPageId(any(), any(), any())).willReturn(res_1);
+    }
+
+    private AnnoPage loadAnnoPage(String fileName) throws IOException {
+        ObjectMapper o = new ObjectMapper();
+        o.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        try (InputStream s = Thread.currentThread().getContextClassLoader().getResourceAsStream(fileName)) {
+            return o.readValue(s, AnnoPage.class);
+        }
+    }
+
+    private void assertSameOutput(AnnoPage annoPage, String version, List<AnnotationType> textGranValues,
+                                  boolean derefResource, boolean includeContext) throws EuropeanaApiException {
+        assertSameOutput(annoPage, version, textGranValues, derefResource, includeContext, false);
+        assertSameOutput(annoPage, version, textGranValues, derefResource, includeContext, true);
+    }
+
+    private void assertSameOutput(AnnoPage annoPage, String version, List<AnnotationType> textGranValues,
+                                  boolean derefResource, boolean includeContext, boolean pretty)
+            throws EuropeanaApiException {
+        AnnotationWrapper expected = "3".equals(version)
+                ? ftService.generateAnnoPageV3(annoPage, textGranValues, derefResource)
+                : ftService.generateAnnoPageV2(annoPage, textGranValues, derefResource);
+        if (!includeContext) {
+            expected.setContext(null);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ftService.writeAnnoPage(annoPage, version, textGranValues, derefResource, includeContext, pretty, out);
+
+        assertEquals(new String(ftService.serialiseToBytes(expected, pretty), StandardCharsets.UTF_8),
+                out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testSameOutputV2() throws EuropeanaApiException {
+        assertSameOutput(anp_1, "2", Collections.emptyList(), false, true);
+        assertSameOutput(anp_1, "2", Collections.emptyList(), false, false);
+        assertSameOutput(anp_1, "2", List.of(AnnotationType.LINE), true, true);
+    }
+
+    @Test
+    public void testSameOutputV3() throws EuropeanaApiException {
+        assertSameOutput(anp_1, "3", Collections.emptyList(), false, true);
+        assertSameOutput(anp_1, "3", Collections.emptyList(), false, false);
+        assertSameOutput(anp_1, "3", List.of(AnnotationType.WORD, AnnotationType.LINE), true, true);
+    }
+
+    @Test
+    public void testSameOutputStoredAnnoPage() throws IOException, EuropeanaApiException {
+        AnnoPage annoPage = loadAnnoPage("9200396_BibliographicResource_3000118435970_annopage_61.json");
+        for (String version : List.of("2", "3")) {
+            assertSameOutput(annoPage, version, Collections.emptyList(), false, true);
+            assertSameOutput(annoPage, version, Collections.emptyList(), true, false);
+        }
+    }
+
+    @Test
+    public void testSameOutputWithPageAnnotations() throws EuropeanaApiException {
+        // page annotations are listed first in the output
+        AnnoPage annoPage = new AnnoPage("ds1", "lc1", "pg2", "tg2", null, res_1);
+        annoPage.setTgtId("https://iiif.europeana.eu/image/tg2");
+        annoPage.setAns(List.of(
+                new Annotation("an1", AnnotationType.WORD.getAbbreviation(), 0, 7, List.of(new Target(1, 2, 3, 4))),
+                new Annotation("an2", AnnotationType.PAGE.getAbbreviation(), 0, 214, null),
+                new Annotation("an3", AnnotationType.LINE.getAbbreviation(), 0, 20, List.of(new Target(5, 6, 7, 8))),
+                new Annotation("an4", AnnotationType.PAGE.getAbbreviation(), null, null, null)));
+        for (String version : List.of("2", "3")) {
+            assertSameOutput(annoPage, version, Collections.emptyList(), false, true);
+            assertSameOutput(annoPage, version, Collections.emptyList(), true, true);
+            assertSameOutput(annoPage, version, List.of(AnnotationType.PAGE), true, false);
+        }
+    }
+
+    private String writeSingle(AnnoPage annoPage, String version, boolean includeContext) throws EuropeanaApiException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ftService.writeAnnoPage(annoPage, version, Collections.emptyList(), false, includeContext, false, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testWriteMultipleAnnoPages() throws IOException, EuropeanaApiException {
+        AnnoPage annoPage = loadAnnoPage("9200396_BibliographicResource_3000118435970_annopage_61.json");
+        List<AnnoPage> annoPages = List.of(anp_1, annoPage);
+        String page1 = writeSingle(anp_1, "3", true);
+        String page2 = writeSingle(annoPage, "3", true);
+
+        ByteArrayOutputStream array = new ByteArrayOutputStream();
+        ftService.writeAnnoPages(annoPages, "3", Collections.emptyList(), false, true, false, false, array);
+        assertEquals("[" + page1 + "," + page2 + "]", array.toString(StandardCharsets.UTF_8));
+
+        ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+        ftService.writeAnnoPages(annoPages, "3", Collections.emptyList(), false, true, true, true, ndjson);
+        assertEquals(page1 + "\n" + page2 + "\n", ndjson.toString(StandardCharsets.UTF_8));
+    }
+}
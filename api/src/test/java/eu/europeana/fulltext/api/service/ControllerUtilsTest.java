@@ -45,4 +45,23 @@ public class ControllerUtilsTest {
             ControllerUtils.validateTextGranularity("Block Page", ALLOWED_ANNOTATION_TYPES);
         });
     }
+
+    @Test
+    public void testParsePageIds() throws InvalidParameterException {
+        assertEquals(List.of("1", "3", "5", "6", "7", "a12"),
+                ControllerUtils.parsePageIds("1,3 5-7,a12,6", 10));
+        assertEquals(List.of(), ControllerUtils.parsePageIds(null, 10));
+    }
+
+    @Test
+    public void testParsePageIdsInvalidRange() {
+        Assertions.assertThrows(InvalidParameterException.class, () -> ControllerUtils.parsePageIds("7-5", 10));
+        Assertions.assertThrows(InvalidParameterException.class, () -> ControllerUtils.parsePageIds("1-x", 10));
+    }
+
+    @Test
+    public void testParsePageIdsTooMany() {
+        Assertions.assertThrows(InvalidParameterException.class, () -> ControllerUtils.parsePageIds("1-11", 10));
+        Assertions.assertThrows(InvalidParameterException.class, () -> ControllerUtils.parsePageIds("1-5,a,b,c,d,e,f", 10));
+    }
 }
@@ -0,0 +1,109 @@
+package eu.europeana.fulltext.search.repository;
+
+import eu.europeana.fulltext.search.exception.SearchTimeoutException;
+import eu.europeana.fulltext.search.exception.SearchUnavailableException;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AsyncSolrClientTest {
+
+    private static final String CORE = "fulltext";
+
+    private final SolrClient solrClient = mock(SolrClient.class);
+    private final CountDownLatch solrDone = new CountDownLatch(1);
+    private AsyncSolrClient client;
+
+    @AfterEach
+    public void close() throws IOException {
+        solrDone.countDown();
+        client.close();
+    }
+
+    /**
+     * Test if a query fails directly when the maximum number of queries are in progress
+     */
+    @Test
+    void testMaxInFlight() throws Exception {
+        QueryResponse response = new QueryResponse();
+        when(solrClient.query(anyString(), any(SolrQuery.class))).thenAnswer(invocation -> {
+            solrDone.await();
+            return response;
+        });
+        client = new AsyncSolrClient(solrClient, 1, 10_000);
+
+        CompletableFuture<QueryResponse> first = client.query(CORE, new SolrQuery("*:*"));
+        CompletableFuture<QueryResponse> second = client.query(CORE, new SolrQuery("*:*"));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> second.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(SearchUnavailableException.class, e.getCause());
+
+        solrDone.countDown();
+        assertSame(response, first.get(1, TimeUnit.SECONDS));
+        assertEquals(1, client.getAvailable());
+    }
+
+    /**
+     * Test if a query that takes too long fails with a timeout, and releases its slot
+     */
+    @Test
+    void testTimeout() throws Exception {
+        when(solrClient.query(anyString(), any(SolrQuery.class))).thenAnswer(invocation -> {
+            solrDone.await();
+            return new QueryResponse();
+        });
+        client = new AsyncSolrClient(solrClient, 1, 50);
+
+        CompletableFuture<QueryResponse> query = client.query(CORE, new SolrQuery("*:*"));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> query.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(SearchTimeoutException.class, e.getCause());
+        assertEquals(1, client.getAvailable());
+    }
+
+    /**
+     * Test if a query fails with SearchUnavailableException when all threads are still busy with queries that timed
+     * out (Solr not responding to interrupts) and the executor queue is full
+     */
+    @Test
+    void testExecutorSaturated() throws Exception {
+        when(solrClient.query(anyString(), any(SolrQuery.class))).thenAnswer(invocation -> {
+            boolean done = false;
+            while (!done) {
+                try {
+                    solrDone.await();
+                    done = true;
+                } catch (InterruptedException e) {
+                    // ignore cancellation, like a blocking socket read
+                }
+            }
+            return new QueryResponse();
+        });
+        client = new AsyncSolrClient(solrClient, 1, 50);
+
+        // first query occupies the only thread, second query waits in the queue, both time out
+        for (int i = 0; i < 2; i++) {
+            CompletableFuture<QueryResponse> query = client.query(CORE, new SolrQuery("*:*"));
+            ExecutionException e = assertThrows(ExecutionException.class, () -> query.get(1, TimeUnit.SECONDS));
+            assertInstanceOf(SearchTimeoutException.class, e.getCause());
+        }
+        assertEquals(1, client.getAvailable());
+
+        CompletableFuture<QueryResponse> rejected = client.query(CORE, new SolrQuery("*:*"));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> rejected.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(SearchUnavailableException.class, e.getCause());
+        assertEquals(1, client.getAvailable());
+    }
+}
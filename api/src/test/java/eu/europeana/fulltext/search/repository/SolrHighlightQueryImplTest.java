@@ -4,6 +4,9 @@ import eu.europeana.fulltext.search.model.query.EuropeanaId;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
@@ -27,4 +30,21 @@ public class SolrHighlightQueryImplTest {
         assertEquals("true", sq.get("hl.extended"));
         assertEquals("unified", sq.get("hl.method"));
     }
+
+    /**
+     * Test if the collection query searches the provided full-text fields, uses a cursor and requests facets
+     */
+    @Test
+    void testCreateCollectionQuery() {
+        SolrQuery sq = shlQuery.createCollectionQuery("TEST", List.of("fulltext.nl", "fulltext.fr"), 10, "*",
+                List.of("TYPE", "COUNTRY"));
+        assertEquals("TEST", sq.getQuery());
+        assertEquals("edismax", sq.get("defType"));
+        assertEquals("fulltext.nl fulltext.fr", sq.get("qf"));
+        assertEquals("*", sq.get("cursorMark"));
+        assertEquals("score desc,europeana_id asc", sq.getSortField());
+        assertEquals(10, sq.getRows());
+        assertArrayEquals(new String[]{"TYPE", "COUNTRY"}, sq.getFacetFields());
+        assertEquals("fulltext.nl,fulltext.fr", sq.get("hl.fl"));
+    }
 }
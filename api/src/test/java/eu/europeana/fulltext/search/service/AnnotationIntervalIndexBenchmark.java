@@ -0,0 +1,122 @@
+package eu.europeana.fulltext.search.service;
+
+import eu.europeana.fulltext.AnnotationType;
+import eu.europeana.fulltext.entity.Annotation;
+import eu.europeana.fulltext.entity.Target;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares finding the annotations that overlap with search hits by scanning all annotations of a page (as
+ * FTSearchService used to do) with using an AnnotationIntervalIndex (including the time to build the index).
+ * <p>
+ * Run with: mvn -pl api test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=eu.europeana.fulltext.search.service.AnnotationIntervalIndexBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnnotationIntervalIndexBenchmark {
+
+    private static final int HIT_LENGTH = 12;
+
+    @Param({"1000", "8000"})
+    private int words;
+
+    @Param({"20"})
+    private int hits;
+
+    private List<Annotation> annotations;
+    private int[] hitStarts;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        annotations = createAltoPage(words, random);
+        // last annotation is the page annotation
+        int textLength = annotations.get(annotations.size() - 2).getTo();
+        hitStarts = new int[hits];
+        for (int i = 0; i < hits; i++) {
+            hitStarts[i] = random.nextInt(textLength);
+        }
+    }
+
+    @Benchmark
+    public void linearScan(Blackhole blackhole) {
+        for (int start : hitStarts) {
+            int end = start + HIT_LENGTH;
+            for (Annotation annotation : annotations) {
+                if (annotation.getFrom() != null && annotation.getTo() != null &&
+                        start <= annotation.getTo() && end >= annotation.getFrom()) {
+                    blackhole.consume(annotation);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void intervalIndex(Blackhole blackhole) {
+        AnnotationIntervalIndex index = new AnnotationIntervalIndex(annotations);
+        for (int start : hitStarts) {
+            blackhole.consume(index.findOverlapping(start, start + HIT_LENGTH));
+        }
+    }
+
+    /**
+     * Creates the annotations of an ALTO page in the order the loader stores them: for each text block its words and
+     * lines, followed by the block itself, and a page annotation at the end.
+     * @param words number of word annotations
+     * @param random random generator for word lengths and line and block sizes
+     * @return list of annotations
+     */
+    static List<Annotation> createAltoPage(int words, Random random) {
+        List<Annotation> result = new ArrayList<>();
+        int offset = 0;
+        int word = 0;
+        while (word < words) {
+            int blockStart = offset;
+            int linesInBlock = 3 + random.nextInt(15);
+            for (int line = 0; line < linesInBlock && word < words; line++) {
+                int lineStart = offset;
+                int wordsInLine = 4 + random.nextInt(8);
+                for (int w = 0; w < wordsInLine && word < words; w++, word++) {
+                    int length = 1 + random.nextInt(12);
+                    result.add(new Annotation("w" + word, AnnotationType.WORD.getAbbreviation(), offset,
+                            offset + length, List.of(new Target(w * 80, line * 40, length * 8, 30))));
+                    offset += length + 1;
+                }
+                result.add(new Annotation("l" + result.size(), AnnotationType.LINE.getAbbreviation(), lineStart,
+                        offset - 1, List.of(new Target(0, line * 40, 900, 30))));
+            }
+            result.add(new Annotation("b" + result.size(), AnnotationType.BLOCK.getAbbreviation(), blockStart,
+                    offset - 1, List.of(new Target(0, 0, 900, linesInBlock * 40))));
+        }
+        result.add(new Annotation("p", AnnotationType.PAGE.getAbbreviation(), null, null, null));
+        return result;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(AnnotationIntervalIndexBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,57 @@
+package eu.europeana.fulltext.search.service;
+
+import eu.europeana.fulltext.AnnotationType;
+import eu.europeana.fulltext.entity.Annotation;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AnnotationIntervalIndexTest {
+
+    private static List<Annotation> findByScanning(List<Annotation> annotations, int start, int end) {
+        List<Annotation> result = new ArrayList<>();
+        for (Annotation annotation : annotations) {
+            if (annotation.getFrom() != null && annotation.getTo() != null &&
+                    start <= annotation.getTo() && end >= annotation.getFrom()) {
+                result.add(annotation);
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void testSameResultAsScanning() {
+        Random random = new Random(7);
+        List<Annotation> annotations = AnnotationIntervalIndexBenchmark.createAltoPage(2000, random);
+        AnnotationIntervalIndex index = new AnnotationIntervalIndex(annotations);
+        int textLength = annotations.get(annotations.size() - 2).getTo();
+
+        for (int i = 0; i < 500; i++) {
+            int start = random.nextInt(textLength + 20) - 10;
+            int end = start + random.nextInt(40);
+            assertEquals(findByScanning(annotations, start, end), index.findOverlapping(start, end));
+        }
+    }
+
+    @Test
+    public void testOverlappingAnnotationsOfSameType() {
+        char word = AnnotationType.WORD.getAbbreviation();
+        List<Annotation> annotations = List.of(
+                new Annotation("an1", word, 0, 100),
+                new Annotation("an2", word, 10, 15),
+                new Annotation("an3", word, 20, 25),
+                new Annotation("an4", AnnotationType.PAGE.getAbbreviation(), null, null),
+                new Annotation("an5", word, 25, 30));
+        AnnotationIntervalIndex index = new AnnotationIntervalIndex(annotations);
+
+        assertEquals(List.of(annotations.get(0), annotations.get(2), annotations.get(4)),
+                index.findOverlapping(25, 25));
+        assertEquals(List.of(annotations.get(0)), index.findOverlapping(16, 19));
+        assertTrue(index.findOverlapping(101, 200).isEmpty());
+    }
+}
@@ -0,0 +1,39 @@
+package eu.europeana.fulltext.search.service;
+
+import eu.europeana.api.commons.error.EuropeanaApiException;
+import eu.europeana.fulltext.AnnotationType;
+import eu.europeana.fulltext.entity.AnnoPage;
+import eu.europeana.fulltext.search.model.query.EuropeanaId;
+import eu.europeana.fulltext.util.AnnotationOffsetTable;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+
+/**
+ * Runs all FTSearchService tests again, but with annotations read from the annotation tables in Solr instead of from
+ * AnnoPages in Mongo. Mongo doesn't return any AnnoPages in these tests.
+ */
+@TestPropertySource(properties = "search.annotationsFromSolr.enabled=true")
+public class FTSearchServiceAnnotationTablesTest extends FTSearchServiceTest {
+
+    @Override
+    void mockAnnoPages(List<AnnotationType> annoTypes) {
+        // tables contain annotations of all types, the service filters them
+        Map<String, List<String>> tables = new HashMap<>();
+        for (AnnoPage annoPage : loadAnnoPages()) {
+            tables.put(annoPage.getTgtId(), List.of(AnnotationOffsetTable.encode(annoPage)));
+        }
+        try {
+            given(solrRepo.getAnnotationTables(eq(new EuropeanaId("9200396", "BibliographicResource_3000118435970")),
+                    any())).willReturn(tables);
+        } catch (EuropeanaApiException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
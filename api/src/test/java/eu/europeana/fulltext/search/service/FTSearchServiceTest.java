@@ -2,9 +2,9 @@ package eu.europeana.fulltext.search.service;
 
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import dev.morphia.query.internal.MorphiaCursor;
 import eu.europeana.api.commons.error.EuropeanaApiException;
 import eu.europeana.fulltext.AnnotationType;
+import eu.europeana.fulltext.api.caching.SearchResultCache;
 import eu.europeana.fulltext.api.config.FTSettings;
 import eu.europeana.fulltext.api.model.v2.AnnotationV2;
 import eu.europeana.fulltext.api.service.EDM2IIIFMapping;
@@ -13,6 +13,7 @@ import eu.europeana.fulltext.entity.AnnoPage;
 import eu.europeana.fulltext.entity.Annotation;
 import eu.europeana.fulltext.search.exception.RecordDoesNotExistException;
 import eu.europeana.fulltext.search.model.query.EuropeanaId;
+import eu.europeana.fulltext.search.model.query.SolrHighlights;
 import eu.europeana.fulltext.search.model.response.Hit;
 import eu.europeana.fulltext.search.model.response.SearchResult;
 import eu.europeana.fulltext.search.model.response.v2.SearchResultV2;
@@ -31,6 +32,7 @@ import org.springframework.test.context.TestPropertySource;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -87,22 +89,32 @@ public class FTSearchServiceTest {
     private FTSearchService searchService;
 
     @MockBean
-    private SolrRepo solrRepo;
+    SolrRepo solrRepo;
     @MockBean
-    private FTService fulltextRepo;
+    FTService fulltextRepo;
+    // cache is disabled (mock returns false for isEnabled())
     @MockBean
-    private MorphiaCursor<AnnoPage> morphiaCursor;
+    SearchResultCache resultCache;
+    @MockBean
+    SearchMetrics searchMetrics;
 
     @BeforeEach
     public void setupMocks() throws EuropeanaApiException {
         // default we return empty Solr results
         given(solrRepo.getHighlightsWithOffsets(any(EuropeanaId.class), anyString(), anyInt(), any())).willReturn(
-                SOLR_EMPTY_RESPONSE
+                CompletableFuture.completedFuture(SOLR_EMPTY_RESPONSE)
         );
         // but we do return results when recordId = /x/y and query = flandre
         given(solrRepo.getHighlightsWithOffsets(eq(RECORDID_HAS_RESULTS), eq(QUERY_HAS_RESULTS), anyInt(), any())).willReturn(
-                SOLR_RESPONSE
+                CompletableFuture.completedFuture(SOLR_RESPONSE)
+        );
+
+        // records are indexed without page offset maps, so the entire pages are retrieved with the query above
+        given(solrRepo.getHighlightsWithPageOffsets(any(EuropeanaId.class), anyString(), anyInt(), any())).willReturn(
+                CompletableFuture.completedFuture(new SolrHighlights(SOLR_EMPTY_RESPONSE, null))
         );
+        given(solrRepo.getHighlightsWithPageOffsets(eq(RECORDID_HAS_RESULTS), eq(QUERY_HAS_RESULTS), anyInt(), any()))
+                .willReturn(CompletableFuture.completedFuture(new SolrHighlights(SOLR_RESPONSE, null)));
 
         // default no AnnoPages are available for any record
         given(fulltextRepo.getAnnoPages(any(), any(), any(), anyBoolean())).willReturn(
@@ -119,7 +131,7 @@ public class FTSearchServiceTest {
      * Load 2 AnnoPages from file
      * @return List of loaded AnnoPages containing annotations of all types
      */
-    private List<AnnoPage> loadAnnoPages() {
+    List<AnnoPage> loadAnnoPages() {
         ObjectMapper o = new ObjectMapper();
         o.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
         ClassLoader classloader = Thread.currentThread().getContextClassLoader();
@@ -154,26 +166,15 @@ public class FTSearchServiceTest {
     }
 
     /**
-     * This will mock a morphia cursor returning 2 annopages with annotations of the requested type(s).
+     * This will mock the retrieval of 2 annopages with annotations of the requested type(s).
      * This method needs to be called before calling the SearchService.searchIssue() method
      */
-    private void mockMorphiaCursor(List<AnnotationType> annoTypes){
+    void mockAnnoPages(List<AnnotationType> annoTypes){
         List<AnnoPage> filteredAnnoPages = filterByType(annoTypes);
 
-        given(morphiaCursor.hasNext())
-                // This is a bit of a hack, we know we will request hasNext() 1 extra time in the code so we should
-                // return true 3 times so we can return 2 items and after that return false
-                // However if our code changes and calls hasNext() more often or less often, this may need to be adjusted
-                .willReturn(true)
-                .willReturn(true)
-                .willReturn(true)
-                .willReturn(false);
-        given(morphiaCursor.next())
-                .willReturn(filteredAnnoPages.get(0))
-                .willReturn(filteredAnnoPages.get(1));
         given(fulltextRepo.fetchAnnoPageFromTargetId(eq(RECORDID_HAS_RESULTS.getDatasetId()), eq(RECORDID_HAS_RESULTS.getLocalId()),
                 any(), any(), anyBoolean())).willReturn(
-                morphiaCursor
+                filteredAnnoPages.subList(0, 2)
         );
     }
 
@@ -190,7 +191,7 @@ public class FTSearchServiceTest {
     @Test
     void testRetrieveResultsV2Line() throws EuropeanaApiException {
         List<AnnotationType> annoTypes = List.of(AnnotationType.LINE);
-        mockMorphiaCursor(annoTypes);
+        mockAnnoPages(annoTypes);
         String searchId = "testV2";
 
         SearchResult result = searchService.searchIssue(searchId, RECORDID_HAS_RESULTS, QUERY_HAS_RESULTS, 12, annoTypes, "2", false);
@@ -254,7 +255,7 @@ public class FTSearchServiceTest {
     @Test
     void testRetrieveResultsV3BlockLineWord() throws EuropeanaApiException {
         List<AnnotationType> annoTypes = List.of(AnnotationType.BLOCK, AnnotationType.LINE, AnnotationType.WORD);
-        mockMorphiaCursor(annoTypes);
+        mockAnnoPages(annoTypes);
         String searchId = "testV3";
 
         SearchResult result = searchService.searchIssue(searchId, RECORDID_HAS_RESULTS, QUERY_HAS_RESULTS, 12, annoTypes, "3", false);
@@ -277,7 +278,7 @@ public class FTSearchServiceTest {
     @Test
     void testMaxPageSize() throws EuropeanaApiException {
         List<AnnotationType> annoTypes = List.of(AnnotationType.BLOCK, AnnotationType.LINE, AnnotationType.WORD);
-        mockMorphiaCursor(annoTypes);
+        mockAnnoPages(annoTypes);
         int maxPageSize = 2;
 
         SearchResult result = searchService.searchIssue(null, RECORDID_HAS_RESULTS, QUERY_HAS_RESULTS, maxPageSize, annoTypes, "2", true);
@@ -294,7 +295,7 @@ public class FTSearchServiceTest {
     @Test
     void testRetrieveResultsNoHitsForWordAnnotations() throws EuropeanaApiException {
         List<AnnotationType> annoTypes = List.of(AnnotationType.WORD);
-        mockMorphiaCursor(annoTypes);
+        mockAnnoPages(annoTypes);
 
         SearchResult result = searchService.searchIssue(null, RECORDID_HAS_RESULTS, QUERY_HAS_RESULTS, 12, annoTypes, "3", true);
         assertNotNull(result.getHits());
@@ -0,0 +1,139 @@
+package eu.europeana.fulltext.search.service;
+
+import eu.europeana.api.commons.error.EuropeanaApiException;
+import eu.europeana.fulltext.search.model.query.SolrHits;
+import eu.europeana.fulltext.util.PageOffsetMap;
+import org.apache.solr.common.util.NamedList;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests parsing the hit offsets returned by Solr's unified highlighter
+ */
+public class HighlightOffsetsTest {
+
+    private static final int[] EXPECTED = {934, 1346};
+
+    @Test
+    public void testOffsetsAsList() {
+        // this is what Solr's javabin response contains, padded with 0 values
+        List<Integer> offsets = new ArrayList<>(List.of(95987, 96399, 0, 0, 0, 0, 0, 0));
+        assertArrayEquals(EXPECTED, FTSearchService.getOffsets(offsets, 95053));
+    }
+
+    @Test
+    public void testOffsetsAsArray() {
+        assertArrayEquals(EXPECTED, FTSearchService.getOffsets(new int[]{95987, 96399, 0}, 95053));
+    }
+
+    @Test
+    public void testOffsetsAsText() {
+        assertArrayEquals(EXPECTED, FTSearchService.getOffsets("[95987, 96399, 0, 0]", 95053));
+        assertArrayEquals(new int[0], FTSearchService.getOffsets("[]", 95053));
+    }
+
+    private static Map<String, List<String>> highlight(List<String> snippets, List<Integer> fragmentStarts,
+                                                      List<List<Integer>> hitStarts, List<List<Integer>> hitEnds) {
+        List<NamedList<Object>> passages = new ArrayList<>();
+        for (int i = 0; i < snippets.size(); i++) {
+            NamedList<Object> passage = new NamedList<>();
+            passage.add("startOffsetUtf16", fragmentStarts.get(i));
+            passage.add("matchStartsUtf16", hitStarts.get(i));
+            passage.add("matchEndsUtf16", hitEnds.get(i));
+            passages.add(passage);
+        }
+        NamedList<Object> result = new NamedList<>();
+        result.add("snippets", snippets);
+        result.add("passages", passages);
+        // same (raw) type as returned by Solr's QueryResponse.getHighlighting()
+        return Map.of("fulltext.en", (List<String>) (Object) result);
+    }
+
+    /**
+     * Hits in small fragments should get the same image and page offsets as hits in snippets with the entire page
+     */
+    @Test
+    public void testFragmentsSameAsEntirePages() throws EuropeanaApiException {
+        String image1 = "https://example.org/image/1.jpg";
+        String image2 = "https://example.org/image/2.jpg";
+        String page1 = "{" + image1 + "} The quick brown fox jumps over the lazy dog. A fox is quick.";
+        String page2 = "{" + image2 + "} Another page about a fox.";
+        String field = page1 + " " + page2;
+        int page2Start = page1.length() + 1;
+
+        int fox1 = field.indexOf("fox");
+        int fox2 = field.indexOf("fox", fox1 + 1);
+        int fox3 = field.indexOf("fox", page2Start);
+        SolrHits entirePages = FTSearchService.parseHighlightData(highlight(List.of(page1, page2),
+                List.of(0, page2Start), List.of(List.of(fox1, fox2, 0), List.of(fox3, 0)),
+                List.of(List.of(fox1 + 3, fox2 + 3, 0), List.of(fox3 + 3, 0))), null, null);
+
+        int fragment1 = field.indexOf("The quick");
+        int fragment2 = field.indexOf("A fox");
+        PageOffsetMap pageOffsets = PageOffsetMap.decode(PageOffsetMap.encode(List.of(image1, image2),
+                List.of(page1, page2)));
+        SolrHits fragments = FTSearchService.parseHighlightData(highlight(
+                List.of(field.substring(fragment1, fragment1 + 44), field.substring(fragment2)),
+                List.of(fragment1, fragment2), List.of(List.of(fox1, 0), List.of(fox2, fox3, 0)),
+                List.of(List.of(fox1 + 3, 0), List.of(fox2 + 3, fox3 + 3, 0))), pageOffsets, null);
+
+        assertEquals(3, entirePages.size());
+        assertEquals(entirePages.size(), fragments.size());
+        for (int i = 0; i < entirePages.size(); i++) {
+            assertEquals(entirePages.getImageId(entirePages.getPageOfHit(i)),
+                    fragments.getImageId(fragments.getPageOfHit(i)));
+            assertEquals(entirePages.getStart(i), fragments.getStart(i));
+            assertEquals(entirePages.getEnd(i), fragments.getEnd(i));
+            assertEquals("hit " + fragments.getStart(i) + "," + fragments.getEnd(i) + " with text 'fox'",
+                    fragments.getDebugInfo(i));
+        }
+        assertEquals(image2, fragments.getImageId(fragments.getPageOfHit(2)));
+    }
+
+    /**
+     * Nearby hits in a snippet should be merged into one hit, also when more than 2 hits are close together. Hits are
+     * grouped by page in the order the pages were found.
+     */
+    @Test
+    public void testMergeAndGroupHits() throws EuropeanaApiException {
+        String image1 = "https://example.org/image/1.jpg";
+        String image2 = "https://example.org/image/2.jpg";
+        String page1 = "{" + image1 + "} fox fox fox and then a lot of text about a red fox";
+        String page2 = "{" + image2 + "} no foxes here";
+        String field = page1 + " " + page2;
+        int textStart = image1.length() + 3;
+
+        List<Integer> starts = new ArrayList<>();
+        List<Integer> ends = new ArrayList<>();
+        int from = 0;
+        int fox;
+        while ((fox = page1.indexOf("fox", from)) >= 0) {
+            starts.add(fox);
+            ends.add(fox + 3);
+            from = fox + 3;
+        }
+        int foxes = field.indexOf("foxes");
+        // page 1 is returned twice (e.g. for multiple languages) but its hits are grouped together
+        SolrHits hits = FTSearchService.parseHighlightData(highlight(List.of(page1, page2, page1),
+                List.of(0, page1.length() + 1, 0), List.of(starts, List.of(foxes), starts),
+                List.of(ends, List.of(foxes + 5), ends)), null, null);
+
+        assertEquals(2, hits.getPageCount());
+        assertEquals(List.of(image1, image2), hits.getImageIds());
+        assertEquals(5, hits.size());
+        assertEquals(0, hits.getFirstHit(0));
+        assertEquals(4, hits.getEndHit(0));
+        // the first 3 hits are merged, the last one is too far away
+        assertEquals(starts.get(0) - textStart, hits.getStart(0));
+        assertEquals(ends.get(2) - textStart, hits.getEnd(0));
+        assertEquals(starts.get(3) - textStart, hits.getStart(1));
+        assertEquals(image2, hits.getImageId(hits.getPageOfHit(4)));
+        assertEquals("no foxes here", hits.getPageText(1));
+    }
+}
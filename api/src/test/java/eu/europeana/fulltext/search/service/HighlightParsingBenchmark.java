@@ -0,0 +1,123 @@
+package eu.europeana.fulltext.search.service;
+
+import eu.europeana.api.commons.error.EuropeanaApiException;
+import org.apache.commons.text.StringEscapeUtils;
+import org.apache.solr.common.util.NamedList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares parsing a Solr highlighting response with 100 snippets the way FTSearchService used to do it (converting
+ * the offsets to text and parsing them again) with the current parsing.
+ * <p>
+ * Run with: mvn -pl api test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=eu.europeana.fulltext.search.service.HighlightParsingBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HighlightParsingBenchmark {
+
+    private static final int SNIPPETS = 100;
+    private static final int HITS_PER_SNIPPET = 8;
+    private static final int TEXT_LENGTH = 3000;
+
+    private Map<String, List<String>> highlights;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        List<String> snippets = new ArrayList<>();
+        List<NamedList<Object>> passages = new ArrayList<>();
+        long issueOffset = 0;
+        for (int i = 0; i < SNIPPETS; i++) {
+            String imageId = "https://iiif.europeana.eu/image/ABC/presentation_images/node-3/image/BNL/1774/07/15/"
+                    + String.format("%05d", i) + "/full/full/0/default.jpg";
+            StringBuilder text = new StringBuilder("{").append(imageId).append("} ");
+            while (text.length() < TEXT_LENGTH) {
+                text.append("word").append(random.nextInt(1000)).append(' ');
+            }
+            snippets.add(text.toString());
+
+            // like Solr's javabin response, offsets are lists of Integers
+            List<Integer> starts = new ArrayList<>();
+            List<Integer> ends = new ArrayList<>();
+            for (int j = 0; j < HITS_PER_SNIPPET; j++) {
+                int start = (int) issueOffset + imageId.length() + 3 + j * (TEXT_LENGTH / HITS_PER_SNIPPET);
+                starts.add(start);
+                ends.add(start + 7);
+            }
+            NamedList<Object> passage = new NamedList<>();
+            passage.add("startOffsetUtf16", (int) issueOffset);
+            passage.add("matchStartsUtf16", starts);
+            passage.add("matchEndsUtf16", ends);
+            passages.add(passage);
+            issueOffset += text.length() + 1;
+        }
+        NamedList<Object> fieldHighlights = new NamedList<>();
+        fieldHighlights.add("snippets", snippets);
+        fieldHighlights.add("passages", passages);
+        // like QueryResponse.getHighlighting(), the value is declared as a list of strings
+        highlights = Map.of("fulltext.fr", (List<String>) (Object) fieldHighlights);
+    }
+
+    @Benchmark
+    public void legacyParsing(Blackhole blackhole) {
+        NamedList<Object> fieldHighlights = (NamedList<Object>) (Object) highlights.values().iterator().next();
+        List<String> snippets = (List<String>) fieldHighlights.get("snippets");
+        List<NamedList<Object>> passages = (List<NamedList<Object>>) fieldHighlights.get("passages");
+        for (int i = 0; i < snippets.size(); i++) {
+            String snippetTxt = snippets.get(i);
+            int imageIdEnd = snippetTxt.indexOf('}');
+            blackhole.consume(StringEscapeUtils.unescapeXml(snippetTxt.substring(1, imageIdEnd)));
+            blackhole.consume(snippetTxt.substring(imageIdEnd + 2));
+            NamedList<Object> passage = passages.get(i);
+            long textStartOffset = Long.valueOf(passage.get("startOffsetUtf16").toString()) + imageIdEnd + 2;
+            blackhole.consume(legacyGetOffsets(passage.get("matchStartsUtf16").toString(), textStartOffset));
+            blackhole.consume(legacyGetOffsets(passage.get("matchEndsUtf16").toString(), textStartOffset));
+        }
+    }
+
+    private static List<Integer> legacyGetOffsets(String numberArrayTxt, long textStartOffset) {
+        String numbersTxt = numberArrayTxt.substring(1, numberArrayTxt.length() - 1);
+        String[] numbers = numbersTxt.split(", ");
+        List<Integer> result = new ArrayList<>();
+        for (String number : numbers) {
+            Long value = Long.parseLong(number) - textStartOffset;
+            if (value >= 0) {
+                result.add(value.intValue());
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    public void currentParsing(Blackhole blackhole) throws EuropeanaApiException {
+        blackhole.consume(FTSearchService.parseHighlightData(highlights, null));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(HighlightParsingBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,41 @@
+package eu.europeana.fulltext.search.service;
+
+import eu.europeana.fulltext.search.model.response.Debug;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SearchMetricsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SearchMetrics metrics = new SearchMetrics(meterRegistry);
+
+    /**
+     * Test if durations are exported per phase and added to the debug information, summing phases that are recorded
+     * per page
+     */
+    @Test
+    public void testRecord() {
+        Debug debug = new Debug();
+        long start = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(5);
+        metrics.record(SearchMetrics.SOLR, start, debug);
+        metrics.record(SearchMetrics.DECODE, start, debug);
+        metrics.record(SearchMetrics.DECODE, start, debug);
+        metrics.record(SearchMetrics.SERIALIZATION, start, null);
+
+        Timer decode = meterRegistry.get(SearchMetrics.TIMER_NAME).tag("phase", SearchMetrics.DECODE).timer();
+        assertEquals(2, decode.count());
+        assertEquals(1, meterRegistry.get(SearchMetrics.TIMER_NAME).tag("phase", SearchMetrics.SERIALIZATION)
+                .timer().count());
+
+        assertEquals(List.of(SearchMetrics.SOLR, SearchMetrics.DECODE), List.copyOf(debug.getTimings().keySet()));
+        assertTrue(debug.getTimings().get(SearchMetrics.SOLR) >= 5);
+        assertTrue(debug.getTimings().get(SearchMetrics.DECODE) >= 10);
+    }
+}
@@ -0,0 +1,156 @@
+package eu.europeana.fulltext.search.service;
+
+import eu.europeana.api.commons.error.EuropeanaApiException;
+import eu.europeana.fulltext.search.config.SearchConfig;
+import org.apache.solr.common.util.NamedList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compares storing, merging and grouping the hits of a Solr highlighting response with 100 snippets as one object per
+ * hit (the way FTSearchService used to do it) with the parallel arrays of SolrHits. The GC profiler is enabled, so
+ * the gc.alloc.rate.norm result shows the number of bytes allocated per search.
+ * <p>
+ * Run with: mvn -pl api test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=eu.europeana.fulltext.search.service.SolrHitsBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SolrHitsBenchmark {
+
+    private static final int SNIPPETS = 100;
+    private static final int HITS_PER_SNIPPET = 16;
+    private static final int TEXT_LENGTH = 3000;
+
+    private Map<String, List<String>> highlights;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        List<String> snippets = new ArrayList<>();
+        List<NamedList<Object>> passages = new ArrayList<>();
+        long issueOffset = 0;
+        for (int i = 0; i < SNIPPETS; i++) {
+            String imageId = "https://iiif.europeana.eu/image/ABC/presentation_images/node-3/image/BNL/1774/07/15/"
+                    + String.format("%05d", i) + "/full/full/0/default.jpg";
+            StringBuilder text = new StringBuilder("{").append(imageId).append("} ");
+            while (text.length() < TEXT_LENGTH) {
+                text.append("word").append(random.nextInt(1000)).append(' ');
+            }
+            snippets.add(text.toString());
+
+            // pairs of hits that are close together, so half of the hits are merged
+            List<Integer> starts = new ArrayList<>();
+            List<Integer> ends = new ArrayList<>();
+            for (int j = 0; j < HITS_PER_SNIPPET / 2; j++) {
+                int start = (int) issueOffset + imageId.length() + 3 + j * (TEXT_LENGTH / HITS_PER_SNIPPET) * 2;
+                starts.add(start);
+                ends.add(start + 7);
+                starts.add(start + 8);
+                ends.add(start + 15);
+            }
+            NamedList<Object> passage = new NamedList<>();
+            passage.add("startOffsetUtf16", (int) issueOffset);
+            passage.add("matchStartsUtf16", starts);
+            passage.add("matchEndsUtf16", ends);
+            passages.add(passage);
+            issueOffset += text.length() + 1;
+        }
+        NamedList<Object> fieldHighlights = new NamedList<>();
+        fieldHighlights.add("snippets", snippets);
+        fieldHighlights.add("passages", passages);
+        // like QueryResponse.getHighlighting(), the value is declared as a list of strings
+        highlights = Map.of("fulltext.fr", (List<String>) (Object) fieldHighlights);
+    }
+
+    /**
+     * Hit as it used to be stored, one object per hit
+     */
+    private static final class ObjectHit {
+        private final String imageId;
+        private final String highlight;
+        private final int textStart;
+        private final int start;
+        private int end;
+
+        private ObjectHit(String imageId, String highlight, int textStart, int start, int end) {
+            this.imageId = imageId;
+            this.highlight = highlight;
+            this.textStart = textStart;
+            this.start = start;
+            this.end = end;
+        }
+
+        private String getImageId() {
+            return imageId;
+        }
+    }
+
+    @Benchmark
+    public void objectPerHit(Blackhole blackhole) {
+        NamedList<Object> fieldHighlights = (NamedList<Object>) (Object) highlights.values().iterator().next();
+        List<String> snippets = (List<String>) fieldHighlights.get("snippets");
+        List<NamedList<Object>> passages = (List<NamedList<Object>>) fieldHighlights.get("passages");
+        List<ObjectHit> hits = new ArrayList<>();
+        for (int i = 0; i < snippets.size(); i++) {
+            String snippetTxt = snippets.get(i);
+            int imageIdEnd = snippetTxt.indexOf('}');
+            String imageId = snippetTxt.substring(1, imageIdEnd);
+            int textStart = imageIdEnd + 2;
+            NamedList<Object> passage = passages.get(i);
+            long textStartOffset = ((Number) passage.get("startOffsetUtf16")).longValue() + textStart;
+            int[] starts = FTSearchService.getOffsets(passage.get("matchStartsUtf16"), textStartOffset);
+            int[] ends = FTSearchService.getOffsets(passage.get("matchEndsUtf16"), textStartOffset);
+            ObjectHit previousHit = null;
+            for (int j = 0; j < starts.length; j++) {
+                ObjectHit newHit = new ObjectHit(imageId, snippetTxt, textStart, starts[j], ends[j]);
+                if (previousHit != null && previousHit.imageId.equals(newHit.imageId)
+                        && newHit.start - previousHit.end <= SearchConfig.HIT_MERGE_MAX_DISTANCE) {
+                    previousHit.end = newHit.end;
+                } else {
+                    hits.add(newHit);
+                }
+                previousHit = newHit;
+            }
+        }
+        blackhole.consume(hits.stream()
+                .collect(Collectors.groupingBy(ObjectHit::getImageId, LinkedHashMap::new, Collectors.toList())));
+    }
+
+    @Benchmark
+    public void parallelArrays(Blackhole blackhole) throws EuropeanaApiException {
+        blackhole.consume(FTSearchService.parseHighlightData(highlights, null));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SolrHitsBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -1,13 +1,17 @@
 package eu.europeana.fulltext.search.web;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import eu.europeana.fulltext.AnnotationType;
 import eu.europeana.fulltext.api.FTApplication;
 import eu.europeana.fulltext.api.config.FTSettings;
 import eu.europeana.fulltext.search.exception.InvalidParameterException;
 import eu.europeana.fulltext.search.model.query.EuropeanaId;
+import eu.europeana.fulltext.search.model.response.collection.CollectionSearchItem;
+import eu.europeana.fulltext.search.model.response.collection.CollectionSearchResult;
 import eu.europeana.fulltext.search.model.response.v2.SearchResultV2;
 import eu.europeana.fulltext.search.model.response.v3.SearchResultV3;
 import eu.europeana.fulltext.search.service.FTSearchService;
+import eu.europeana.fulltext.search.service.SearchMetrics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,16 +21,22 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static eu.europeana.iiif.IIIFDefinitions.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ContextConfiguration(classes = FTApplication.class)
@@ -41,6 +51,9 @@ public class FTSearchControllerTest {
     @MockBean
     private FTSearchService searchService;
 
+    @MockBean
+    private SearchMetrics searchMetrics;
+
     @MockBean
     private FTSettings ftSettings;
 
@@ -59,18 +72,37 @@ public class FTSearchControllerTest {
         SearchResultV3 testResultV3 = new SearchResultV3(TEST_SEARCH_ID, false);
 
         // return SearchResultV2 when requestVersion is 2
-        when(searchService.searchIssue(anyString(), any(EuropeanaId.class), anyString(), anyInt(), any(List.class),
+        when(searchService.searchIssueAsync(anyString(), any(EuropeanaId.class), anyString(), anyInt(), any(List.class),
                 eq("2"), anyBoolean())).thenReturn(
-                        testResultV2
+                        CompletableFuture.completedFuture(testResultV2)
         );
 
+        CollectionSearchResult collectionResult = new CollectionSearchResult(TEST_SEARCH_ID, false);
+        collectionResult.setTotal(1);
+        collectionResult.setNext("AoE/test");
+        collectionResult.addItem(new CollectionSearchItem("/9200355/BibliographicResource_3000096341989",
+                List.of("een <em>ster</em> aan de hemel")));
+        when(searchService.searchCollection(anyString(), anyString(), any(), anyInt(), anyString(), any(List.class),
+                anyBoolean())).thenReturn(collectionResult);
+        when(ftSettings.getSearchCollectionFacets()).thenReturn(List.of("TYPE", "COUNTRY"));
+
         // return SearchResultV3 when requestVersion is 3
-        when(searchService.searchIssue(anyString(), any(EuropeanaId.class), anyString(), anyInt(), any(List.class),
+        when(searchService.searchIssueAsync(anyString(), any(EuropeanaId.class), anyString(), anyInt(), any(List.class),
                 eq("3"), anyBoolean())).thenReturn(
-                        testResultV3
+                        CompletableFuture.completedFuture(testResultV3)
         );
     }
 
+    /**
+     * Searching inside an issue is handled asynchronously, so we need to dispatch the async result
+     */
+    private ResultActions performAsync(MockHttpServletRequestBuilder requestBuilder) throws Exception {
+        MvcResult result = mockMvc.perform(requestBuilder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(result));
+    }
+
     @Test
     public void shouldReturnErrorOnInvalidQueryPageSize() throws Exception {
         mockMvc.perform(get("/presentation/9200355/BibliographicResource_3000096341989/search")
@@ -98,7 +130,7 @@ public class FTSearchControllerTest {
 
     @Test
     public void shouldReturnV2ResponseWhenAcceptHeaderContainsProfile() throws Exception {
-        mockMvc.perform(get("/presentation/9200355/BibliographicResource_3000096341989/search")
+        performAsync(get("/presentation/9200355/BibliographicResource_3000096341989/search")
                 .accept("application/json;profile=\"" + MEDIA_TYPE_IIIF_V2 + "\"")
                 .param("q", "testQuery"))
                 .andExpect(status().isOk())
@@ -108,7 +140,7 @@ public class FTSearchControllerTest {
 
     @Test
     public void shouldReturnV3ResponseWhenAcceptHeaderContainsProfile() throws Exception {
-        mockMvc.perform(get("/presentation/9200355/BibliographicResource_3000096341989/search")
+        performAsync(get("/presentation/9200355/BibliographicResource_3000096341989/search")
                 .accept("application/json;profile=\"" + MEDIA_TYPE_IIIF_V3 + "\"")
                 .param("q", "testQuery"))
                 .andExpect(status().isOk())
@@ -118,7 +150,7 @@ public class FTSearchControllerTest {
 
     @Test
     public void shouldReturnV2ResponseWhenNoFormatSpecified() throws Exception {
-        mockMvc.perform(get("/presentation/9200355/BibliographicResource_3000096341989/search")
+        performAsync(get("/presentation/9200355/BibliographicResource_3000096341989/search")
                 .param("q", "testQuery"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.@id").value(TEST_SEARCH_ID))
@@ -127,7 +159,7 @@ public class FTSearchControllerTest {
 
     @Test
     public void shouldReturnV3ResponseIfFormatIs3() throws Exception {
-        mockMvc.perform(get("/presentation/9200355/BibliographicResource_3000096341989/search")
+        performAsync(get("/presentation/9200355/BibliographicResource_3000096341989/search")
                 .param("q", "testQuery")
                 .param("format", "3"))
                 .andExpect(status().isOk())
@@ -135,6 +167,35 @@ public class FTSearchControllerTest {
                 .andExpect(jsonPath("$.type").value("AnnotationPage"));
     }
 
+    @Test
+    public void shouldReturnCollectionSearchResult() throws Exception {
+        mockMvc.perform(get("/presentation/search")
+                .param("q", "ster")
+                .param("facet", "TYPE"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(TEST_SEARCH_ID))
+                .andExpect(jsonPath("$.total").value(1))
+                .andExpect(jsonPath("$.next").value("AoE/test"))
+                .andExpect(jsonPath("$.items[0].id").value("/9200355/BibliographicResource_3000096341989"))
+                .andExpect(jsonPath("$.items[0].snippets[0]").value("een <em>ster</em> aan de hemel"));
+    }
+
+    @Test
+    public void shouldReturnErrorOnInvalidCollectionSearchRows() throws Exception {
+        mockMvc.perform(get("/presentation/search")
+                .param("q", "ster")
+                .param("rows", "101"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void shouldReturnErrorOnUnsupportedFacet() throws Exception {
+        mockMvc.perform(get("/presentation/search")
+                .param("q", "ster")
+                .param("facet", "edm_webResource"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void testValidateTextGranularityNoValue() throws InvalidParameterException {
         List<AnnotationType> defaultAnnoTypes = new ArrayList<>(){{
@@ -142,7 +203,8 @@ public class FTSearchControllerTest {
         }};
         when(ftSettings.getDefaultSearchTextGranularity()).thenReturn(defaultAnnoTypes);
 
-        FTSearchController searchController = new FTSearchController(searchService, ftSettings);
+        FTSearchController searchController = new FTSearchController(searchService, searchMetrics, ftSettings,
+                new ObjectMapper());
         List<AnnotationType> annoTypes = searchController.validateTextGranularity(null);
         assertEquals(defaultAnnoTypes, annoTypes);
     }
@@ -2,14 +2,18 @@ package eu.europeana.fulltext.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import dev.morphia.annotations.*;
+import eu.europeana.fulltext.AnnotationType;
+import eu.europeana.fulltext.util.LazyAnnotationList;
 import org.bson.types.ObjectId;
 import org.springframework.lang.Nullable;
 
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Created by luthien on 31/05/2018.
@@ -18,7 +22,12 @@ import java.util.List;
  * Resource base URL: https://www.europeana.eu/api/fulltext/
  */
 @Entity(value = "AnnoPage", useDiscriminator = false)
-@Indexes(@Index(fields = {@Field("dsId"), @Field("lcId"), @Field("pgId"), @Field("lang")}, options = @IndexOptions(unique = true)))
+@Indexes({
+    @Index(fields = {@Field("dsId"), @Field("lcId"), @Field("pgId"), @Field("lang")}, options = @IndexOptions(unique = true)),
+    // metadata index, holds all fields needed for existence checks and generating ETags so these don't read the annotations
+    @Index(fields = {@Field("dsId"), @Field("lcId"), @Field("pgId"), @Field("lang"), @Field("translation"),
+        @Field("deleted"), @Field("modified")})
+})
 public class AnnoPage {
 
     @Id
@@ -41,6 +50,14 @@ public class AnnoPage {
     @Reference
     private Resource res;
 
+    /**
+     * Alternative storage of the annotations, grouped by dcType (e.g. 'L' -> all line annotations). When this is used
+     * the ans field is not stored, so that requests for only some annotation types don't have to read all annotations.
+     * The annotations are merged into the ans list when they are requested.
+     */
+    @JsonIgnore
+    private Map<String, List<Annotation>> ansByType;
+
     /**
      * This field used during AnooPage info method. While fetching the annopages all the unique Dc types of
      * all the annotations (ans) are fetched via a mongo query and are mapped explicitly to this field.
@@ -138,9 +155,57 @@ public class AnnoPage {
     }
 
     public List<Annotation> getAns() {
+        if (ansByType != null) {
+            ans = mergeAnnotationsByType(ans, ansByType);
+            ansByType = null;
+        }
         return ans;
     }
 
+    /**
+     * Merges annotations stored per dcType into one list, in their original order (see {@link Annotation#getIdx()}).
+     * Annotations in the existing list are kept and come first.
+     */
+    private static List<Annotation> mergeAnnotationsByType(List<Annotation> existing,
+                                                           Map<String, List<Annotation>> annotationsByType) {
+        List<Annotation> merged = new ArrayList<>();
+        for (AnnotationType type : AnnotationType.values()) {
+            List<Annotation> annotations = annotationsByType.get(String.valueOf(type.getAbbreviation()));
+            if (annotations != null) {
+                merged.addAll(annotations);
+            }
+        }
+        // stable sort, so annotations without idx stay ordered by type
+        merged.sort(Comparator.comparing(Annotation::getIdx, Comparator.nullsLast(Comparator.naturalOrder())));
+
+        List<Annotation> result = new ArrayList<>();
+        if (existing != null) {
+            result.addAll(existing);
+        }
+        result.addAll(merged);
+        return result;
+    }
+
+    /**
+     * Returns the annotation with the provided id. If the annotations are backed by the raw AnnoPage document, only
+     * that annotation is decoded.
+     *
+     * @param anId id of the annotation
+     * @return the annotation, or null if this AnnoPage doesn't contain an annotation with this id
+     */
+    public Annotation getAnnotation(String anId) {
+        List<Annotation> annotations = getAns();
+        if (annotations instanceof LazyAnnotationList) {
+            return ((LazyAnnotationList) annotations).findByAnId(anId);
+        }
+        for (Annotation annotation : annotations) {
+            if (anId.equals(annotation.getAnId())) {
+                return annotation;
+            }
+        }
+        return null;
+    }
+
     public void setAns(List<Annotation> ans) {
         this.ans = ans;
     }
@@ -1,8 +1,10 @@
 package eu.europeana.fulltext.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import dev.morphia.annotations.Embedded;
 import dev.morphia.annotations.Transient;
 import eu.europeana.fulltext.AnnotationType;
+import eu.europeana.fulltext.util.PackedPositions;
 
 import java.util.List;
 
@@ -20,6 +22,20 @@ public class Annotation {
     private Integer      to;
     private List<Target> tgs;
 
+    /**
+     * From, to and targets in packed binary form (see {@link PackedPositions}). Only set for annotations that are
+     * stored in the compact format; these fields are then unpacked when one of them is first accessed.
+     */
+    @JsonIgnore
+    private byte[] pos;
+
+    /**
+     * Position of the annotation on its AnnoPage. Only stored when annotations are grouped by type, so the original
+     * order can be restored when the groups are merged again.
+     */
+    @JsonIgnore
+    private Integer idx;
+
     /**
      * Temp field added for database migration
      */
@@ -104,30 +120,67 @@ public class Annotation {
         this.lang = lang;
     }
 
+    public Integer getIdx() {
+        return idx;
+    }
+
+    public void setIdx(Integer idx) {
+        this.idx = idx;
+    }
+
     public Integer getFrom() {
+        unpackPositions();
         return from;
     }
 
     public void setFrom(Integer from) {
+        unpackPositions();
         this.from = from;
     }
 
     public Integer getTo() {
+        unpackPositions();
         return to;
     }
 
     public void setTo(Integer to) {
+        unpackPositions();
         this.to = to;
     }
 
     public List<Target> getTgs() {
+        unpackPositions();
         return tgs;
     }
 
     public void setTgs(List<Target> tgs) {
+        unpackPositions();
         this.tgs = tgs;
     }
 
+    /**
+     * Replaces from, to and targets with their packed binary form, which is a lot smaller when stored. The getters
+     * keep returning the original values.
+     */
+    public void packPositions() {
+        if (pos == null && (from != null || to != null || tgs != null)) {
+            pos = PackedPositions.pack(from, to, tgs);
+            from = null;
+            to = null;
+            tgs = null;
+        }
+    }
+
+    private void unpackPositions() {
+        if (pos != null) {
+            PackedPositions positions = PackedPositions.unpack(pos);
+            from = positions.getFrom();
+            to = positions.getTo();
+            tgs = positions.getTgs();
+            pos = null;
+        }
+    }
+
     public boolean isMedia() {
         return (getDcType() == AnnotationType.MEDIA.getAbbreviation() ||
                 getDcType() == AnnotationType.CAPTION.getAbbreviation());
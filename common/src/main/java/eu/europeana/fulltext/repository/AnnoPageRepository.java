@@ -6,6 +6,7 @@ import static dev.morphia.aggregation.experimental.expressions.Expressions.field
 import static dev.morphia.aggregation.experimental.expressions.Expressions.value;
 import static dev.morphia.query.experimental.filters.Filters.eq;
 import static dev.morphia.query.experimental.filters.Filters.in;
+import static dev.morphia.query.experimental.filters.Filters.or;
 import static dev.morphia.query.experimental.updates.UpdateOperators.set;
 import static dev.morphia.query.experimental.updates.UpdateOperators.unset;
 import static eu.europeana.fulltext.util.MorphiaUtils.*;
@@ -26,9 +27,9 @@ import dev.morphia.aggregation.experimental.stages.Projection;
 import dev.morphia.query.FindOptions;
 import dev.morphia.query.Sort;
 import dev.morphia.query.experimental.filters.Filter;
-import dev.morphia.query.internal.MorphiaCursor;
 import eu.europeana.fulltext.AnnotationType;
 import eu.europeana.fulltext.entity.AnnoPage;
+import eu.europeana.fulltext.entity.Annotation;
 import eu.europeana.fulltext.entity.Resource;
 import eu.europeana.fulltext.exception.DatabaseQueryException;
 import eu.europeana.fulltext.util.MorphiaUtils;
@@ -38,9 +39,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 import org.apache.commons.lang3.StringUtils;
 import org.bson.Document;
+import org.bson.RawBsonDocument;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
@@ -55,9 +58,34 @@ public class AnnoPageRepository {
     @Value("${spring.profiles.active:}")
     private String activeProfileString;
 
+    /**
+     * If true, annotations are stored grouped by dcType (in the ansByType field) instead of in one list. Read methods
+     * support both storage layouts.
+     */
+    @Value("${annopage.annotationsByType.enabled:false}")
+    private boolean storeAnnotationsByType;
+
+    /**
+     * If true, AnnoPages with annotations grouped by dcType may exist even though new AnnoPages aren't stored that way
+     * (e.g. after running the splitAnnotationsByTypeJob, or after storeAnnotationsByType was switched off). Lookups by
+     * annotation id only check the grouped annotations if this or storeAnnotationsByType is true.
+     */
+    @Value("${annopage.annotationsByType.existing:false}")
+    private boolean existingAnnotationsByType;
+
+    /**
+     * If true, the offsets and targets of annotations are stored in packed binary form (see
+     * {@link eu.europeana.fulltext.util.PackedPositions}). Read methods support both formats.
+     */
+    @Value("${annopage.packedPositions.enabled:false}")
+    private boolean storePackedPositions;
+
     @Autowired
     protected Datastore datastore;
 
+    @Autowired
+    protected AnnoPageResourceResolver resourceResolver;
+
     public long count() {
         return datastore.getMapper().getCollection(AnnoPage.class).countDocuments();
     }
@@ -76,7 +104,7 @@ public class AnnoPageRepository {
 
   /**
    * Find and return AnnoPages that match the given parameters.
-   * Also includes deprecated AnnoPages.
+   * Also includes deprecated AnnoPages. If the Resource is retrieved, all Resources are fetched with a single query.
    * @param datasetId ID of the dataset
    * @param localId ID of the parent of the Annopage object
    * @param projectionFields fields to populate in the result
@@ -85,16 +113,15 @@ public class AnnoPageRepository {
   public List<AnnoPage> findAnnoPages(
       String datasetId, String localId, List<String> projectionFields) {
 
-    FindOptions findOptions = new FindOptions();
+    Aggregation<AnnoPage> query =
+        datastore.aggregate(AnnoPage.class).match(eq(DATASET_ID, datasetId), eq(LOCAL_ID, localId));
     if (projectionFields != null && !projectionFields.isEmpty()) {
-      findOptions.projection().include(projectionFields.toArray(String[]::new));
+      Projection projection = Projection.project();
+      projectionFields.forEach(projection::include);
+      query = query.project(projection);
     }
 
-    return datastore
-        .find(AnnoPage.class)
-        .filter(eq(DATASET_ID, datasetId), eq(LOCAL_ID, localId))
-        .iterator(findOptions)
-        .toList();
+    return resourceResolver.toAnnoPages(query.execute(Document.class).toList());
   }
 
     /**
@@ -123,46 +150,42 @@ public class AnnoPageRepository {
     }
 
     /**
-     * Check if an  AnnoPage exists that matches the given parameters using DBCollection.count().
+     * Check if an  AnnoPage exists that matches the given parameters. Answered from the AnnoPage metadata index, see
+     * {@link #findIndexedStatus(Filter...)}
      *
      * @param datasetId ID of the dataset
      * @param localId   ID of the parent of the Annopage object
      * @param pageId    index (page number) of the Annopage object
-     * @param includeDeprecated
+     * @param includeDeprecated indicates whether deprecated AnnoPages should be included in result
      * @return true if yes, otherwise false
      */
     public boolean existsByPageId(String datasetId, String localId, String pageId,
         boolean includeDeprecated) {
-    List<Filter> filters =
-        new ArrayList<>(
-            Arrays.asList(eq(DATASET_ID, datasetId), eq(LOCAL_ID, localId), eq(PAGE_ID, pageId)));
-
-    if (!includeDeprecated) {
-      filters.add(eq(DELETED, null));
-    }
-
-    return datastore.find(AnnoPage.class).filter(filters.toArray(new Filter[0])).count() > 0;
+    return findIndexedStatus(eq(DATASET_ID, datasetId), eq(LOCAL_ID, localId), eq(PAGE_ID, pageId))
+        .stream()
+        .anyMatch(annoPage -> includeDeprecated || annoPage.isActive());
     }
 
+  /**
+   * Check if an original AnnoPage (ie. not a translation) exists that matches the given parameters. Answered from the
+   * AnnoPage metadata index, see {@link #findIndexedStatus(Filter...)}
+   *
+   * @param datasetId ID of the dataset
+   * @param localId   ID of the parent of the Annopage object
+   * @param pageId    index (page number) of the Annopage object
+   * @param includeDeprecated indicates whether deprecated AnnoPages should be included in result
+   * @return true if yes, otherwise false
+   */
   public boolean existsOriginalByPageId(
       String datasetId, String localId, String pageId, boolean includeDeprecated) {
-    List<Filter> filters =
-        new ArrayList<>(
-            Arrays.asList(
-                eq(DATASET_ID, datasetId),
-                eq(LOCAL_ID, localId),
-                eq(PAGE_ID, pageId),
-                eq(TRANSLATION, null)));
-
-    if (!includeDeprecated) {
-      filters.add(eq(DELETED, null));
-    }
-
-    return datastore.find(AnnoPage.class).filter(filters.toArray(new Filter[0])).count() > 0;
+    return findIndexedStatus(eq(DATASET_ID, datasetId), eq(LOCAL_ID, localId), eq(PAGE_ID, pageId))
+        .stream()
+        .anyMatch(annoPage -> !annoPage.isTranslation() && (includeDeprecated || annoPage.isActive()));
   }
 
     /**
-     * Check if an  AnnoPage exists that matches the given parameters using DBCollection.count().
+     * Check if an  AnnoPage exists that matches the given parameters. Answered from the AnnoPage metadata index, see
+     * {@link #findIndexedStatus(Filter...)}
      *
      * @param datasetId ID of the dataset
      * @param localId   ID of the parent of the Annopage object
@@ -181,11 +204,30 @@ public class AnnoPageRepository {
             filter.add(eq(LANGUAGE, lang));
         }
 
-        if(!includeDeprecated){
-            filter.add(eq(DELETED, null));
-        }
-        return datastore.find(AnnoPage.class).filter(filter.toArray(new Filter[0])).count()
-            > 0L;
+        return findIndexedStatus(filter.toArray(new Filter[0]))
+            .stream()
+            .anyMatch(annoPage -> includeDeprecated || annoPage.isActive());
+    }
+
+    /**
+     * Retrieves only the translation and deleted fields of the AnnoPages that match the filters (at most one per
+     * language). The filters should only use fields of the AnnoPage metadata index, so the query is covered by that
+     * index and no documents are read.
+     * <p>
+     * Callers check translation and deleted on the results instead of adding {field: null} filters to the query,
+     * because Mongo versions before 7.3 need to fetch the documents to evaluate those.
+     *
+     * @param filters filters on metadata index fields
+     * @return AnnoPages with only translation and deleted set
+     */
+    private List<AnnoPage> findIndexedStatus(Filter... filters) {
+        return datastore.find(AnnoPage.class)
+            .filter(filters)
+            .iterator(new FindOptions()
+                .projection().include(TRANSLATION, DELETED)
+                // exclude _id, so the query can be answered from the index
+                .projection().exclude(DOC_ID))
+            .toList();
     }
 
     /**
@@ -200,7 +242,7 @@ public class AnnoPageRepository {
     public boolean existsWithAnnoId(String datasetId, String localId, String annoId) {
         return datastore.find(AnnoPage.class).filter(eq(DATASET_ID, datasetId),
             eq(LOCAL_ID, localId),
-            eq(ANNOTATIONS_ID, annoId)).count() > 0;
+            annotationIdFilter(annoId)).count() > 0;
     }
 
     /**
@@ -234,7 +276,7 @@ public class AnnoPageRepository {
         Aggregation<AnnoPage> query = datastore.aggregate(AnnoPage.class)
             .match(filters.toArray(new Filter[0]));
         query = filterTextGranularity(query, annoTypes);
-        return query.execute(AnnoPage.class).tryNext();
+        return resourceResolver.toLazyAnnoPage(query.execute(RawBsonDocument.class).tryNext());
     }
 
     /**
@@ -266,7 +308,7 @@ public class AnnoPageRepository {
         Aggregation<AnnoPage> query = datastore.aggregate(AnnoPage.class)
             .match(filters.toArray(new Filter[0]));
         query = filterTextGranularity(query, annoTypes);
-        return query.execute(AnnoPage.class).tryNext();
+        return resourceResolver.toLazyAnnoPage(query.execute(RawBsonDocument.class).tryNext());
     }
 
     /**
@@ -295,12 +337,125 @@ public class AnnoPageRepository {
         Aggregation<AnnoPage> query = datastore.aggregate(AnnoPage.class)
             .match(filters.toArray(new Filter[0]));
         query = filterTextGranularity(query, annoTypes);
-        return query.execute(AnnoPage.class).tryNext();
+        return resourceResolver.toLazyAnnoPage(query.execute(RawBsonDocument.class).tryNext());
+    }
+
+
+    /**
+     * Find and return only the metadata of an AnnoPage (dsId, lcId, pgId, lang, translation, modified and deleted).
+     * Annotations and Resource are not retrieved. All these fields are part of the AnnoPage metadata index, so this
+     * can be used to generate ETags and answer conditional requests without reading the annotations from disk.
+     * <p>
+     * Like {@link #findIndexedStatus(Filter...)}, only fields of the index prefix are used as filter and translation
+     * and deleted are checked on the results, so the query stays covered by the index.
+     *
+     * @param datasetId ID of the dataset
+     * @param localId   ID of the parent of the Annopage object
+     * @param pageId    index (page number) of the Annopage object
+     * @param lang      language, if empty the original AnnoPage (ie. translation=false) is retrieved
+     * @param includeDeprecated whether deprecated AnnoPages should be included in result
+     * @return AnnoPage with only metadata fields set, or null if none found
+     */
+    public AnnoPage findMetadataByPageId(String datasetId, String localId, String pageId, String lang,
+        boolean includeDeprecated) {
+        List<Filter> filters =
+            new ArrayList<>(
+                Arrays.asList(eq(DATASET_ID, datasetId),
+                    eq(LOCAL_ID, localId),
+                    eq(PAGE_ID, pageId)));
+
+        boolean original = StringUtils.isEmpty(lang);
+        if (!original) {
+            filters.add(eq(LANGUAGE, lang));
+        }
+
+        // without language there is one result per language, of which we need the original
+        return datastore.find(AnnoPage.class)
+            .filter(filters.toArray(new Filter[0]))
+            .iterator(new FindOptions().projection()
+                .include(DATASET_ID, LOCAL_ID, PAGE_ID, LANGUAGE, TRANSLATION, MODIFIED, DELETED)
+                // exclude _id, so the query can be answered from the index
+                .projection().exclude(DOC_ID))
+            .toList()
+            .stream()
+            .filter(annoPage -> !original || !annoPage.isTranslation())
+            .filter(annoPage -> includeDeprecated || annoPage.isActive())
+            .findFirst()
+            .orElse(null);
+    }
+
+    /**
+     * Find and return only the metadata (dsId, lcId, pgId, lang, translation, modified and deleted) of multiple
+     * AnnoPages of a record, for generating an ETag before the annotations are retrieved. Like
+     * {@link #findMetadataByPageId(String, String, String, String, boolean)} the query is covered by the AnnoPage
+     * metadata index. Deprecated AnnoPages are not included.
+     *
+     * @param datasetId ID of the dataset
+     * @param localId   ID of the parent of the Annopage objects
+     * @param pageIds   indexes (page numbers) of the Annopage objects, if empty all AnnoPages of the record are returned
+     * @param lang      language, if empty the original AnnoPages (ie. translation=false) are retrieved
+     * @return AnnoPages with only metadata fields set, in no particular order
+     */
+    public List<AnnoPage> findMetadataByPageIds(String datasetId, String localId, List<String> pageIds,
+        String lang) {
+        List<Filter> filters =
+            new ArrayList<>(
+                Arrays.asList(eq(DATASET_ID, datasetId),
+                    eq(LOCAL_ID, localId)));
+
+        if (!pageIds.isEmpty()) {
+            filters.add(in(PAGE_ID, pageIds));
+        }
+
+        boolean original = StringUtils.isEmpty(lang);
+        if (!original) {
+            filters.add(eq(LANGUAGE, lang));
+        }
+
+        return datastore.find(AnnoPage.class)
+            .filter(filters.toArray(new Filter[0]))
+            .iterator(new FindOptions().projection()
+                .include(DATASET_ID, LOCAL_ID, PAGE_ID, LANGUAGE, TRANSLATION, MODIFIED, DELETED)
+                // exclude _id, so the query can be answered from the index
+                .projection().exclude(DOC_ID))
+            .toList()
+            .stream()
+            .filter(annoPage -> !original || !annoPage.isTranslation())
+            .filter(AnnoPage::isActive)
+            .collect(Collectors.toList());
     }
 
+    /**
+     * Find and return only the metadata (dsId, lcId, pgId, lang, translation, modified and deleted) of the AnnoPage
+     * that contains an annotation with the given id. Annotations and Resource are not retrieved.
+     *
+     * @param datasetId ID of the dataset
+     * @param localId   ID of the parent of the Annopage object
+     * @param annoId    ID of the annotation
+     * @param includeDeprecated whether deprecated AnnoPages should be included in result
+     * @return AnnoPage with only metadata fields set, or null if none found
+     */
+    public AnnoPage findMetadataByAnnoId(String datasetId, String localId, String annoId, boolean includeDeprecated) {
+        List<Filter> filter =
+            new ArrayList<>(
+                Arrays.asList(eq(DATASET_ID, datasetId),
+                    eq(LOCAL_ID, localId),
+                    annotationIdFilter(annoId)));
+
+        if (!includeDeprecated) {
+            filter.add(eq(DELETED, null));
+        }
+
+        return datastore.find(AnnoPage.class)
+            .filter(filter.toArray(new Filter[0]))
+            .iterator(new FindOptions().limit(1).projection()
+                .include(DATASET_ID, LOCAL_ID, PAGE_ID, LANGUAGE, TRANSLATION, MODIFIED, DELETED))
+            .tryNext();
+    }
 
     /**
-     * Find and return AnnoPage that contains an annotation that matches the given parameters
+     * Find and return AnnoPage that contains an annotation that matches the given parameters. The annotations of the
+     * returned AnnoPage are decoded when accessed, see {@link AnnoPage#getAnnotation(String)}
      *
      * @param datasetId ID of the dataset
      * @param localId   ID of the parent of the Annopage object
@@ -313,31 +468,32 @@ public class AnnoPageRepository {
             new ArrayList<>(
                 Arrays.asList(eq(DATASET_ID, datasetId),
                     eq(LOCAL_ID, localId),
-                    eq(ANNOTATIONS_ID, annoId)));
+                    annotationIdFilter(annoId)));
 
         if(!includeDeprecated){
             filter.add(eq(DELETED, null));
         }
 
-        return datastore.find(AnnoPage.class).filter(filter.toArray(new Filter[0])).first();
+        // annotations are decoded lazily, so only the requested annotation is decoded
+        return resourceResolver.toLazyAnnoPage(datastore.aggregate(AnnoPage.class)
+            .match(filter.toArray(new Filter[0]))
+            .limit(1)
+            .execute(RawBsonDocument.class)
+            .tryNext());
     }
 
     /**
-     * Find and return AnnoPages that contains an annotation that matches the given parameters.
-     * <p>
-     * Returns a {@link MorphiaCursor} that can be iterated on to obtain matching AnnoPages. The cursor must be closed
-     * after iteration is completed.
-     * <p>
-     * The cursor returned by this method must be closed
+     * Find and return AnnoPages that contains an annotation that matches the given parameters. The Resources of all
+     * AnnoPages are retrieved with a single query.
      *
      * @param datasetId ID of the dataset
      * @param localId   ID of the parent of the Annopage object
      * @param targetIds IDs of the target(s) / image(s)
      * @param annoTypes type of annotations that should be retrieved, if null or empty all annotations of that annopage
      *                  will be retrieved
-     * @return MorphiaCursor containing AnnoPage entries.
+     * @return List of AnnoPage objects
      */
-    public MorphiaCursor<AnnoPage> findByTargetId(
+    public List<AnnoPage> findByTargetId(
         String datasetId, String localId, List<String> targetIds, List<AnnotationType> annoTypes, boolean includeDeprecated) {
 
         List<Filter> filter =
@@ -353,9 +509,56 @@ public class AnnoPageRepository {
         Aggregation<AnnoPage> query = datastore.aggregate(AnnoPage.class)
             .match(filter.toArray(new Filter[0]));
         query = filterTextGranularity(query, annoTypes);
-        return query.execute(AnnoPage.class);
+        return resourceResolver.toAnnoPages(query.execute(Document.class).toList());
     }
 
+    /**
+     * Find and return all AnnoPages of a record with one of the provided page ids in a single query. When no language
+     * is provided only original AnnoPages are retrieved. Only annotations that match the specified text granularity
+     * values are retrieved from the data store.
+     * <p>
+     * Resources are not dereferenced per AnnoPage (as Morphia does), but are all retrieved in a single extra query
+     *
+     * @param datasetId ID of the dataset
+     * @param localId   ID of the parent of the Annopage object
+     * @param pageIds   indexes (page numbers) of the AnnoPage objects, if empty all AnnoPages of the record are
+     *                  retrieved
+     * @param annoTypes dcType values to filter annotations with
+     * @param lang      optional, language of the AnnoPages
+     * @param includeDeprecated whether deprecated AnnoPages should be included in result
+     * @param limit     maximum number of AnnoPages to return, 0 means no limit
+     * @return List of AnnoPage objects, in no particular order
+     */
+    public List<AnnoPage> findByPageIds(String datasetId, String localId, List<String> pageIds,
+        List<AnnotationType> annoTypes, String lang, boolean includeDeprecated, int limit) {
+        List<Filter> filters =
+            new ArrayList<>(
+                Arrays.asList(eq(DATASET_ID, datasetId),
+                    eq(LOCAL_ID, localId)));
+
+        if (!pageIds.isEmpty()) {
+            filters.add(in(PAGE_ID, pageIds));
+        }
+
+        if (StringUtils.isEmpty(lang)) {
+            filters.add(eq(TRANSLATION, null));
+        } else {
+            filters.add(eq(LANGUAGE, lang));
+        }
+
+        if (!includeDeprecated) {
+            filters.add(eq(DELETED, null));
+        }
+
+        Aggregation<AnnoPage> query = datastore.aggregate(AnnoPage.class)
+            .match(filters.toArray(new Filter[0]));
+        query = filterTextGranularity(query, annoTypes);
+        if (limit > 0) {
+            query = query.limit(limit);
+        }
+        // retrieve raw documents, so Morphia doesn't load the referenced Resource for each AnnoPage separately
+        return resourceResolver.toAnnoPages(query.execute(Document.class).toList());
+    }
 
     /**
      * Updates the given AnnoPage.
@@ -368,9 +571,11 @@ public class AnnoPageRepository {
         MongoCollection<AnnoPage> collection =
             datastore.getMapper().getCollection(AnnoPage.class);
 
-        Document updateDoc = new Document(ANNOTATIONS, annoPage.getAns())
-                .append(MODIFIED, annoPage.getModified())
+        Document updateDoc = new Document(MODIFIED, annoPage.getModified())
                 .append(SOURCE, annoPage.getSource());
+        // while updating, annopage should not be deprecated
+        Document unsetDoc = new Document(DELETED, "");
+        appendAnnotations(updateDoc, unsetDoc, annoPage.getAns());
 
         // if annopage is deprecated then update resource ref as well
         if (existingAnnoPage.isDeprecated()) {
@@ -389,7 +594,7 @@ public class AnnoPageRepository {
                     LANGUAGE,
                     annoPage.getLang())),
             new Document(SET, updateDoc)
-                  .append(UNSET, new Document(DELETED, ""))); // while updating, annopage should not be deprecated
+                  .append(UNSET, unsetDoc));
     }
 
     /**
@@ -438,7 +643,7 @@ public class AnnoPageRepository {
 
         List<String> dcTypes = getDcTypes(annoTypes);
         // _id implicitly included in projection
-        return annoPageQuery.project(Projection.project()
+        Projection projection = Projection.project()
             .include(DATASET_ID)
             .include(LOCAL_ID)
             .include(PAGE_ID)
@@ -453,7 +658,46 @@ public class AnnoPageRepository {
             .include(ANNOTATIONS,
                  filter(field(ANNOTATIONS),
                         ArrayExpressions.in(value("$$annotation.dcType"),
-                        value(dcTypes))).as("annotation")));
+                        value(dcTypes))).as("annotation"));
+        // AnnoPages that store annotations per type only need the requested types, these aren't filtered
+        for (String dcType : dcTypes) {
+            projection.include(annotationsByTypeField(dcType.charAt(0)));
+        }
+        return annoPageQuery.project(projection);
+    }
+
+    /**
+     * Creates a filter that matches AnnoPages containing an annotation with the given id. Annotations stored per type
+     * are only checked if such AnnoPages can exist, as the $or over all types makes these lookups slower.
+     */
+    private Filter annotationIdFilter(String annoId) {
+        if (!storeAnnotationsByType && !existingAnnotationsByType) {
+            return eq(ANNOTATIONS_ID, annoId);
+        }
+        List<Filter> filters = new ArrayList<>();
+        filters.add(eq(ANNOTATIONS_ID, annoId));
+        for (AnnotationType type : AnnotationType.values()) {
+            filters.add(eq(annotationsByTypeField(type.getAbbreviation()) + "." + AN_ID, annoId));
+        }
+        return or(filters.toArray(new Filter[0]));
+    }
+
+    /**
+     * Adds the annotations to the provided update document, either as one list or grouped per type depending on the
+     * configured storage layout. The field for the other storage layout is unset. Annotation positions are packed if
+     * that is configured.
+     */
+    private void appendAnnotations(Document setDoc, Document unsetDoc, List<Annotation> annotations) {
+        if (storePackedPositions && annotations != null) {
+            annotations.forEach(Annotation::packPositions);
+        }
+        if (storeAnnotationsByType) {
+            setDoc.append(ANNOTATIONS_BY_TYPE, groupAnnotationsByType(annotations));
+            unsetDoc.append(ANNOTATIONS, "");
+        } else {
+            setDoc.append(ANNOTATIONS, annotations);
+            unsetDoc.append(ANNOTATIONS_BY_TYPE, "");
+        }
     }
 
     /**
@@ -482,7 +726,7 @@ public class AnnoPageRepository {
                         .include(DATASET_ID, LOCAL_ID, PAGE_ID, LANGUAGE, MODIFIED, DELETED, SOURCE); // EA-3216, include source field
 
         if (fetchAnnotations) {
-            findOptions.projection().include(TRANSLATION, ANNOTATIONS); // EA-3457 add translation and annotations in the projections
+            findOptions.projection().include(TRANSLATION, ANNOTATIONS, ANNOTATIONS_BY_TYPE); // EA-3457 add translation and annotations in the projections
         }
 
         return datastore
@@ -513,14 +757,22 @@ public class AnnoPageRepository {
                 .include(SOURCE) // EA-3216, include source field
                 .include(TRANSLATION); // EA-3457 add translation
 
-        // add projection to fetch unique set of dctypes available in all the annotations
+        // add projection to fetch unique set of dctypes available in all the annotations. For AnnoPages that store
+        // annotations per type, the dcTypes are the keys of the ansByType field
+        Document annotations = new Document(MONGO_IF_NULL, Arrays.asList(MONGO_ANNOTATIONS, Arrays.asList()));
+        Document annotationTypeKeys = new Document(MONGO_MAP,
+                new Document(MONGO_INPUT, new Document(MONGO_OBJECT_TO_ARRAY,
+                        new Document(MONGO_IF_NULL, Arrays.asList(MONGO_ANNOTATIONS_BY_TYPE, new Document()))))
+                        .append(MONGO_IN_EXPR, "$$this.k"));
         projection.include(TEXT_GRANULARITY,
+                SetExpressions.setUnion(
                     reduce(
-                            Expressions.value(MONGO_ANNOTATIONS),
+                            Expressions.value(annotations),
                             Expressions.value(Arrays.asList()),
                             SetExpressions.setUnion(
                                     Expressions.value("$$value"),
-                                    Expressions.value(Arrays.asList("$$this.dcType")))));
+                                    Expressions.value(Arrays.asList("$$this.dcType")))),
+                    Expressions.value(annotationTypeKeys)));
 
         Aggregation<AnnoPage> query = datastore.aggregate(AnnoPage.class)
                 .match(createFilterToGetAnnoPage(datasetId, localId, pageId, null, includeDeprecated).toArray(new Filter[0]))
@@ -571,12 +823,15 @@ public class AnnoPageRepository {
                 .append(LOCAL_ID, annoPage.getLcId())
                 .append(PAGE_ID, annoPage.getPgId())
                 .append(TARGET_ID, annoPage.getTgtId())
-                .append(ANNOTATIONS, annoPage.getAns())
                 .append(MODIFIED, now)
                 .append(LANGUAGE, annoPage.getLang())
                 // link resources for new and deprecated documents
                 .append(RESOURCE, new DBRef(RESOURCE_COL, res.getId()));
 
+        // unset deleted field always when we add/update annopage
+        Document unsetDoc = new Document(DELETED, "");
+        appendAnnotations(updateDoc, unsetDoc, annoPage.getAns());
+
         // source isn't always set. Prevent null from being saved in db
         if (annoPage.getSource() != null) {
             updateDoc.append(SOURCE, annoPage.getSource());
@@ -600,8 +855,7 @@ public class AnnoPageRepository {
                     PAGE_ID,
                     annoPage.getPgId())),
             new Document(SET, updateDoc)
-                  // unset deleted field always when we add/update annopage
-                 .append(UNSET, new Document(DELETED, "")),
+                 .append(UNSET, unsetDoc),
             UPSERT_OPTS);
     }
 
@@ -618,6 +872,7 @@ public class AnnoPageRepository {
             set(MODIFIED, now),set(DELETED, now),
             // only remove embedded annotations and Resource
             unset(ANNOTATIONS),
+            unset(ANNOTATIONS_BY_TYPE),
             unset(RESOURCE))
         .execute()
         .getModifiedCount();
@@ -632,6 +887,7 @@ public class AnnoPageRepository {
                 set(MODIFIED, now),set(DELETED, now),
                 // only remove embedded annotations and Resource
                 unset(ANNOTATIONS),
+                unset(ANNOTATIONS_BY_TYPE),
                 unset(RESOURCE))
             .execute(MULTI_UPDATE_OPTS)
             .getModifiedCount();
@@ -683,6 +939,7 @@ public class AnnoPageRepository {
                 set(MODIFIED, now),set(DELETED, now),
                 // only remove embedded annotations and Resource
                 unset(ANNOTATIONS),
+                unset(ANNOTATIONS_BY_TYPE),
                 unset(RESOURCE))
             .execute(MULTI_UPDATE_OPTS)
             .getModifiedCount();
@@ -718,12 +975,17 @@ public class AnnoPageRepository {
      * @return list of resource ids
      */
     public List<String> getResourceIdsForAnnoPageSources(List<? extends String> sources) {
-        List<AnnoPage> annoPages = datastore.find(AnnoPage.class)
-            .filter(in(SOURCE, sources))
-            .iterator(new FindOptions().projection().include(RESOURCE))
-            .toList();
-
-        return annoPages.stream().map(a -> a.getRes().getId()).collect(Collectors.toList());
+        // only read the references, so the Resources themselves aren't retrieved
+        List<Document> annoPageDocs = datastore.getMapper().getCollection(AnnoPage.class)
+            .withDocumentClass(Document.class)
+            .find(new Document(SOURCE, new Document(MONGO_IN, sources)))
+            .projection(new Document(RESOURCE, 1))
+            .into(new ArrayList<>());
+
+        return annoPageDocs.stream()
+            .map(doc -> (String) AnnoPageResourceResolver.getResourceRefId(doc.get(RESOURCE)))
+            .filter(Objects::nonNull)
+            .collect(Collectors.toList());
     }
 
   private List<Filter> createFilterToGetAnnoPage(String datasetId, String localId, String pageId, String lang, boolean includeDeprecated) {
@@ -0,0 +1,154 @@
+package eu.europeana.fulltext.repository;
+
+import static dev.morphia.query.experimental.filters.Filters.in;
+import static eu.europeana.fulltext.util.MorphiaUtils.Fields.DATASET_ID;
+import static eu.europeana.fulltext.util.MorphiaUtils.Fields.DELETED;
+import static eu.europeana.fulltext.util.MorphiaUtils.Fields.DOC_ID;
+import static eu.europeana.fulltext.util.MorphiaUtils.Fields.LANGUAGE;
+import static eu.europeana.fulltext.util.MorphiaUtils.Fields.LOCAL_ID;
+import static eu.europeana.fulltext.util.MorphiaUtils.Fields.MODIFIED;
+import static eu.europeana.fulltext.util.MorphiaUtils.Fields.MONGO_REF_ID;
+import static eu.europeana.fulltext.util.MorphiaUtils.Fields.PAGE_ID;
+import static eu.europeana.fulltext.util.MorphiaUtils.Fields.RESOURCE;
+import static eu.europeana.fulltext.util.MorphiaUtils.Fields.SOURCE;
+import static eu.europeana.fulltext.util.MorphiaUtils.Fields.TARGET_ID;
+import static eu.europeana.fulltext.util.MorphiaUtils.Fields.TRANSLATION;
+
+import com.mongodb.DBRef;
+import dev.morphia.Datastore;
+import eu.europeana.fulltext.entity.AnnoPage;
+import eu.europeana.fulltext.entity.Annotation;
+import eu.europeana.fulltext.entity.Resource;
+import eu.europeana.fulltext.util.LazyAnnotationList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DecoderContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Maps AnnoPage documents to AnnoPage objects and sets their referenced Resource.
+ * <p>
+ * When Morphia decodes an AnnoPage it loads the referenced Resource with a separate query, so retrieving N AnnoPages
+ * results in N+1 queries. Instead, repositories can retrieve the AnnoPages as plain documents and let this class
+ * fetch all referenced Resources with a single $in query.
+ */
+@Repository
+public class AnnoPageResourceResolver {
+
+    /**
+     * Maximum number of Resource ids in one $in query, to keep the query document well below the Mongo size limit
+     */
+    private static final int MAX_IDS_PER_QUERY = 1000;
+
+    /**
+     * AnnoPage fields that are decoded immediately when creating an AnnoPage from a raw document
+     */
+    private static final List<String> METADATA_FIELDS = List.of(DOC_ID, DATASET_ID, LOCAL_ID, PAGE_ID, TARGET_ID,
+            MODIFIED, LANGUAGE, SOURCE, DELETED, TRANSLATION);
+
+    @Autowired
+    private Datastore datastore;
+
+    /**
+     * Maps the provided AnnoPage documents to AnnoPage objects, retrieving all referenced Resources with one query
+     * (per 1000 Resources).
+     *
+     * @param annoPageDocs AnnoPage documents, the documents' res field is removed while mapping
+     * @return list of AnnoPage objects with their Resource set, in the same order as the documents
+     */
+    public List<AnnoPage> toAnnoPages(List<Document> annoPageDocs) {
+        List<AnnoPage> annoPages = new ArrayList<>(annoPageDocs.size());
+        Map<AnnoPage, Object> resourceIds = new IdentityHashMap<>();
+        for (Document annoPageDoc : annoPageDocs) {
+            // decode without the reference, so Morphia doesn't retrieve the Resource itself
+            Object resourceId = getResourceRefId(annoPageDoc.remove(RESOURCE));
+            AnnoPage annoPage = datastore.getMapper().fromDocument(AnnoPage.class, annoPageDoc);
+            if (resourceId != null) {
+                resourceIds.put(annoPage, resourceId);
+            }
+            annoPages.add(annoPage);
+        }
+
+        if (!resourceIds.isEmpty()) {
+            Map<Object, Resource> resources = findResources(new HashSet<>(resourceIds.values()));
+            resourceIds.forEach((annoPage, resourceId) -> annoPage.setRes(resources.get(resourceId)));
+        }
+        return annoPages;
+    }
+
+    /**
+     * Maps the provided raw AnnoPage document to an AnnoPage object. Only the metadata fields are decoded; the
+     * annotations are decoded when they are accessed (see {@link LazyAnnotationList}) and the referenced Resource is
+     * retrieved with one query.
+     *
+     * @param annoPageDoc raw AnnoPage document, can be null
+     * @return AnnoPage object, or null if the document is null
+     */
+    public AnnoPage toLazyAnnoPage(RawBsonDocument annoPageDoc) {
+        if (annoPageDoc == null) {
+            return null;
+        }
+        BsonDocument metadata = new BsonDocument();
+        for (String field : METADATA_FIELDS) {
+            BsonValue value = annoPageDoc.get(field);
+            if (value != null) {
+                metadata.put(field, value);
+            }
+        }
+        AnnoPage annoPage = datastore.getMapper().getCodecRegistry().get(AnnoPage.class)
+                .decode(new BsonDocumentReader(metadata), DecoderContext.builder().build());
+        annoPage.setAns(LazyAnnotationList.of(annoPageDoc,
+                datastore.getMapper().getCodecRegistry().get(Annotation.class)));
+
+        Object resourceId = getResourceRefId(annoPageDoc.get(RESOURCE));
+        if (resourceId != null) {
+            annoPage.setRes(findResources(Set.of(resourceId)).get(resourceId));
+        }
+        return annoPage;
+    }
+
+    private Map<Object, Resource> findResources(Set<Object> resourceIds) {
+        Map<Object, Resource> result = new HashMap<>(resourceIds.size() * 2);
+        List<Object> ids = new ArrayList<>(resourceIds);
+        for (int i = 0; i < ids.size(); i += MAX_IDS_PER_QUERY) {
+            List<Object> batch = ids.subList(i, Math.min(i + MAX_IDS_PER_QUERY, ids.size()));
+            for (Resource resource : datastore.find(Resource.class).filter(in(DOC_ID, batch)).iterator().toList()) {
+                result.put(resource.getId(), resource);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param resourceRef value of the res field, a DBRef that's either decoded as such, as a plain Document or as a
+     *                    BsonDocument
+     * @return id of the referenced Resource, or null if there is no reference
+     */
+    static Object getResourceRefId(Object resourceRef) {
+        if (resourceRef instanceof DBRef) {
+            return ((DBRef) resourceRef).getId();
+        }
+        if (resourceRef instanceof Document) {
+            return ((Document) resourceRef).get(MONGO_REF_ID);
+        }
+        if (resourceRef instanceof BsonDocument) {
+            BsonValue id = ((BsonDocument) resourceRef).get(MONGO_REF_ID);
+            if (id != null && id.isString()) {
+                return id.asString().getValue();
+            }
+            return id;
+        }
+        return null;
+    }
+}
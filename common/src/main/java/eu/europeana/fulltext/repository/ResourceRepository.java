@@ -4,6 +4,7 @@ import com.mongodb.bulk.BulkWriteResult;
 import com.mongodb.client.model.UpdateOneModel;
 import com.mongodb.client.model.WriteModel;
 import dev.morphia.Datastore;
+import dev.morphia.query.FindOptions;
 import eu.europeana.fulltext.entity.AnnoPage;
 import eu.europeana.fulltext.entity.Resource;
 import eu.europeana.fulltext.exception.DatabaseQueryException;
@@ -11,6 +12,7 @@ import eu.europeana.fulltext.util.MorphiaUtils;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import org.apache.commons.lang3.StringUtils;
 import org.bson.Document;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -85,6 +87,25 @@ public class ResourceRepository {
             .count() > 0;
     }
 
+    /**
+     * Check if a Resource exists that matches the given parameters, without retrieving its value.
+     * @param datasetId ID of the associated dataset
+     * @param localId   ID of the associated Annopage parent object
+     * @param pageId    ID of the associated AnnoPage page
+     * @param lang      language of the associated AnnoPage document, if empty the original Resource is checked
+     * @return true if yes, otherwise false
+     */
+    public boolean existsByPageId(String datasetId, String localId, String pageId, String lang) {
+        return datastore.find(Resource.class)
+            .filter(
+                eq(DATASET_ID, datasetId),
+                eq(LOCAL_ID, localId),
+                eq(PAGE_ID, pageId),
+                StringUtils.isEmpty(lang) ? eq(TRANSLATION, null) : eq(LANGUAGE, lang))
+            .iterator(new FindOptions().limit(1).projection().include(DOC_ID))
+            .tryNext() != null;
+    }
+
     /**
      * Saves a Resource to the database
      *
@@ -0,0 +1,191 @@
+package eu.europeana.fulltext.util;
+
+import eu.europeana.fulltext.entity.AnnoPage;
+import eu.europeana.fulltext.entity.Annotation;
+import eu.europeana.fulltext.entity.Resource;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * Compact table with the annotations of an AnnoPage (id, type, text offsets and targets), stored in Solr next to the
+ * fulltext of a record. This allows searching inside a record and mapping the hits to annotations without reading
+ * AnnoPages from Mongo.
+ * <p>
+ * Every target (image) of a record has its own Solr field, see {@link #getSolrField(String)}. Each value of that field
+ * is one encoded AnnoPage (an original or a translation of the page).
+ * <p>
+ * Format: a version byte, the page id, language and target id (as varint length + UTF-8 bytes), a flags byte
+ * (bit 0 = translation) and the number of annotations. Per annotation the dcType, a flags byte (bit 0 = anId is an
+ * MD5 hash stored as 16 bytes, bit 1 = lang present, bit 2 = motiv present), the anId, optional lang and motiv, and the
+ * offsets and targets packed with {@link PackedPositions}. The result is Base64 encoded, so it can be stored in a plain
+ * string field.
+ */
+public final class AnnotationOffsetTable {
+
+    /**
+     * Prefix of the Solr (dynamic) fields that hold the annotation tables of a record
+     */
+    public static final String SOLR_FIELD_PREFIX = "fulltext_annotations.";
+
+    private static final int VERSION = 1;
+
+    private static final int TRANSLATION = 1;
+
+    private static final int HASH_ID = 1;
+    private static final int LANG = 1 << 1;
+    private static final int MOTIV = 1 << 2;
+
+    private static final int HASH_ID_LENGTH = 32;
+    private static final String HEX = "0123456789abcdef";
+
+    private AnnotationOffsetTable() {
+        // private constructor to prevent instantiation
+    }
+
+    /**
+     * @param targetId target id (image url) of an AnnoPage
+     * @return name of the Solr field that holds the annotation tables of all AnnoPages with this target
+     */
+    public static String getSolrField(String targetId) {
+        return SOLR_FIELD_PREFIX + DigestUtils.md5Hex(targetId);
+    }
+
+    /**
+     * Encodes the annotations of an AnnoPage
+     *
+     * @param annoPage AnnoPage to encode, the dsId, lcId and Resource are not included
+     * @return Base64 encoded annotation table
+     */
+    public static String encode(AnnoPage annoPage) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+        out.write(VERSION);
+        writeString(out, annoPage.getPgId());
+        writeString(out, annoPage.getLang());
+        writeString(out, annoPage.getTgtId());
+        out.write(annoPage.isTranslation() ? TRANSLATION : 0);
+
+        List<Annotation> annotations = annoPage.getAns();
+        PackedPositions.writeVarInt(out, annotations.size());
+        for (Annotation annotation : annotations) {
+            boolean hashId = isHash(annotation.getAnId());
+            out.write(annotation.getDcType());
+            out.write((hashId ? HASH_ID : 0) | (annotation.getLang() == null ? 0 : LANG)
+                    | (annotation.getMotiv() == null ? 0 : MOTIV));
+            if (hashId) {
+                writeHash(out, annotation.getAnId());
+            } else {
+                writeString(out, annotation.getAnId());
+            }
+            if (annotation.getLang() != null) {
+                writeString(out, annotation.getLang());
+            }
+            if (annotation.getMotiv() != null) {
+                writeString(out, annotation.getMotiv());
+            }
+            byte[] positions = PackedPositions.pack(annotation.getFrom(), annotation.getTo(), annotation.getTgs());
+            PackedPositions.writeVarInt(out, positions.length);
+            out.write(positions, 0, positions.length);
+        }
+        return Base64.getEncoder().encodeToString(out.toByteArray());
+    }
+
+    /**
+     * Decodes an annotation table into an AnnoPage
+     *
+     * @param encoded   Base64 encoded annotation table
+     * @param datasetId dataset id of the record
+     * @param localId   local id of the record
+     * @param text      fulltext of the page, set as value of the AnnoPage's Resource
+     * @return AnnoPage with its annotations and a Resource with the provided text
+     */
+    public static AnnoPage decode(String encoded, String datasetId, String localId, String text) {
+        byte[] bytes = Base64.getDecoder().decode(encoded);
+        if (bytes[0] != VERSION) {
+            throw new IllegalArgumentException("Unsupported annotation table version " + bytes[0]);
+        }
+        int[] position = {1};
+        String pageId = readString(bytes, position);
+        String lang = readString(bytes, position);
+        String targetId = readString(bytes, position);
+        boolean translation = (bytes[position[0]++] & TRANSLATION) != 0;
+
+        int count = PackedPositions.readVarInt(bytes, position);
+        List<Annotation> annotations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            char dcType = (char) bytes[position[0]++];
+            int flags = bytes[position[0]++];
+            String anId = (flags & HASH_ID) == 0 ? readString(bytes, position) : readHash(bytes, position);
+            String anLang = (flags & LANG) == 0 ? null : readString(bytes, position);
+            String motiv = (flags & MOTIV) == 0 ? null : readString(bytes, position);
+            int length = PackedPositions.readVarInt(bytes, position);
+            PackedPositions positions = PackedPositions.unpack(
+                    Arrays.copyOfRange(bytes, position[0], position[0] + length));
+            position[0] += length;
+
+            Annotation annotation = new Annotation(anId, dcType, positions.getFrom(), positions.getTo(),
+                    positions.getTgs(), anLang);
+            annotation.setMotiv(motiv);
+            annotations.add(annotation);
+        }
+
+        Resource resource = new Resource(null, lang, text, null, datasetId, localId, pageId);
+        resource.setTranslation(translation);
+        AnnoPage annoPage = new AnnoPage(datasetId, localId, pageId, targetId, lang, resource);
+        annoPage.setTranslation(translation);
+        annoPage.setAns(annotations);
+        return annoPage;
+    }
+
+    private static boolean isHash(String anId) {
+        if (anId == null || anId.length() != HASH_ID_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < HASH_ID_LENGTH; i++) {
+            if (HEX.indexOf(anId.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeHash(ByteArrayOutputStream out, String hash) {
+        for (int i = 0; i < HASH_ID_LENGTH; i += 2) {
+            out.write((HEX.indexOf(hash.charAt(i)) << 4) | HEX.indexOf(hash.charAt(i + 1)));
+        }
+    }
+
+    private static String readHash(byte[] bytes, int[] position) {
+        StringBuilder s = new StringBuilder(HASH_ID_LENGTH);
+        for (int i = 0; i < HASH_ID_LENGTH / 2; i++) {
+            int b = bytes[position[0]++] & 0xFF;
+            s.append(HEX.charAt(b >> 4)).append(HEX.charAt(b & 0xF));
+        }
+        return s.toString();
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        // length -1 is used for null
+        if (value == null) {
+            PackedPositions.writeVarInt(out, -1);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        PackedPositions.writeVarInt(out, utf8.length);
+        out.write(utf8, 0, utf8.length);
+    }
+
+    private static String readString(byte[] bytes, int[] position) {
+        int length = PackedPositions.readVarInt(bytes, position);
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(bytes, position[0], length, StandardCharsets.UTF_8);
+        position[0] += length;
+        return value;
+    }
+}
@@ -0,0 +1,132 @@
+package eu.europeana.fulltext.util;
+
+import static eu.europeana.fulltext.util.MorphiaUtils.Fields.ANNOTATIONS;
+import static eu.europeana.fulltext.util.MorphiaUtils.Fields.ANNOTATIONS_BY_TYPE;
+import static eu.europeana.fulltext.util.MorphiaUtils.Fields.AN_ID;
+import static eu.europeana.fulltext.util.MorphiaUtils.Fields.AN_INDEX;
+
+import eu.europeana.fulltext.AnnotationType;
+import eu.europeana.fulltext.entity.Annotation;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.RandomAccess;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonReader;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+
+/**
+ * Read-only list of the annotations of an AnnoPage, backed by the raw BSON of the AnnoPage document. An annotation is
+ * only decoded when it is accessed, so requests that need just one annotation don't create objects for all other
+ * annotations (and their targets) on the page.
+ * <p>
+ * Annotations are listed in the same order as {@link eu.europeana.fulltext.entity.AnnoPage#getAns()}: first those
+ * stored in the ans list, then those stored per type (in their original order). Like the entities, this list is not
+ * thread-safe.
+ */
+public class LazyAnnotationList extends AbstractList<Annotation> implements RandomAccess {
+
+    private static final DecoderContext DECODER_CONTEXT = DecoderContext.builder().build();
+
+    private final Codec<Annotation> annotationCodec;
+    private final List<BsonDocument> rawAnnotations;
+    private final Annotation[] decoded;
+
+    private LazyAnnotationList(Codec<Annotation> annotationCodec, List<BsonDocument> rawAnnotations) {
+        this.annotationCodec = annotationCodec;
+        this.rawAnnotations = rawAnnotations;
+        this.decoded = new Annotation[rawAnnotations.size()];
+    }
+
+    /**
+     * Creates a list of the annotations in the provided AnnoPage document. Only the boundaries of the annotations are
+     * read here; the annotations themselves aren't decoded.
+     *
+     * @param annoPageDoc     AnnoPage document, as retrieved from Mongo
+     * @param annotationCodec codec for decoding the annotations
+     * @return list of annotations
+     */
+    public static LazyAnnotationList of(BsonDocument annoPageDoc, Codec<Annotation> annotationCodec) {
+        List<BsonDocument> rawAnnotations = new ArrayList<>();
+        addAnnotations(rawAnnotations, annoPageDoc.get(ANNOTATIONS));
+
+        BsonValue annotationsByType = annoPageDoc.get(ANNOTATIONS_BY_TYPE);
+        if (annotationsByType != null && annotationsByType.isDocument()) {
+            List<BsonDocument> merged = new ArrayList<>();
+            for (AnnotationType type : AnnotationType.values()) {
+                addAnnotations(merged, annotationsByType.asDocument().get(String.valueOf(type.getAbbreviation())));
+            }
+            // restore the original order, annotations without idx stay ordered by type (the sort is stable)
+            int[] indexes = merged.stream().mapToInt(LazyAnnotationList::getIndex).toArray();
+            Integer[] order = new Integer[indexes.length];
+            Arrays.setAll(order, i -> i);
+            Arrays.sort(order, Comparator.comparingInt(i -> indexes[i]));
+            for (Integer i : order) {
+                rawAnnotations.add(merged.get(i));
+            }
+        }
+        return new LazyAnnotationList(annotationCodec, rawAnnotations);
+    }
+
+    private static int getIndex(BsonDocument rawAnnotation) {
+        BsonValue index = rawAnnotation.get(AN_INDEX);
+        return index != null && index.isNumber() ? index.asNumber().intValue() : Integer.MAX_VALUE;
+    }
+
+    private static void addAnnotations(List<BsonDocument> rawAnnotations, BsonValue annotations) {
+        if (annotations != null && annotations.isArray()) {
+            for (BsonValue annotation : annotations.asArray()) {
+                rawAnnotations.add(annotation.asDocument());
+            }
+        }
+    }
+
+    @Override
+    public Annotation get(int index) {
+        Annotation annotation = decoded[index];
+        if (annotation == null) {
+            annotation = decode(rawAnnotations.get(index));
+            decoded[index] = annotation;
+        }
+        return annotation;
+    }
+
+    @Override
+    public int size() {
+        return rawAnnotations.size();
+    }
+
+    /**
+     * Finds the annotation with the provided id. Only the id of the other annotations is read.
+     *
+     * @param anId id of the annotation
+     * @return the annotation, or null if there is no annotation with this id
+     */
+    public Annotation findByAnId(String anId) {
+        for (int i = 0; i < rawAnnotations.size(); i++) {
+            BsonValue id = rawAnnotations.get(i).get(AN_ID);
+            if (id != null && id.isString() && id.asString().getValue().equals(anId)) {
+                return get(i);
+            }
+        }
+        return null;
+    }
+
+    private Annotation decode(BsonDocument rawAnnotation) {
+        BsonReader reader = rawAnnotation instanceof RawBsonDocument
+                ? new BsonBinaryReader(((RawBsonDocument) rawAnnotation).getByteBuffer().asNIO())
+                : new BsonDocumentReader(rawAnnotation);
+        try {
+            return annotationCodec.decode(reader, DECODER_CONTEXT);
+        } finally {
+            reader.close();
+        }
+    }
+}
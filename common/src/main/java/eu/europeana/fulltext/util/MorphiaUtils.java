@@ -5,8 +5,13 @@ import dev.morphia.UpdateOptions;
 import dev.morphia.mapping.DiscriminatorFunction;
 import dev.morphia.mapping.MapperOptions;
 import dev.morphia.mapping.NamingStrategy;
+import eu.europeana.fulltext.entity.Annotation;
 import eu.europeana.fulltext.entity.Resource;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 public final class MorphiaUtils {
 
@@ -48,6 +53,29 @@ public final class MorphiaUtils {
         }
     }
 
+    /**
+     * @param dcType annotation type abbreviation
+     * @return name of the field that holds the annotations of this type, when annotations are stored per type
+     */
+    public static String annotationsByTypeField(char dcType) {
+        return Fields.ANNOTATIONS_BY_TYPE + "." + dcType;
+    }
+
+    /**
+     * Groups annotations by their dcType, for storing annotations per type. The position of each annotation in the
+     * provided list is set as its idx, so the original order can be restored.
+     * @param annotations annotations to group
+     * @return map with dcType as key and all annotations of that type (in their original order) as value
+     */
+    public static Map<String, List<Annotation>> groupAnnotationsByType(List<Annotation> annotations) {
+        Map<String, List<Annotation>> result = new LinkedHashMap<>();
+        for (int i = 0; i < annotations.size(); i++) {
+            Annotation annotation = annotations.get(i);
+            annotation.setIdx(i);
+            result.computeIfAbsent(String.valueOf(annotation.getDcType()), k -> new ArrayList<>()).add(annotation);
+        }
+        return result;
+    }
 
     private MorphiaUtils() {
         // private constructor to prevent instantiation
@@ -61,6 +89,7 @@ public final class MorphiaUtils {
 
         public static final String ANNOTATION   = "annotation";
         public static final String ANNOTATIONS  = "ans";
+        public static final String ANNOTATIONS_BY_TYPE = "ansByType";
         public static final String CLASSNAME    = "className";
         public static final String DATASET_ID   = "dsId";
         public static final String DOC_ID       = "_id";
@@ -74,12 +103,14 @@ public final class MorphiaUtils {
         public static final String SOURCE       = "source";
         public static final String TARGETS      = "tgs";
         public static final String AN_ID        = "anId";
+        public static final String AN_INDEX     = "idx";
         public static final String DC_TYPE      = "dcType";
         public static final String MOTIV      = "motiv";
 
         //Mongo Fields
         public static final String MONGO_AND         = "$and";
         public static final String MONGO_ANNOTATIONS = "$" + ANNOTATIONS;
+        public static final String MONGO_ANNOTATIONS_BY_TYPE = "$" + ANNOTATIONS_BY_TYPE;
         public static final String MONGO_AS          = "as";
         public static final String MONGO_COLLECTION  = "coll";
         public static final String MONGO_CONDITION   = "cond";
@@ -88,15 +119,20 @@ public final class MorphiaUtils {
         public static final String MONGO_EXPRESSION  = "$expr";
         public static final String MONGO_FILTER      = "$filter";
         public static final String MONGO_FROM        = "from";
+        public static final String MONGO_IF_NULL     = "$ifNull";
         public static final String MONGO_IN          = "$in";
+        public static final String MONGO_IN_EXPR     = "in";
         public static final String MONGO_INPUT       = "input";
         public static final String MONGO_LET         = "let";
         public static final String MONGO_LOCAL_ID    = "$" + LOCAL_ID;
         public static final String MONGO_LOOKUP      = "$lookup";
+        public static final String MONGO_MAP         = "$map";
         public static final String MONGO_MATCH       = "$match";
+        public static final String MONGO_OBJECT_TO_ARRAY = "$objectToArray";
         public static final String MONGO_PAGE_ID     = "$" + PAGE_ID;
         public static final String MONGO_PIPELINE    = "pipeline";
         public static final String MONGO_PROJECT     = "$project";
+        public static final String MONGO_REF_ID      = "$id";
         public static final String MONGO_UNIONWITH   = "$unionWith";
 
         public static final String ANNOTATIONS_DCTYPE = ANNOTATIONS + ".dcType";
@@ -0,0 +1,156 @@
+package eu.europeana.fulltext.util;
+
+import eu.europeana.fulltext.entity.Target;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary encoding of the text offsets (from, to) and targets (x, y, w, h or start, end) of an annotation.
+ * <p>
+ * Stored as separate BSON fields these values take about 70 bytes per annotation (mostly field names and type
+ * markers), which for word-level annotations is a large part of the AnnoPage collection. Packed, including the
+ * BSON binary field that holds them, they take about 22 bytes.
+ * <p>
+ * Format: a flags byte (bit 0 = from present, bit 1 = to present, bit 2 = targets present), followed by the present
+ * values. To is stored relative to from. Targets are stored as a count, followed by a flags byte per target
+ * (bit 0-5 = x, y, w, h, start, end present) and its present values. All numbers are zigzag-encoded varints, so null
+ * values are preserved and small numbers take only 1 or 2 bytes.
+ */
+public final class PackedPositions {
+
+    private static final int FROM = 1;
+    private static final int TO = 1 << 1;
+    private static final int TARGETS = 1 << 2;
+
+    private static final int TARGET_FIELDS = 6;
+
+    private final Integer from;
+    private final Integer to;
+    private final List<Target> tgs;
+
+    private PackedPositions(Integer from, Integer to, List<Target> tgs) {
+        this.from = from;
+        this.to = to;
+        this.tgs = tgs;
+    }
+
+    public Integer getFrom() {
+        return from;
+    }
+
+    public Integer getTo() {
+        return to;
+    }
+
+    public List<Target> getTgs() {
+        return tgs;
+    }
+
+    /**
+     * Packs the provided offsets and targets
+     *
+     * @param from start offset of the annotation text, can be null
+     * @param to   end offset of the annotation text, can be null
+     * @param tgs  annotation targets, can be null
+     * @return packed bytes
+     */
+    public static byte[] pack(Integer from, Integer to, List<Target> tgs) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16);
+        int flags = (from == null ? 0 : FROM) | (to == null ? 0 : TO) | (tgs == null ? 0 : TARGETS);
+        out.write(flags);
+        if (from != null) {
+            writeVarInt(out, from);
+        }
+        if (to != null) {
+            writeVarInt(out, from == null ? to : to - from);
+        }
+        if (tgs != null) {
+            writeVarInt(out, tgs.size());
+            for (Target target : tgs) {
+                writeTarget(out, target);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Unpacks offsets and targets that were packed with {@link #pack(Integer, Integer, List)}
+     *
+     * @param packed packed bytes
+     * @return the unpacked offsets and targets
+     */
+    public static PackedPositions unpack(byte[] packed) {
+        int[] position = {1};
+        int flags = packed[0];
+        Integer from = (flags & FROM) == 0 ? null : readVarInt(packed, position);
+        Integer to = null;
+        if ((flags & TO) != 0) {
+            int value = readVarInt(packed, position);
+            to = from == null ? value : from + value;
+        }
+        List<Target> tgs = null;
+        if ((flags & TARGETS) != 0) {
+            int count = readVarInt(packed, position);
+            tgs = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                tgs.add(readTarget(packed, position));
+            }
+        }
+        return new PackedPositions(from, to, tgs);
+    }
+
+    private static void writeTarget(ByteArrayOutputStream out, Target target) {
+        Integer[] values = {target.getX(), target.getY(), target.getW(), target.getH(), target.getStart(),
+                target.getEnd()};
+        int flags = 0;
+        for (int i = 0; i < TARGET_FIELDS; i++) {
+            if (values[i] != null) {
+                flags |= 1 << i;
+            }
+        }
+        out.write(flags);
+        for (Integer value : values) {
+            if (value != null) {
+                writeVarInt(out, value);
+            }
+        }
+    }
+
+    private static Target readTarget(byte[] packed, int[] position) {
+        int flags = packed[position[0]++];
+        Integer[] values = new Integer[TARGET_FIELDS];
+        for (int i = 0; i < TARGET_FIELDS; i++) {
+            if ((flags & (1 << i)) != 0) {
+                values[i] = readVarInt(packed, position);
+            }
+        }
+        Target target = new Target(values[0], values[1], values[2], values[3]);
+        target.setStart(values[4]);
+        target.setEnd(values[5]);
+        return target;
+    }
+
+    static void writeVarInt(ByteArrayOutputStream out, int value) {
+        // zigzag encoding, so small negative numbers are also short
+        int zigzag = (value << 1) ^ (value >> 31);
+        while ((zigzag & ~0x7F) != 0) {
+            out.write((zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        out.write(zigzag);
+    }
+
+    static int readVarInt(byte[] packed, int[] position) {
+        int zigzag = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = packed[position[0]++];
+            zigzag |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+}
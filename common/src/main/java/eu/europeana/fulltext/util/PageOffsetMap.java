@@ -0,0 +1,161 @@
+package eu.europeana.fulltext.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Maps text offsets in a multi-valued Solr fulltext field to the page (image) they belong to. Every value of a
+ * fulltext field holds the text of one page, prefixed with "{imageId} ". Highlight offsets returned by Solr are offsets
+ * in all values of the field concatenated, so with this map the API can attribute hits in small highlight fragments to a
+ * page, instead of requesting the entire page text to read the prefix.
+ * <p>
+ * The map of each fulltext field is stored in its own Solr field, see {@link #getSolrField(String)}. It is encoded as
+ * one line per page with the offset where the value starts, the offset where the page text starts (after the prefix)
+ * and the image id, separated by tabs.
+ */
+public final class PageOffsetMap {
+
+    /**
+     * Prefix of the Solr (dynamic) fields that hold the page offset maps of a record
+     */
+    public static final String SOLR_FIELD_PREFIX = "fulltext_pages.";
+
+    private static final String FULLTEXT_FIELD_PREFIX = "fulltext.";
+
+    // Solr separates the values of a multi-valued field by the offset gap of the analyzer, which is 1 by default
+    private static final int VALUE_SEPARATOR_LENGTH = 1;
+
+    private static final char COLUMN_SEPARATOR = '\t';
+    private static final char LINE_SEPARATOR = '\n';
+
+    private final int[] valueStarts;
+    private final int[] textStarts;
+    private final String[] imageIds;
+
+    private PageOffsetMap(int[] valueStarts, int[] textStarts, String[] imageIds) {
+        this.valueStarts = valueStarts;
+        this.textStarts = textStarts;
+        this.imageIds = imageIds;
+    }
+
+    /**
+     * @param fulltextField name of a fulltext field, e.g. fulltext.en
+     * @return name of the Solr field that holds the page offset map of the fulltext field, e.g. fulltext_pages.en
+     */
+    public static String getSolrField(String fulltextField) {
+        if (fulltextField.startsWith(FULLTEXT_FIELD_PREFIX)) {
+            return SOLR_FIELD_PREFIX + fulltextField.substring(FULLTEXT_FIELD_PREFIX.length());
+        }
+        return SOLR_FIELD_PREFIX + fulltextField;
+    }
+
+    /**
+     * Creates the page offset map of a fulltext field
+     *
+     * @param imageIds image ids of the pages, in the same order as the values
+     * @param values   values of the fulltext field, each starting with "{imageId} "
+     * @return encoded page offset map
+     */
+    public static String encode(List<String> imageIds, List<String> values) {
+        if (imageIds.size() != values.size()) {
+            throw new IllegalArgumentException("Number of image ids and values should be equal");
+        }
+        StringBuilder s = new StringBuilder(imageIds.size() * 100);
+        long valueStart = 0;
+        for (int i = 0; i < values.size(); i++) {
+            String imageId = imageIds.get(i);
+            String value = values.get(i);
+            String prefix = "{" + imageId + "} ";
+            long textStart = value.startsWith(prefix) ? valueStart + prefix.length() : valueStart;
+            s.append(valueStart).append(COLUMN_SEPARATOR).append(textStart).append(COLUMN_SEPARATOR)
+                    .append(imageId).append(LINE_SEPARATOR);
+            valueStart += value.length() + VALUE_SEPARATOR_LENGTH;
+        }
+        return s.toString();
+    }
+
+    /**
+     * Decodes a page offset map
+     *
+     * @param encoded encoded page offset map
+     * @return PageOffsetMap object
+     */
+    public static PageOffsetMap decode(String encoded) {
+        List<String> ids = new ArrayList<>();
+        int[] valueStarts = new int[16];
+        int[] textStarts = new int[16];
+        int lineStart = 0;
+        while (lineStart < encoded.length()) {
+            int lineEnd = encoded.indexOf(LINE_SEPARATOR, lineStart);
+            if (lineEnd < 0) {
+                lineEnd = encoded.length();
+            }
+            int column1 = encoded.indexOf(COLUMN_SEPARATOR, lineStart);
+            int column2 = column1 < 0 ? -1 : encoded.indexOf(COLUMN_SEPARATOR, column1 + 1);
+            if (column2 < 0 || column2 > lineEnd) {
+                throw new IllegalArgumentException("Invalid page offset map line " +
+                        encoded.substring(lineStart, lineEnd));
+            }
+            if (ids.size() == valueStarts.length) {
+                valueStarts = Arrays.copyOf(valueStarts, valueStarts.length * 2);
+                textStarts = Arrays.copyOf(textStarts, textStarts.length * 2);
+            }
+            valueStarts[ids.size()] = Integer.parseInt(encoded, lineStart, column1, 10);
+            textStarts[ids.size()] = Integer.parseInt(encoded, column1 + 1, column2, 10);
+            ids.add(encoded.substring(column2 + 1, lineEnd));
+            lineStart = lineEnd + 1;
+        }
+        return new PageOffsetMap(Arrays.copyOf(valueStarts, ids.size()), Arrays.copyOf(textStarts, ids.size()),
+                ids.toArray(new String[0]));
+    }
+
+    /**
+     * @return the number of pages in the map
+     */
+    public int size() {
+        return imageIds.length;
+    }
+
+    /**
+     * Finds the page whose text contains the provided offset
+     *
+     * @param offset offset in the concatenated values of the fulltext field
+     * @return index of the page, or -1 if the offset lies in the "{imageId} " prefix of a page (or before the first
+     * value)
+     */
+    public int findPage(long offset) {
+        int low = 0;
+        int high = valueStarts.length - 1;
+        int result = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (valueStarts[mid] <= offset) {
+                result = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (result >= 0 && offset < textStarts[result]) {
+            return -1;
+        }
+        return result;
+    }
+
+    /**
+     * @param page index of a page
+     * @return image id of the page
+     */
+    public String getImageId(int page) {
+        return imageIds[page];
+    }
+
+    /**
+     * @param page index of a page
+     * @return offset in the concatenated values of the fulltext field where the text of the page starts
+     */
+    public int getTextStart(int page) {
+        return textStarts[page];
+    }
+}
@@ -0,0 +1,73 @@
+package eu.europeana.fulltext.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import eu.europeana.fulltext.entity.AnnoPage;
+import eu.europeana.fulltext.entity.Annotation;
+import eu.europeana.fulltext.entity.Target;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class AnnotationOffsetTableTest {
+
+    private static final String TEXT = "Hello world";
+
+    private static AnnoPage createAnnoPage() {
+        AnnoPage annoPage = new AnnoPage("ds1", "lc1", "12", "https://example.org/image/12.jpg", "nl", null);
+        Annotation page = new Annotation("0f1e2d3c4b5a69788796a5b4c3d2e1f0", 'P', null, null, null);
+        Annotation word = new Annotation("word-1", 'W', 6, 11, List.of(new Target(100, 200, 50, 20)), "en");
+        Annotation media = new Annotation("ABCDEF0123456789ABCDEF0123456789", 'M', null, null,
+                List.of(new Target(0, 15000)));
+        media.setMotiv("subtitling");
+        annoPage.setAns(List.of(page, word, media));
+        return annoPage;
+    }
+
+    @Test
+    public void testRoundTrip() {
+        AnnoPage original = createAnnoPage();
+        AnnoPage decoded = AnnotationOffsetTable.decode(AnnotationOffsetTable.encode(original), "ds1", "lc1", TEXT);
+
+        assertEquals("ds1", decoded.getDsId());
+        assertEquals("lc1", decoded.getLcId());
+        assertEquals("12", decoded.getPgId());
+        assertEquals("nl", decoded.getLang());
+        assertEquals("https://example.org/image/12.jpg", decoded.getTgtId());
+        assertEquals(TEXT, decoded.getRes().getValue());
+        assertEquals("12", decoded.getRes().getPgId());
+
+        assertEquals(3, decoded.getAns().size());
+        for (int i = 0; i < 3; i++) {
+            Annotation expected = original.getAns().get(i);
+            Annotation actual = decoded.getAns().get(i);
+            assertEquals(expected.getAnId(), actual.getAnId());
+            assertEquals(expected.getDcType(), actual.getDcType());
+            assertEquals(expected.getFrom(), actual.getFrom());
+            assertEquals(expected.getTo(), actual.getTo());
+            assertEquals(expected.getLang(), actual.getLang());
+            assertEquals(expected.getMotiv(), actual.getMotiv());
+        }
+        assertNull(decoded.getAns().get(0).getTgs());
+        Target target = decoded.getAns().get(1).getTgs().get(0);
+        assertEquals(List.of(100, 200, 50, 20), List.of(target.getX(), target.getY(), target.getW(), target.getH()));
+        assertEquals(15000, decoded.getAns().get(2).getTgs().get(0).getEnd());
+    }
+
+    @Test
+    public void testTranslation() {
+        AnnoPage translation = createAnnoPage();
+        translation.setTranslation(true);
+        AnnoPage decoded = AnnotationOffsetTable.decode(AnnotationOffsetTable.encode(translation), "ds1", "lc1", TEXT);
+        assertTrue(decoded.isTranslation());
+        assertTrue(decoded.getRes().isTranslation());
+    }
+
+    @Test
+    public void testSolrFieldPerTarget() {
+        String field = AnnotationOffsetTable.getSolrField("https://example.org/image/12.jpg");
+        assertTrue(field.startsWith(AnnotationOffsetTable.SOLR_FIELD_PREFIX));
+        assertEquals(field, AnnotationOffsetTable.getSolrField("https://example.org/image/12.jpg"));
+    }
+}
@@ -0,0 +1,118 @@
+package eu.europeana.fulltext.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import eu.europeana.fulltext.entity.AnnoPage;
+import eu.europeana.fulltext.entity.Annotation;
+import java.util.ArrayList;
+import java.util.List;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class LazyAnnotationListTest {
+
+    private static final RawBsonDocument ANNOPAGE = RawBsonDocument.parse("{\"dsId\": \"ds1\", \"ans\": ["
+            + "{\"anId\": \"an1\", \"dcType\": \"W\", \"from\": 0, \"to\": 5},"
+            + "{\"anId\": \"an2\", \"dcType\": \"W\", \"from\": 6, \"to\": 9},"
+            + "{\"anId\": \"an3\", \"dcType\": \"P\"}]}");
+
+    private static final RawBsonDocument ANNOPAGE_BY_TYPE = RawBsonDocument.parse("{\"dsId\": \"ds1\", \"ansByType\": {"
+            + "\"W\": [{\"anId\": \"an1\", \"dcType\": \"W\", \"from\": 0, \"to\": 5, \"idx\": 0},"
+            + "{\"anId\": \"an4\", \"dcType\": \"W\", \"from\": 6, \"to\": 9, \"idx\": 2}],"
+            + "\"L\": [{\"anId\": \"an2\", \"dcType\": \"L\", \"from\": 0, \"to\": 9, \"idx\": 1}],"
+            + "\"P\": [{\"anId\": \"an3\", \"dcType\": \"P\", \"idx\": 3}]}}");
+
+    private final List<String> decodedIds = new ArrayList<>();
+
+    /**
+     * Minimal annotation codec that keeps track of which annotations were decoded
+     */
+    private final Codec<Annotation> annotationCodec = new Codec<>() {
+        @Override
+        public Annotation decode(BsonReader reader, DecoderContext decoderContext) {
+            Annotation annotation = new Annotation();
+            reader.readStartDocument();
+            while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                switch (reader.readName()) {
+                    case "anId":
+                        annotation.setAnId(reader.readString());
+                        break;
+                    case "dcType":
+                        annotation.setDcType(reader.readString().charAt(0));
+                        break;
+                    case "from":
+                        annotation.setFrom(reader.readInt32());
+                        break;
+                    case "to":
+                        annotation.setTo(reader.readInt32());
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.readEndDocument();
+            decodedIds.add(annotation.getAnId());
+            return annotation;
+        }
+
+        @Override
+        public void encode(BsonWriter writer, Annotation value, EncoderContext encoderContext) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Class<Annotation> getEncoderClass() {
+            return Annotation.class;
+        }
+    };
+
+    @BeforeEach
+    public void clearDecoded() {
+        decodedIds.clear();
+    }
+
+    @Test
+    public void testDecodesOnAccess() {
+        LazyAnnotationList annotations = LazyAnnotationList.of(ANNOPAGE, annotationCodec);
+        assertEquals(3, annotations.size());
+        assertEquals(0, decodedIds.size());
+
+        Annotation second = annotations.get(1);
+        assertEquals("an2", second.getAnId());
+        assertEquals(6, second.getFrom());
+        assertEquals(9, second.getTo());
+        assertSame(second, annotations.get(1));
+        assertEquals(List.of("an2"), decodedIds);
+    }
+
+    @Test
+    public void testFindByAnId() {
+        AnnoPage annoPage = new AnnoPage();
+        annoPage.setAns(LazyAnnotationList.of(ANNOPAGE, annotationCodec));
+
+        assertEquals('P', annoPage.getAnnotation("an3").getDcType());
+        assertNull(annoPage.getAnnotation("an4"));
+        assertEquals(List.of("an3"), decodedIds);
+    }
+
+    @Test
+    public void testAnnotationsByType() {
+        LazyAnnotationList annotations = LazyAnnotationList.of(ANNOPAGE_BY_TYPE, annotationCodec);
+        // same order as AnnoPage.getAns(): the original order of the annotations, not grouped by type
+        assertEquals(4, annotations.size());
+        assertEquals("an1", annotations.get(0).getAnId());
+        assertEquals("an2", annotations.get(1).getAnId());
+        assertEquals("an4", annotations.get(2).getAnId());
+        assertEquals("an3", annotations.get(3).getAnId());
+        assertEquals("an1", annotations.findByAnId("an1").getAnId());
+    }
+}
@@ -0,0 +1,83 @@
+package eu.europeana.fulltext.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import eu.europeana.fulltext.AnnotationType;
+import eu.europeana.fulltext.entity.Annotation;
+import eu.europeana.fulltext.entity.Target;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class PackedPositionsTest {
+
+    private static void assertSameTarget(Target expected, Target actual) {
+        assertEquals(expected.getX(), actual.getX());
+        assertEquals(expected.getY(), actual.getY());
+        assertEquals(expected.getW(), actual.getW());
+        assertEquals(expected.getH(), actual.getH());
+        assertEquals(expected.getStart(), actual.getStart());
+        assertEquals(expected.getEnd(), actual.getEnd());
+    }
+
+    @Test
+    public void testImageTargets() {
+        List<Target> targets = List.of(new Target(428, 250, 282, 37), new Target(0, 0, 100000, 3));
+        PackedPositions unpacked = PackedPositions.unpack(PackedPositions.pack(1234, 1245, targets));
+
+        assertEquals(1234, unpacked.getFrom());
+        assertEquals(1245, unpacked.getTo());
+        assertEquals(2, unpacked.getTgs().size());
+        assertSameTarget(targets.get(0), unpacked.getTgs().get(0));
+        assertSameTarget(targets.get(1), unpacked.getTgs().get(1));
+    }
+
+    @Test
+    public void testMediaTargets() {
+        List<Target> targets = List.of(new Target(1500, 3250), new Target(Integer.MAX_VALUE, Integer.MIN_VALUE));
+        PackedPositions unpacked = PackedPositions.unpack(PackedPositions.pack(null, -5, targets));
+
+        assertNull(unpacked.getFrom());
+        assertEquals(-5, unpacked.getTo());
+        assertSameTarget(targets.get(0), unpacked.getTgs().get(0));
+        assertSameTarget(targets.get(1), unpacked.getTgs().get(1));
+    }
+
+    @Test
+    public void testNullValues() {
+        PackedPositions unpacked = PackedPositions.unpack(PackedPositions.pack(null, null, null));
+        assertNull(unpacked.getFrom());
+        assertNull(unpacked.getTo());
+        assertNull(unpacked.getTgs());
+
+        unpacked = PackedPositions.unpack(PackedPositions.pack(0, 0, List.of()));
+        assertEquals(0, unpacked.getFrom());
+        assertEquals(0, unpacked.getTo());
+        assertTrue(unpacked.getTgs().isEmpty());
+    }
+
+    @Test
+    public void testPackedSize() {
+        // a typical word annotation; stored as BSON fields these values take 64 bytes
+        byte[] packed = PackedPositions.pack(15230, 15238, List.of(new Target(2428, 1250, 282, 37)));
+        assertTrue(packed.length <= 16, "Packed size is " + packed.length);
+    }
+
+    @Test
+    public void testAnnotationUnpacksLazily() {
+        Annotation annotation = new Annotation("an1", AnnotationType.WORD.getAbbreviation(), 9, 13,
+                List.of(new Target(757, 258, 73, 28)));
+        annotation.packPositions();
+
+        assertEquals(9, annotation.getFrom());
+        assertEquals(13, annotation.getTo());
+        assertSameTarget(new Target(757, 258, 73, 28), annotation.getTgs().get(0));
+
+        annotation.packPositions();
+        annotation.setTo(14);
+        assertEquals(9, annotation.getFrom());
+        assertEquals(14, annotation.getTo());
+        assertEquals(1, annotation.getTgs().size());
+    }
+}
@@ -0,0 +1,53 @@
+package eu.europeana.fulltext.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class PageOffsetMapTest {
+
+    private static final String IMAGE1 = "https://example.org/image/1.jpg";
+    private static final String IMAGE2 = "https://example.org/image/2.jpg";
+    private static final String TEXT1 = "Hello world";
+    private static final String TEXT2 = "Second page";
+
+    @Test
+    public void testFindPage() {
+        List<String> values = List.of("{" + IMAGE1 + "} " + TEXT1, "{" + IMAGE2 + "} " + TEXT2);
+        PageOffsetMap map = PageOffsetMap.decode(PageOffsetMap.encode(List.of(IMAGE1, IMAGE2), values));
+        assertEquals(2, map.size());
+
+        // offsets as returned by Solr for the concatenated values, separated by 1 character
+        String concatenated = String.join(" ", values);
+        int world = concatenated.indexOf("world");
+        int page = concatenated.indexOf("page");
+
+        assertEquals(0, map.findPage(world));
+        assertEquals(IMAGE1, map.getImageId(0));
+        assertEquals(TEXT1.indexOf("world"), world - map.getTextStart(0));
+
+        assertEquals(1, map.findPage(page));
+        assertEquals(IMAGE2, map.getImageId(1));
+        assertEquals(TEXT2.indexOf("page"), page - map.getTextStart(1));
+
+        // inside the prefix of the first page
+        assertEquals(-1, map.findPage(1));
+        // inside the prefix of the second page, which should not be attributed to the first page
+        assertEquals(-1, map.findPage(concatenated.indexOf(IMAGE2)));
+        assertEquals(-1, map.findPage(values.get(0).length() + 1));
+    }
+
+    @Test
+    public void testValueWithoutPrefix() {
+        PageOffsetMap map = PageOffsetMap.decode(PageOffsetMap.encode(List.of(IMAGE1), List.of(TEXT1)));
+        assertEquals(0, map.getTextStart(0));
+        assertEquals(0, map.findPage(0));
+    }
+
+    @Test
+    public void testGetSolrField() {
+        assertEquals("fulltext_pages.nl", PageOffsetMap.getSolrField("fulltext.nl"));
+        assertEquals("fulltext_pages.", PageOffsetMap.getSolrField("fulltext."));
+    }
+}
@@ -0,0 +1,221 @@
+package eu.europeana.fulltext.indexing;
+
+import static com.mongodb.client.model.Filters.eq;
+import static eu.europeana.fulltext.util.MorphiaUtils.Fields.DATASET_ID;
+import static eu.europeana.fulltext.util.MorphiaUtils.Fields.LANGUAGE;
+import static eu.europeana.fulltext.util.MorphiaUtils.Fields.LOCAL_ID;
+import static eu.europeana.fulltext.util.MorphiaUtils.Fields.MODIFIED;
+import static eu.europeana.fulltext.util.MorphiaUtils.Fields.PAGE_ID;
+import static eu.europeana.fulltext.util.MorphiaUtils.MAPPER_OPTIONS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Updates;
+import dev.morphia.Datastore;
+import dev.morphia.Morphia;
+import eu.europeana.fulltext.indexing.model.AnnoPageRecordId;
+import eu.europeana.fulltext.indexing.model.IndexingAction;
+import eu.europeana.fulltext.indexing.model.IndexingWrapper;
+import eu.europeana.fulltext.indexing.repository.ChangeStreamTokenRepository;
+import eu.europeana.fulltext.indexing.repository.IndexingAnnoPageRepository;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+/**
+ * Runs the change stream indexer against a single-node Mongo replica set (change streams aren't
+ * available on a standalone server), with a processor and writer that only record the records
+ * they receive.
+ */
+@Testcontainers
+class ChangeStreamIndexerIT {
+
+  private static final long WINDOW_MS = 500;
+  private static final int MAX_RECORDS = 100;
+  private static final long TIMEOUT_MS = 30_000;
+
+  private static final String DATASET = "9200396";
+  private static final String RECORD_1 = "BibliographicResource_1";
+  private static final String RECORD_2 = "BibliographicResource_2";
+
+  // same version as in the api integration tests
+  @Container
+  private static final MongoDBContainer MONGO_CONTAINER =
+      new MongoDBContainer(DockerImageName.parse("mongo:4.4.4"));
+
+  private MongoClient mongoClient;
+  private Datastore datastore;
+  private IndexingAnnoPageRepository repository;
+  private ChangeStreamTokenRepository tokenRepository;
+  private ExecutorService executor;
+
+  // europeanaIds of processed and written records, and of records for which processing fails
+  private final List<String> processed = new CopyOnWriteArrayList<>();
+  private final List<String> written = new CopyOnWriteArrayList<>();
+  private final Set<String> failing = new CopyOnWriteArraySet<>();
+
+  @BeforeEach
+  void setUp() {
+    mongoClient = MongoClients.create(MONGO_CONTAINER.getReplicaSetUrl());
+    // separate database per test, so changes of earlier tests aren't in the change stream
+    datastore =
+        Morphia.createDatastore(mongoClient, "fulltext-" + UUID.randomUUID(), MAPPER_OPTIONS);
+    repository = new IndexingAnnoPageRepository();
+    ReflectionTestUtils.setField(repository, "datastore", datastore);
+    tokenRepository = new ChangeStreamTokenRepository(datastore);
+    executor = Executors.newSingleThreadExecutor();
+  }
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    executor.shutdownNow();
+    executor.awaitTermination(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    datastore.getDatabase().drop();
+    mongoClient.close();
+  }
+
+  @Test
+  void changesToSameRecordAreCoalesced() throws Exception {
+    insertAnnoPage(RECORD_1, "1");
+    insertAnnoPage(RECORD_1, "2");
+    insertAnnoPage(RECORD_2, "1");
+    getAnnoPageCollection().updateOne(eq(PAGE_ID, "2"), Updates.currentDate(MODIFIED));
+
+    Future<?> indexing = start(ZonedDateTime.now().minusMinutes(1));
+    awaitCondition(() -> written.size() >= 2);
+    stop(indexing);
+
+    assertEquals(List.of(europeanaId(RECORD_1), europeanaId(RECORD_2)), processed);
+    assertEquals(List.of(europeanaId(RECORD_1), europeanaId(RECORD_2)), written);
+  }
+
+  @Test
+  void indexingResumesAfterRestart() throws Exception {
+    insertAnnoPage(RECORD_1, "1");
+    Future<?> indexing = start(ZonedDateTime.now().minusMinutes(1));
+    awaitCondition(() -> written.contains(europeanaId(RECORD_1)));
+    awaitCondition(() -> tokenRepository.getResumeToken() != null);
+    stop(indexing);
+
+    // changed while indexing is stopped
+    insertAnnoPage(RECORD_2, "1");
+    processed.clear();
+    written.clear();
+
+    // without start time, so only the saved resume token can find the change
+    indexing = start(null);
+    awaitCondition(() -> written.contains(europeanaId(RECORD_2)));
+    stop(indexing);
+
+    assertEquals(List.of(europeanaId(RECORD_2)), processed);
+    assertEquals(List.of(europeanaId(RECORD_2)), written);
+  }
+
+  @Test
+  void failedRecordIsRetriedAfterRestart() throws Exception {
+    failing.add(europeanaId(RECORD_1));
+    insertAnnoPage(RECORD_1, "1");
+    insertAnnoPage(RECORD_2, "1");
+
+    Future<?> indexing = start(ZonedDateTime.now().minusMinutes(1));
+    awaitCondition(() -> !tokenRepository.getFailedRecordIds().isEmpty());
+    stop(indexing);
+
+    assertEquals(List.of(europeanaId(RECORD_2)), written);
+    List<AnnoPageRecordId> failed = tokenRepository.getFailedRecordIds();
+    assertEquals(1, failed.size());
+    assertEquals(europeanaId(RECORD_1), failed.get(0).toEuropeanaId());
+    assertNotNull(tokenRepository.getResumeToken());
+
+    // no new changes: the failed record is retried by itself
+    failing.clear();
+    written.clear();
+    indexing = start(null);
+    awaitCondition(() -> written.contains(europeanaId(RECORD_1)));
+    awaitCondition(() -> tokenRepository.getFailedRecordIds().isEmpty());
+    stop(indexing);
+
+    assertEquals(List.of(europeanaId(RECORD_1)), written);
+  }
+
+  private Future<?> start(ZonedDateTime startTimestamp) {
+    ItemProcessor<AnnoPageRecordId, IndexingWrapper> processor =
+        recordId -> {
+          processed.add(recordId.toEuropeanaId());
+          if (failing.contains(recordId.toEuropeanaId())) {
+            throw new IllegalStateException("Processing failed for " + recordId);
+          }
+          return new IndexingWrapper(recordId, IndexingAction.WRITE_DOCUMENT);
+        };
+    ItemWriter<IndexingWrapper> writer =
+        items -> items.forEach(item -> written.add(item.getRecordId().toEuropeanaId()));
+
+    ChangeStreamIndexer indexer =
+        new ChangeStreamIndexer(
+            repository, tokenRepository, processor, writer, WINDOW_MS, MAX_RECORDS);
+    return executor.submit(
+        () -> {
+          indexer.indexChanges(startTimestamp);
+          return null;
+        });
+  }
+
+  /** Interrupts the indexer, and waits until it has stopped */
+  private void stop(Future<?> indexing) throws InterruptedException {
+    assertTrue(indexing.cancel(true) || indexing.isDone());
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    executor = Executors.newSingleThreadExecutor();
+  }
+
+  private void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+    while (!condition.getAsBoolean()) {
+      if (System.currentTimeMillis() > deadline) {
+        fail("Condition not met within " + TIMEOUT_MS + " ms");
+      }
+      Thread.sleep(100);
+    }
+  }
+
+  private void insertAnnoPage(String localId, String pageId) {
+    getAnnoPageCollection()
+        .insertOne(
+            new Document(DATASET_ID, DATASET)
+                .append(LOCAL_ID, localId)
+                .append(PAGE_ID, pageId)
+                .append(LANGUAGE, "en"));
+  }
+
+  private MongoCollection<Document> getAnnoPageCollection() {
+    return datastore.getDatabase().getCollection("AnnoPage");
+  }
+
+  private static String europeanaId(String localId) {
+    return new AnnoPageRecordId(DATASET, localId).toEuropeanaId();
+  }
+}
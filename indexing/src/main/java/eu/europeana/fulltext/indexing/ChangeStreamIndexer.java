@@ -0,0 +1,207 @@
+package eu.europeana.fulltext.indexing;
+
+import static eu.europeana.fulltext.util.MorphiaUtils.Fields.DATASET_ID;
+import static eu.europeana.fulltext.util.MorphiaUtils.Fields.LOCAL_ID;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import eu.europeana.fulltext.indexing.config.IndexingAppSettings;
+import eu.europeana.fulltext.indexing.model.AnnoPageRecordId;
+import eu.europeana.fulltext.indexing.model.IndexingWrapper;
+import eu.europeana.fulltext.indexing.repository.ChangeStreamTokenRepository;
+import eu.europeana.fulltext.indexing.repository.IndexingAnnoPageRepository;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Long-running alternative to the fulltext indexing job: tails a change stream on the AnnoPage
+ * collection and indexes changed records continuously. Changes are coalesced per record (dsId +
+ * lcId) during a short window, and then processed and written with the same processors and writers
+ * as the fulltext indexing job.
+ *
+ * <p>The resume token of the change stream is saved after each window is written to Solr, so after
+ * a restart indexing continues with the first change that wasn't indexed yet. Changes may be
+ * indexed twice, but are never lost, as long as the saved token is still in the Mongo oplog.
+ *
+ * <p>Records that fail processing are saved together with the resume token and stay pending: they
+ * are retried with the next window (and after a restart), until they are indexed successfully.
+ */
+@Component
+public class ChangeStreamIndexer {
+  private static final Logger LOGGER = LogManager.getLogger(ChangeStreamIndexer.class);
+
+  /** Error code returned by Mongo if the resume token is no longer in the oplog */
+  private static final int CHANGE_STREAM_HISTORY_LOST = 286;
+
+  private final IndexingAnnoPageRepository repository;
+  private final ChangeStreamTokenRepository tokenRepository;
+  private final ItemProcessor<AnnoPageRecordId, IndexingWrapper> processor;
+  private final ItemWriter<IndexingWrapper> writer;
+  private final long windowMs;
+  private final int maxRecords;
+
+  @Autowired
+  public ChangeStreamIndexer(
+      IndexingAnnoPageRepository repository,
+      ChangeStreamTokenRepository tokenRepository,
+      IndexingBatchConfig batchConfig,
+      IndexingAppSettings appSettings) {
+    this(
+        repository,
+        tokenRepository,
+        batchConfig.compositeFulltextIndexingProcessor(),
+        batchConfig.compositeWriter(),
+        appSettings.getChangeStreamWindowMs(),
+        appSettings.getBatchPageSize());
+  }
+
+  ChangeStreamIndexer(
+      IndexingAnnoPageRepository repository,
+      ChangeStreamTokenRepository tokenRepository,
+      ItemProcessor<AnnoPageRecordId, IndexingWrapper> processor,
+      ItemWriter<IndexingWrapper> writer,
+      long windowMs,
+      int maxRecords) {
+    this.repository = repository;
+    this.tokenRepository = tokenRepository;
+    this.processor = processor;
+    this.writer = writer;
+    this.windowMs = windowMs;
+    this.maxRecords = maxRecords;
+  }
+
+  /**
+   * Indexes AnnoPage changes until the thread is interrupted or an error occurs
+   *
+   * @param startTimestamp if no resume token was saved yet, the time of the first change to index.
+   *     If null, indexing starts with changes made from now on
+   * @throws Exception on Mongo or Solr errors
+   */
+  public void indexChanges(ZonedDateTime startTimestamp) throws Exception {
+    BsonDocument resumeToken = tokenRepository.getResumeToken();
+    Optional<Instant> startTime =
+        Optional.ofNullable(startTimestamp).map(ZonedDateTime::toInstant);
+    if (resumeToken != null) {
+      LOGGER.info("Resuming AnnoPage change stream indexing");
+    } else if (startTime.isPresent()) {
+      LOGGER.info("Starting AnnoPage change stream indexing from {}", startTime.get());
+    } else {
+      LOGGER.warn(
+          "No resume token saved; only indexing AnnoPages changed from now on. Run fulltext indexing to index earlier changes");
+    }
+
+    try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor =
+        repository.watchRecordIds(resumeToken, startTime, windowMs).cursor()) {
+      // records that failed processing in an earlier window, per europeanaId
+      Map<String, AnnoPageRecordId> failed = new LinkedHashMap<>();
+      for (AnnoPageRecordId recordId : tokenRepository.getFailedRecordIds()) {
+        failed.put(recordId.toEuropeanaId(), recordId);
+      }
+      boolean failedChanged = false;
+
+      // changed records in the current window, per europeanaId. Failed records are retried in the
+      // first window
+      Map<String, AnnoPageRecordId> changed = new LinkedHashMap<>(failed);
+      long windowStart = System.currentTimeMillis();
+      if (!failed.isEmpty()) {
+        LOGGER.info("Retrying {} records that failed processing", failed.size());
+      }
+
+      while (!Thread.currentThread().isInterrupted()) {
+        // waits at most windowMs for a change
+        ChangeStreamDocument<Document> change = cursor.tryNext();
+        AnnoPageRecordId recordId = change != null ? toRecordId(change) : null;
+        if (recordId != null) {
+          if (changed.isEmpty()) {
+            windowStart = System.currentTimeMillis();
+            // failed records don't start a window by themselves, but are retried with new changes
+            changed.putAll(failed);
+          }
+          changed.putIfAbsent(recordId.toEuropeanaId(), recordId);
+        }
+
+        if (changed.size() >= maxRecords
+            || (!changed.isEmpty() && System.currentTimeMillis() - windowStart >= windowMs)) {
+          Map<String, AnnoPageRecordId> stillFailed = index(changed.values());
+          failedChanged |= !stillFailed.keySet().equals(failed.keySet());
+          failed = stillFailed;
+          changed.clear();
+        }
+
+        // only save the token when all changes up to it are written or saved as failed, so no
+        // changes are lost
+        BsonDocument currentToken = cursor.getResumeToken();
+        if (changed.isEmpty()
+            && currentToken != null
+            && (failedChanged || !currentToken.equals(resumeToken))) {
+          tokenRepository.saveResumeToken(currentToken, failed.values());
+          resumeToken = currentToken;
+          failedChanged = false;
+        }
+      }
+    } catch (MongoCommandException e) {
+      if (e.getErrorCode() == CHANGE_STREAM_HISTORY_LOST) {
+        LOGGER.error(
+            "Saved resume token is no longer in the oplog. Run fulltext indexing to index missed changes");
+      }
+      throw e;
+    }
+  }
+
+  private AnnoPageRecordId toRecordId(ChangeStreamDocument<Document> change) {
+    Document doc = change.getFullDocument();
+    if (doc == null) {
+      // document was deleted before the update could be looked up
+      if (LOGGER.isDebugEnabled()) {
+        LOGGER.debug("Skipping change without document; documentKey={}", change.getDocumentKey());
+      }
+      return null;
+    }
+    return new AnnoPageRecordId(doc.getString(DATASET_ID), doc.getString(LOCAL_ID));
+  }
+
+  /**
+   * Processes and writes the changed records. Records that fail processing are skipped and
+   * returned, so they can be retried later. Errors while writing stop indexing.
+   *
+   * @return records that failed processing, per europeanaId
+   */
+  private Map<String, AnnoPageRecordId> index(Collection<AnnoPageRecordId> recordIds)
+      throws Exception {
+    List<IndexingWrapper> wrappers = new ArrayList<>();
+    Map<String, AnnoPageRecordId> failed = new LinkedHashMap<>();
+    for (AnnoPageRecordId recordId : recordIds) {
+      try {
+        IndexingWrapper wrapper = processor.process(recordId);
+        if (wrapper != null) {
+          wrappers.add(wrapper);
+        }
+      } catch (Exception e) {
+        LOGGER.warn("Error during processing, will retry later. {}", recordId, e);
+        failed.put(recordId.toEuropeanaId(), recordId);
+      }
+    }
+
+    if (!wrappers.isEmpty()) {
+      writer.write(wrappers);
+    }
+    LOGGER.info(
+        "Indexed {} changed records, {} records pending retry", wrappers.size(), failed.size());
+    return failed;
+  }
+}
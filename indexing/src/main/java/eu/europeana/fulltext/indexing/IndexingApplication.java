@@ -1,5 +1,6 @@
 package eu.europeana.fulltext.indexing;
 
+import static eu.europeana.fulltext.indexing.model.IndexingJobType.CHANGE_STREAM;
 import static eu.europeana.fulltext.indexing.model.IndexingJobType.FULLTEXT_INDEXING;
 import static eu.europeana.fulltext.indexing.model.IndexingJobType.METADATA_SYNC;
 
@@ -15,6 +16,7 @@ import org.springframework.boot.autoconfigure.data.mongo.MongoDataAutoConfigurat
 import org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration;
 import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
 import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.util.StringUtils;
 
 @SpringBootApplication(
@@ -26,12 +28,14 @@ import org.springframework.util.StringUtils;
         MongoAutoConfiguration.class,
         MongoDataAutoConfiguration.class
     })
+@EnableScheduling
 public class IndexingApplication implements CommandLineRunner {
 
   private static final Logger logger = LogManager.getLogger(IndexingApplication.class);
   private static String job = "";
   private static ZonedDateTime modifiedTimestamp;
   @Autowired private IndexingBatchConfig batchConfig;
+  @Autowired private ChangeStreamIndexer changeStreamIndexer;
 
   public static void main(String[] args) {
     job = args.length > 0 ? args[0]: "";
@@ -45,12 +49,14 @@ public class IndexingApplication implements CommandLineRunner {
   private static void validateArgs() {
     if (StringUtils.hasLength(job)
         && !FULLTEXT_INDEXING.value().equalsIgnoreCase(job)
-        && !METADATA_SYNC.value().equalsIgnoreCase(job)) {
+        && !METADATA_SYNC.value().equalsIgnoreCase(job)
+        && !CHANGE_STREAM.value().equalsIgnoreCase(job)) {
       logger.error(
-          "Unsupported argument '{}'. Supported arguments are '{}' and '{}'",
+          "Unsupported argument '{}'. Supported arguments are '{}', '{}' and '{}'",
           job,
           FULLTEXT_INDEXING.value(),
-          METADATA_SYNC.value());
+          METADATA_SYNC.value(),
+          CHANGE_STREAM.value());
       System.exit(1);
     }
   }
@@ -62,6 +68,9 @@ public class IndexingApplication implements CommandLineRunner {
       batchConfig.indexFulltext(modifiedTimestamp);
     } else if (METADATA_SYNC.value().equalsIgnoreCase(job)) {
       batchConfig.syncMetadataJob();
+    } else if (CHANGE_STREAM.value().equalsIgnoreCase(job)) {
+      // runs until stopped; the timestamp argument is only used when no resume token was saved
+      changeStreamIndexer.indexChanges(modifiedTimestamp);
     }
   }
 }
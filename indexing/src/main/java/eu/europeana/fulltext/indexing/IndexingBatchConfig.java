@@ -1,6 +1,7 @@
 package eu.europeana.fulltext.indexing;
 
 import static eu.europeana.fulltext.indexing.IndexingConstants.BATCH_THREAD_EXECUTOR;
+import static eu.europeana.fulltext.indexing.IndexingConstants.PARTITION_THREAD_EXECUTOR;
 import static eu.europeana.fulltext.indexing.IndexingConstants.TIMESTAMP_UPDATE_FULLTEXT;
 
 import eu.europeana.fulltext.indexing.listener.FulltextIndexingListener;
@@ -12,7 +13,7 @@ import eu.europeana.fulltext.indexing.processor.FulltextIndexingWrapperCreator;
 import eu.europeana.fulltext.indexing.processor.FulltextIndexingProcessor;
 import eu.europeana.fulltext.indexing.processor.IndexingMetadataSyncProcessor;
 import eu.europeana.fulltext.indexing.processor.MetadataSyncWrapperCreator;
-import eu.europeana.fulltext.indexing.reader.AnnoPageRecordIdReader;
+import eu.europeana.fulltext.indexing.reader.DatasetPartitioner;
 import eu.europeana.fulltext.indexing.reader.FulltextSolrDocumentReader;
 import eu.europeana.fulltext.indexing.repository.IndexingAnnoPageRepository;
 import eu.europeana.fulltext.indexing.solr.FulltextSolrService;
@@ -61,6 +62,7 @@ public class IndexingBatchConfig {
   private final StepBuilderFactory steps;
 
   private final TaskExecutor indexingTaskExecutor;
+  private final TaskExecutor partitionTaskExecutor;
 
   private final IndexingAppSettings appSettings;
   private final FulltextSolrService fulltextSolr;
@@ -78,11 +80,13 @@ public class IndexingBatchConfig {
   private final FulltextSolrDeletionWriter fulltextSolrDeletionWriter;
 
   private final IndexingAnnoPageRepository repository;
+  private final ItemStreamReader<AnnoPageRecordId> partitionRecordIdReader;
 
   public IndexingBatchConfig(
       JobBuilderFactory jobs,
       StepBuilderFactory steps,
       @Qualifier(BATCH_THREAD_EXECUTOR) TaskExecutor indexingTaskExecutor,
+      @Qualifier(PARTITION_THREAD_EXECUTOR) TaskExecutor partitionTaskExecutor,
       IndexingAppSettings appSettings,
       FulltextSolrService fulltextSolr,
       FulltextIndexingWrapperCreator fulltextIndexingWrapperCreator,
@@ -94,10 +98,12 @@ public class IndexingBatchConfig {
       FulltextSolrInsertionWriter fulltextSolrInsertionWriter,
       FulltextSolrDeletionWriter fulltextSolrDeletionWriter,
       IndexingAnnoPageRepository repository,
+      ItemStreamReader<AnnoPageRecordId> partitionRecordIdReader,
       JobLauncher jobLauncher) {
     this.jobs = jobs;
     this.steps = steps;
     this.indexingTaskExecutor = indexingTaskExecutor;
+    this.partitionTaskExecutor = partitionTaskExecutor;
     this.appSettings = appSettings;
     this.fulltextSolr = fulltextSolr;
     this.fulltextIndexingWrapperCreator = fulltextIndexingWrapperCreator;
@@ -109,19 +115,11 @@ public class IndexingBatchConfig {
     this.fulltextSolrInsertionWriter = fulltextSolrInsertionWriter;
     this.fulltextSolrDeletionWriter = fulltextSolrDeletionWriter;
     this.repository = repository;
+    this.partitionRecordIdReader = partitionRecordIdReader;
     this.jobLauncher = jobLauncher;
   }
 
 
-  /**
-   * Creates a thread-safe reader for fetching record identifiers from Mongo
-   * @param from modification timestamp to use in reader
-   * @return
-   */
-  private ItemReader<AnnoPageRecordId> recordIdReader(Optional<Instant> from) {
-    return threadSafeReader(new AnnoPageRecordIdReader(repository, from.orElse(null)));
-  }
-
   /**
    * Creates a thread-safe reader for fetching records from Fulltext Solr
    * @return
@@ -139,46 +137,64 @@ public class IndexingBatchConfig {
   }
 
   /**
-   * Creates a composite ItemWriter that inserts and deletes documents from Solr.
-   * Reader chains {@link FulltextSolrInsertionWriter} and {@link FulltextSolrDeletionWriter}
+   * Creates a composite ItemWriter that syncs metadata for the whole chunk, then inserts and deletes documents from Solr.
+   * Writer chains {@link IndexingMetadataSyncProcessor}, {@link FulltextSolrInsertionWriter} and {@link FulltextSolrDeletionWriter}
    * @return composite item writer
    */
-  private ItemWriter<IndexingWrapper> compositeWriter() {
+  ItemWriter<IndexingWrapper> compositeWriter() {
     CompositeItemWriter<IndexingWrapper> writer = new CompositeItemWriter<>();
-    writer.setDelegates(List.of(fulltextSolrInsertionWriter, fulltextSolrDeletionWriter));
+    writer.setDelegates(
+        List.of(metadataSyncProcessor, fulltextSolrInsertionWriter, fulltextSolrDeletionWriter));
     return writer;
   }
 
   /**
    * Creates a composite processor for the Fulltext Indexing pipeline.
-   * Chains {@link FulltextIndexingWrapperCreator}, {@link FulltextIndexingProcessor} and {@link IndexingMetadataSyncProcessor}
+   * Chains {@link FulltextIndexingWrapperCreator} and {@link FulltextIndexingProcessor}.
+   * Metadata is synced per chunk by {@link #compositeWriter()}
    * @return
    */
-  private ItemProcessor<AnnoPageRecordId, IndexingWrapper> compositeFulltextIndexingProcessor() {
+  ItemProcessor<AnnoPageRecordId, IndexingWrapper> compositeFulltextIndexingProcessor() {
     CompositeItemProcessor<AnnoPageRecordId, IndexingWrapper> processor =
         new CompositeItemProcessor<>();
     processor.setDelegates(
-        List.of(fulltextIndexingWrapperCreator, fulltextIndexingProcessor, metadataSyncProcessor));
+        List.of(fulltextIndexingWrapperCreator, fulltextIndexingProcessor));
     return processor;
   }
 
   /**
-   * Creates a composite processor the Metadata Sync pipeline.
-   * Chains {@link MetadataSyncWrapperCreator}, and {@link IndexingMetadataSyncProcessor}
-   * @return
+   * Creates the partitioned Fulltext Indexing step. There is one partition per dataset (large
+   * datasets are split into ranges of local ids), and throttleLimit partitions run at the same time,
+   * each with its own reader.
+   * @param from modification timestamp to use in the partition readers
+   * @return partitioned step
    */
-  private ItemProcessor<SolrDocument, IndexingWrapper> compositeMetadataSyncProcessor() {
-    CompositeItemProcessor<SolrDocument, IndexingWrapper> processor = new CompositeItemProcessor<>();
-    processor.setDelegates(
-        List.of(metadataSyncWrapperCreator, metadataSyncProcessor));
-    return processor;
-  }
-
   private Step syncFulltextStep(Optional<Instant> from) {
     return this.steps
         .get("syncFulltextStep")
+        .partitioner(
+            "syncFulltextPartitionStep",
+            new DatasetPartitioner(
+                repository,
+                from,
+                appSettings.getInstanceCount(),
+                appSettings.getInstanceIndex(),
+                appSettings.getPartitionSize()))
+        .step(syncFulltextPartitionStep())
+        .gridSize(appSettings.getBatchThrottleLimit())
+        .taskExecutor(partitionTaskExecutor)
+        .build();
+  }
+
+  /**
+   * Creates the step that indexes one partition (dataset or range of local ids). Partitions run in
+   * parallel, so the step itself is single-threaded.
+   */
+  private Step syncFulltextPartitionStep() {
+    return this.steps
+        .get("syncFulltextPartitionStep")
         .<AnnoPageRecordId, IndexingWrapper>chunk(appSettings.getBatchPageSize())
-        .reader(recordIdReader(from))
+        .reader(partitionRecordIdReader)
         .listener((ItemReadListener<? super AnnoPageRecordId>) fulltextIndexingListener)
         .processor(compositeFulltextIndexingProcessor())
         .listener(
@@ -190,8 +206,6 @@ public class IndexingBatchConfig {
         // skip all exceptions up to the configurable limit
         .skip(Exception.class)
         .skipLimit(appSettings.getSkipLimit())
-        .taskExecutor(indexingTaskExecutor)
-        .throttleLimit(appSettings.getBatchThrottleLimit())
         .build();
   }
 
@@ -200,7 +214,8 @@ public class IndexingBatchConfig {
         .get("syncMetadataStep")
         .<SolrDocument, IndexingWrapper>chunk(appSettings.getBatchPageSize())
         .reader(fulltextSolrReader())
-        .processor(compositeMetadataSyncProcessor())
+        // metadata is synced per chunk by the writer, see compositeWriter()
+        .processor(metadataSyncWrapperCreator)
         .listener(metadataSyncListener)
         .writer(compositeWriter())
         .listener(fulltextIndexingListener)
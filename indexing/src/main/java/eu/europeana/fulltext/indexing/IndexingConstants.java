@@ -38,8 +38,15 @@ public class IndexingConstants {
 
   // Bean names
   public static final String BATCH_THREAD_EXECUTOR = "batchThreadExecutor";
+  public static final String PARTITION_THREAD_EXECUTOR = "partitionThreadExecutor";
   public static final String FULLTEXT_INDEX_JOB = "fulltextIndexJob";
 
+  // Partition execution context keys
+  public static final String PARTITION_DATASET_ID = "datasetId";
+  public static final String PARTITION_FROM = "from";
+  public static final String PARTITION_LOCAL_ID_START = "localIdStart";
+  public static final String PARTITION_LOCAL_ID_END = "localIdEnd";
+
   private IndexingConstants() {
     // private to hide implicit one
   }
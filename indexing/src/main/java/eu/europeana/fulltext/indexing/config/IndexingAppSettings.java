@@ -63,6 +63,21 @@ public class IndexingAppSettings {
   @Value("${batch.progressLoggingInterval: 10000}")
   private long progressLoggingInterval;
 
+  @Value("${batch.fulltext.annotationTables: false}")
+  private boolean indexAnnotationTables;
+
+  @Value("${batch.changeStream.windowMs: 5000}")
+  private long changeStreamWindowMs;
+
+  @Value("${batch.fulltext.instanceCount: 1}")
+  private int instanceCount;
+
+  @Value("${batch.fulltext.instanceIndex: 0}")
+  private int instanceIndex;
+
+  @Value("${batch.fulltext.partitionSize: 50000}")
+  private long partitionSize;
+
   public String getMongoConnectionUrl() {
     return mongoConnectionUrl;
   }
@@ -133,4 +148,24 @@ public class IndexingAppSettings {
   public long getProgressLoggingInterval() {
     return progressLoggingInterval;
   }
+
+  public boolean indexAnnotationTables() {
+    return indexAnnotationTables;
+  }
+
+  public long getChangeStreamWindowMs() {
+    return changeStreamWindowMs;
+  }
+
+  public int getInstanceCount() {
+    return instanceCount;
+  }
+
+  public long getPartitionSize() {
+    return partitionSize;
+  }
+
+  public int getInstanceIndex() {
+    return instanceIndex;
+  }
 }
@@ -1,9 +1,22 @@
 package eu.europeana.fulltext.indexing.config;
 
 import static eu.europeana.fulltext.indexing.IndexingConstants.BATCH_THREAD_EXECUTOR;
+import static eu.europeana.fulltext.indexing.IndexingConstants.PARTITION_DATASET_ID;
+import static eu.europeana.fulltext.indexing.IndexingConstants.PARTITION_FROM;
+import static eu.europeana.fulltext.indexing.IndexingConstants.PARTITION_LOCAL_ID_END;
+import static eu.europeana.fulltext.indexing.IndexingConstants.PARTITION_LOCAL_ID_START;
+import static eu.europeana.fulltext.indexing.IndexingConstants.PARTITION_THREAD_EXECUTOR;
 
+import eu.europeana.fulltext.indexing.model.AnnoPageRecordId;
+import eu.europeana.fulltext.indexing.reader.AnnoPageRecordIdReader;
+import eu.europeana.fulltext.indexing.repository.IndexingAnnoPageRepository;
+import java.time.Instant;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.core.task.TaskExecutor;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
@@ -25,4 +38,36 @@ public class IndexingBatchBean {
 
     return taskExecutor;
   }
+
+  /**
+   * Task executor that runs the partitions of the fulltext indexing step. There is at least one
+   * partition per dataset, so instead of queueing (and possibly rejecting) partitions, submitting
+   * blocks until fewer than throttleLimit partitions are running.
+   */
+  @Bean(PARTITION_THREAD_EXECUTOR)
+  public TaskExecutor partitionThreadExecutor() {
+    SimpleAsyncTaskExecutor taskExecutor = new SimpleAsyncTaskExecutor("indexing-partition-");
+    taskExecutor.setConcurrencyLimit(config.getBatchThrottleLimit());
+    return taskExecutor;
+  }
+
+  /**
+   * Reader for the record ids of one partition (dataset or range of local ids in a dataset) of the
+   * fulltext indexing step. Step-scoped, so every partition gets its own reader and Mongo cursor.
+   */
+  @Bean
+  @StepScope
+  public ItemStreamReader<AnnoPageRecordId> partitionRecordIdReader(
+      IndexingAnnoPageRepository repository,
+      @Value("#{stepExecutionContext['" + PARTITION_DATASET_ID + "']}") String datasetId,
+      @Value("#{stepExecutionContext['" + PARTITION_FROM + "']}") Long fromMillis,
+      @Value("#{stepExecutionContext['" + PARTITION_LOCAL_ID_START + "']}") String localIdStart,
+      @Value("#{stepExecutionContext['" + PARTITION_LOCAL_ID_END + "']}") String localIdEnd) {
+    return new AnnoPageRecordIdReader(
+        repository,
+        fromMillis != null ? Instant.ofEpochMilli(fromMillis) : null,
+        datasetId,
+        localIdStart,
+        localIdEnd);
+  }
 }
@@ -2,7 +2,8 @@ package eu.europeana.fulltext.indexing.model;
 
 public enum IndexingJobType {
   FULLTEXT_INDEXING("fulltext_indexing"),
-  METADATA_SYNC("metadata_sync");
+  METADATA_SYNC("metadata_sync"),
+  CHANGE_STREAM("fulltext_change_stream");
 
   final String value;
 
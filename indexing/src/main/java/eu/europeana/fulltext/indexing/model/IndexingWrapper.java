@@ -42,6 +42,11 @@ actions.remove(IndexingAction.WRITE_DOCUMENT);
 actions.add(IndexingAction.DELETE_DOCUMENT);
   }
 
+  /** Document is up-to-date, so it should neither be written nor deleted */
+  public void skipWrite() {
+    actions.remove(IndexingAction.WRITE_DOCUMENT);
+  }
+
   @Override
   public String toString() {
     return "{"
@@ -2,11 +2,14 @@ package eu.europeana.fulltext.indexing.processor;
 
 import eu.europeana.fulltext.entity.AnnoPage;
 import eu.europeana.fulltext.indexing.IndexingConstants;
+import eu.europeana.fulltext.indexing.config.IndexingAppSettings;
 import eu.europeana.fulltext.indexing.model.IndexingAction;
 import eu.europeana.fulltext.indexing.model.IndexingWrapper;
 import eu.europeana.fulltext.indexing.model.AnnoPageRecordId;
 import eu.europeana.fulltext.indexing.repository.IndexingAnnoPageRepository;
 import eu.europeana.fulltext.indexing.solr.FulltextSolrService;
+import eu.europeana.fulltext.util.AnnotationOffsetTable;
+import eu.europeana.fulltext.util.PageOffsetMap;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -18,26 +21,29 @@ import java.util.Map.Entry;
 import java.util.stream.Collectors;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.apache.solr.client.solrj.response.schema.SchemaRepresentation;
 import org.apache.solr.common.SolrInputDocument;
 import org.springframework.stereotype.Component;
 
 /**
  * Processor that copies Fulltext Resources to Solr. Expects to run BEFORE {@link
- * IndexingMetadataSyncProcessor}
+ * IndexingMetadataSyncProcessor}, which is part of the writer
  */
 @Component
 public class FulltextIndexingProcessor extends BaseIndexingWrapperProcessor {
 
   private final FulltextSolrService fulltextSolr;
   private final IndexingAnnoPageRepository repository;
+  private final boolean indexAnnotationTables;
   private static final Logger logger = LogManager.getLogger(FulltextIndexingProcessor.class);
 
   public FulltextIndexingProcessor(
-      FulltextSolrService fulltextSolr, IndexingAnnoPageRepository repository) {
+      FulltextSolrService fulltextSolr,
+      IndexingAnnoPageRepository repository,
+      IndexingAppSettings settings) {
     super(IndexingAction.UPDATE_FULLTEXT_FIELDS);
     this.fulltextSolr = fulltextSolr;
     this.repository = repository;
+    this.indexAnnotationTables = settings.indexAnnotationTables();
   }
 
    public IndexingWrapper doProcessing(IndexingWrapper indexingWrapper) {
@@ -45,11 +51,17 @@ public class FulltextIndexingProcessor extends BaseIndexingWrapperProcessor {
     String europeanaId = recordId.toEuropeanaId();
 
     Map<String, List<String>> langFtContent = new HashMap<>();
+    // targets of the fulltext content per language, in the same order
+    Map<String, List<String>> langTargets = new HashMap<>();
+    // annotation tables per Solr field (one field per target)
+    Map<String, List<String>> annotationTables = new HashMap<>();
 
     SolrInputDocument doc =  new SolrInputDocument(IndexingConstants.EUROPEANA_ID, europeanaId);
 
     List<AnnoPage> annoPages =
-        repository.getAnnoPagesWithProjection(recordId.getDsId(), recordId.getLcId());
+        indexAnnotationTables
+            ? repository.getAnnoPagesWithAnnotations(recordId.getDsId(), recordId.getLcId())
+            : repository.getAnnoPagesWithProjection(recordId.getDsId(), recordId.getLcId());
 
 
     // creates a mapping between AnnoPage deprecation status and AnnoPages.
@@ -62,7 +74,7 @@ public class FulltextIndexingProcessor extends BaseIndexingWrapperProcessor {
     for (AnnoPage ap : annoPageMap.getOrDefault(Boolean.TRUE, Collections.emptyList())) {
       String fulltext = ap.getRes().getValue();
       String lang = ap.getLang();
-      if (!isLangSupported(lang, fulltextSolr.getSchema())) {
+      if (!fulltextSolr.isLangSupported(lang)) {
         if (logger.isTraceEnabled()) {
           logger.trace(
               "Record {} - language not supported: {} . Indexing in fulltext.", europeanaId, lang);
@@ -79,12 +91,19 @@ public class FulltextIndexingProcessor extends BaseIndexingWrapperProcessor {
       String content = addFulltextPrefix(target, fulltext);
       List<String> listContents = langFtContent.computeIfAbsent(lang, k -> new ArrayList<>());
       listContents.add(content);
+      langTargets.computeIfAbsent(lang, k -> new ArrayList<>()).add(target);
+
+      if (indexAnnotationTables) {
+        annotationTables
+            .computeIfAbsent(AnnotationOffsetTable.getSolrField(target), k -> new ArrayList<>())
+            .add(AnnotationOffsetTable.encode(ap));
+      }
     }
 
     // handle deleted AnnoPages
     for (AnnoPage ap : annoPageMap.getOrDefault(Boolean.FALSE, Collections.emptyList())) {
       String lang = ap.getLang();
-      if (logger.isTraceEnabled() && !isLangSupported(lang, fulltextSolr.getSchema())) {
+      if (logger.isTraceEnabled() && !fulltextSolr.isLangSupported(lang)) {
         logger.trace(
             "Record {} - language not supported: {} . Indexing in fulltext.", europeanaId, lang);
       }
@@ -92,11 +111,27 @@ public class FulltextIndexingProcessor extends BaseIndexingWrapperProcessor {
         langFtContent.put(
             lang, new ArrayList<>()); // hopefully removes content (although not the field)
       }
+      if (indexAnnotationTables) {
+        annotationTables.putIfAbsent(
+            AnnotationOffsetTable.getSolrField(ap.getTgtId()), new ArrayList<>());
+      }
     }
 
     for (Entry<String, List<String>> entry : langFtContent.entrySet()) {
+      String field = IndexingConstants.FULLTEXT + "." + entry.getKey();
+      doc.addField(field, Map.of("set", entry.getValue()));
+      // lets the API find the page of a highlight without requesting the entire page text
+      List<String> targets = langTargets.getOrDefault(entry.getKey(), Collections.emptyList());
       doc.addField(
-          IndexingConstants.FULLTEXT + "." + entry.getKey(), Map.of("set", entry.getValue()));
+          PageOffsetMap.getSolrField(field),
+          Map.of(
+              "set",
+              targets.isEmpty()
+                  ? new ArrayList<>()
+                  : List.of(PageOffsetMap.encode(targets, entry.getValue()))));
+    }
+    for (Entry<String, List<String>> entry : annotationTables.entrySet()) {
+      doc.addField(entry.getKey(), Map.of("set", entry.getValue()));
     }
 
     doc.addField(IndexingConstants.TIMESTAMP_UPDATE_FULLTEXT, Map.of("set", modified));
@@ -105,17 +140,6 @@ public class FulltextIndexingProcessor extends BaseIndexingWrapperProcessor {
     return indexingWrapper;
   }
 
-  private boolean isLangSupported(String language, SchemaRepresentation schema) {
-    if (language == null || language.isEmpty()) {
-      return false;
-    }
-
-    return schema.getFields().stream()
-        .map(p -> p.get("name"))
-        .collect(Collectors.toList())
-        .contains(IndexingConstants.FULLTEXT + "." + language);
-  }
-
   /**
    * Prefix added to each fulltext content. It will be stored but not indexed. It is useful for the
    * API to locate the matched terms and highlight them in the image (if applicable)
@@ -7,19 +7,30 @@ import eu.europeana.fulltext.indexing.model.IndexingAction;
 import eu.europeana.fulltext.indexing.model.IndexingWrapper;
 import eu.europeana.fulltext.indexing.solr.FulltextSolrService;
 import eu.europeana.fulltext.indexing.solr.MetadataSolrService;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrInputDocument;
+import org.springframework.batch.item.ItemWriter;
 import org.springframework.stereotype.Component;
 
 /**
- * Updates metadata fields from the Metadata Solr collection
+ * Updates metadata fields from the Metadata Solr collection.
+ *
+ * <p>This runs on a whole chunk at once, so the Metadata documents of all records in the chunk
+ * and the metadata field names of the existing Fulltext documents can each be retrieved with a
+ * single query. For that reason it's registered as the first delegate of
+ * the composite writer instead of as an item processor, and it only updates the actions of the
+ * items: subsequent writers then write or delete the documents.
  */
 @Component
-public class IndexingMetadataSyncProcessor
-    extends BaseIndexingWrapperProcessor {
+public class IndexingMetadataSyncProcessor implements ItemWriter<IndexingWrapper> {
 
   private static final Logger LOGGER = LogManager.getLogger(IndexingMetadataSyncProcessor.class);
   private final MetadataSolrService metadataSolr;
@@ -27,22 +38,45 @@ public class IndexingMetadataSyncProcessor
 
 
   public IndexingMetadataSyncProcessor(MetadataSolrService metadataSolr, FulltextSolrService fulltextSolrService) {
-    super(IndexingAction.UPDATE_METADATA_FIELDS);
     this.metadataSolr = metadataSolr;
     this.fulltextSolrService = fulltextSolrService;
   }
 
   @Override
-  protected IndexingWrapper doProcessing(IndexingWrapper indexingWrapper) throws Exception {
-    String europeanaId = indexingWrapper.getRecordId().toEuropeanaId();
+  public void write(List<? extends IndexingWrapper> list) throws Exception {
+    List<IndexingWrapper> toProcess =
+        list.stream()
+            .filter(w -> w.getActions().contains(IndexingAction.UPDATE_METADATA_FIELDS))
+            .collect(Collectors.toList());
+    if (toProcess.isEmpty()) {
+      return;
+    }
+
+    List<String> europeanaIds =
+        toProcess.stream().map(w -> w.getRecordId().toEuropeanaId()).collect(Collectors.toList());
+    Map<String, SolrDocument> metadataDocs = metadataSolr.getDocuments(europeanaIds);
+    Map<String, Collection<String>> fulltextFieldNames =
+        fulltextSolrService.getMetadataFieldNames(europeanaIds);
+
+    for (IndexingWrapper indexingWrapper : toProcess) {
+      String europeanaId = indexingWrapper.getRecordId().toEuropeanaId();
+      doProcessing(
+          indexingWrapper,
+          europeanaId,
+          metadataDocs.get(europeanaId),
+          fulltextFieldNames.getOrDefault(europeanaId, Collections.emptyList()));
+    }
+  }
+
+  private void doProcessing(IndexingWrapper indexingWrapper, String europeanaId,
+      SolrDocument metadataSolrDocument, Collection<String> fulltextFieldNames) {
     // check if document exists on Metadata Collection.
-    SolrDocument metadataSolrDocument = metadataSolr.getDocument(europeanaId);
     if (metadataSolrDocument == null || metadataSolrDocument.isEmpty()) {
       if(LOGGER.isDebugEnabled()){
         LOGGER.debug("{} does not exist in metadata collection. Will delete document in fulltext solr", europeanaId);
       }
       indexingWrapper.markForDeletion();
-      return indexingWrapper;
+      return;
     }
 
     Date fulltextSolrTimestamp =
@@ -57,14 +91,14 @@ public class IndexingMetadataSyncProcessor
         LOGGER.debug("{} timestamp_update in metadata collection not after fulltext collection value; document not updated" , europeanaId);
       }
 
-      // This means the record isn't passed on to subsequent processors or writers
-      return null;
+      // This means the record isn't passed on to subsequent writers
+      indexingWrapper.skipWrite();
+      return;
     }
 
       SolrInputDocument fulltextDoc = indexingWrapper.getSolrDocument();
 
     // merge fields from Fulltext and Metadata docs
-      mergeDocs(metadataSolrDocument, fulltextDoc, europeanaId, fulltextSolrService);
-    return indexingWrapper;
+      mergeDocs(metadataSolrDocument, fulltextDoc, europeanaId, fulltextFieldNames);
   }
 }
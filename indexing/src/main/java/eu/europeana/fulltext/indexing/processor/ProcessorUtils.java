@@ -1,6 +1,5 @@
 package eu.europeana.fulltext.indexing.processor;
 
-import eu.europeana.fulltext.exception.SolrServiceException;
 import eu.europeana.fulltext.indexing.IndexingConstants;
 
 import java.time.DateTimeException;
@@ -10,7 +9,6 @@ import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 
-import eu.europeana.fulltext.indexing.solr.FulltextSolrService;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.solr.common.SolrDocument;
@@ -43,17 +41,16 @@ public class ProcessorUtils {
    * Copies fields from the metadataDoc argument to the destinationDoc
    * @param metadataDoc Meatadata document
    * @param destinationDoc Solr Input document where the values will be stored
-   * @param fulltextSolrService Solr service to fetch data
    * @param europeanaId europeana Id
-   *
-   * @throws SolrServiceException throws solr exception
+   * @param fulltextFieldNames names of the metadata fields currently in the Fulltext document (see
+   *     {@link eu.europeana.fulltext.indexing.solr.FulltextSolrService#getMetadataFieldNames(Collection)})
    */
   public static void mergeDocs(SolrDocument metadataDoc, SolrInputDocument destinationDoc,
-                               String europeanaId, FulltextSolrService fulltextSolrService) throws SolrServiceException {
+                               String europeanaId, Collection<String> fulltextFieldNames) {
 
     destinationDoc.setField(EUROPEANA_ID, europeanaId);
     HashSet<String> metadataFields = new HashSet<>(metadataDoc.getFieldNames());
-    HashSet<String> fulltextFields = new HashSet<>(fulltextSolrService.getDocument(europeanaId).getFieldNames());
+    HashSet<String> fulltextFields = new HashSet<>(fulltextFieldNames);
 
     fulltextFields.removeAll(metadataFields);
     for (String field: fulltextFields) {
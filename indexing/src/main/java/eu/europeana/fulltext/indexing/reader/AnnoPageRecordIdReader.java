@@ -15,18 +15,44 @@ import org.springframework.batch.item.data.AbstractPaginatedDataItemReader;
 
 /**
  * Reader for fetching recordIds (dsId + lcId combination) of recently-modified
- * AnnoPages
+ * AnnoPages in one dataset, optionally limited to a range of local ids.
+ * Each partition of the fulltext indexing step has its own reader (and Mongo cursor), see
+ * {@link DatasetPartitioner}
+ * <p>
+ * Records are read in order of local id. The reader doesn't save its state: the job repository is
+ * in memory, and every run of the job is a new job instance, so partitions are never restarted.
  */
 public class AnnoPageRecordIdReader extends AbstractPaginatedDataItemReader<AnnoPageRecordId> {
   private static final Logger logger = LogManager.getLogger(AnnoPageRecordIdReader.class);
+
   private final IndexingAnnoPageRepository repository;
   private final Instant from;
+  private final String datasetId;
+  private final String localIdStart;
+  private final String localIdEnd;
 
   private MorphiaCursor<AnnoPageRecordId> cursor;
 
-  public AnnoPageRecordIdReader(IndexingAnnoPageRepository repository, Instant from) {
+  /**
+   * Creates a new reader
+   *
+   * @param repository repository for retrieving the record ids
+   * @param from least recent modification timestamp to fetch, or null to fetch all records
+   * @param datasetId dataset to fetch
+   * @param localIdStart first local id of the range (inclusive), or null to start at the first
+   *     record of the dataset
+   * @param localIdEnd local id where the range ends (exclusive), or null to end at the last record
+   *     of the dataset
+   */
+  public AnnoPageRecordIdReader(IndexingAnnoPageRepository repository, Instant from,
+      String datasetId, String localIdStart, String localIdEnd) {
     this.repository = repository;
     this.from = from;
+    this.datasetId = datasetId;
+    this.localIdStart = localIdStart;
+    this.localIdEnd = localIdEnd;
+    setSaveState(false);
+    setName(AnnoPageRecordIdReader.class.getName());
   }
 
   @NotNull
@@ -34,12 +60,11 @@ public class AnnoPageRecordIdReader extends AbstractPaginatedDataItemReader<Anno
   protected Iterator<AnnoPageRecordId> doPageRead() {
     if (cursor != null && cursor.hasNext()){
       // Note: cursor.next reuses the same object reference, so we have to copy the values
-      AnnoPageRecordId next = cursor.next();
+      AnnoPageRecordId next = cursor.next().copy();
       if (logger.isTraceEnabled()) {
         logger.trace("Retrieved {}", next);
       }
-
-      return List.of(next.copy()).iterator();
+      return List.of(next).iterator();
     }
 
     // the call to this method is synchronized, see AbstractPaginatedDataItemReader.doRead()
@@ -49,15 +74,15 @@ public class AnnoPageRecordIdReader extends AbstractPaginatedDataItemReader<Anno
   @Override
   protected void doOpen() throws Exception {
     super.doOpen();
-    // Non-restartable, as we expect this to run in multi-threaded steps.
-    // see: https://stackoverflow.com/a/20002493
-    setSaveState(false);
-    setName(AnnoPageRecordIdReader.class.getName());
 
     if (cursor == null) {
-      cursor = repository.getAnnoPageRecordIdByModificationTime(Optional.ofNullable(from));
+      cursor =
+          repository.getAnnoPageRecordIdByModificationTime(
+              Optional.ofNullable(from), datasetId, localIdStart, localIdEnd);
       if (logger.isDebugEnabled()) {
-        logger.debug("Created Mongo Cursor for retrieving AnnoPage recordIds");
+        logger.debug(
+            "Created Mongo Cursor for retrieving AnnoPage recordIds; datasetId={}, localIds {} - {}",
+            datasetId, localIdStart, localIdEnd);
       }
     }
   }
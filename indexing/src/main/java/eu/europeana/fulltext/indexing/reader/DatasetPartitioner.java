@@ -0,0 +1,109 @@
+package eu.europeana.fulltext.indexing.reader;
+
+import static eu.europeana.fulltext.indexing.IndexingConstants.PARTITION_DATASET_ID;
+import static eu.europeana.fulltext.indexing.IndexingConstants.PARTITION_FROM;
+import static eu.europeana.fulltext.indexing.IndexingConstants.PARTITION_LOCAL_ID_END;
+import static eu.europeana.fulltext.indexing.IndexingConstants.PARTITION_LOCAL_ID_START;
+
+import eu.europeana.fulltext.indexing.repository.IndexingAnnoPageRepository;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+
+/**
+ * Splits the fulltext indexing work into one partition per dataset with recently-modified
+ * AnnoPages, so each partition reads its records with its own Mongo cursor. Fulltext data is
+ * concentrated in a few large (newspaper) datasets, so datasets with more than partitionSize
+ * modified AnnoPages are split further into ranges of local ids that are indexed in parallel.
+ *
+ * <p>When multiple indexing instances run at the same time, each instance only creates partitions
+ * for its share of the datasets (based on the hash of the dataset id), so the instances don't
+ * index the same records.
+ */
+public class DatasetPartitioner implements Partitioner {
+  private static final Logger logger = LogManager.getLogger(DatasetPartitioner.class);
+
+  private final IndexingAnnoPageRepository repository;
+  private final Optional<Instant> from;
+  private final int instanceCount;
+  private final int instanceIndex;
+  private final long partitionSize;
+
+  /**
+   * Creates a new partitioner
+   *
+   * @param repository repository for retrieving the dataset ids
+   * @param from least recent modification timestamp to index
+   * @param instanceCount number of indexing instances that share the datasets
+   * @param instanceIndex index of this instance, from 0 to instanceCount - 1
+   * @param partitionSize maximum number of AnnoPages in a partition, larger datasets are split
+   */
+  public DatasetPartitioner(
+      IndexingAnnoPageRepository repository,
+      Optional<Instant> from,
+      int instanceCount,
+      int instanceIndex,
+      long partitionSize) {
+    this.repository = repository;
+    this.from = from;
+    this.instanceCount = instanceCount;
+    this.instanceIndex = instanceIndex;
+    this.partitionSize = partitionSize;
+  }
+
+  /**
+   * Creates the partitions. The number of partitions depends on the number and size of the
+   * datasets, so gridSize is ignored; it only limits how many partitions run at the same time.
+   */
+  @Override
+  public Map<String, ExecutionContext> partition(int gridSize) {
+    Map<String, Long> annoPagesPerDataset = repository.countAnnoPagesPerDataset(from);
+    Map<String, ExecutionContext> partitions = new HashMap<>();
+    for (Map.Entry<String, Long> dataset : annoPagesPerDataset.entrySet()) {
+      String datasetId = dataset.getKey();
+      if (Math.floorMod(datasetId.hashCode(), instanceCount) != instanceIndex) {
+        continue;
+      }
+
+      List<String> boundaries = Collections.emptyList();
+      long ranges = (dataset.getValue() + partitionSize - 1) / partitionSize;
+      if (ranges > 1) {
+        boundaries = repository.getLocalIdBoundaries(datasetId, from, (int) ranges);
+        logger.info(
+            "Dataset {} has {} modified AnnoPages; split into {} partitions",
+            datasetId,
+            dataset.getValue(),
+            boundaries.size() + 1);
+      }
+
+      // range i starts at boundary i - 1 (inclusive) and ends at boundary i (exclusive)
+      for (int i = 0; i <= boundaries.size(); i++) {
+        ExecutionContext context = new ExecutionContext();
+        context.putString(PARTITION_DATASET_ID, datasetId);
+        from.ifPresent(instant -> context.putLong(PARTITION_FROM, instant.toEpochMilli()));
+        if (i > 0) {
+          context.putString(PARTITION_LOCAL_ID_START, boundaries.get(i - 1));
+        }
+        if (i < boundaries.size()) {
+          context.putString(PARTITION_LOCAL_ID_END, boundaries.get(i));
+        }
+        partitions.put("dataset-" + datasetId + "-" + i, context);
+      }
+    }
+
+    logger.info(
+        "Created {} partitions from {} datasets; instance {} of {}",
+        partitions.size(),
+        annoPagesPerDataset.size(),
+        instanceIndex + 1,
+        instanceCount);
+    return partitions;
+  }
+}
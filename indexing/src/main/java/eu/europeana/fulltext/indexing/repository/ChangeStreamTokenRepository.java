@@ -0,0 +1,99 @@
+package eu.europeana.fulltext.indexing.repository;
+
+import static com.mongodb.client.model.Filters.eq;
+import static eu.europeana.fulltext.util.MorphiaUtils.Fields.DATASET_ID;
+import static eu.europeana.fulltext.util.MorphiaUtils.Fields.LOCAL_ID;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.ReplaceOptions;
+import dev.morphia.Datastore;
+import eu.europeana.fulltext.indexing.model.AnnoPageRecordId;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import org.bson.BsonArray;
+import org.bson.BsonDateTime;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Stores the resume token of the AnnoPage change stream, so change stream indexing continues where
+ * it stopped after a restart. Records that failed processing are stored together with the token, so
+ * they can be retried.
+ */
+@Repository
+public class ChangeStreamTokenRepository {
+
+  private static final String COLLECTION = "IndexingState";
+  private static final String ID = "_id";
+  private static final String TOKEN_ID = "annoPageChangeStream";
+  private static final String RESUME_TOKEN = "resumeToken";
+  private static final String FAILED_RECORDS = "failedRecords";
+  private static final String MODIFIED = "modified";
+
+  private final Datastore datastore;
+
+  public ChangeStreamTokenRepository(Datastore datastore) {
+    this.datastore = datastore;
+  }
+
+  private MongoCollection<BsonDocument> getCollection() {
+    return datastore.getDatabase().getCollection(COLLECTION, BsonDocument.class);
+  }
+
+  /**
+   * Gets the last saved resume token
+   *
+   * @return the resume token, or null if none was saved yet
+   */
+  public BsonDocument getResumeToken() {
+    BsonDocument doc = getCollection().find(eq(ID, TOKEN_ID)).first();
+    return doc != null && doc.isDocument(RESUME_TOKEN) ? doc.getDocument(RESUME_TOKEN) : null;
+  }
+
+  /**
+   * Gets the records that failed processing when the resume token was saved
+   *
+   * @return record ids, empty if none were saved
+   */
+  public List<AnnoPageRecordId> getFailedRecordIds() {
+    BsonDocument doc = getCollection().find(eq(ID, TOKEN_ID)).first();
+    if (doc == null || !doc.isArray(FAILED_RECORDS)) {
+      return Collections.emptyList();
+    }
+    List<AnnoPageRecordId> recordIds = new ArrayList<>();
+    for (BsonValue value : doc.getArray(FAILED_RECORDS)) {
+      BsonDocument recordId = value.asDocument();
+      recordIds.add(
+          new AnnoPageRecordId(
+              recordId.getString(DATASET_ID).getValue(), recordId.getString(LOCAL_ID).getValue()));
+    }
+    return recordIds;
+  }
+
+  /**
+   * Saves the resume token, replacing the previous one and the previously failed records
+   *
+   * @param resumeToken resume token of the last change that was indexed
+   * @param failedRecordIds records up to the resume token that failed processing
+   */
+  public void saveResumeToken(
+      BsonDocument resumeToken, Collection<AnnoPageRecordId> failedRecordIds) {
+    BsonArray failedRecords = new BsonArray();
+    for (AnnoPageRecordId recordId : failedRecordIds) {
+      failedRecords.add(
+          new BsonDocument(DATASET_ID, new BsonString(recordId.getDsId()))
+              .append(LOCAL_ID, new BsonString(recordId.getLcId())));
+    }
+    BsonDocument doc =
+        new BsonDocument(ID, new BsonString(TOKEN_ID))
+            .append(RESUME_TOKEN, resumeToken)
+            .append(FAILED_RECORDS, failedRecords)
+            .append(MODIFIED, new BsonDateTime(Instant.now().toEpochMilli()));
+    getCollection().replaceOne(eq(ID, TOKEN_ID), doc, new ReplaceOptions().upsert(true));
+  }
+}
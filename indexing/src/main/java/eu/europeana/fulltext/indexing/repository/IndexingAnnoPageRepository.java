@@ -4,6 +4,10 @@ import static dev.morphia.aggregation.experimental.expressions.Expressions.field
 import static dev.morphia.aggregation.experimental.stages.Group.id;
 import static dev.morphia.query.experimental.filters.Filters.eq;
 import static dev.morphia.query.experimental.filters.Filters.gt;
+import static dev.morphia.query.experimental.filters.Filters.gte;
+import static dev.morphia.query.experimental.filters.Filters.lt;
+import static eu.europeana.fulltext.util.MorphiaUtils.Fields.ANNOTATIONS;
+import static eu.europeana.fulltext.util.MorphiaUtils.Fields.ANNOTATIONS_BY_TYPE;
 import static eu.europeana.fulltext.util.MorphiaUtils.Fields.DATASET_ID;
 import static eu.europeana.fulltext.util.MorphiaUtils.Fields.DELETED;
 import static eu.europeana.fulltext.util.MorphiaUtils.Fields.LANGUAGE;
@@ -12,19 +16,37 @@ import static eu.europeana.fulltext.util.MorphiaUtils.Fields.MODIFIED;
 import static eu.europeana.fulltext.util.MorphiaUtils.Fields.PAGE_ID;
 import static eu.europeana.fulltext.util.MorphiaUtils.Fields.RESOURCE;
 import static eu.europeana.fulltext.util.MorphiaUtils.Fields.TARGET_ID;
+import static eu.europeana.fulltext.util.MorphiaUtils.Fields.TRANSLATION;
 
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.OperationType;
 import dev.morphia.aggregation.experimental.Aggregation;
 import dev.morphia.aggregation.experimental.AggregationOptions;
 import dev.morphia.aggregation.experimental.stages.Group;
 import dev.morphia.aggregation.experimental.stages.ReplaceRoot;
 import dev.morphia.aggregation.experimental.stages.Sort;
 import dev.morphia.query.MorphiaCursor;
+import dev.morphia.query.experimental.filters.Filter;
 import eu.europeana.fulltext.entity.AnnoPage;
 import eu.europeana.fulltext.indexing.model.AnnoPageRecordId;
 import eu.europeana.fulltext.repository.AnnoPageRepository;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.bson.BsonDocument;
+import org.bson.BsonTimestamp;
+import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.springframework.stereotype.Repository;
 
 @Repository
@@ -35,18 +57,35 @@ public class IndexingAnnoPageRepository extends AnnoPageRepository {
    */
   private static final int MONGO_BATCH_SIZE = 300;
 
+  private static final String CHANGE_OPERATION_TYPE = "operationType";
+  private static final String CHANGE_NAMESPACE = "ns";
+  private static final String CHANGE_DOCUMENT_KEY = "documentKey";
+  private static final String CHANGE_FULL_DOCUMENT = "fullDocument";
+  private static final String COUNT = "count";
+
   private final AggregationOptions aggregationOpts = new AggregationOptions().allowDiskUse(true).batchSize(MONGO_BATCH_SIZE);
   private static final List<String> PROJECTION_FIELDS =
       List.of(DATASET_ID, LOCAL_ID, PAGE_ID, TARGET_ID, LANGUAGE, MODIFIED, RESOURCE, DELETED);
+  private static final List<String> PROJECTION_FIELDS_WITH_ANNOTATIONS =
+      List.of(DATASET_ID, LOCAL_ID, PAGE_ID, TARGET_ID, LANGUAGE, MODIFIED, RESOURCE, DELETED,
+          TRANSLATION, ANNOTATIONS, ANNOTATIONS_BY_TYPE);
 
   /**
    * Fetches AnnoPages with the given dsId and lcId combination, only populating fields specified in
-   * PROJECTION_FIELDS above.
+   * PROJECTION_FIELDS above. The Resources of all AnnoPages are retrieved with a single query.
    */
   public List<AnnoPage> getAnnoPagesWithProjection(String dsId, String lcId) {
     return super.findAnnoPages(dsId, lcId, PROJECTION_FIELDS);
   }
 
+  /**
+   * Same as {@link #getAnnoPagesWithProjection(String, String)}, but also populates the translation
+   * flag and annotations of the AnnoPages
+   */
+  public List<AnnoPage> getAnnoPagesWithAnnotations(String dsId, String lcId) {
+    return super.findAnnoPages(dsId, lcId, PROJECTION_FIELDS_WITH_ANNOTATIONS);
+  }
+
   /**
    * Checks whether an active record exists for the dsId and lcId combination
    *
@@ -62,6 +101,66 @@ public class IndexingAnnoPageRepository extends AnnoPageRepository {
         > 0;
   }
 
+  /**
+   * Counts the AnnoPages modified after the specified timestamp, per dataset
+   *
+   * @param from least recent modification timestamp to fetch
+   * @return map with the number of AnnoPages per dataset id
+   */
+  public Map<String, Long> countAnnoPagesPerDataset(Optional<Instant> from) {
+    List<Bson> pipeline = new ArrayList<>();
+    from.ifPresent(
+        instant -> pipeline.add(Aggregates.match(Filters.gt(MODIFIED, Date.from(instant)))));
+    pipeline.add(Aggregates.group("$" + DATASET_ID, Accumulators.sum(COUNT, 1L)));
+
+    Map<String, Long> result = new LinkedHashMap<>();
+    for (Document dataset :
+        datastore
+            .getMapper()
+            .getCollection(AnnoPage.class)
+            .withDocumentClass(Document.class)
+            .aggregate(pipeline)
+            .allowDiskUse(true)) {
+      result.put(dataset.getString("_id"), ((Number) dataset.get(COUNT)).longValue());
+    }
+    return result;
+  }
+
+  /**
+   * Splits the AnnoPages of a dataset that were modified after the specified timestamp into ranges
+   * of local ids with about the same number of AnnoPages. All AnnoPages of a record are in the same
+   * range.
+   *
+   * @param datasetId dataset to split
+   * @param from least recent modification timestamp to fetch
+   * @param ranges number of ranges
+   * @return the first local id of every range except the first one, in ascending order. Can contain
+   *     fewer than ranges - 1 values if the dataset has few records
+   */
+  public List<String> getLocalIdBoundaries(String datasetId, Optional<Instant> from, int ranges) {
+    Bson filter =
+        from.map(
+                instant ->
+                    Filters.and(
+                        Filters.eq(DATASET_ID, datasetId),
+                        Filters.gt(MODIFIED, Date.from(instant))))
+            .orElse(Filters.eq(DATASET_ID, datasetId));
+
+    List<String> boundaries = new ArrayList<>();
+    for (Document bucket :
+        datastore
+            .getMapper()
+            .getCollection(AnnoPage.class)
+            .withDocumentClass(Document.class)
+            .aggregate(
+                List.of(Aggregates.match(filter), Aggregates.bucketAuto("$" + LOCAL_ID, ranges)))
+            .allowDiskUse(true)) {
+      boundaries.add(bucket.get("_id", Document.class).getString("min"));
+    }
+    // buckets are sorted by local id, the first one starts at the beginning of the dataset
+    return boundaries.isEmpty() ? boundaries : boundaries.subList(1, boundaries.size());
+  }
+
   /**
    * Gets the record ids (dsId + lcId combination) of AnnoPages modified after the specified timestamp
    *
@@ -70,19 +169,113 @@ public class IndexingAnnoPageRepository extends AnnoPageRepository {
    */
   public MorphiaCursor<AnnoPageRecordId> getAnnoPageRecordIdByModificationTime(
       Optional<Instant> from) {
+    return getAnnoPageRecordIdByModificationTime(from, null);
+  }
+
+  /**
+   * Gets the record ids (dsId + lcId combination) of AnnoPages in a dataset, modified after the
+   * specified timestamp
+   *
+   * @param from least recent modification timestamp to fetch
+   * @param datasetId dataset to fetch, or null to fetch all datasets
+   * @return MongoCursor for iterating over results. Callers are responsible for closing the cursor
+   */
+  public MorphiaCursor<AnnoPageRecordId> getAnnoPageRecordIdByModificationTime(
+      Optional<Instant> from, String datasetId) {
+    return getAnnoPageRecordIdByModificationTime(from, datasetId, null, null);
+  }
+
+  /**
+   * Gets the record ids (dsId + lcId combination) of AnnoPages in a range of local ids of a
+   * dataset, modified after the specified timestamp
+   *
+   * @param from least recent modification timestamp to fetch
+   * @param datasetId dataset to fetch, or null to fetch all datasets
+   * @param localIdStart first local id of the range (inclusive), or null to start at the first
+   *     record
+   * @param localIdEnd local id where the range ends (exclusive), or null to end at the last record
+   * @return MongoCursor for iterating over results, sorted by local id. Callers are responsible for
+   *     closing the cursor
+   */
+  public MorphiaCursor<AnnoPageRecordId> getAnnoPageRecordIdByModificationTime(
+      Optional<Instant> from,
+      String datasetId,
+      String localIdStart,
+      String localIdEnd) {
 
     // Aggregation Stages
     Aggregation<AnnoPage> query = datastore.aggregate(AnnoPage.class);
 
-    // match stage only included if a timestamp is specified, otherwise we aggregate on all records
-    // in db
-    from.ifPresent(instant -> query.match((gt(MODIFIED, instant))));
+    // match stage only included if a dataset or timestamp is specified, otherwise we aggregate on
+    // all records in db
+    List<Filter> filters = new ArrayList<>();
+    if (datasetId != null) {
+      filters.add(eq(DATASET_ID, datasetId));
+    }
+    if (localIdStart != null) {
+      filters.add(gte(LOCAL_ID, localIdStart));
+    }
+    if (localIdEnd != null) {
+      filters.add(lt(LOCAL_ID, localIdEnd));
+    }
+    from.ifPresent(instant -> filters.add(gt(MODIFIED, instant)));
+    if (!filters.isEmpty()) {
+      query.match(filters.toArray(Filter[]::new));
+    }
 
+    // $group doesn't keep the input order, so sort the groups themselves
     query
-        .sort(Sort.sort().ascending(DATASET_ID).ascending(LOCAL_ID))
         .group(Group.group(id().field(DATASET_ID).field(LOCAL_ID)))
+        .sort(Sort.sort().ascending("_id." + DATASET_ID).ascending("_id." + LOCAL_ID))
         .replaceRoot(ReplaceRoot.replaceRoot(field("_id")));
 
     return query.execute(AnnoPageRecordId.class, aggregationOpts);
   }
+
+  /**
+   * Opens a change stream on the AnnoPage collection. Only inserts, updates and replacements are
+   * included (AnnoPages are deprecated instead of deleted), and each change only contains the dsId
+   * and lcId of the changed AnnoPage.
+   *
+   * @param resumeToken resume token of the last processed change, or null to start at startTime
+   * @param startTime if no resume token is given, the time to start from. If neither is given, the
+   *     stream starts at the current time
+   * @param maxAwaitMs maximum time to wait for new changes when reading from the stream
+   * @return change stream
+   */
+  public ChangeStreamIterable<Document> watchRecordIds(
+      BsonDocument resumeToken, Optional<Instant> startTime, long maxAwaitMs) {
+    ChangeStreamIterable<Document> stream =
+        datastore
+            .getMapper()
+            .getCollection(AnnoPage.class)
+            .withDocumentClass(Document.class)
+            .watch(
+                List.of(
+                    Aggregates.match(
+                        Filters.in(
+                            CHANGE_OPERATION_TYPE,
+                            OperationType.INSERT.getValue(),
+                            OperationType.UPDATE.getValue(),
+                            OperationType.REPLACE.getValue())),
+                    // the full document includes all annotations, so only keep the record id
+                    Aggregates.project(
+                        Projections.include(
+                            CHANGE_OPERATION_TYPE,
+                            CHANGE_NAMESPACE,
+                            CHANGE_DOCUMENT_KEY,
+                            CHANGE_FULL_DOCUMENT + "." + DATASET_ID,
+                            CHANGE_FULL_DOCUMENT + "." + LOCAL_ID))))
+            // updates only contain the changed fields, so we need the current document for the ids
+            .fullDocument(FullDocument.UPDATE_LOOKUP)
+            .maxAwaitTime(maxAwaitMs, TimeUnit.MILLISECONDS);
+
+    if (resumeToken != null) {
+      stream.resumeAfter(resumeToken);
+    } else {
+      startTime.ifPresent(
+          instant -> stream.startAtOperationTime(new BsonTimestamp((int) instant.getEpochSecond(), 0)));
+    }
+    return stream;
+  }
 }
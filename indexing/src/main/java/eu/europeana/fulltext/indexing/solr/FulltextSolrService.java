@@ -5,13 +5,21 @@ import eu.europeana.fulltext.indexing.IndexingConstants;
 import eu.europeana.fulltext.indexing.config.IndexingAppSettings;
 import java.io.IOException;
 import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrQuery.ORDER;
+import org.apache.solr.client.solrj.SolrRequest.METHOD;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.request.schema.SchemaRequest;
 import org.apache.solr.client.solrj.response.QueryResponse;
@@ -22,6 +30,7 @@ import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrInputDocument;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
@@ -35,7 +44,11 @@ public class FulltextSolrService implements InitializingBean {
   private final int commitWithinMs;
   private final int retryLimit;
 
-  private SchemaRepresentation schema;
+  private volatile SchemaRepresentation schema;
+  /** Stored fields (and dynamic field patterns) in the schema that don't contain fulltext data */
+  private volatile String[] metadataFields;
+  /** Languages that have their own fulltext.[language] field in the schema */
+  private volatile Set<String> supportedLanguages;
 
   private final int metadataSolrSyncPageSize;
 
@@ -150,9 +163,73 @@ public class FulltextSolrService implements InitializingBean {
 
   @Override
   public void afterPropertiesSet() throws Exception {
+    loadSchema();
+  }
+
+  /**
+   * Periodically reloads the schema, so long-running jobs pick up fields (e.g. new languages) that
+   * are added to the schema while they run. On error the previously loaded schema is kept.
+   */
+  @Scheduled(
+      initialDelayString = "${solr.fulltext.schemaReloadMs:3600000}",
+      fixedDelayString = "${solr.fulltext.schemaReloadMs:3600000}")
+  public void reloadSchema() {
+    try {
+      loadSchema();
+    } catch (SolrServerException | IOException e) {
+      log.warn("Error reloading Fulltext Solr schema; keeping previous schema", e);
+    }
+  }
+
+  private void loadSchema() throws SolrServerException, IOException {
     SchemaRequest request = new SchemaRequest();
     SchemaResponse response = request.process(fulltextSolr);
-    schema = response.getSchemaRepresentation();
+    SchemaRepresentation newSchema = response.getSchemaRepresentation();
+    metadataFields = getMetadataFields(newSchema);
+    supportedLanguages = getSupportedLanguages(newSchema);
+    schema = newSchema;
+    if (log.isDebugEnabled()) {
+      log.debug("Loaded Fulltext Solr schema; supported languages: {}", supportedLanguages);
+    }
+  }
+
+  /** Gets the languages from all fulltext.[language] fields in the schema */
+  static Set<String> getSupportedLanguages(SchemaRepresentation schema) {
+    String prefix = FULLTEXT + ".";
+    return schema.getFields().stream()
+        .map(f -> String.valueOf(f.get("name")))
+        .filter(name -> name.startsWith(prefix))
+        .map(name -> name.substring(prefix.length()))
+        .collect(Collectors.toUnmodifiableSet());
+  }
+
+  /**
+   * Checks if the schema has a fulltext field for the given language
+   *
+   * @param language language code
+   * @return true if the fulltext.[language] field exists
+   */
+  public boolean isLangSupported(String language) {
+    if (language == null || language.isEmpty()) {
+      return false;
+    }
+    return supportedLanguages.contains(language);
+  }
+
+  /**
+   * Lists the fields and dynamic fields in the schema that aren't filled by the fulltext indexing,
+   * so they can be used as field list to retrieve a document without its (potentially very large)
+   * fulltext fields. Solr supports glob patterns in the field list, so dynamic fields can be
+   * included as-is.
+   */
+  private static String[] getMetadataFields(SchemaRepresentation schema) {
+    Set<String> fields = new LinkedHashSet<>();
+    fields.add(EUROPEANA_ID);
+    Stream.concat(schema.getFields().stream(), schema.getDynamicFields().stream())
+        .map(f -> String.valueOf(f.get("name")))
+        .filter(name -> !name.startsWith(FULLTEXT))
+        .forEach(fields::add);
+    return fields.toArray(String[]::new);
   }
 
   public SchemaRepresentation getSchema() {
@@ -173,6 +250,61 @@ public class FulltextSolrService implements InitializingBean {
             .setSort(EUROPEANA_ID, ORDER.asc));
   }
 
+  /**
+   * Retrieves the names of the fields that currently have a value, for multiple documents with a
+   * single query. Fulltext fields are not retrieved, as these can be several megabytes per
+   * document and only the metadata fields are needed when merging metadata.
+   *
+   * @param europeanaIds ids of the records to check
+   * @return map with the non-fulltext field names per europeanaId. Records that don't exist in
+   *     the Fulltext collection are not included
+   * @throws SolrServiceException if Solr still fails after the configured number of retries
+   */
+  public Map<String, Collection<String>> getMetadataFieldNames(Collection<String> europeanaIds)
+      throws SolrServiceException {
+    Map<String, Collection<String>> result = new HashMap<>();
+    if (europeanaIds.isEmpty()) {
+      return result;
+    }
+
+    SolrQuery query =
+        new SolrQuery("{!terms f=" + EUROPEANA_ID + "}" + String.join(",", europeanaIds))
+            .setFields(metadataFields)
+            .setRows(europeanaIds.size());
+
+    int attempts = retryLimit;
+    while (attempts > 0) {
+      try {
+        QueryResponse response = fulltextSolr.query(query, METHOD.POST);
+        if (log.isDebugEnabled()) {
+          log.debug(
+              "Retrieved field names of {} Fulltext docs in {}ms",
+              europeanaIds.size(),
+              response.getElapsedTime());
+        }
+        for (SolrDocument doc : response.getResults()) {
+          result.put(doc.getFieldValue(EUROPEANA_ID).toString(), doc.getFieldNames());
+        }
+        break;
+      } catch (SolrServerException | IOException e) {
+        attempts--;
+        if (attempts <= 0) {
+          throw new SolrServiceException(
+              String.format(
+                  "Error while retrieving field names from Fulltext Solr. query=%s",
+                  query.toString()),
+              e);
+        }
+        try {
+          Thread.sleep(IndexingConstants.SLEEP_MS);
+        } catch (InterruptedException e1) {
+          throw new SolrServiceException("Error while retrieving field names from Fulltext Solr", e1);
+        }
+      }
+    }
+    return result;
+  }
+
   public SolrDocument getDocument(String europeanaId) throws SolrServiceException {
     QueryResponse response;
 
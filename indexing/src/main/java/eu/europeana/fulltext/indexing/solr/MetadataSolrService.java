@@ -8,11 +8,15 @@ import eu.europeana.fulltext.indexing.IndexingConstants;
 import eu.europeana.fulltext.indexing.config.IndexingAppSettings;
 import java.io.IOException;
 import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrRequest.METHOD;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.common.SolrDocument;
@@ -34,28 +38,68 @@ public class MetadataSolrService {
   }
 
   public SolrDocument getDocument(String europeanaId) throws SolrServiceException {
-    int attempts = 1;
-
     SolrQuery query =
         new SolrQuery(IndexingConstants.EUROPEANA_ID + ":\"" + europeanaId + "\"").addField(ALL);
 
-    while (attempts <= retryLimit) {
+    QueryResponse response = query(query);
+    if (response != null && !response.getResults().isEmpty()) {
+      return response.getResults().get(0);
+    }
+    return new SolrDocument();
+  }
+
+  /**
+   * Retrieves the Metadata documents for multiple records with a single query
+   *
+   * @param europeanaIds ids of the records to retrieve
+   * @return map with the retrieved documents, per europeanaId. Records that don't exist in the
+   *     Metadata collection are not included
+   * @throws SolrServiceException if Solr still fails after the configured number of retries
+   */
+  public Map<String, SolrDocument> getDocuments(Collection<String> europeanaIds)
+      throws SolrServiceException {
+    Map<String, SolrDocument> result = new HashMap<>();
+    if (europeanaIds.isEmpty()) {
+      return result;
+    }
+
+    // terms query parser isn't limited by maxBooleanClauses, unlike a query with OR-ed ids
+    SolrQuery query =
+        new SolrQuery(
+                "{!terms f=" + IndexingConstants.EUROPEANA_ID + "}" + String.join(",", europeanaIds))
+            .addField(ALL)
+            .setRows(europeanaIds.size());
+
+    QueryResponse response = query(query);
+    if (response != null) {
+      for (SolrDocument doc : response.getResults()) {
+        result.put(doc.getFieldValue(IndexingConstants.EUROPEANA_ID).toString(), doc);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Queries the Metadata collection, retrying up to retryLimit times on Solr errors
+   */
+  private QueryResponse query(SolrQuery query) throws SolrServiceException {
+    int attempts = 1;
+
+    while (true) {
       try {
-        QueryResponse response = metadataSolr.query(query);
+        // POST, as a query for a whole chunk of ids can exceed the maximum URL length
+        QueryResponse response = metadataSolr.query(query, METHOD.POST);
         if (log.isDebugEnabled()) {
           log.debug("Performed Metadata query in {}ms:  query={}; attempt={}", response.getElapsedTime(),
               query, attempts);
         }
-        if (response != null && !response.getResults().isEmpty()) {
-          return response.getResults().get(0);
-        }
-        break;
+        return response;
       } catch (SolrServerException | IOException e) {
         attempts++;
         if (attempts > retryLimit) {
           throw new SolrServiceException(
               String.format(
-                  "Error while searching Solr for lastUpdateTime after %s attempts. query=%s", attempts-1, query.toString()),
+                  "Error while querying Metadata Solr after %s attempts. query=%s", attempts-1, query.toString()),
               e);
         }
 
@@ -66,8 +110,6 @@ public class MetadataSolrService {
         }
       }
     }
-
-    return new SolrDocument();
   }
 
   /**
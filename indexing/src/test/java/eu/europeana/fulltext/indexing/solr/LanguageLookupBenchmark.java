@@ -0,0 +1,109 @@
+package eu.europeana.fulltext.indexing.solr;
+
+import eu.europeana.fulltext.indexing.IndexingConstants;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.apache.solr.client.solrj.response.schema.SchemaRepresentation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the language check that FulltextIndexingProcessor does for every AnnoPage of a record
+ * with 1,000 pages: collecting all schema field names for every page (the way the processor used
+ * to do it) with the precomputed set of supported languages of FulltextSolrService. The GC profiler
+ * is enabled, so the gc.alloc.rate.norm result shows the number of bytes allocated per record.
+ *
+ * <p>Run with: mvn -pl indexing test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=eu.europeana.fulltext.indexing.solr.LanguageLookupBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LanguageLookupBenchmark {
+
+  private static final int PAGES = 1000;
+  private static final int METADATA_FIELDS = 150;
+  private static final String[] LANGUAGES = {
+    "bg", "ca", "cs", "da", "de", "el", "en", "es", "et", "fi", "fr", "ga", "hr", "hu", "it", "lt",
+    "lv", "mt", "nl", "pl", "pt", "ro", "sk", "sl", "sv", "eu", "no", "ru", "uk", "sr"
+  };
+
+  private SchemaRepresentation schema;
+  private Set<String> supportedLanguages;
+  private String[] pageLanguages;
+
+  @Setup
+  public void setup() {
+    List<Map<String, Object>> fields = new ArrayList<>();
+    for (int i = 0; i < METADATA_FIELDS; i++) {
+      fields.add(Map.of("name", "proxy_field_" + i));
+    }
+    for (String language : LANGUAGES) {
+      fields.add(Map.of("name", IndexingConstants.FULLTEXT + "." + language));
+    }
+    schema = new SchemaRepresentation();
+    schema.setFields(fields);
+    supportedLanguages = FulltextSolrService.getSupportedLanguages(schema);
+
+    // mostly supported languages, some pages without or with an unsupported language
+    pageLanguages = new String[PAGES];
+    for (int i = 0; i < PAGES; i++) {
+      pageLanguages[i] = i % 10 == 0 ? "xx" : LANGUAGES[i % LANGUAGES.length];
+    }
+  }
+
+  /** Language check as FulltextIndexingProcessor did it before the supported languages were cached */
+  private static boolean isLangSupportedPerPage(String language, SchemaRepresentation schema) {
+    if (language == null || language.isEmpty()) {
+      return false;
+    }
+    return schema.getFields().stream()
+        .map(p -> p.get("name"))
+        .collect(Collectors.toList())
+        .contains(IndexingConstants.FULLTEXT + "." + language);
+  }
+
+  @Benchmark
+  public void schemaFieldsPerPage(Blackhole blackhole) {
+    for (String language : pageLanguages) {
+      blackhole.consume(isLangSupportedPerPage(language, schema));
+    }
+  }
+
+  @Benchmark
+  public void supportedLanguagesSet(Blackhole blackhole) {
+    for (String language : pageLanguages) {
+      blackhole.consume(
+          language != null && !language.isEmpty() && supportedLanguages.contains(language));
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(
+            new OptionsBuilder()
+                .include(LanguageLookupBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build())
+        .run();
+  }
+}
@@ -9,8 +9,10 @@ import eu.europeana.fulltext.migrations.listener.MigrationSkipListener;
 import eu.europeana.fulltext.migrations.model.MigrationJobMetadata;
 import eu.europeana.fulltext.migrations.processor.MigrationAnnoPageProcessor;
 import eu.europeana.fulltext.migrations.reader.MigrationAnnoPageReader;
+import eu.europeana.fulltext.migrations.reader.MigrationSplitAnnotationsReader;
 import eu.europeana.fulltext.migrations.repository.MigrationRepository;
 import eu.europeana.fulltext.migrations.writer.MigrationAnnoPageWriter;
+import eu.europeana.fulltext.migrations.writer.MigrationSplitAnnotationsWriter;
 import java.util.Date;
 import java.util.concurrent.atomic.AtomicLong;
 import org.apache.logging.log4j.LogManager;
@@ -47,6 +49,7 @@ public class MigrationBatchConfig {
 
   private static final Logger logger = LogManager.getLogger(MigrationBatchConfig.class);
   private final MigrationAnnoPageWriter writer;
+  private final MigrationSplitAnnotationsWriter splitAnnotationsWriter;
 
   public MigrationBatchConfig(
       JobBuilderFactory jobs,
@@ -56,7 +59,8 @@ public class MigrationBatchConfig {
       MigrationRepository repository,
       MigrationAnnoPageProcessor processor,
       MigrationSkipListener skipListener,
-      MigrationAnnoPageWriter writer) {
+      MigrationAnnoPageWriter writer,
+      MigrationSplitAnnotationsWriter splitAnnotationsWriter) {
     this.jobs = jobs;
     this.steps = steps;
     this.migrationTaskExecutor = migrationTaskExecutor;
@@ -65,6 +69,7 @@ public class MigrationBatchConfig {
     this.processor = processor;
     this.skipListener = skipListener;
     this.writer = writer;
+    this.splitAnnotationsWriter = splitAnnotationsWriter;
   }
 
   private ItemReader<AnnoPage> annoPageReader(MigrationJobMetadata jobMetadata) {
@@ -122,4 +127,40 @@ public class MigrationBatchConfig {
         .start(migrateAnnoPageStep(jobMetadata))
         .build();
   }
+
+  private Step splitAnnotationsByTypeStep(MigrationJobMetadata jobMetadata) {
+    return this.steps
+        .get("splitAnnotationsByTypeStep")
+        .<AnnoPage, AnnoPage>chunk(appSettings.getPageSize())
+        .reader(
+            threadSafeReader(
+                new MigrationSplitAnnotationsReader(
+                    appSettings.getPageSize(), repository, jobMetadata)))
+        .writer(splitAnnotationsWriter)
+        .faultTolerant()
+        // skip all exceptions up to the configurable limit
+        .skip(Exception.class)
+        .skipLimit(appSettings.getSkipLimit())
+        .listener(skipListener)
+        .taskExecutor(migrationTaskExecutor)
+        .throttleLimit(appSettings.getBatchThrottleLimit())
+        .build();
+  }
+
+  /**
+   * Job that converts AnnoPages so their annotations are stored grouped by dcType (see
+   * annopage.annotationsByType.enabled). Converted AnnoPages are no longer returned by the reader,
+   * so an interrupted job can simply be started again. If the API doesn't store annotations by type,
+   * it needs annopage.annotationsByType.existing=true to find converted annotations by id.
+   */
+  @Bean
+  private Job splitAnnotationsByTypeJob() {
+    return jobs.get("splitAnnotationsByTypeJob")
+        .incrementer(
+            // ensure each job run is unique
+            (JobParameters p) ->
+                new JobParametersBuilder().addDate("startTime", new Date()).toJobParameters())
+        .start(splitAnnotationsByTypeStep(new MigrationJobMetadata(null, new AtomicLong())))
+        .build();
+  }
 }
@@ -0,0 +1,32 @@
+package eu.europeana.fulltext.migrations.reader;
+
+import eu.europeana.fulltext.entity.AnnoPage;
+import eu.europeana.fulltext.migrations.model.MigrationJobMetadata;
+import eu.europeana.fulltext.migrations.repository.MigrationRepository;
+import java.util.List;
+import org.bson.types.ObjectId;
+import org.springframework.lang.Nullable;
+
+/**
+ * Thread-safe reader for fetching the ObjectIds of AnnoPages that still store all their annotations
+ * in one list.
+ *
+ * <p>Uses ObjectIds for pagination
+ */
+public class MigrationSplitAnnotationsReader extends MigrationAnnoPageReader {
+
+  public MigrationSplitAnnotationsReader(
+      int limit, MigrationRepository repository, MigrationJobMetadata jobMetadata) {
+    super(limit, repository, jobMetadata);
+  }
+
+  @Override
+  protected String getClassName() {
+    return MigrationSplitAnnotationsReader.class.getName();
+  }
+
+  @Override
+  protected List<AnnoPage> getAnnoPages(int count, @Nullable ObjectId objectId) {
+    return repository.getAnnoPageIdsWithAnnotationList(count, objectId);
+  }
+}
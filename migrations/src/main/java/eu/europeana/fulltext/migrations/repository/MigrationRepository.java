@@ -93,6 +93,96 @@ public class MigrationRepository {
         .toList();
   }
 
+  /**
+   * Gets the ObjectIds of AnnoPages that still store all their annotations in the ans list.
+   *
+   * @param count maximum number of AnnoPages to retrieve
+   * @param objectId ObjectId to start from (exclusive), or null to start at the beginning
+   * @return AnnoPages with only their ObjectId set, sorted by ObjectId
+   */
+  public List<AnnoPage> getAnnoPageIdsWithAnnotationList(int count, @Nullable ObjectId objectId) {
+    Query<AnnoPage> findQuery = sourceDataStore.find(AnnoPage.class).filter(exists(ANNOTATIONS));
+    if (objectId != null) {
+      findQuery.filter(Filters.gt(DOC_ID, objectId));
+    }
+
+    FindOptions findOpts = new FindOptions().limit(count).sort(Sort.ascending(DOC_ID));
+    findOpts.projection().include(DOC_ID);
+    return findQuery.iterator(findOpts).toList();
+  }
+
+  /**
+   * Moves the annotations of the given AnnoPages from the ans list to the ansByType buckets (one
+   * list per dcType). Each annotation gets its position in the ans list as idx, so the original
+   * order is kept when the buckets are merged again. The modified date is updated, as the stored
+   * AnnoPage changed. The conversion is done with an update pipeline, so annotations aren't
+   * transferred to this application. AnnoPages that are already converted are left untouched.
+   *
+   * @param objectIds ObjectIds of the AnnoPages to convert
+   * @return number of modified AnnoPages
+   */
+  public long splitAnnotationsByType(List<ObjectId> objectIds) {
+    if (objectIds.isEmpty()) {
+      return 0;
+    }
+    Document filter =
+        new Document(DOC_ID, new Document(MONGO_IN, objectIds))
+            .append(ANNOTATIONS, new Document("$exists", true));
+
+    // ans with the position of every annotation added as idx
+    Document indexedAnnotations =
+        new Document(
+            MONGO_MAP,
+            new Document(
+                    MONGO_INPUT,
+                    new Document("$range", List.of(0, new Document("$size", MONGO_ANNOTATIONS))))
+                .append(MONGO_AS, "i")
+                .append(
+                    MONGO_IN_EXPR,
+                    new Document(
+                        "$mergeObjects",
+                        List.of(
+                            new Document("$arrayElemAt", List.of(MONGO_ANNOTATIONS, "$$i")),
+                            new Document(AN_INDEX, "$$i")))));
+
+    // {k: <dcType>, v: <annotations with that dcType>} for every dcType present in ans
+    Document typeBucket =
+        new Document("k", "$$type")
+            .append(
+                "v",
+                new Document(
+                    MONGO_FILTER,
+                    new Document(MONGO_INPUT, MONGO_ANNOTATIONS)
+                        .append(
+                            MONGO_CONDITION,
+                            new Document(
+                                MONGO_EQUALS, List.of("$$this." + DC_TYPE, "$$type")))));
+    Document annotationsByType =
+        new Document(
+            "$arrayToObject",
+            new Document(
+                MONGO_MAP,
+                new Document(
+                        MONGO_INPUT,
+                        new Document("$setUnion", List.of("$" + ANNOTATIONS_DCTYPE)))
+                    .append(MONGO_AS, "type")
+                    .append(MONGO_IN_EXPR, typeBucket)));
+
+    List<Document> pipeline =
+        List.of(
+            new Document(SET, new Document(ANNOTATIONS, indexedAnnotations)),
+            new Document(
+                SET,
+                new Document(ANNOTATIONS_BY_TYPE, annotationsByType).append(MODIFIED, "$$NOW")),
+            new Document(UNSET, ANNOTATIONS));
+
+    return sourceDataStore
+        .getMapper()
+        .getCollection(AnnoPage.class)
+        .updateMany(filter, pipeline)
+        .getModifiedCount();
+  }
+
   /**
    * Similar to @{@link AnnoPageRepository#upsertAnnoPages(List)}, just that this method always
    * updates the Resource reference
@@ -0,0 +1,38 @@
+package eu.europeana.fulltext.migrations.writer;
+
+import eu.europeana.fulltext.entity.AnnoPage;
+import eu.europeana.fulltext.migrations.repository.MigrationRepository;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.types.ObjectId;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.stereotype.Component;
+
+/**
+ * Converts AnnoPages so their annotations are stored grouped by dcType. The conversion is done
+ * within Mongo, so annotations aren't transferred to this application.
+ */
+@Component
+public class MigrationSplitAnnotationsWriter implements ItemWriter<AnnoPage> {
+
+  private final MigrationRepository repository;
+  private static final Logger logger = LogManager.getLogger(MigrationSplitAnnotationsWriter.class);
+
+  public MigrationSplitAnnotationsWriter(MigrationRepository repository) {
+    this.repository = repository;
+  }
+
+  @Override
+  public void write(@NotNull List<? extends AnnoPage> annoPages) throws Exception {
+    List<ObjectId> objectIds =
+        annoPages.stream().map(AnnoPage::getDbId).collect(Collectors.toList());
+    long modified = repository.splitAnnotationsByType(objectIds);
+
+    if (logger.isDebugEnabled()) {
+      logger.debug("Stored annotations per type for {} of {} AnnoPages", modified, objectIds.size());
+    }
+  }
+}